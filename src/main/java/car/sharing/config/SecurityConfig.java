@@ -1,10 +1,15 @@
 package car.sharing.config;
 
 import car.sharing.security.JwtAuthenticationFilter;
+import car.sharing.security.RoleMaskAuthorizationManager;
 import lombok.RequiredArgsConstructor;
+import org.springframework.aop.Advisor;
+import org.springframework.beans.factory.config.BeanDefinition;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Role;
 import org.springframework.security.authentication.AuthenticationManager;
+import org.springframework.security.authorization.method.AuthorizationManagerBeforeMethodInterceptor;
 import org.springframework.security.config.annotation.authentication.configuration.AuthenticationConfiguration;
 import org.springframework.security.config.annotation.method.configuration.EnableMethodSecurity;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
@@ -16,7 +21,7 @@ import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.security.web.SecurityFilterChain;
 import org.springframework.security.web.authentication.UsernamePasswordAuthenticationFilter;
 
-@EnableMethodSecurity
+@EnableMethodSecurity(prePostEnabled = false)
 @Configuration
 @RequiredArgsConstructor
 @EnableWebSecurity
@@ -24,6 +29,14 @@ public class SecurityConfig {
     private final UserDetailsService userDetailsService;
     private final JwtAuthenticationFilter jwtAuthenticationFilter;
 
+    @Bean
+    @Role(BeanDefinition.ROLE_INFRASTRUCTURE)
+    public static Advisor preAuthorizeAdvisor(
+            RoleMaskAuthorizationManager roleMaskAuthorizationManager) {
+        return AuthorizationManagerBeforeMethodInterceptor
+                .preAuthorize(roleMaskAuthorizationManager);
+    }
+
     @Bean
     public PasswordEncoder getPasswordEncoder() {
         return new BCryptPasswordEncoder();
@@ -37,6 +50,8 @@ public class SecurityConfig {
                 .csrf(AbstractHttpConfigurer::disable)
                 .authorizeHttpRequests(
                         auth -> auth
+                                .requestMatchers("/auth/logout")
+                                .authenticated()
                                 .requestMatchers("/auth/**",
                                         "/swagger-ui/**",
                                         "/v3/api-docs/**"
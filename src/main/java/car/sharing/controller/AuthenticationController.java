@@ -1,20 +1,28 @@
 package car.sharing.controller;
 
+import car.sharing.dto.user.LogoutRequestDto;
+import car.sharing.dto.user.RefreshTokenRequestDto;
 import car.sharing.dto.user.UserDto;
 import car.sharing.dto.user.UserLoginRequestDto;
 import car.sharing.dto.user.UserLoginResponseDto;
 import car.sharing.dto.user.UserRegistrationRequestDto;
 import car.sharing.exception.RegistrationException;
 import car.sharing.security.AuthenticationService;
+import car.sharing.security.LoginGuard;
 import car.sharing.service.UserService;
 import com.stripe.exception.StripeException;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.servlet.http.HttpServletRequest;
 import jakarta.validation.Valid;
+import java.util.concurrent.CompletableFuture;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
+import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.ResponseStatus;
 import org.springframework.web.bind.annotation.RestController;
 
 @Tag(name = "Authentication management", description = "Endpoints for managing authentication")
@@ -24,11 +32,31 @@ import org.springframework.web.bind.annotation.RestController;
 public class AuthenticationController {
     private final UserService userService;
     private final AuthenticationService authenticationService;
+    private final LoginGuard loginGuard;
 
     @PostMapping("/login")
     @Operation(summary = "Authenticate the user", description = "Authenticate the user")
-    public UserLoginResponseDto login(@RequestBody UserLoginRequestDto requestDto) {
-        return authenticationService.authentication(requestDto);
+    public CompletableFuture<UserLoginResponseDto> login(
+            @RequestBody UserLoginRequestDto requestDto,
+            HttpServletRequest request) {
+        return loginGuard.login(requestDto.email(), request.getRemoteAddr(),
+                () -> authenticationService.authentication(requestDto));
+    }
+
+    @PostMapping("/refresh")
+    @Operation(summary = "Refresh the access token",
+            description = "Exchange a refresh token for a new access and refresh token")
+    public UserLoginResponseDto refresh(@RequestBody @Valid RefreshTokenRequestDto requestDto) {
+        return authenticationService.refresh(requestDto);
+    }
+
+    @PostMapping("/logout")
+    @ResponseStatus(HttpStatus.NO_CONTENT)
+    @Operation(summary = "Log out the user",
+            description = "Revoke the current access token and the given refresh token")
+    public void logout(Authentication authentication,
+                       @RequestBody(required = false) LogoutRequestDto requestDto) {
+        authenticationService.logout((String) authentication.getCredentials(), requestDto);
     }
 
     @PostMapping("/registration")
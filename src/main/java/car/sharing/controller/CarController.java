@@ -1,15 +1,35 @@
 package car.sharing.controller;
 
+import car.sharing.dto.bulk.BulkImportResultDto;
+import car.sharing.dto.car.CarAvailabilityDto;
 import car.sharing.dto.car.CarDto;
 import car.sharing.dto.car.CarRequestDto;
+import car.sharing.dto.car.CarSearchParametersDto;
+import car.sharing.dto.car.VehicleUnitDto;
+import car.sharing.dto.car.VehicleUnitRequestDto;
+import car.sharing.dto.page.CursorPageDto;
+import car.sharing.service.CarImportService;
 import car.sharing.service.CarService;
+import car.sharing.service.bulk.BulkRowReader;
+import car.sharing.service.car.CarCatalogCache;
+import car.sharing.service.car.CatalogEntry;
 import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.media.ArraySchema;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.servlet.http.HttpServletRequest;
 import jakarta.validation.Valid;
+import java.io.IOException;
+import java.time.LocalDate;
 import java.util.List;
 import lombok.RequiredArgsConstructor;
 import org.springframework.data.domain.Pageable;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
@@ -17,9 +37,13 @@ import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.ResponseStatus;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 @Tag(name = "Car management", description = "Endpoints for cars managing")
 @RequiredArgsConstructor
@@ -27,6 +51,7 @@ import org.springframework.web.bind.annotation.RestController;
 @RequestMapping(value = "/cars")
 public class CarController {
     private final CarService carService;
+    private final CarImportService carImportService;
 
     @PreAuthorize("hasRole('MANAGER')")
     @PostMapping
@@ -36,16 +61,98 @@ public class CarController {
         return carService.add(requestDto);
     }
 
+    @PreAuthorize("hasRole('MANAGER')")
+    @PostMapping(value = "/bulk",
+            consumes = {BulkRowReader.TEXT_CSV, BulkRowReader.APPLICATION_NDJSON})
+    @Operation(summary = "Add cars in bulk",
+            description = "Add cars from a CSV file with a header line or from NDJSON, "
+                    + "reporting the rows that could not be imported")
+    public BulkImportResultDto addAll(HttpServletRequest request) throws IOException {
+        return carImportService.importCars(request.getInputStream(), request.getContentType());
+    }
+
     @GetMapping
-    @Operation(summary = "Get all cars", description = "Get a list of all available cars")
-    public List<CarDto> getAll(Pageable pageable) {
-        return carService.findAll(pageable);
+    @Operation(summary = "Get all cars", description = "Get a list of all available cars. "
+            + "The next page is linked in the Link header with an opaque cursor")
+    @ApiResponse(responseCode = "200", content = @Content(
+            array = @ArraySchema(schema = @Schema(implementation = CarDto.class))))
+    @ApiResponse(responseCode = "304", description = "The page matches If-None-Match")
+    public ResponseEntity<byte[]> getAll(
+            @RequestParam(name = CursorLinks.CURSOR_PARAM, required = false) String cursor,
+            Pageable pageable,
+            WebRequest request) {
+        CatalogEntry<CursorPageDto<CarDto>> page = carService.findAllSerialized(cursor, pageable);
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                .headers(CursorLinks.next(page.value().nextCursor()));
+        if (page.isVersioned()) {
+            String etag = CarCatalogCache.pageETag(page.version());
+            if (request.checkNotModified(etag)) {
+                return null;
+            }
+            response.eTag(etag);
+        }
+        return response
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(page.json());
+    }
+
+    @GetMapping("/search")
+    @Operation(summary = "Search cars",
+            description = "Search cars by brand, model, type, daily fee range and availability")
+    public List<CarDto> search(@Valid CarSearchParametersDto parameters, Pageable pageable) {
+        return carService.search(parameters, pageable);
+    }
+
+    @GetMapping("/availability")
+    @Operation(summary = "Find available cars",
+            description = "Get the cars with at least one unit free from the first day "
+                    + "until the return day, ordered by ID")
+    public List<CarAvailabilityDto> findAvailable(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            Pageable pageable) {
+        return carService.findAvailable(from, to, pageable);
+    }
+
+    @GetMapping(value = "/availability/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    @Operation(summary = "Stream car availability",
+            description = "Send a snapshot of free units per car, then an event each time "
+                    + "the number of free units of a car changes. Reconnecting with "
+                    + "Last-Event-ID resumes from the missed events; an id from another "
+                    + "instance or from before a restart gets a new snapshot")
+    public SseEmitter streamAvailability(
+            @RequestHeader(name = "Last-Event-ID", required = false) String lastEventId) {
+        return carService.streamAvailability(lastEventId);
+    }
+
+    @GetMapping("/{id}/availability")
+    @Operation(summary = "Get car availability",
+            description = "Get how many units of the car are free from the first day "
+                    + "until the return day")
+    public CarAvailabilityDto getAvailability(
+            @PathVariable Long id,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to) {
+        return carService.getAvailability(id, from, to);
     }
 
     @GetMapping("/{id}")
     @Operation(summary = "Get the car by ID", description = "Get car's detailed information")
-    public CarDto getCarById(@PathVariable Long id) {
-        return carService.getById(id);
+    @ApiResponse(responseCode = "200",
+            content = @Content(schema = @Schema(implementation = CarDto.class)))
+    @ApiResponse(responseCode = "304", description = "The car matches If-None-Match")
+    public ResponseEntity<byte[]> getCarById(@PathVariable Long id, WebRequest request) {
+        if (request.checkNotModified(CarCatalogCache.carETag(id, carService.getCarVersion(id)))) {
+            return null;
+        }
+        CatalogEntry<CarDto> car = carService.getSerializedById(id);
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        if (car.isVersioned()) {
+            response.eTag(CarCatalogCache.carETag(id, car.version()));
+        }
+        return response
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(car.json());
     }
 
     @PreAuthorize("hasRole('MANAGER')")
@@ -53,10 +160,28 @@ public class CarController {
     @Operation(summary = "Update the car by ID",
             description = "Update the car by ID (also manage inventory)")
     public CarDto updateCarById(@PathVariable Long id,
-                                  @RequestBody CarRequestDto requestDto) {
+                                  @RequestBody @Valid CarRequestDto requestDto) {
         return carService.updateById(id, requestDto);
     }
 
+    @PreAuthorize("hasRole('MANAGER')")
+    @PostMapping("/{id}/units")
+    @ResponseStatus(HttpStatus.CREATED)
+    @Operation(summary = "Register a vehicle unit",
+            description = "Register a physical vehicle of the car by its plate and VIN")
+    public VehicleUnitDto addUnit(@PathVariable Long id,
+                                  @RequestBody @Valid VehicleUnitRequestDto requestDto) {
+        return carService.addUnit(id, requestDto);
+    }
+
+    @PreAuthorize("hasRole('MANAGER')")
+    @GetMapping("/{id}/units")
+    @Operation(summary = "Get vehicle units of the car",
+            description = "Get the physical vehicles of the car and whether they are rented")
+    public List<VehicleUnitDto> getUnits(@PathVariable Long id) {
+        return carService.getUnits(id);
+    }
+
     @PreAuthorize("hasRole('MANAGER')")
     @ResponseStatus(HttpStatus.NO_CONTENT)
     @DeleteMapping("/{id}")
@@ -0,0 +1,27 @@
+package car.sharing.controller;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
+
+/**
+ * Advertises the next page of a keyset-paginated list in a {@code Link} header,
+ * so list bodies stay plain JSON arrays.
+ */
+final class CursorLinks {
+    static final String CURSOR_PARAM = "cursor";
+
+    private CursorLinks() {
+    }
+
+    static HttpHeaders next(String nextCursor) {
+        HttpHeaders headers = new HttpHeaders();
+        if (nextCursor != null) {
+            String uri = ServletUriComponentsBuilder.fromCurrentRequest()
+                    .replaceQueryParam(CURSOR_PARAM, nextCursor)
+                    .replaceQueryParam("page")
+                    .toUriString();
+            headers.add(HttpHeaders.LINK, "<" + uri + ">; rel=\"next\"");
+        }
+        return headers;
+    }
+}
@@ -1,14 +1,17 @@
 package car.sharing.controller;
 
+import car.sharing.dto.page.CursorPageDto;
 import car.sharing.dto.payment.PaymentDto;
 import car.sharing.dto.payment.PaymentRequestDto;
-import car.sharing.model.user.User;
+import car.sharing.security.UserPrincipal;
 import car.sharing.service.PaymentService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
 import java.util.List;
 import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.Pageable;
+import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.GetMapping;
@@ -28,18 +31,25 @@ public class PaymentController {
     @PreAuthorize("hasRole('MANAGER')")
     @GetMapping("/admin")
     @Operation(summary = "Get all payments for admin",
-            description = "Get a list of all payments for admin")
-    public List<PaymentDto> findAllPayment() {
-        return paymentService.findAll();
+            description = "Get a list of all payments for admin. "
+                    + "The next page is linked in the Link header with an opaque cursor")
+    public ResponseEntity<List<PaymentDto>> findAllPayment(
+            @RequestParam(name = CursorLinks.CURSOR_PARAM, required = false) String cursor,
+            Pageable pageable) {
+        return page(paymentService.findAll(cursor, pageable));
     }
 
     @PreAuthorize("hasRole('CUSTOMER')")
     @GetMapping
     @Operation(summary = "Get all payments by user id",
-            description = "Get a list of all payments by user id")
-    public List<PaymentDto> findAllByUserId(Authentication authentication) {
-        User user = (User) authentication.getPrincipal();
-        return paymentService.findAllByUserId(user.getId());
+            description = "Get a list of all payments by user id. "
+                    + "The next page is linked in the Link header with an opaque cursor")
+    public ResponseEntity<List<PaymentDto>> findAllByUserId(
+            Authentication authentication,
+            @RequestParam(name = CursorLinks.CURSOR_PARAM, required = false) String cursor,
+            Pageable pageable) {
+        UserPrincipal user = (UserPrincipal) authentication.getPrincipal();
+        return page(paymentService.findAllByUserId(user.getId(), cursor, pageable));
     }
 
     @PreAuthorize("hasRole('CUSTOMER')")
@@ -66,4 +76,10 @@ public class PaymentController {
         paymentService.getCancelledPayment(sessionId);
         return "Payment was cancelled. The session is available for the next 24 hours.";
     }
+
+    private ResponseEntity<List<PaymentDto>> page(CursorPageDto<PaymentDto> page) {
+        return ResponseEntity.ok()
+                .headers(CursorLinks.next(page.nextCursor()))
+                .body(page.content());
+    }
 }
@@ -1,18 +1,26 @@
 package car.sharing.controller;
 
+import car.sharing.dto.page.CursorPageDto;
 import car.sharing.dto.rental.RentalDto;
+import car.sharing.dto.rental.RentalHoldDto;
+import car.sharing.dto.rental.RentalHoldRequestDto;
 import car.sharing.dto.rental.RentalRequestDto;
-import car.sharing.model.user.User;
+import car.sharing.dto.rental.WaitlistEntryDto;
+import car.sharing.security.UserPrincipal;
+import car.sharing.service.RentalHoldService;
 import car.sharing.service.RentalService;
 import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
 import java.util.List;
 import lombok.RequiredArgsConstructor;
 import org.springframework.data.domain.Pageable;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.core.Authentication;
+import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
@@ -21,6 +29,7 @@ import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.ResponseStatus;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
 
 @Tag(name = "Rental management", description = "Endpoints for rentals managing")
 @RequiredArgsConstructor
@@ -28,6 +37,7 @@ import org.springframework.web.bind.annotation.RestController;
 @RequestMapping(value = "/rentals")
 public class RentalController {
     private final RentalService rentalService;
+    private final RentalHoldService holdService;
 
     @PreAuthorize("hasRole('CUSTOMER')")
     @PostMapping
@@ -35,30 +45,96 @@ public class RentalController {
     @Operation(summary = "Add a new rental", description = "Add a rental car")
     public RentalDto addRental(@RequestBody @Valid RentalRequestDto requestDto,
                             Authentication authentication) {
-        User user = (User) authentication.getPrincipal();
+        UserPrincipal user = (UserPrincipal) authentication.getPrincipal();
         return rentalService.add(requestDto, user.getId());
     }
 
+    @PreAuthorize("hasRole('CUSTOMER')")
+    @PostMapping("/holds")
+    @ResponseStatus(HttpStatus.CREATED)
+    @Operation(summary = "Hold a car during checkout",
+            description = "Set a unit of the car aside for a few minutes. Pass the hold ID "
+                    + "when adding the rental to take the held unit")
+    public RentalHoldDto holdCar(@RequestBody @Valid RentalHoldRequestDto requestDto,
+                                 Authentication authentication) {
+        UserPrincipal user = (UserPrincipal) authentication.getPrincipal();
+        return holdService.hold(requestDto, user.getId());
+    }
+
+    @PreAuthorize("hasRole('CUSTOMER')")
+    @DeleteMapping("/holds/{id}")
+    @ResponseStatus(HttpStatus.NO_CONTENT)
+    @Operation(summary = "Release a hold", description = "Give the held unit back")
+    public void releaseHold(@PathVariable Long id, Authentication authentication) {
+        UserPrincipal user = (UserPrincipal) authentication.getPrincipal();
+        holdService.release(id, user.getId());
+    }
+
+    @PreAuthorize("hasRole('CUSTOMER')")
+    @PostMapping("/waitlist/{carId}")
+    @Operation(summary = "Wait for a sold-out car",
+            description = "Hold a unit of the car if one is free, otherwise join the car's "
+                    + "waitlist. The first customer in line gets the next returned unit "
+                    + "as a hold, shown by GET /rentals/waitlist/{carId}; the Telegram "
+                    + "notification only goes to the managers' chat")
+    public WaitlistEntryDto joinWaitlist(@PathVariable Long carId,
+                                         Authentication authentication) {
+        UserPrincipal user = (UserPrincipal) authentication.getPrincipal();
+        return holdService.joinWaitlist(carId, user.getId());
+    }
+
+    @PreAuthorize("hasRole('CUSTOMER')")
+    @GetMapping("/waitlist/{carId}")
+    @Operation(summary = "Check the waitlist",
+            description = "Get the hold offered to you for the car, or your place in its "
+                    + "waitlist. Poll it while waiting: customers aren't notified of the "
+                    + "offer, which lapses after the acceptance window")
+    public WaitlistEntryDto getWaitlistEntry(@PathVariable Long carId,
+                                             Authentication authentication) {
+        UserPrincipal user = (UserPrincipal) authentication.getPrincipal();
+        return holdService.getWaitlistEntry(carId, user.getId());
+    }
+
+    @PreAuthorize("hasRole('CUSTOMER')")
+    @DeleteMapping("/waitlist/{carId}")
+    @ResponseStatus(HttpStatus.NO_CONTENT)
+    @Operation(summary = "Leave the waitlist", description = "Stop waiting for the car")
+    public void leaveWaitlist(@PathVariable Long carId, Authentication authentication) {
+        UserPrincipal user = (UserPrincipal) authentication.getPrincipal();
+        holdService.leaveWaitlist(carId, user.getId());
+    }
+
     @PreAuthorize("hasRole('CUSTOMER')")
     @GetMapping("/active")
     @Operation(summary = "Get all rentals", description = "Get a list of all rental "
-            + " by user ID and whether the rental is still active or not")
-    public List<RentalDto> getAllActiveRentals(
+            + " by user ID and whether the rental is still active or not. "
+            + "The next page is linked in the Link header with an opaque cursor")
+    public ResponseEntity<List<RentalDto>> getAllActiveRentals(
             @RequestParam(name = "is_active") boolean isActive,
+            @RequestParam(name = CursorLinks.CURSOR_PARAM, required = false) String cursor,
                                                Authentication authentication,
                                                Pageable pageable) {
-        User user = (User) authentication.getPrincipal();
-        if (isActive) {
-            return rentalService.findAllActiveRentals(user.getId(), pageable);
-        } else {
-            return rentalService.findAllNotActiveRentals(user.getId(), pageable);
-        }
+        UserPrincipal user = (UserPrincipal) authentication.getPrincipal();
+        CursorPageDto<RentalDto> page = isActive
+                ? rentalService.findAllActiveRentals(user.getId(), cursor, pageable)
+                : rentalService.findAllNotActiveRentals(user.getId(), cursor, pageable);
+        return ResponseEntity.ok()
+                .headers(CursorLinks.next(page.nextCursor()))
+                .body(page.content());
     }
 
     @GetMapping("/{id}")
     @Operation(summary = "Get specific rental by ID", description = "Get specific rental by ID")
-    public RentalDto getRentalById(@PathVariable Long id) {
-        return rentalService.getById(id);
+    @ApiResponse(responseCode = "304", description = "The rental matches If-None-Match")
+    public ResponseEntity<RentalDto> getRentalById(@PathVariable Long id, WebRequest request) {
+        String etag = rentalService.getETag(id);
+        if (etag != null && request.checkNotModified(etag)) {
+            return null;
+        }
+        RentalDto rental = rentalService.getById(id);
+        return ResponseEntity.ok()
+                .eTag(etag)
+                .body(rental);
     }
 
     @PreAuthorize("hasRole('MANAGER')")
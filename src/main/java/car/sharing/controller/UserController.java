@@ -1,17 +1,23 @@
 package car.sharing.controller;
 
+import car.sharing.dto.bulk.BulkImportResultDto;
 import car.sharing.dto.user.UserDto;
 import car.sharing.dto.user.UserRegistrationRequestDto;
 import car.sharing.dto.user.UserUpdateRequestDto;
-import car.sharing.model.user.User;
+import car.sharing.security.UserPrincipal;
+import car.sharing.service.UserImportService;
 import car.sharing.service.UserService;
+import car.sharing.service.bulk.BulkRowReader;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.servlet.http.HttpServletRequest;
+import java.io.IOException;
 import lombok.RequiredArgsConstructor;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
@@ -23,6 +29,7 @@ import org.springframework.web.bind.annotation.RestController;
 @RequestMapping("/users")
 public class UserController {
     private final UserService userService;
+    private final UserImportService userImportService;
 
     @PreAuthorize("hasRole('MANAGER')")
     @PutMapping("/{id}/role")
@@ -36,8 +43,8 @@ public class UserController {
     @GetMapping("/me")
     @Operation(summary = "Get user`s profile info", description = "Get user`s profile info")
     public UserDto getInfo(Authentication authentication) {
-        User user = (User) authentication.getPrincipal();
-        return userService.getInfo(user);
+        UserPrincipal user = (UserPrincipal) authentication.getPrincipal();
+        return userService.getInfo(user.getEmail());
     }
 
     @PreAuthorize("hasRole('CUSTOMER')")
@@ -45,8 +52,19 @@ public class UserController {
     @Operation(summary = "Update user`s profile info", description = "Update user`s profile info")
     public UserDto updateInfo(Authentication authentication,
                               @RequestBody UserRegistrationRequestDto requestDto) {
-        User user = (User) authentication.getPrincipal();
-        return userService.updateInfo(user, requestDto);
+        UserPrincipal user = (UserPrincipal) authentication.getPrincipal();
+        return userService.updateInfo(user.getEmail(), requestDto);
+    }
+
+    @PreAuthorize("hasRole('MANAGER')")
+    @PostMapping(value = "/bulk",
+            consumes = {BulkRowReader.TEXT_CSV, BulkRowReader.APPLICATION_NDJSON})
+    @Operation(summary = "Register customers in bulk",
+            description = "Register customers from a CSV file with a header line "
+                    + "or from NDJSON, reporting the rows that could not be imported")
+    public BulkImportResultDto registerAll(HttpServletRequest request) throws IOException {
+        return userImportService.importCustomers(request.getInputStream(),
+                request.getContentType());
     }
 
 }
@@ -0,0 +1,13 @@
+package car.sharing.dto.bulk;
+
+import java.util.List;
+
+public record BulkImportResultDto(
+        long totalRows,
+        long importedRows,
+        long failedRows,
+        List<RowErrorDto> errors,
+        long durationMillis,
+        double rowsPerSecond
+) {
+}
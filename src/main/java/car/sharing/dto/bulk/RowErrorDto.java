@@ -0,0 +1,4 @@
+package car.sharing.dto.bulk;
+
+public record RowErrorDto(long row, String message) {
+}
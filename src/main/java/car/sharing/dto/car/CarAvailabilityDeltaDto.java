@@ -0,0 +1,4 @@
+package car.sharing.dto.car;
+
+public record CarAvailabilityDeltaDto(Long carId, int inventory) {
+}
@@ -0,0 +1,4 @@
+package car.sharing.dto.car;
+
+public record CarAvailabilityDto(Long carId, int freeUnits) {
+}
@@ -0,0 +1,36 @@
+package car.sharing.dto.car;
+
+import car.sharing.model.car.Car;
+import car.sharing.model.car.CarType;
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotNull;
+import java.math.BigDecimal;
+import lombok.Data;
+import lombok.experimental.Accessors;
+import org.hibernate.validator.constraints.Length;
+
+@Data
+@Accessors(chain = true)
+public class CarImportRowDto {
+    @NotBlank
+    @Length(max = 255)
+    private String model;
+
+    @NotBlank
+    @Length(max = 255)
+    private String brand;
+
+    @NotNull
+    private CarType type;
+
+    @NotNull
+    @Min(0)
+    @Max(Car.MAX_INVENTORY)
+    private Integer inventory;
+
+    @NotNull
+    @Min(0)
+    private BigDecimal dailyFee;
+}
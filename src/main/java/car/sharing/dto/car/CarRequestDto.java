@@ -1,6 +1,8 @@
 package car.sharing.dto.car;
 
+import car.sharing.model.car.Car;
 import car.sharing.model.car.CarType;
+import jakarta.validation.constraints.Max;
 import jakarta.validation.constraints.Min;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.NotNull;
@@ -17,6 +19,8 @@ public class CarRequestDto {
     private String brand;
     @NotNull
     private CarType type;
+    @Min(0)
+    @Max(Car.MAX_INVENTORY)
     private Integer inventory;
     @Min(0)
     private BigDecimal dailyFee;
@@ -0,0 +1,20 @@
+package car.sharing.dto.car;
+
+import car.sharing.model.car.CarType;
+import jakarta.validation.constraints.Min;
+import java.math.BigDecimal;
+import lombok.Data;
+import lombok.experimental.Accessors;
+
+@Data
+@Accessors(chain = true)
+public class CarSearchParametersDto {
+    private String brand;
+    private String model;
+    private CarType type;
+    @Min(0)
+    private BigDecimal minDailyFee;
+    @Min(0)
+    private BigDecimal maxDailyFee;
+    private boolean available;
+}
@@ -0,0 +1,14 @@
+package car.sharing.dto.car;
+
+import lombok.Data;
+import lombok.experimental.Accessors;
+
+@Data
+@Accessors(chain = true)
+public class VehicleUnitDto {
+    private Long id;
+    private Long carId;
+    private String plate;
+    private String vin;
+    private boolean rented;
+}
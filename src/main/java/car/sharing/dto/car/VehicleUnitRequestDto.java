@@ -0,0 +1,16 @@
+package car.sharing.dto.car;
+
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.Pattern;
+import lombok.Data;
+import lombok.experimental.Accessors;
+
+@Data
+@Accessors(chain = true)
+public class VehicleUnitRequestDto {
+    @NotBlank
+    @Pattern(regexp = "[A-Z0-9 -]{1,20}")
+    private String plate;
+    @Pattern(regexp = "[A-HJ-NPR-Z0-9]{17}")
+    private String vin;
+}
@@ -0,0 +1,9 @@
+package car.sharing.dto.page;
+
+import java.util.List;
+
+/**
+ * One page of a keyset-paginated list. {@code nextCursor} is null on the last page.
+ */
+public record CursorPageDto<T>(List<T> content, String nextCursor) {
+}
@@ -12,4 +12,5 @@ public class RentalDto {
     private LocalDate actualReturnDate;
     private LocalDate returnDate;
     private Long carId;
+    private Long vehicleUnitId;
 }
@@ -0,0 +1,14 @@
+package car.sharing.dto.rental;
+
+import java.time.LocalDateTime;
+import lombok.Data;
+import lombok.experimental.Accessors;
+
+@Data
+@Accessors(chain = true)
+public class RentalHoldDto {
+    private Long id;
+    private Long carId;
+    private Long vehicleUnitId;
+    private LocalDateTime expiresAt;
+}
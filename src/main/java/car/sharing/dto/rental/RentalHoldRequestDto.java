@@ -0,0 +1,18 @@
+package car.sharing.dto.rental;
+
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotNull;
+import lombok.Data;
+import lombok.experimental.Accessors;
+
+@Data
+@Accessors(chain = true)
+public class RentalHoldRequestDto {
+    @NotNull
+    @Min(1)
+    private Long carId;
+    @Min(1)
+    @Max(30)
+    private Integer minutes;
+}
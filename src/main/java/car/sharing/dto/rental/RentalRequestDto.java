@@ -13,4 +13,5 @@ public class RentalRequestDto {
     private LocalDate returnDate;
     @Min(1)
     private Long carId;
+    private Long holdId;
 }
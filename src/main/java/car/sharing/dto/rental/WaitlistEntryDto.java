@@ -0,0 +1,13 @@
+package car.sharing.dto.rental;
+
+import lombok.Data;
+import lombok.experimental.Accessors;
+
+@Data
+@Accessors(chain = true)
+public class WaitlistEntryDto {
+    private Long carId;
+    private int waiting;
+    private int position;
+    private RentalHoldDto hold;
+}
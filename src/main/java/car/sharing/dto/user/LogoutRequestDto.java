@@ -0,0 +1,4 @@
+package car.sharing.dto.user;
+
+public record LogoutRequestDto(String refreshToken) {
+}
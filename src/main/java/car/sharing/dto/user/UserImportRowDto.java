@@ -0,0 +1,25 @@
+package car.sharing.dto.user;
+
+import jakarta.validation.constraints.Email;
+import jakarta.validation.constraints.NotBlank;
+import lombok.Data;
+import lombok.experimental.Accessors;
+import org.hibernate.validator.constraints.Length;
+
+@Data
+@Accessors(chain = true)
+public class UserImportRowDto {
+    @NotBlank
+    @Email
+    private String email;
+
+    @NotBlank
+    @Length(min = 8, max = 20)
+    private String password;
+
+    @NotBlank
+    private String firstName;
+
+    @NotBlank
+    private String lastName;
+}
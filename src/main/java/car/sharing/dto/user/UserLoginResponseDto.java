@@ -1,4 +1,4 @@
 package car.sharing.dto.user;
 
-public record UserLoginResponseDto(String token) {
+public record UserLoginResponseDto(String token, String refreshToken) {
 }
@@ -0,0 +1,7 @@
+package car.sharing.exception;
+
+public class DuplicateVehicleUnitException extends RuntimeException {
+    public DuplicateVehicleUnitException(String message) {
+        super(message);
+    }
+}
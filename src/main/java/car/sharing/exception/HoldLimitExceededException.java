@@ -0,0 +1,7 @@
+package car.sharing.exception;
+
+public class HoldLimitExceededException extends RuntimeException {
+    public HoldLimitExceededException(String message) {
+        super(message);
+    }
+}
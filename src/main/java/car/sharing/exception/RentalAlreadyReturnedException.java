@@ -0,0 +1,7 @@
+package car.sharing.exception;
+
+public class RentalAlreadyReturnedException extends RuntimeException {
+    public RentalAlreadyReturnedException(String message) {
+        super(message);
+    }
+}
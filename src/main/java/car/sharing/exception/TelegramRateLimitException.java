@@ -0,0 +1,20 @@
+package car.sharing.exception;
+
+import java.time.Duration;
+
+/**
+ * Thrown when a message can't be sent yet because of the Telegram rate limits.
+ * Nothing was sent; the message can be sent again after {@link #getRetryAfter()}.
+ */
+public class TelegramRateLimitException extends TelegramNotificationException {
+    private final Duration retryAfter;
+
+    public TelegramRateLimitException(String message, Duration retryAfter) {
+        super(message);
+        this.retryAfter = retryAfter;
+    }
+
+    public Duration getRetryAfter() {
+        return retryAfter;
+    }
+}
@@ -0,0 +1,11 @@
+package car.sharing.mapper;
+
+import car.sharing.config.MapperConfig;
+import car.sharing.dto.rental.RentalHoldDto;
+import car.sharing.model.rental.RentalHold;
+import org.mapstruct.Mapper;
+
+@Mapper(config = MapperConfig.class)
+public interface RentalHoldMapper {
+    RentalHoldDto toDto(RentalHold hold);
+}
@@ -9,6 +9,7 @@ import org.mapstruct.Mapping;
 @Mapper(config = MapperConfig.class)
 public interface RentalMapper {
     @Mapping(target = "carId", source = "car.id")
+    @Mapping(target = "vehicleUnitId", source = "vehicleUnit.id")
     RentalDto toDto(Rental rental);
 
     Rental toModel(RentalDto rentalDto);
@@ -0,0 +1,13 @@
+package car.sharing.mapper;
+
+import car.sharing.config.MapperConfig;
+import car.sharing.dto.car.VehicleUnitDto;
+import car.sharing.model.car.VehicleUnit;
+import org.mapstruct.Mapper;
+import org.mapstruct.Mapping;
+
+@Mapper(config = MapperConfig.class)
+public interface VehicleUnitMapper {
+    @Mapping(target = "carId", source = "car.id")
+    VehicleUnitDto toDto(VehicleUnit vehicleUnit);
+}
@@ -12,6 +12,7 @@ import java.math.BigDecimal;
 import lombok.Getter;
 import lombok.RequiredArgsConstructor;
 import lombok.Setter;
+import org.hibernate.annotations.Formula;
 import org.hibernate.annotations.SQLDelete;
 import org.hibernate.annotations.Where;
 
@@ -23,6 +24,12 @@ import org.hibernate.annotations.Where;
 @Where(clause = "is_deleted = FALSE")
 @Table(name = "cars")
 public class Car {
+    /**
+     * Upper bound of the units of one car, so a single request can't create
+     * an unbounded number of rows.
+     */
+    public static final int MAX_INVENTORY = 10_000;
+
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
@@ -38,7 +45,11 @@ public class Car {
             name = "car_type", nullable = false)
     private CarType type;
 
-    @Column(nullable = false)
+    /**
+     * Number of free vehicle units, counted from {@code vehicle_units} on load.
+     */
+    @Formula("(SELECT COUNT(*) FROM vehicle_units u WHERE u.car_id = id "
+            + "AND u.is_rented = FALSE AND u.is_deleted = FALSE)")
     private Integer inventory;
 
     @Column(name = "daily_fee", nullable = false)
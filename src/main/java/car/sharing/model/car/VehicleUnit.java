@@ -0,0 +1,45 @@
+package car.sharing.model.car;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.FetchType;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.JoinColumn;
+import jakarta.persistence.ManyToOne;
+import jakarta.persistence.Table;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.Setter;
+import org.hibernate.annotations.SQLDelete;
+import org.hibernate.annotations.Where;
+
+@RequiredArgsConstructor
+@Getter
+@Setter
+@Entity
+@SQLDelete(sql = "UPDATE vehicle_units SET is_deleted = TRUE WHERE id = ?")
+@Where(clause = "is_deleted = FALSE")
+@Table(name = "vehicle_units")
+public class VehicleUnit {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "car_id", nullable = false)
+    private Car car;
+
+    @Column(unique = true)
+    private String plate;
+
+    @Column(unique = true)
+    private String vin;
+
+    @Column(name = "is_rented", nullable = false)
+    private boolean isRented;
+
+    @Column(name = "is_deleted", nullable = false)
+    private boolean isDeleted;
+}
@@ -0,0 +1,10 @@
+package car.sharing.model.job;
+
+/**
+ * A claimed slice {@code [rangeStart, rangeEnd]} of a job run's key space.
+ * Keys up to {@code checkpoint} are already processed. {@code attempts} counts
+ * the claims of the partition, this one included.
+ */
+public record JobPartition(Long id, Long runId, String jobName, String runKey,
+                           long rangeStart, long rangeEnd, long checkpoint, int attempts) {
+}
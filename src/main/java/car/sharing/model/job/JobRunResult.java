@@ -0,0 +1,6 @@
+package car.sharing.model.job;
+
+import java.time.Duration;
+
+public record JobRunResult(Duration wallClock, long processed, int failedPartitions) {
+}
@@ -0,0 +1,9 @@
+package car.sharing.model.rental;
+
+import java.time.LocalDate;
+
+/**
+ * Read-only view of an overdue rental with only the columns the overdue digest needs.
+ */
+public record OverdueRental(Long id, Long userId, Long carId, LocalDate returnDate) {
+}
@@ -1,6 +1,7 @@
 package car.sharing.model.rental;
 
 import car.sharing.model.car.Car;
+import car.sharing.model.car.VehicleUnit;
 import car.sharing.model.user.User;
 import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
@@ -11,6 +12,7 @@ import jakarta.persistence.Id;
 import jakarta.persistence.JoinColumn;
 import jakarta.persistence.ManyToOne;
 import jakarta.persistence.Table;
+import jakarta.persistence.Version;
 import java.time.LocalDate;
 import lombok.Getter;
 import lombok.RequiredArgsConstructor;
@@ -43,10 +45,18 @@ public class Rental {
     @JoinColumn(name = "car_id", nullable = false)
     private Car car;
 
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "vehicle_unit_id")
+    private VehicleUnit vehicleUnit;
+
     @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "user_id", nullable = false)
     private User user;
 
     @Column(name = "is_deleted", nullable = false)
     private boolean isDeleted;
+
+    @Version
+    @Column(nullable = false)
+    private Long version;
 }
@@ -0,0 +1,42 @@
+package car.sharing.model.rental;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import jakarta.persistence.UniqueConstraint;
+import java.time.LocalDateTime;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.Setter;
+
+/**
+ * A vehicle unit set aside for a customer during checkout. The unit is marked
+ * rented while the hold lives, and freed again if the hold expires. A customer
+ * holds at most one unit of a car.
+ */
+@Getter
+@Setter
+@RequiredArgsConstructor
+@Entity
+@Table(name = "rental_holds", uniqueConstraints = @UniqueConstraint(
+        name = "uk_rental_holds_user_id_car_id", columnNames = {"user_id", "car_id"}))
+public class RentalHold {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "car_id", nullable = false)
+    private Long carId;
+
+    @Column(name = "vehicle_unit_id", nullable = false, unique = true)
+    private Long vehicleUnitId;
+
+    @Column(name = "user_id", nullable = false)
+    private Long userId;
+
+    @Column(name = "expires_at", nullable = false)
+    private LocalDateTime expiresAt;
+}
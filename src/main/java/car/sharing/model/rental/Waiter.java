@@ -0,0 +1,9 @@
+package car.sharing.model.rental;
+
+import java.time.Duration;
+
+/**
+ * A customer taken off the waitlist of a car, with how long they waited in line.
+ */
+public record Waiter(Long id, Long userId, Duration waited) {
+}
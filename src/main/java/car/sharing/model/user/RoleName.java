@@ -1,6 +1,20 @@
 package car.sharing.model.user;
 
+import java.util.Collection;
+
 public enum RoleName {
     MANAGER,
-    CUSTOMER
+    CUSTOMER;
+
+    public int mask() {
+        return 1 << ordinal();
+    }
+
+    public static int maskOf(Collection<RoleName> roleNames) {
+        int mask = 0;
+        for (RoleName roleName : roleNames) {
+            mask |= roleName.mask();
+        }
+        return mask;
+    }
 }
@@ -0,0 +1,7 @@
+package car.sharing.model.user;
+
+/**
+ * The token version of a user: tokens carrying an older version are stale.
+ */
+public record TokenVersion(Long userId, long version) {
+}
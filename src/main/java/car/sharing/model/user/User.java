@@ -1,7 +1,10 @@
 package car.sharing.model.user;
 
+import car.sharing.security.RoleAuthorities;
+import car.sharing.security.UserEntityListener;
 import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
+import jakarta.persistence.EntityListeners;
 import jakarta.persistence.FetchType;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
@@ -13,20 +16,19 @@ import jakarta.persistence.Table;
 import java.util.Collection;
 import java.util.HashSet;
 import java.util.Set;
-import java.util.stream.Collectors;
 import lombok.Getter;
 import lombok.RequiredArgsConstructor;
 import lombok.Setter;
 import org.hibernate.annotations.SQLDelete;
 import org.hibernate.annotations.Where;
 import org.springframework.security.core.GrantedAuthority;
-import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.userdetails.UserDetails;
 
 @RequiredArgsConstructor
 @Getter
 @Setter
 @Entity
+@EntityListeners(UserEntityListener.class)
 @SQLDelete(sql = "UPDATE users SET is_deleted = TRUE WHERE id = ?")
 @Where(clause = "is_deleted = FALSE")
 @Table(name = "users")
@@ -58,11 +60,17 @@ public class User implements UserDetails {
     @Column(name = "is_deleted")
     private boolean isDeleted;
 
+    // written only by UserRepository.bumpTokenVersion, so saving a user never resets it
+    @Column(name = "token_version", nullable = false, insertable = false, updatable = false)
+    private long tokenVersion;
+
     @Override
     public Collection<? extends GrantedAuthority> getAuthorities() {
-        return roles.stream()
-                .map(role -> new SimpleGrantedAuthority("ROLE_" + role.getName().name()))
-                .collect(Collectors.toList());
+        int mask = 0;
+        for (Role role : roles) {
+            mask |= role.getName().mask();
+        }
+        return RoleAuthorities.forMask(mask);
     }
 
     @Override
@@ -0,0 +1,101 @@
+package car.sharing.repository;
+
+import car.sharing.model.car.Car;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.jdbc.support.KeyHolder;
+import org.springframework.stereotype.Repository;
+
+/**
+ * Batched JDBC inserts for bulk fleet imports, bypassing the persistence context
+ * and the one-round-trip-per-row {@code IDENTITY} inserts of {@code save}.
+ * Connector/J only turns a batch into multi-row inserts with
+ * {@code rewriteBatchedStatements=true} on the datasource URL; the generated keys
+ * of such an insert are consecutive and come back in row order.
+ */
+@Repository
+@RequiredArgsConstructor
+public class CarBulkRepository {
+    private static final String INSERT_CAR = "INSERT INTO cars "
+            + "(model, brand, car_type, daily_fee, is_deleted) "
+            + "VALUES (?, ?, ?, ?, FALSE)";
+    private static final String INSERT_UNIT = "INSERT INTO vehicle_units "
+            + "(car_id, is_rented, is_deleted) VALUES (?, FALSE, FALSE)";
+    private static final int UNIT_BATCH_SIZE = 1000;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * Inserts the cars in one batch and sets their generated ids, then inserts
+     * {@code inventory} blank vehicle units per car in fixed-size batches.
+     */
+    public void insertAll(List<Car> cars) {
+        KeyHolder keyHolder = new GeneratedKeyHolder();
+        jdbcTemplate.batchUpdate(
+                connection -> connection.prepareStatement(INSERT_CAR, new String[] {"id"}),
+                new BatchPreparedStatementSetter() {
+                    @Override
+                    public void setValues(PreparedStatement statement, int i)
+                            throws SQLException {
+                        Car car = cars.get(i);
+                        statement.setString(1, car.getModel());
+                        statement.setString(2, car.getBrand());
+                        statement.setString(3, car.getType().name());
+                        statement.setBigDecimal(4, car.getDailyFee());
+                    }
+
+                    @Override
+                    public int getBatchSize() {
+                        return cars.size();
+                    }
+                },
+                keyHolder);
+        List<Map<String, Object>> keys = keyHolder.getKeyList();
+        for (int i = 0; i < keys.size() && i < cars.size(); i++) {
+            Number id = (Number) keys.get(i).values().iterator().next();
+            cars.get(i).setId(id.longValue());
+        }
+        insertUnits(cars);
+    }
+
+    /**
+     * Inserts {@code count} blank vehicle units of the car in batches of
+     * {@link #UNIT_BATCH_SIZE}, without building a row per unit up front.
+     */
+    public void insertUnits(Long carId, int count) {
+        for (int inserted = 0; inserted < count; inserted += UNIT_BATCH_SIZE) {
+            int batch = Math.min(UNIT_BATCH_SIZE, count - inserted);
+            insertUnitBatch(Collections.nCopies(batch, carId));
+        }
+    }
+
+    private void insertUnits(List<Car> cars) {
+        List<Long> unitCarIds = new ArrayList<>(UNIT_BATCH_SIZE);
+        for (Car car : cars) {
+            for (int i = 0; i < car.getInventory(); i++) {
+                unitCarIds.add(car.getId());
+                if (unitCarIds.size() == UNIT_BATCH_SIZE) {
+                    insertUnitBatch(unitCarIds);
+                    unitCarIds.clear();
+                }
+            }
+        }
+        insertUnitBatch(unitCarIds);
+    }
+
+    private void insertUnitBatch(List<Long> unitCarIds) {
+        if (unitCarIds.isEmpty()) {
+            return;
+        }
+        jdbcTemplate.batchUpdate(INSERT_UNIT, unitCarIds, unitCarIds.size(),
+                (statement, carId) -> statement.setLong(1, carId));
+    }
+}
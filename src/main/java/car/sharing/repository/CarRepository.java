@@ -1,9 +1,26 @@
 package car.sharing.repository;
 
 import car.sharing.model.car.Car;
+import java.util.Optional;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Window;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 @Repository
-public interface CarRepository extends JpaRepository<Car, Long> {
+public interface CarRepository extends JpaRepository<Car, Long>,
+        JpaSpecificationExecutor<Car> {
+    Window<Car> findAllBy(ScrollPosition position, Limit limit, Sort sort);
+
+    /**
+     * Locks the car's row, so changes to the units of one car run one at a time.
+     * Must run in a transaction.
+     */
+    @Query(value = "SELECT id FROM cars WHERE id = :id FOR UPDATE", nativeQuery = true)
+    Optional<Long> lockById(@Param("id") Long id);
 }
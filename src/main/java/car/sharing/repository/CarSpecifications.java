@@ -0,0 +1,75 @@
+package car.sharing.repository;
+
+import car.sharing.dto.car.CarSearchParametersDto;
+import car.sharing.model.car.Car;
+import car.sharing.model.car.CarType;
+import car.sharing.model.car.VehicleUnit;
+import jakarta.persistence.criteria.Root;
+import jakarta.persistence.criteria.Subquery;
+import java.math.BigDecimal;
+import org.springframework.data.jpa.domain.Specification;
+
+/**
+ * Car search filters. All of them are equality or range predicates on columns
+ * covered by the {@code idx_cars_*} indexes, so that every combination can be
+ * served by an index together with the {@code is_deleted} filter. Availability
+ * is an {@code EXISTS} probe on the {@code vehicle_units} index of the car.
+ */
+public final class CarSpecifications {
+    private CarSpecifications() {
+    }
+
+    public static Specification<Car> search(CarSearchParametersDto parameters) {
+        Specification<Car> specification = Specification.where(null);
+        if (parameters.getBrand() != null && !parameters.getBrand().isBlank()) {
+            specification = specification.and(hasBrand(parameters.getBrand().trim()));
+        }
+        if (parameters.getModel() != null && !parameters.getModel().isBlank()) {
+            specification = specification.and(hasModel(parameters.getModel().trim()));
+        }
+        if (parameters.getType() != null) {
+            specification = specification.and(hasType(parameters.getType()));
+        }
+        if (parameters.getMinDailyFee() != null) {
+            specification = specification.and(dailyFeeFrom(parameters.getMinDailyFee()));
+        }
+        if (parameters.getMaxDailyFee() != null) {
+            specification = specification.and(dailyFeeTo(parameters.getMaxDailyFee()));
+        }
+        if (parameters.isAvailable()) {
+            specification = specification.and(inStock());
+        }
+        return specification;
+    }
+
+    public static Specification<Car> hasBrand(String brand) {
+        return (root, query, builder) -> builder.equal(root.get("brand"), brand);
+    }
+
+    public static Specification<Car> hasModel(String model) {
+        return (root, query, builder) -> builder.equal(root.get("model"), model);
+    }
+
+    public static Specification<Car> hasType(CarType type) {
+        return (root, query, builder) -> builder.equal(root.get("type"), type);
+    }
+
+    public static Specification<Car> dailyFeeFrom(BigDecimal fee) {
+        return (root, query, builder) -> builder.greaterThanOrEqualTo(root.get("dailyFee"), fee);
+    }
+
+    public static Specification<Car> dailyFeeTo(BigDecimal fee) {
+        return (root, query, builder) -> builder.lessThanOrEqualTo(root.get("dailyFee"), fee);
+    }
+
+    public static Specification<Car> inStock() {
+        return (root, query, builder) -> {
+            Subquery<Long> freeUnits = query.subquery(Long.class);
+            Root<VehicleUnit> unit = freeUnits.from(VehicleUnit.class);
+            freeUnits.select(unit.get("id")).where(
+                    builder.equal(unit.get("car"), root),
+                    builder.isFalse(unit.get("isRented")));
+            return builder.exists(freeUnits);
+        };
+    }
+}
@@ -0,0 +1,175 @@
+package car.sharing.repository;
+
+import car.sharing.model.job.JobPartition;
+import car.sharing.model.job.JobRunResult;
+import java.sql.PreparedStatement;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.jdbc.support.KeyHolder;
+import org.springframework.stereotype.Repository;
+
+/**
+ * JDBC access to job runs and their partitions. All times come from the database
+ * clock, so nodes with skewed clocks agree on leases.
+ */
+@Repository
+@RequiredArgsConstructor
+public class JobPartitionRepository {
+    private static final String INSERT_RUN = "INSERT IGNORE INTO job_runs "
+            + "(job_name, run_key, started_at) VALUES (?, ?, NOW(3))";
+    private static final String INSERT_PARTITION = "INSERT INTO job_partitions "
+            + "(run_id, range_start, range_end, checkpoint, processed, status) "
+            + "VALUES (?, ?, ?, ?, 0, 'PENDING')";
+    private static final String LOCK_CLAIMABLE = "SELECT p.id FROM job_partitions p "
+            + "JOIN job_runs r ON r.id = p.run_id "
+            + "WHERE p.status IN ('PENDING', 'RUNNING') "
+            + "AND (p.lease_until IS NULL OR p.lease_until < NOW(3)) "
+            + "AND r.job_name IN (:jobs) "
+            + "ORDER BY p.id LIMIT :limit FOR UPDATE OF p SKIP LOCKED";
+    private static final String LEASE = "UPDATE job_partitions SET status = 'RUNNING', "
+            + "attempts = attempts + 1, owner = :owner, "
+            + "lease_until = TIMESTAMPADD(MICROSECOND, :lease, NOW(3)) "
+            + "WHERE id IN (:ids)";
+    private static final String SELECT_PARTITIONS = "SELECT p.id, p.run_id, r.job_name, "
+            + "r.run_key, p.range_start, p.range_end, p.checkpoint, p.attempts "
+            + "FROM job_partitions p "
+            + "JOIN job_runs r ON r.id = p.run_id WHERE p.id IN (:ids) ORDER BY p.id";
+    private static final String CHECKPOINT = "UPDATE job_partitions "
+            + "SET checkpoint = ?, processed = processed + ?, "
+            + "lease_until = TIMESTAMPADD(MICROSECOND, ?, NOW(3)) "
+            + "WHERE id = ? AND owner = ? AND status = 'RUNNING'";
+    private static final String COMPLETE = "UPDATE job_partitions "
+            + "SET status = 'DONE', lease_until = NULL "
+            + "WHERE id = ? AND owner = ? AND status = 'RUNNING'";
+    private static final String FAIL = "UPDATE job_partitions "
+            + "SET status = 'FAILED', lease_until = NULL "
+            + "WHERE id = ? AND owner = ? AND status = 'RUNNING'";
+    private static final String FINISH_RUN = "UPDATE job_runs SET finished_at = NOW(3) "
+            + "WHERE id = ? AND finished_at IS NULL AND NOT EXISTS ("
+            + "SELECT 1 FROM job_partitions p WHERE p.run_id = ? "
+            + "AND p.status IN ('PENDING', 'RUNNING'))";
+    private static final String SELECT_RESULT = "SELECT "
+            + "TIMESTAMPDIFF(MICROSECOND, r.started_at, r.finished_at), "
+            + "(SELECT COALESCE(SUM(p.processed), 0) FROM job_partitions p "
+            + "WHERE p.run_id = r.id), "
+            + "(SELECT COUNT(*) FROM job_partitions p "
+            + "WHERE p.run_id = r.id AND p.status = 'FAILED') FROM job_runs r WHERE r.id = ?";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final NamedParameterJdbcTemplate namedJdbcTemplate;
+
+    /**
+     * Creates the run unless it already exists.
+     *
+     * @return the id of the run if it was created now, empty if another node created it
+     */
+    public Optional<Long> createRun(String jobName, String runKey) {
+        KeyHolder keyHolder = new GeneratedKeyHolder();
+        int created = jdbcTemplate.update(connection -> {
+            PreparedStatement statement =
+                    connection.prepareStatement(INSERT_RUN, Statement.RETURN_GENERATED_KEYS);
+            statement.setString(1, jobName);
+            statement.setString(2, runKey);
+            return statement;
+        }, keyHolder);
+        if (created == 0 || keyHolder.getKey() == null) {
+            return Optional.empty();
+        }
+        return Optional.of(keyHolder.getKey().longValue());
+    }
+
+    /**
+     * Inserts one pending partition per {@code [start, end]} range.
+     */
+    public void insertPartitions(Long runId, List<long[]> ranges) {
+        if (ranges.isEmpty()) {
+            return;
+        }
+        jdbcTemplate.batchUpdate(INSERT_PARTITION, ranges, ranges.size(),
+                (statement, range) -> {
+                    statement.setLong(1, runId);
+                    statement.setLong(2, range[0]);
+                    statement.setLong(3, range[1]);
+                    statement.setLong(4, range[0] - 1);
+                });
+    }
+
+    /**
+     * Leases up to {@code limit} pending partitions, or running ones whose lease ran
+     * out, skipping those another node is claiming, and counts the attempt.
+     * Must run in a transaction.
+     */
+    public List<JobPartition> claim(Collection<String> jobs, String owner, int limit,
+                                    Duration lease) {
+        List<Long> ids = namedJdbcTemplate.queryForList(LOCK_CLAIMABLE,
+                Map.of("jobs", jobs, "limit", limit), Long.class);
+        if (ids.isEmpty()) {
+            return List.of();
+        }
+        namedJdbcTemplate.update(LEASE,
+                Map.of("owner", owner, "lease", lease.toNanos() / 1000, "ids", ids));
+        return namedJdbcTemplate.query(SELECT_PARTITIONS, Map.of("ids", ids),
+                (resultSet, i) -> new JobPartition(
+                        resultSet.getLong(1),
+                        resultSet.getLong(2),
+                        resultSet.getString(3),
+                        resultSet.getString(4),
+                        resultSet.getLong(5),
+                        resultSet.getLong(6),
+                        resultSet.getLong(7),
+                        resultSet.getInt(8)));
+    }
+
+    /**
+     * Records progress and renews the lease.
+     *
+     * @return false if the partition is no longer leased by the owner
+     */
+    public boolean checkpoint(Long partitionId, String owner, long checkpoint, long processed,
+                              Duration lease) {
+        return jdbcTemplate.update(CHECKPOINT, checkpoint, processed, lease.toNanos() / 1000,
+                partitionId, owner) == 1;
+    }
+
+    /**
+     * @return false if the partition is no longer leased by the owner
+     */
+    public boolean complete(Long partitionId, String owner) {
+        return jdbcTemplate.update(COMPLETE, partitionId, owner) == 1;
+    }
+
+    /**
+     * Gives up on the partition; its run can finish without it.
+     *
+     * @return false if the partition is no longer leased by the owner
+     */
+    public boolean fail(Long partitionId, String owner) {
+        return jdbcTemplate.update(FAIL, partitionId, owner) == 1;
+    }
+
+    /**
+     * Marks the run finished once all of its partitions are done or failed.
+     *
+     * @return true only for the call that finished the run
+     */
+    public boolean finishRun(Long runId) {
+        return jdbcTemplate.update(FINISH_RUN, runId, runId) == 1;
+    }
+
+    public JobRunResult getResult(Long runId) {
+        return jdbcTemplate.queryForObject(SELECT_RESULT,
+                (resultSet, i) -> new JobRunResult(
+                        Duration.ofNanos(resultSet.getLong(1) * 1000),
+                        resultSet.getLong(2),
+                        resultSet.getInt(3)),
+                runId);
+    }
+}
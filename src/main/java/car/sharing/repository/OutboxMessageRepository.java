@@ -0,0 +1,43 @@
+package car.sharing.repository;
+
+import car.sharing.model.notification.OutboxMessage;
+import java.time.LocalDateTime;
+import java.util.List;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface OutboxMessageRepository extends JpaRepository<OutboxMessage, Long> {
+    /**
+     * Locks the oldest messages that are due, skipping the ones another relay
+     * has locked. Must run in a transaction.
+     */
+    @Query(value = "SELECT id FROM notification_outbox "
+            + "WHERE sent_at IS NULL AND next_attempt_at <= :now AND attempts < :maxAttempts "
+            + "ORDER BY id LIMIT :limit FOR UPDATE SKIP LOCKED", nativeQuery = true)
+    List<Long> lockDueIds(@Param("now") LocalDateTime now,
+                          @Param("maxAttempts") int maxAttempts,
+                          @Param("limit") int limit);
+
+    @Modifying
+    @Query("UPDATE OutboxMessage m SET m.nextAttemptAt = :until WHERE m.id IN :ids")
+    void lease(@Param("ids") List<Long> ids, @Param("until") LocalDateTime until);
+
+    @Modifying
+    @Query("UPDATE OutboxMessage m SET m.sentAt = :sentAt, m.attempts = m.attempts + 1 "
+            + "WHERE m.id IN :ids")
+    void markSent(@Param("ids") List<Long> ids, @Param("sentAt") LocalDateTime sentAt);
+
+    @Modifying
+    @Query("UPDATE OutboxMessage m SET m.nextAttemptAt = :nextAttemptAt, "
+            + "m.attempts = m.attempts + 1 WHERE m.id IN :ids")
+    void markFailed(@Param("ids") List<Long> ids,
+                    @Param("nextAttemptAt") LocalDateTime nextAttemptAt);
+
+    @Modifying
+    @Query("DELETE FROM OutboxMessage m WHERE m.sentAt < :dateTime")
+    int deleteSentBefore(@Param("dateTime") LocalDateTime dateTime);
+}
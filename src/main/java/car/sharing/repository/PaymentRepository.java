@@ -2,14 +2,20 @@ package car.sharing.repository;
 
 import car.sharing.model.payment.Payment;
 import car.sharing.model.payment.Status;
-import java.util.List;
 import java.util.Optional;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Window;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.stereotype.Repository;
 
 @Repository
 public interface PaymentRepository extends JpaRepository<Payment, Long> {
-    List<Payment> findAllByRentalUserId(Long userId);
+    Window<Payment> findAllByRentalUserId(
+            Long userId, ScrollPosition position, Limit limit, Sort sort);
+
+    Window<Payment> findAllBy(ScrollPosition position, Limit limit, Sort sort);
 
     Optional<Payment> getBySessionId(String sessionId);
 
@@ -0,0 +1,41 @@
+package car.sharing.repository;
+
+import car.sharing.model.rental.RentalHold;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface RentalHoldRepository extends JpaRepository<RentalHold, Long> {
+    List<RentalHold> findByExpiresAtBeforeOrderByExpiresAt(LocalDateTime dateTime, Limit limit);
+
+    Optional<RentalHold> findFirstByUserIdAndCarIdAndExpiresAtAfter(Long userId, Long carId,
+                                                                   LocalDateTime dateTime);
+
+    Optional<RentalHold> findByUserIdAndCarId(Long userId, Long carId);
+
+    boolean existsByUserIdAndCarId(Long userId, Long carId);
+
+    int countByUserIdAndCarIdNotAndExpiresAtAfter(Long userId, Long carId,
+                                                  LocalDateTime dateTime);
+
+    /**
+     * @return 1 if the hold was deleted now, 0 if it is already gone
+     */
+    @Modifying
+    @Query("DELETE FROM RentalHold h WHERE h.id = :id")
+    int deleteHold(@Param("id") Long id);
+
+    /**
+     * @return 1 if the hold was still live and is deleted now, 0 otherwise
+     */
+    @Modifying
+    @Query("DELETE FROM RentalHold h WHERE h.id = :id AND h.expiresAt > :dateTime")
+    int deleteLiveHold(@Param("id") Long id, @Param("dateTime") LocalDateTime dateTime);
+}
@@ -1,12 +1,17 @@
 package car.sharing.repository;
 
+import car.sharing.model.rental.OverdueRental;
 import car.sharing.model.rental.Rental;
 import java.time.LocalDate;
 import java.util.List;
 import java.util.Optional;
-import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Window;
 import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
@@ -14,12 +19,44 @@ import org.springframework.stereotype.Repository;
 @Repository
 public interface RentalRepository extends JpaRepository<Rental, Long> {
     @EntityGraph(attributePaths = "car")
-    List<Rental> getAllByUserIdAndActualReturnDateIsNull(Long userId, Pageable pageable);
+    Window<Rental> getAllByUserIdAndActualReturnDateIsNull(
+            Long userId, ScrollPosition position, Limit limit, Sort sort);
 
     @EntityGraph(attributePaths = "car")
-    List<Rental> getAllByUserIdAndActualReturnDateIsNotNull(Long userId, Pageable pageable);
+    Window<Rental> getAllByUserIdAndActualReturnDateIsNotNull(
+            Long userId, ScrollPosition position, Limit limit, Sort sort);
 
-    List<Rental> getAllByReturnDateBeforeAndActualReturnDateIsNull(LocalDate date);
+    /**
+     * Returns the next chunk of open rentals due before the date, ordered by ID,
+     * with IDs after {@code afterId} up to {@code toId}.
+     */
+    @Query("SELECT new car.sharing.model.rental.OverdueRental("
+            + "r.id, r.user.id, r.car.id, r.returnDate) FROM Rental r "
+            + "WHERE r.actualReturnDate IS NULL AND r.returnDate < :date "
+            + "AND r.id > :afterId AND r.id <= :toId ORDER BY r.id")
+    List<OverdueRental> findOverdueBetween(@Param("date") LocalDate date,
+                                           @Param("afterId") Long afterId,
+                                           @Param("toId") Long toId,
+                                           Limit limit);
+
+    @Query("SELECT r.version FROM Rental r WHERE r.id = :id")
+    Optional<Long> findVersionById(@Param("id") Long id);
+
+    @Query("SELECT MIN(r.id) FROM Rental r WHERE r.actualReturnDate IS NULL")
+    Long findMinOpenRentalId();
+
+    @Query("SELECT MAX(r.id) FROM Rental r WHERE r.actualReturnDate IS NULL")
+    Long findMaxOpenRentalId();
+
+    /**
+     * Sets the return date of a rental that is still open, bumping its version.
+     *
+     * @return 1 if the rental was returned now, 0 if it was already returned or doesn't exist
+     */
+    @Modifying(clearAutomatically = true)
+    @Query("UPDATE Rental r SET r.actualReturnDate = :date, r.version = r.version + 1 "
+            + "WHERE r.id = :id AND r.actualReturnDate IS NULL")
+    int markReturned(@Param("id") Long id, @Param("date") LocalDate date);
 
     @Query("SELECT r FROM Rental r JOIN FETCH r.car WHERE r.id = :rentalId")
     Optional<Rental> findByIdWithCar(@Param("rentalId") Long rentalId);
@@ -0,0 +1,20 @@
+package car.sharing.repository;
+
+import car.sharing.model.user.RevokedToken;
+import java.time.LocalDateTime;
+import java.util.List;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface RevokedTokenRepository extends JpaRepository<RevokedToken, Long> {
+    List<RevokedToken> findAllByIdGreaterThanAndExpiresAtAfterOrderById(
+            Long id, LocalDateTime dateTime);
+
+    @Modifying
+    @Query("DELETE FROM RevokedToken t WHERE t.expiresAt < :dateTime")
+    int deleteAllExpiredBefore(@Param("dateTime") LocalDateTime dateTime);
+}
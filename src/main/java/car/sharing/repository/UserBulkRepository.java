@@ -0,0 +1,72 @@
+package car.sharing.repository;
+
+import car.sharing.model.user.User;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+/**
+ * Batched JDBC inserts for bulk user onboarding, bypassing the persistence
+ * context. Duplicate emails are rejected by the unique constraint on
+ * {@code users.email} rather than checked one by one beforehand.
+ */
+@Repository
+@RequiredArgsConstructor
+public class UserBulkRepository {
+    private static final String INSERT_USER = "INSERT INTO users "
+            + "(email, password, first_name, last_name, is_deleted) VALUES (?, ?, ?, ?, FALSE) "
+            + "ON DUPLICATE KEY UPDATE id = id";
+    private static final String SELECT_PASSWORDS = "SELECT email, password FROM users "
+            + "WHERE email IN (:emails)";
+    private static final String INSERT_USER_ROLE = "INSERT INTO users_roles (user_id, role_id) "
+            + "SELECT id, ? FROM users WHERE email = ?";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final NamedParameterJdbcTemplate namedJdbcTemplate;
+
+    /**
+     * Inserts the users in one batch and links the inserted ones to the role.
+     * The driver rewrites the batch into multi-row inserts that report no per-row
+     * counts, so a row counts as inserted if the stored password is its own. Password
+     * hashes are salted, so no other row can have stored the same one.
+     *
+     * @return for every user, whether its row was inserted
+     */
+    public boolean[] insertAll(List<User> users, Long roleId) {
+        if (users.isEmpty()) {
+            return new boolean[0];
+        }
+        jdbcTemplate.batchUpdate(INSERT_USER, users, users.size(), (statement, user) -> {
+            statement.setString(1, user.getEmail());
+            statement.setString(2, user.getPassword());
+            statement.setString(3, user.getFirstName());
+            statement.setString(4, user.getLastName());
+        });
+        Map<String, String> storedPasswords = new HashMap<>();
+        namedJdbcTemplate.query(SELECT_PASSWORDS,
+                Map.of("emails", users.stream().map(User::getEmail).toList()),
+                row -> {
+                    storedPasswords.put(row.getString("email"), row.getString("password"));
+                });
+        boolean[] inserted = new boolean[users.size()];
+        List<String> insertedEmails = new ArrayList<>();
+        for (int i = 0; i < inserted.length; i++) {
+            User user = users.get(i);
+            inserted[i] = user.getPassword().equals(storedPasswords.get(user.getEmail()));
+            if (inserted[i]) {
+                insertedEmails.add(user.getEmail());
+            }
+        }
+        jdbcTemplate.batchUpdate(INSERT_USER_ROLE, insertedEmails, insertedEmails.size(),
+                (statement, email) -> {
+                    statement.setLong(1, roleId);
+                    statement.setString(2, email);
+                });
+        return inserted;
+    }
+}
@@ -1,9 +1,13 @@
 package car.sharing.repository;
 
+import car.sharing.model.user.TokenVersion;
 import car.sharing.model.user.User;
+import java.util.List;
 import java.util.Optional;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 @Repository
@@ -13,4 +17,27 @@ public interface UserRepository extends JpaRepository<User, Long> {
     @Query("SELECT u FROM User u LEFT JOIN FETCH u.roles "
             + "WHERE u.email = :email")
     Optional<User> findByEmail(String email);
+
+    /**
+     * Locks the user's row, so checkouts of one user run one at a time.
+     * Must run in a transaction.
+     */
+    @Query(value = "SELECT id FROM users WHERE id = :id FOR UPDATE", nativeQuery = true)
+    Optional<Long> lockById(@Param("id") Long id);
+
+    /**
+     * Moves the user's token version to the current database time in millis, or one
+     * past the current version if that is later, so every token issued before is stale.
+     */
+    @Modifying
+    @Query(value = "UPDATE users SET token_version = GREATEST(token_version + 1, "
+            + "ROUND(UNIX_TIMESTAMP(NOW(3)) * 1000)) WHERE id = :id", nativeQuery = true)
+    int bumpTokenVersion(@Param("id") Long id);
+
+    @Query(value = "SELECT token_version FROM users WHERE id = :id", nativeQuery = true)
+    Optional<Long> findTokenVersionById(@Param("id") Long id);
+
+    @Query("SELECT new car.sharing.model.user.TokenVersion(u.id, u.tokenVersion) "
+            + "FROM User u WHERE u.tokenVersion > :version")
+    List<TokenVersion> findTokenVersionsAfter(@Param("version") long version);
 }
@@ -0,0 +1,47 @@
+package car.sharing.repository;
+
+import car.sharing.model.car.VehicleUnit;
+import java.util.List;
+import java.util.Optional;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface VehicleUnitRepository extends JpaRepository<VehicleUnit, Long> {
+    /**
+     * Locks one free unit of the car, skipping units other bookings have already
+     * locked, so concurrent bookings of the same car take different rows.
+     * Must be called inside a transaction.
+     */
+    @Query(value = "SELECT u.id FROM vehicle_units u JOIN cars c ON c.id = u.car_id "
+            + "WHERE u.car_id = :carId AND u.is_rented = FALSE AND u.is_deleted = FALSE "
+            + "AND c.is_deleted = FALSE LIMIT 1 FOR UPDATE OF u SKIP LOCKED",
+            nativeQuery = true)
+    Optional<Long> lockFreeUnitId(@Param("carId") Long carId);
+
+    @Modifying
+    @Query("UPDATE VehicleUnit u SET u.isRented = :rented WHERE u.id = :id")
+    int setRented(@Param("id") Long id, @Param("rented") boolean rented);
+
+    @Query("SELECT COUNT(u) FROM VehicleUnit u WHERE u.car.id = :carId AND u.isRented = FALSE")
+    long countFreeUnits(@Param("carId") Long carId);
+
+    boolean existsByPlate(String plate);
+
+    boolean existsByVin(String vin);
+
+    @Query("SELECT u FROM VehicleUnit u WHERE u.car.id = :carId ORDER BY u.id")
+    List<VehicleUnit> findAllByCarId(@Param("carId") Long carId);
+
+    /**
+     * Soft deletes up to {@code count} free units of the car.
+     */
+    @Modifying
+    @Query(value = "UPDATE vehicle_units SET is_deleted = TRUE "
+            + "WHERE car_id = :carId AND is_rented = FALSE AND is_deleted = FALSE "
+            + "LIMIT :count", nativeQuery = true)
+    int retireFreeUnits(@Param("carId") Long carId, @Param("count") int count);
+}
@@ -0,0 +1,87 @@
+package car.sharing.repository;
+
+import car.sharing.model.rental.Waiter;
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+/**
+ * JDBC access to {@code waitlist}, the per-car queues of customers waiting for a
+ * sold-out car. A queue is ordered by id, and a customer waits at most once per car,
+ * so joining again or leaving never leaves stale entries behind.
+ */
+@Repository
+@RequiredArgsConstructor
+public class WaitlistRepository {
+    private static final String INSERT_WAITER = "INSERT IGNORE INTO waitlist "
+            + "(car_id, user_id, joined_at) VALUES (?, ?, NOW(3))";
+    private static final String DELETE_WAITER =
+            "DELETE FROM waitlist WHERE car_id = ? AND user_id = ?";
+    private static final String LOCK_FIRST = "SELECT id, user_id, "
+            + "TIMESTAMPDIFF(MICROSECOND, joined_at, NOW(3)) FROM waitlist "
+            + "WHERE car_id = ? ORDER BY id LIMIT 1 FOR UPDATE SKIP LOCKED";
+    private static final String DELETE_BY_ID = "DELETE FROM waitlist WHERE id = ?";
+    private static final String COUNT_BY_CAR = "SELECT COUNT(*) FROM waitlist WHERE car_id = ?";
+    private static final String SELECT_POSITION = "SELECT COUNT(*) FROM waitlist "
+            + "WHERE car_id = ? AND id <= "
+            + "(SELECT id FROM waitlist WHERE car_id = ? AND user_id = ?)";
+    private static final String COUNT_ALL = "SELECT COUNT(*) FROM waitlist";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * @return false if the user already waits for the car
+     */
+    public boolean insert(Long carId, Long userId) {
+        return jdbcTemplate.update(INSERT_WAITER, carId, userId) == 1;
+    }
+
+    /**
+     * @return false if the user doesn't wait for the car
+     */
+    public boolean delete(Long carId, Long userId) {
+        return jdbcTemplate.update(DELETE_WAITER, carId, userId) == 1;
+    }
+
+    /**
+     * Removes the first customer in the car's queue, skipping those another
+     * transaction is taking. Must run in a transaction: if it rolls back, the
+     * customer is back at their place in line.
+     */
+    public Optional<Waiter> pollFirst(Long carId) {
+        List<Waiter> waiters = jdbcTemplate.query(LOCK_FIRST,
+                (resultSet, i) -> new Waiter(
+                        resultSet.getLong(1),
+                        resultSet.getLong(2),
+                        Duration.ofNanos(resultSet.getLong(3) * 1000)),
+                carId);
+        if (waiters.isEmpty()) {
+            return Optional.empty();
+        }
+        jdbcTemplate.update(DELETE_BY_ID, waiters.get(0).id());
+        return Optional.of(waiters.get(0));
+    }
+
+    public int countByCarId(Long carId) {
+        Integer count = jdbcTemplate.queryForObject(COUNT_BY_CAR, Integer.class, carId);
+        return count == null ? 0 : count;
+    }
+
+    /**
+     * @return the user's place in the car's queue, counting from 1, or 0 if they
+     *         don't wait for the car
+     */
+    public int findPosition(Long carId, Long userId) {
+        Integer position = jdbcTemplate.queryForObject(SELECT_POSITION, Integer.class,
+                carId, carId, userId);
+        return position == null ? 0 : position;
+    }
+
+    public long countAll() {
+        Long count = jdbcTemplate.queryForObject(COUNT_ALL, Long.class);
+        return count == null ? 0L : count;
+    }
+}
@@ -1,11 +1,16 @@
 package car.sharing.security;
 
+import car.sharing.dto.user.LogoutRequestDto;
+import car.sharing.dto.user.RefreshTokenRequestDto;
 import car.sharing.dto.user.UserLoginRequestDto;
 import car.sharing.dto.user.UserLoginResponseDto;
+import car.sharing.model.user.User;
+import io.jsonwebtoken.Claims;
 import lombok.RequiredArgsConstructor;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.Authentication;
+import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.stereotype.Service;
 
 @Service
@@ -13,6 +18,9 @@ import org.springframework.stereotype.Service;
 public class AuthenticationService {
     private final JwtUnit jwtUnit;
     private final AuthenticationManager authenticationManager;
+    private final RefreshTokenService refreshTokenService;
+    private final UserDetailsService userDetailsService;
+    private final TokenRevocationService revocationService;
 
     public UserLoginResponseDto authentication(UserLoginRequestDto requestDto) {
         final Authentication authentication = authenticationManager.authenticate(
@@ -20,7 +28,29 @@ public class AuthenticationService {
                         requestDto.email(), requestDto.password()
                 )
         );
-        String token = jwtUnit.generateToken(authentication.getName());
-        return new UserLoginResponseDto(token);
+        User user = authentication.getPrincipal() instanceof User authenticatedUser
+                ? authenticatedUser
+                : (User) userDetailsService.loadUserByUsername(authentication.getName());
+        return createResponse(user);
+    }
+
+    public UserLoginResponseDto refresh(RefreshTokenRequestDto requestDto) {
+        User user = refreshTokenService.consume(requestDto.refreshToken());
+        return createResponse(user);
+    }
+
+    public void logout(String token, LogoutRequestDto requestDto) {
+        Claims claims = jwtUnit.verify(token);
+        revocationService.revoke(claims.getId(), claims.getExpiration());
+        if (requestDto != null && requestDto.refreshToken() != null) {
+            refreshTokenService.revoke(requestDto.refreshToken());
+        }
+    }
+
+    private UserLoginResponseDto createResponse(User user) {
+        UserPrincipal principal = UserPrincipal.from(user, user.getTokenVersion());
+        String token = jwtUnit.generateToken(principal);
+        String refreshToken = refreshTokenService.issue(user);
+        return new UserLoginResponseDto(token, refreshToken);
     }
 }
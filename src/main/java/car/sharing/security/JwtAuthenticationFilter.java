@@ -1,5 +1,6 @@
 package car.sharing.security;
 
+import io.jsonwebtoken.Claims;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
@@ -8,9 +9,8 @@ import java.io.IOException;
 import lombok.RequiredArgsConstructor;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.Authentication;
+import org.springframework.security.core.AuthenticationException;
 import org.springframework.security.core.context.SecurityContextHolder;
-import org.springframework.security.core.userdetails.UserDetails;
-import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.stereotype.Component;
 import org.springframework.util.StringUtils;
 import org.springframework.web.filter.OncePerRequestFilter;
@@ -19,7 +19,8 @@ import org.springframework.web.filter.OncePerRequestFilter;
 @RequiredArgsConstructor
 public class JwtAuthenticationFilter extends OncePerRequestFilter {
     private final JwtUnit jwtUnit;
-    private final UserDetailsService userDetailsService;
+    private final TokenVersionStore tokenVersionStore;
+    private final TokenRevocationService revocationService;
 
     @Override
     protected void doFilterInternal(
@@ -29,14 +30,24 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
     ) throws ServletException, IOException {
         String token = getToken(request);
 
-        if (token != null && jwtUnit.isValidToken(token)) {
-            String username = jwtUnit.getUsername(token);
-            UserDetails userDetails = userDetailsService.loadUserByUsername(username);
-            Authentication authentication =
-                    new UsernamePasswordAuthenticationToken(
-                            userDetails,null,userDetails.getAuthorities()
-                    );
-            SecurityContextHolder.getContext().setAuthentication(authentication);
+        if (token != null) {
+            Claims claims = jwtUnit.verify(token);
+            UserPrincipal principal;
+            try {
+                principal = jwtUnit.getPrincipal(claims);
+            } catch (AuthenticationException e) {
+                SecurityContextHolder.clearContext();
+                response.sendError(HttpServletResponse.SC_UNAUTHORIZED, e.getMessage());
+                return;
+            }
+            if (tokenVersionStore.isCurrent(principal.getId(), principal.getTokenVersion())
+                    && !revocationService.isRevoked(claims.getId(), claims.getExpiration())) {
+                Authentication authentication =
+                        new UsernamePasswordAuthenticationToken(
+                                principal, token, principal.getAuthorities()
+                        );
+                SecurityContextHolder.getContext().setAuthentication(authentication);
+            }
         }
 
         filterChain.doFilter(request,response);
@@ -1,59 +1,152 @@
 package car.sharing.security;
 
+import car.sharing.model.user.RoleName;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
 import io.jsonwebtoken.Claims;
-import io.jsonwebtoken.Jws;
 import io.jsonwebtoken.JwtException;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.security.Keys;
 import java.nio.charset.StandardCharsets;
 import java.security.Key;
 import java.util.Date;
-import java.util.function.Function;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.authentication.BadCredentialsException;
 import org.springframework.stereotype.Component;
 
 @Component
 public class JwtUnit {
+    private static final String USER_ID_CLAIM = "uid";
+    private static final String ROLES_CLAIM = "roles";
+    private static final String VERSION_CLAIM = "ver";
+
     private final Key secret;
+    private final JwtParser parser;
+    private final Cache<String, Claims> verifiedTokens;
 
     @Value("${jwt.expiration}")
     private long expiration;
 
-    public JwtUnit(@Value("${jwt.secret}") String secretString) {
+    public JwtUnit(@Value("${jwt.secret}") String secretString,
+                   @Value("${jwt.cache.max-size:10000}") long cacheMaxSize) {
         secret = Keys.hmacShaKeyFor(secretString.getBytes(StandardCharsets.UTF_8));
+        parser = Jwts.parserBuilder()
+                .setSigningKey(secret)
+                .build();
+        verifiedTokens = Caffeine.newBuilder()
+                .maximumSize(cacheMaxSize)
+                .expireAfter(new TokenExpiry())
+                .build();
     }
 
-    public String generateToken(String username) {
+    public String generateToken(UserPrincipal principal) {
+        List<String> roleNames = principal.getRoles().stream()
+                .map(RoleName::name)
+                .toList();
         return Jwts.builder()
-                .setSubject(username)
+                .setId(UUID.randomUUID().toString())
+                .setSubject(principal.getUsername())
+                .claim(USER_ID_CLAIM, principal.getId())
+                .claim(ROLES_CLAIM, roleNames)
+                .claim(VERSION_CLAIM, principal.getTokenVersion())
                 .setIssuedAt(new Date(System.currentTimeMillis()))
                 .setExpiration(new Date(System.currentTimeMillis() + expiration))
                 .signWith(secret)
                 .compact();
     }
 
-    public boolean isValidToken(String token) {
+    /**
+     * Parses and verifies the token once and returns its claims.
+     * Tokens that were already verified are served from the cache
+     * until they expire, so the signature is not checked again.
+     */
+    public Claims verify(String token) {
+        if (token == null || token.isBlank()) {
+            throw new JwtException("Expired or invalid JWT token");
+        }
+        String key = TokenHasher.sha256(token);
+        Claims claims = verifiedTokens.getIfPresent(key);
+        if (claims != null && !isExpired(claims)) {
+            return claims;
+        }
         try {
-            Jws<Claims> claimsJws = Jwts.parserBuilder()
-                    .setSigningKey(secret)
-                    .build()
-                    .parseClaimsJws(token);
-            return !claimsJws.getBody().getExpiration().before(new Date());
+            claims = parser.parseClaimsJws(token).getBody();
         } catch (JwtException | IllegalArgumentException e) {
             throw new JwtException("Expired or invalid JWT token");
         }
+        if (isExpired(claims)) {
+            throw new JwtException("Expired or invalid JWT token");
+        }
+        verifiedTokens.put(key, claims);
+        return claims;
+    }
+
+    /**
+     * Builds the principal from the claims of a verified token. Tokens issued
+     * before the user id was added to the claims, or with a role that no longer
+     * exists, are rejected.
+     */
+    public UserPrincipal getPrincipal(Claims claims) {
+        Long userId = claims.get(USER_ID_CLAIM, Long.class);
+        if (userId == null) {
+            throw new BadCredentialsException("JWT token has no user id, log in again");
+        }
+        List<?> roleNames = claims.get(ROLES_CLAIM, List.class);
+        List<RoleName> roles;
+        try {
+            roles = roleNames == null
+                    ? List.of()
+                    : roleNames.stream()
+                            .map(roleName -> RoleName.valueOf(roleName.toString()))
+                            .toList();
+        } catch (IllegalArgumentException e) {
+            throw new BadCredentialsException("JWT token has an unknown role, log in again");
+        }
+        Long version = claims.get(VERSION_CLAIM, Long.class);
+        return new UserPrincipal(
+                userId,
+                claims.getSubject(),
+                roles,
+                version == null ? 0L : version
+        );
+    }
+
+    public boolean isValidToken(String token) {
+        verify(token);
+        return true;
     }
 
     public String getUsername(String token) {
-        return getClaimFromToken(token, Claims::getSubject);
+        return verify(token).getSubject();
     }
 
-    private <T> T getClaimFromToken(String token, Function<Claims, T> claimsResolver) {
-        final Claims claims = Jwts.parserBuilder()
-                .setSigningKey(secret)
-                .build()
-                .parseClaimsJws(token)
-                .getBody();
-        return claimsResolver.apply(claims);
+    private boolean isExpired(Claims claims) {
+        Date expirationDate = claims.getExpiration();
+        return expirationDate == null || expirationDate.before(new Date());
+    }
+
+    private static class TokenExpiry implements Expiry<String, Claims> {
+        @Override
+        public long expireAfterCreate(String key, Claims claims, long currentTime) {
+            long millisLeft = claims.getExpiration().getTime() - System.currentTimeMillis();
+            return TimeUnit.MILLISECONDS.toNanos(Math.max(millisLeft, 0));
+        }
+
+        @Override
+        public long expireAfterUpdate(String key, Claims claims,
+                                      long currentTime, long currentDuration) {
+            return expireAfterCreate(key, claims, currentTime);
+        }
+
+        @Override
+        public long expireAfterRead(String key, Claims claims,
+                                    long currentTime, long currentDuration) {
+            return currentDuration;
+        }
     }
 }
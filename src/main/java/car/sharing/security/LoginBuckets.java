@@ -0,0 +1,119 @@
+package car.sharing.security;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Token buckets keyed by email or IP. Keys are spread over lock stripes,
+ * each holding a small LRU map, so contention and memory stay bounded.
+ */
+class LoginBuckets {
+    private static final long NANOS_PER_MINUTE = TimeUnit.MINUTES.toNanos(1);
+
+    private final Stripe[] stripes;
+    private final double capacity;
+    private final double tokensPerNano;
+
+    LoginBuckets(int stripeCount, int maxKeys, int capacity, int refillPerMinute) {
+        this.stripes = new Stripe[stripeCount];
+        int keysPerStripe = Math.max(1, maxKeys / stripeCount);
+        for (int i = 0; i < stripeCount; i++) {
+            stripes[i] = new Stripe(keysPerStripe);
+        }
+        this.capacity = capacity;
+        this.tokensPerNano = (double) refillPerMinute / NANOS_PER_MINUTE;
+    }
+
+    /**
+     * Takes a token for the key.
+     *
+     * @return 0 if the attempt is allowed, otherwise nanoseconds to wait
+     */
+    long tryAcquire(String key, long now) {
+        Stripe stripe = stripeFor(key);
+        stripe.lock.lock();
+        try {
+            Bucket bucket = stripe.buckets.computeIfAbsent(key, k -> new Bucket(capacity, now));
+            if (bucket.failures > 0 && now - bucket.blockedUntil < 0) {
+                return bucket.blockedUntil - now;
+            }
+            bucket.refill(now, capacity, tokensPerNano);
+            if (bucket.tokens < 1) {
+                return (long) Math.ceil((1 - bucket.tokens) / tokensPerNano);
+            }
+            bucket.tokens -= 1;
+            return 0;
+        } finally {
+            stripe.lock.unlock();
+        }
+    }
+
+    /**
+     * Blocks the key for base * 2^(failures - 1), capped by max.
+     */
+    void recordFailure(String key, long now, long baseBackoff, long maxBackoff) {
+        Stripe stripe = stripeFor(key);
+        stripe.lock.lock();
+        try {
+            Bucket bucket = stripe.buckets.computeIfAbsent(key, k -> new Bucket(capacity, now));
+            int shift = Math.min(bucket.failures, 30);
+            bucket.failures++;
+            long backoff = Math.min(baseBackoff << shift, maxBackoff);
+            bucket.blockedUntil = now + (backoff < 0 ? maxBackoff : backoff);
+        } finally {
+            stripe.lock.unlock();
+        }
+    }
+
+    void clearFailures(String key) {
+        Stripe stripe = stripeFor(key);
+        stripe.lock.lock();
+        try {
+            Bucket bucket = stripe.buckets.get(key);
+            if (bucket != null) {
+                bucket.failures = 0;
+            }
+        } finally {
+            stripe.lock.unlock();
+        }
+    }
+
+    private Stripe stripeFor(String key) {
+        int hash = key.hashCode();
+        hash ^= hash >>> 16;
+        return stripes[Math.floorMod(hash, stripes.length)];
+    }
+
+    private static class Stripe {
+        private final ReentrantLock lock = new ReentrantLock();
+        private final Map<String, Bucket> buckets;
+
+        Stripe(int maxKeys) {
+            buckets = new LinkedHashMap<>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, Bucket> eldest) {
+                    return size() > maxKeys;
+                }
+            };
+        }
+    }
+
+    private static class Bucket {
+        private double tokens;
+        private long lastRefill;
+        private int failures;
+        private long blockedUntil;
+
+        Bucket(double tokens, long now) {
+            this.tokens = tokens;
+            this.lastRefill = now;
+        }
+
+        void refill(long now, double capacity, double tokensPerNano) {
+            tokens = Math.min(capacity, tokens + (now - lastRefill) * tokensPerNano);
+            lastRefill = now;
+        }
+    }
+}
@@ -0,0 +1,126 @@
+package car.sharing.security;
+
+import car.sharing.exception.LoginThrottledException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import java.time.Duration;
+import java.util.Locale;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.authentication.BadCredentialsException;
+import org.springframework.stereotype.Component;
+
+/**
+ * Guards password logins. Throttled attempts are rejected before any password
+ * hashing, and accepted ones run on a small dedicated pool instead of Tomcat threads.
+ */
+@Component
+public class LoginGuard {
+    private static final int STRIPES = 64;
+
+    private final LoginBuckets emailBuckets;
+    private final LoginBuckets ipBuckets;
+    private final long baseBackoff;
+    private final long maxBackoff;
+    private final ThreadPoolExecutor executor;
+    private final Counter emailRejections;
+    private final Counter ipRejections;
+    private final Counter saturatedRejections;
+
+    public LoginGuard(MeterRegistry meterRegistry,
+                      @Value("${login.throttle.max-keys:100000}") int maxKeys,
+                      @Value("${login.throttle.email.capacity:5}") int emailCapacity,
+                      @Value("${login.throttle.email.refill-per-minute:5}") int emailRefill,
+                      @Value("${login.throttle.ip.capacity:50}") int ipCapacity,
+                      @Value("${login.throttle.ip.refill-per-minute:50}") int ipRefill,
+                      @Value("${login.throttle.backoff.base:1s}") Duration baseBackoff,
+                      @Value("${login.throttle.backoff.max:5m}") Duration maxBackoff,
+                      @Value("${login.executor.queue-capacity:100}") int queueCapacity) {
+        this.emailBuckets = new LoginBuckets(STRIPES, maxKeys, emailCapacity, emailRefill);
+        this.ipBuckets = new LoginBuckets(STRIPES, maxKeys, ipCapacity, ipRefill);
+        this.baseBackoff = baseBackoff.toNanos();
+        this.maxBackoff = maxBackoff.toNanos();
+        int threads = Runtime.getRuntime().availableProcessors();
+        this.executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), new LoginThreadFactory(),
+                new ThreadPoolExecutor.AbortPolicy());
+        this.emailRejections = rejectionCounter(meterRegistry, "email");
+        this.ipRejections = rejectionCounter(meterRegistry, "ip");
+        this.saturatedRejections = rejectionCounter(meterRegistry, "saturated");
+        Gauge.builder("login.executor.queue", executor, e -> e.getQueue().size())
+                .description("Logins waiting for a hashing thread")
+                .register(meterRegistry);
+        Gauge.builder("login.executor.active", executor, ThreadPoolExecutor::getActiveCount)
+                .register(meterRegistry);
+    }
+
+    public <T> CompletableFuture<T> login(String email, String ip, Supplier<T> authentication) {
+        String emailKey = email == null ? "" : email.toLowerCase(Locale.ROOT);
+        long now = System.nanoTime();
+        long emailWait = emailBuckets.tryAcquire(emailKey, now);
+        if (emailWait > 0) {
+            emailRejections.increment();
+            throw throttled("Too many login attempts for this account", emailWait);
+        }
+        long ipWait = ipBuckets.tryAcquire(ip, now);
+        if (ipWait > 0) {
+            ipRejections.increment();
+            throw throttled("Too many login attempts from this address", ipWait);
+        }
+        try {
+            return CompletableFuture.supplyAsync(() -> authenticate(emailKey, authentication),
+                    executor);
+        } catch (RejectedExecutionException e) {
+            saturatedRejections.increment();
+            throw new LoginThrottledException("Too many concurrent logins, try again later", 1);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+    }
+
+    private <T> T authenticate(String emailKey, Supplier<T> authentication) {
+        try {
+            T result = authentication.get();
+            emailBuckets.clearFailures(emailKey);
+            return result;
+        } catch (BadCredentialsException e) {
+            emailBuckets.recordFailure(emailKey, System.nanoTime(), baseBackoff, maxBackoff);
+            throw e;
+        }
+    }
+
+    private LoginThrottledException throttled(String message, long waitNanos) {
+        long seconds = Math.max(1, TimeUnit.NANOSECONDS.toSeconds(waitNanos + 999_999_999L));
+        return new LoginThrottledException(message, seconds);
+    }
+
+    private static Counter rejectionCounter(MeterRegistry meterRegistry, String reason) {
+        return Counter.builder("login.rejections")
+                .description("Login attempts rejected before password hashing")
+                .tag("reason", reason)
+                .register(meterRegistry);
+    }
+
+    private static class LoginThreadFactory implements ThreadFactory {
+        private final AtomicInteger counter = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, "login-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
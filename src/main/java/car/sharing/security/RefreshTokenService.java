@@ -0,0 +1,78 @@
+package car.sharing.security;
+
+import car.sharing.model.user.RefreshToken;
+import car.sharing.model.user.User;
+import car.sharing.repository.RefreshTokenRepository;
+import car.sharing.repository.UserRepository;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.security.authentication.BadCredentialsException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * Issues opaque refresh tokens and rotates them on every use.
+ * Only the SHA-256 hash of a token is stored, so a lookup is a single indexed read.
+ */
+@Service
+@RequiredArgsConstructor
+public class RefreshTokenService {
+    private final RefreshTokenRepository refreshTokenRepository;
+    private final UserRepository userRepository;
+
+    @Value("${jwt.refresh.expiration}")
+    private Duration expiration;
+
+    @Transactional
+    public String issue(User user) {
+        String token = TokenHasher.randomToken();
+        RefreshToken refreshToken = new RefreshToken();
+        refreshToken.setTokenHash(TokenHasher.sha256(token));
+        refreshToken.setUser(userRepository.getReferenceById(user.getId()));
+        refreshToken.setExpiresAt(LocalDateTime.now().plus(expiration));
+        refreshTokenRepository.save(refreshToken);
+        return token;
+    }
+
+    /**
+     * Revokes the given token and returns its owner. The token is revoked with a
+     * conditional update, so of two requests presenting the same token only one wins.
+     * Presenting an already revoked token means it was stolen or replayed, so every
+     * token of the user is revoked.
+     */
+    @Transactional(noRollbackFor = BadCredentialsException.class)
+    public User consume(String token) {
+        String tokenHash = TokenHasher.sha256(token);
+        boolean rotated = refreshTokenRepository
+                .revokeIfActive(tokenHash, LocalDateTime.now()) == 1;
+        RefreshToken refreshToken = refreshTokenRepository.findByTokenHash(tokenHash)
+                .orElseThrow(() -> new BadCredentialsException("Invalid refresh token"));
+        User user = refreshToken.getUser();
+        if (rotated) {
+            return user;
+        }
+        if (refreshToken.isRevoked()) {
+            refreshTokenRepository.revokeAllByUserId(user.getId());
+            throw new BadCredentialsException("Refresh token was already used");
+        }
+        throw new BadCredentialsException("Refresh token is expired");
+    }
+
+    @Transactional
+    public void revoke(String token) {
+        refreshTokenRepository.findByTokenHash(TokenHasher.sha256(token))
+                .ifPresent(refreshToken -> {
+                    refreshToken.setRevoked(true);
+                    refreshTokenRepository.save(refreshToken);
+                });
+    }
+
+    @Scheduled(cron = "0 0 3 * * *")// at 3 am
+    @Transactional
+    public void deleteExpiredTokens() {
+        refreshTokenRepository.deleteAllExpiredBefore(LocalDateTime.now());
+    }
+}
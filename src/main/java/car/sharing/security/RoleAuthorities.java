@@ -0,0 +1,63 @@
+package car.sharing.security;
+
+import car.sharing.model.user.RoleName;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+
+/**
+ * Immutable authority lists for every combination of roles, indexed by role bitmask.
+ */
+public final class RoleAuthorities {
+    private static final String ROLE_PREFIX = "ROLE_";
+    private static final RoleName[] ROLE_NAMES = RoleName.values();
+    private static final List<List<GrantedAuthority>> AUTHORITIES = precompute();
+    private static final Map<String, RoleName> ROLES_BY_AUTHORITY = Stream.of(ROLE_NAMES)
+            .collect(Collectors.toUnmodifiableMap(
+                    roleName -> ROLE_PREFIX + roleName.name(), Function.identity()));
+
+    private RoleAuthorities() {
+    }
+
+    public static List<GrantedAuthority> forMask(int mask) {
+        return AUTHORITIES.get(mask);
+    }
+
+    public static int maskOf(Collection<? extends GrantedAuthority> authorities) {
+        int mask = 0;
+        for (GrantedAuthority authority : authorities) {
+            RoleName roleName = ROLES_BY_AUTHORITY.get(authority.getAuthority());
+            if (roleName != null) {
+                mask |= roleName.mask();
+            }
+        }
+        return mask;
+    }
+
+    public static RoleName fromRole(String role) {
+        return RoleName.valueOf(role.startsWith(ROLE_PREFIX)
+                ? role.substring(ROLE_PREFIX.length())
+                : role);
+    }
+
+    private static List<List<GrantedAuthority>> precompute() {
+        int combinations = 1 << ROLE_NAMES.length;
+        List<List<GrantedAuthority>> authorities = new ArrayList<>(combinations);
+        for (int mask = 0; mask < combinations; mask++) {
+            List<GrantedAuthority> list = new ArrayList<>();
+            for (RoleName roleName : ROLE_NAMES) {
+                if ((mask & roleName.mask()) != 0) {
+                    list.add(new SimpleGrantedAuthority(ROLE_PREFIX + roleName.name()));
+                }
+            }
+            authorities.add(List.copyOf(list));
+        }
+        return List.copyOf(authorities);
+    }
+}
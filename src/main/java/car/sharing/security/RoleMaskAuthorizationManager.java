@@ -0,0 +1,98 @@
+package car.sharing.security;
+
+import java.lang.reflect.Method;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import org.aopalliance.intercept.MethodInvocation;
+import org.springframework.aop.support.AopUtils;
+import org.springframework.core.MethodClassKey;
+import org.springframework.core.annotation.AnnotatedElementUtils;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.security.authorization.AuthorizationDecision;
+import org.springframework.security.authorization.AuthorizationManager;
+import org.springframework.security.authorization.method.PreAuthorizeAuthorizationManager;
+import org.springframework.security.core.Authentication;
+import org.springframework.stereotype.Component;
+
+/**
+ * {@link PreAuthorize} handling that resolves {@code hasRole('X')} and
+ * {@code hasAnyRole('X', 'Y')} once per method into a role bitmask,
+ * so a call costs one AND instead of a SpEL evaluation.
+ * Any other expression is delegated to the default SpEL manager.
+ */
+@Component
+public class RoleMaskAuthorizationManager implements AuthorizationManager<MethodInvocation> {
+    private static final Pattern ROLE_EXPRESSION =
+            Pattern.compile("^\\s*has(?:Any)?Role\\(\\s*('\\w+'(?:\\s*,\\s*'\\w+')*)\\s*\\)\\s*$");
+    private static final Pattern ROLE_NAME = Pattern.compile("'(\\w+)'");
+    private static final AuthorizationDecision GRANTED = new AuthorizationDecision(true);
+    private static final AuthorizationDecision DENIED = new AuthorizationDecision(false);
+
+    private final Map<MethodClassKey, CompiledCheck> checks = new ConcurrentHashMap<>();
+    private final PreAuthorizeAuthorizationManager expressionManager =
+            new PreAuthorizeAuthorizationManager();
+
+    @Override
+    public AuthorizationDecision check(Supplier<Authentication> authentication,
+                                       MethodInvocation invocation) {
+        Object target = invocation.getThis();
+        Class<?> targetClass = target == null
+                ? invocation.getMethod().getDeclaringClass()
+                : AopUtils.getTargetClass(target);
+        CompiledCheck check = checks.computeIfAbsent(
+                new MethodClassKey(invocation.getMethod(), targetClass),
+                key -> compile(invocation.getMethod(), targetClass));
+        if (check == CompiledCheck.NONE) {
+            return null;
+        }
+        if (check.requiredMask() == 0) {
+            return expressionManager.check(authentication, invocation);
+        }
+        return hasAnyRole(authentication.get(), check.requiredMask()) ? GRANTED : DENIED;
+    }
+
+    private boolean hasAnyRole(Authentication authentication, int requiredMask) {
+        if (authentication == null || !authentication.isAuthenticated()) {
+            return false;
+        }
+        int mask = authentication.getPrincipal() instanceof UserPrincipal principal
+                ? principal.getRoleMask()
+                : RoleAuthorities.maskOf(authentication.getAuthorities());
+        return (mask & requiredMask) != 0;
+    }
+
+    private CompiledCheck compile(Method method, Class<?> targetClass) {
+        Method specificMethod = AopUtils.getMostSpecificMethod(method, targetClass);
+        PreAuthorize preAuthorize =
+                AnnotatedElementUtils.findMergedAnnotation(specificMethod, PreAuthorize.class);
+        if (preAuthorize == null) {
+            preAuthorize = AnnotatedElementUtils.findMergedAnnotation(
+                    targetClass, PreAuthorize.class);
+        }
+        if (preAuthorize == null) {
+            return CompiledCheck.NONE;
+        }
+        Matcher matcher = ROLE_EXPRESSION.matcher(preAuthorize.value());
+        if (!matcher.matches()) {
+            return CompiledCheck.EXPRESSION;
+        }
+        int mask = 0;
+        Matcher roleMatcher = ROLE_NAME.matcher(matcher.group(1));
+        while (roleMatcher.find()) {
+            try {
+                mask |= RoleAuthorities.fromRole(roleMatcher.group(1)).mask();
+            } catch (IllegalArgumentException e) {
+                return CompiledCheck.EXPRESSION;
+            }
+        }
+        return new CompiledCheck(mask);
+    }
+
+    private record CompiledCheck(int requiredMask) {
+        private static final CompiledCheck NONE = new CompiledCheck(-1);
+        private static final CompiledCheck EXPRESSION = new CompiledCheck(0);
+    }
+}
@@ -0,0 +1,92 @@
+package car.sharing.security;
+
+import car.sharing.model.user.RevokedToken;
+import car.sharing.repository.RevokedTokenRepository;
+import jakarta.annotation.PostConstruct;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Date;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import lombok.RequiredArgsConstructor;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * Deny list of revoked access tokens. Token ids are grouped in one-minute buckets
+ * by token expiry, so a lookup is a single set read and a whole bucket is dropped
+ * once all its tokens have expired. The revoked_tokens table is the source of truth
+ * at startup and is polled for revocations made on other nodes.
+ */
+@Service
+@RequiredArgsConstructor
+public class TokenRevocationService {
+    private static final long BUCKET_MILLIS = TimeUnit.MINUTES.toMillis(1);
+    private static final long SYNC_OVERLAP = 100;
+
+    private final ConcurrentSkipListMap<Long, Set<String>> buckets =
+            new ConcurrentSkipListMap<>();
+    private final AtomicLong lastSyncedId = new AtomicLong();
+    private final RevokedTokenRepository revokedTokenRepository;
+
+    @Transactional
+    public void revoke(String tokenId, Date expiresAt) {
+        if (tokenId == null || isRevoked(tokenId, expiresAt)) {
+            return;
+        }
+        add(tokenId, expiresAt.getTime());
+        RevokedToken revokedToken = new RevokedToken();
+        revokedToken.setTokenId(tokenId);
+        revokedToken.setExpiresAt(
+                LocalDateTime.ofInstant(expiresAt.toInstant(), ZoneId.systemDefault()));
+        revokedTokenRepository.save(revokedToken);
+    }
+
+    public boolean isRevoked(String tokenId, Date expiresAt) {
+        if (tokenId == null) {
+            return false;
+        }
+        Set<String> bucket = buckets.get(bucketOf(expiresAt.getTime()));
+        return bucket != null && bucket.contains(tokenId);
+    }
+
+    @PostConstruct
+    @Scheduled(fixedDelayString = "${jwt.revocation.sync-interval:5000}")
+    public void refresh() {
+        long now = System.currentTimeMillis();
+        buckets.headMap(bucketOf(now)).clear();
+        long fromId = Math.max(0, lastSyncedId.get() - SYNC_OVERLAP);
+        List<RevokedToken> revokedTokens = revokedTokenRepository
+                .findAllByIdGreaterThanAndExpiresAtAfterOrderById(fromId, LocalDateTime.now());
+        for (RevokedToken revokedToken : revokedTokens) {
+            long expiresAt = revokedToken.getExpiresAt()
+                    .atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+            add(revokedToken.getTokenId(), expiresAt);
+            lastSyncedId.accumulateAndGet(revokedToken.getId(), Math::max);
+        }
+    }
+
+    @Scheduled(cron = "0 30 3 * * *")// at 3:30 am
+    @Transactional
+    public void deleteExpiredTokens() {
+        revokedTokenRepository.deleteAllExpiredBefore(LocalDateTime.now());
+    }
+
+    private void add(String tokenId, long expiresAt) {
+        if (expiresAt < Instant.now().toEpochMilli()) {
+            return;
+        }
+        buckets.computeIfAbsent(bucketOf(expiresAt), key -> ConcurrentHashMap.newKeySet())
+                .add(tokenId);
+    }
+
+    private long bucketOf(long epochMillis) {
+        return epochMillis / BUCKET_MILLIS;
+    }
+}
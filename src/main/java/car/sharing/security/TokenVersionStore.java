@@ -0,0 +1,75 @@
+package car.sharing.security;
+
+import car.sharing.model.user.TokenVersion;
+import car.sharing.repository.UserRepository;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import jakarta.annotation.PostConstruct;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * Keeps the current token version of users whose roles were changed recently.
+ * A version is the time of the last change, so tokens issued before it are stale.
+ * Entries live as long as a token does: after that every older token is expired anyway.
+ * The version is kept in {@code users.token_version}, which is polled for versions
+ * bumped on other nodes.
+ */
+@Component
+public class TokenVersionStore {
+    private static final long INITIAL_VERSION = 0L;
+    private static final long SYNC_OVERLAP_MILLIS = 10_000;
+
+    private final UserRepository userRepository;
+    private final long expiration;
+    private final Cache<Long, Long> versions;
+    private final AtomicLong lastSyncedVersion = new AtomicLong();
+
+    public TokenVersionStore(UserRepository userRepository,
+                             @Value("${jwt.expiration}") long expiration) {
+        this.userRepository = userRepository;
+        this.expiration = expiration;
+        versions = Caffeine.newBuilder()
+                .expireAfterWrite(Duration.ofMillis(expiration))
+                .build();
+    }
+
+    public long getVersion(Long userId) {
+        Long version = versions.getIfPresent(userId);
+        return version == null ? INITIAL_VERSION : version;
+    }
+
+    @Transactional
+    public void bump(Long userId) {
+        userRepository.bumpTokenVersion(userId);
+        userRepository.findTokenVersionById(userId)
+                .ifPresent(version -> remember(userId, version));
+    }
+
+    public boolean isCurrent(Long userId, long tokenVersion) {
+        return tokenVersion >= getVersion(userId);
+    }
+
+    /**
+     * Loads the versions bumped since the last poll. Versions a little older than the
+     * newest one seen are read again, so a bump that committed late isn't missed.
+     */
+    @PostConstruct
+    @Scheduled(fixedDelayString = "${jwt.revocation.sync-interval:5000}")
+    public void refresh() {
+        long from = Math.max(lastSyncedVersion.get() - SYNC_OVERLAP_MILLIS,
+                System.currentTimeMillis() - expiration);
+        for (TokenVersion tokenVersion : userRepository.findTokenVersionsAfter(from)) {
+            remember(tokenVersion.userId(), tokenVersion.version());
+            lastSyncedVersion.accumulateAndGet(tokenVersion.version(), Math::max);
+        }
+    }
+
+    private void remember(Long userId, long version) {
+        versions.asMap().merge(userId, version, Math::max);
+    }
+}
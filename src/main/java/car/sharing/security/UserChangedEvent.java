@@ -0,0 +1,4 @@
+package car.sharing.security;
+
+public record UserChangedEvent(String email) {
+}
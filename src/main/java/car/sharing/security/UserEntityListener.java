@@ -0,0 +1,21 @@
+package car.sharing.security;
+
+import car.sharing.model.user.User;
+import jakarta.persistence.PostRemove;
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Component;
+
+/**
+ * Publishes {@link UserChangedEvent} for soft deletes done through {@code @SQLDelete}.
+ */
+@Component
+@RequiredArgsConstructor
+public class UserEntityListener {
+    private final ApplicationEventPublisher eventPublisher;
+
+    @PostRemove
+    public void onRemove(User user) {
+        eventPublisher.publishEvent(new UserChangedEvent(user.getEmail()));
+    }
+}
@@ -0,0 +1,81 @@
+package car.sharing.security;
+
+import car.sharing.model.user.Role;
+import car.sharing.model.user.RoleName;
+import car.sharing.model.user.User;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+import lombok.Getter;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.userdetails.UserDetails;
+
+/**
+ * Immutable principal restored from verified JWT claims,
+ * so authenticated requests don't need to load the user entity.
+ * Roles are also kept as a {@link RoleName} bitmask for method security checks.
+ */
+@Getter
+public final class UserPrincipal implements UserDetails {
+    private final Long id;
+    private final String email;
+    private final Set<RoleName> roles;
+    private final int roleMask;
+    private final long tokenVersion;
+    private final List<GrantedAuthority> authorities;
+
+    public UserPrincipal(Long id, String email, Collection<RoleName> roles, long tokenVersion) {
+        this.id = id;
+        this.email = email;
+        this.roles = roles.isEmpty()
+                ? Collections.emptySet()
+                : Collections.unmodifiableSet(EnumSet.copyOf(roles));
+        this.roleMask = RoleName.maskOf(this.roles);
+        this.tokenVersion = tokenVersion;
+        this.authorities = RoleAuthorities.forMask(roleMask);
+    }
+
+    public static UserPrincipal from(User user, long tokenVersion) {
+        List<RoleName> roleNames = user.getRoles().stream()
+                .map(Role::getName)
+                .toList();
+        return new UserPrincipal(user.getId(), user.getEmail(), roleNames, tokenVersion);
+    }
+
+    @Override
+    public Collection<? extends GrantedAuthority> getAuthorities() {
+        return authorities;
+    }
+
+    @Override
+    public String getPassword() {
+        return null;
+    }
+
+    @Override
+    public String getUsername() {
+        return email;
+    }
+
+    @Override
+    public boolean isAccountNonExpired() {
+        return true;
+    }
+
+    @Override
+    public boolean isAccountNonLocked() {
+        return true;
+    }
+
+    @Override
+    public boolean isCredentialsNonExpired() {
+        return true;
+    }
+
+    @Override
+    public boolean isEnabled() {
+        return true;
+    }
+}
@@ -1,18 +1,51 @@
 package car.sharing.service;
 
+import car.sharing.dto.car.CarAvailabilityDto;
 import car.sharing.dto.car.CarDto;
 import car.sharing.dto.car.CarRequestDto;
+import car.sharing.dto.car.CarSearchParametersDto;
+import car.sharing.dto.car.VehicleUnitDto;
+import car.sharing.dto.car.VehicleUnitRequestDto;
+import car.sharing.dto.page.CursorPageDto;
+import car.sharing.service.car.CatalogEntry;
+import java.time.LocalDate;
 import java.util.List;
 import org.springframework.data.domain.Pageable;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 public interface CarService {
     CarDto add(CarRequestDto requestDto);
 
-    List<CarDto> findAll(Pageable pageable);
+    CursorPageDto<CarDto> findAll(String cursor, Pageable pageable);
+
+    /**
+     * Returns the page with the version of the cars on it, which its ETag is built from.
+     */
+    CatalogEntry<CursorPageDto<CarDto>> findAllSerialized(String cursor, Pageable pageable);
+
+    List<CarDto> search(CarSearchParametersDto parameters, Pageable pageable);
+
+    CarAvailabilityDto getAvailability(Long id, LocalDate from, LocalDate to);
+
+    List<CarAvailabilityDto> findAvailable(LocalDate from, LocalDate to, Pageable pageable);
 
     CarDto getById(Long id);
 
+    /**
+     * Returns the version of the car as far as this replica has seen its changes,
+     * without loading it. The car's ETag is built from it.
+     */
+    long getCarVersion(Long id);
+
+    CatalogEntry<CarDto> getSerializedById(Long id);
+
     CarDto updateById(Long id, CarRequestDto requestDto);
 
     void deleteById(Long id);
+
+    VehicleUnitDto addUnit(Long carId, VehicleUnitRequestDto requestDto);
+
+    List<VehicleUnitDto> getUnits(Long carId);
+
+    SseEmitter streamAvailability(String lastEventId);
 }
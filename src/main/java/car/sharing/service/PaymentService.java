@@ -1,15 +1,16 @@
 package car.sharing.service;
 
+import car.sharing.dto.page.CursorPageDto;
 import car.sharing.dto.payment.PaymentDto;
 import car.sharing.dto.payment.PaymentRequestDto;
-import java.util.List;
+import org.springframework.data.domain.Pageable;
 
 public interface PaymentService {
-    List<PaymentDto> findAll();
+    CursorPageDto<PaymentDto> findAll(String cursor, Pageable pageable);
 
     PaymentDto createPayment(PaymentRequestDto requestDto);
 
-    List<PaymentDto> findAllByUserId(Long userId);
+    CursorPageDto<PaymentDto> findAllByUserId(Long userId, String cursor, Pageable pageable);
 
     PaymentDto getSuccessfulPayment(String sessionId);
 
@@ -0,0 +1,51 @@
+package car.sharing.service;
+
+import car.sharing.dto.rental.RentalHoldDto;
+import car.sharing.dto.rental.RentalHoldRequestDto;
+import car.sharing.dto.rental.WaitlistEntryDto;
+import java.util.Optional;
+
+public interface RentalHoldService {
+    /**
+     * Sets a free unit of the car aside for the user. Asking again for the same
+     * car, on any instance, returns the live hold the user already has.
+     *
+     * @throws car.sharing.exception.HoldLimitExceededException if the user already
+     *         holds as many other cars as allowed
+     */
+    RentalHoldDto hold(RentalHoldRequestDto requestDto, Long userId);
+
+    void release(Long holdId, Long userId);
+
+    /**
+     * Takes the live hold of the user on the car. Must run in the transaction
+     * that creates the rental, so the hold comes back if that transaction fails.
+     *
+     * @return the held vehicle unit, or empty if there is no such live hold
+     */
+    Optional<Long> consume(Long holdId, Long userId, Long carId);
+
+    /**
+     * Holds a unit of the car right away if it has one and nobody is waiting for it,
+     * otherwise puts the user on the car's waitlist.
+     */
+    WaitlistEntryDto joinWaitlist(Long carId, Long userId);
+
+    void leaveWaitlist(Long carId, Long userId);
+
+    /**
+     * Returns the hold the user was offered on the car, or their place in the car's
+     * waitlist while they wait. Customers poll it to learn about an offer, as the
+     * handoff notification only goes to the managers' chat.
+     */
+    WaitlistEntryDto getWaitlistEntry(Long carId, Long userId);
+
+    /**
+     * Offers a unit that is being freed to the first customer waiting for the car,
+     * as a hold that lasts for the acceptance window, and notifies the managers.
+     * Must run in the transaction that frees the unit.
+     *
+     * @return true if the unit was handed off and stays taken
+     */
+    boolean handOff(Long carId, Long unitId);
+}
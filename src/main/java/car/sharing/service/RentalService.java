@@ -1,18 +1,25 @@
 package car.sharing.service;
 
+import car.sharing.dto.page.CursorPageDto;
 import car.sharing.dto.rental.RentalDto;
 import car.sharing.dto.rental.RentalRequestDto;
-import java.util.List;
 import org.springframework.data.domain.Pageable;
 
 public interface RentalService {
     RentalDto add(RentalRequestDto requestDto, Long userId);
 
-    List<RentalDto> findAllActiveRentals(Long userId, Pageable pageable);
+    CursorPageDto<RentalDto> findAllActiveRentals(Long userId, String cursor, Pageable pageable);
 
-    List<RentalDto> findAllNotActiveRentals(Long userId, Pageable pageable);
+    CursorPageDto<RentalDto> findAllNotActiveRentals(Long userId, String cursor,
+                                                     Pageable pageable);
 
     RentalDto getById(Long id);
 
+    /**
+     * Returns the ETag of the rental, built from its persisted version, or
+     * {@code null} if there is no such rental. Reads only the version column.
+     */
+    String getETag(Long id);
+
     RentalDto setActualReturnDateById(Long id);
 }
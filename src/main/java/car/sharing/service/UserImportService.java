@@ -0,0 +1,8 @@
+package car.sharing.service;
+
+import car.sharing.dto.bulk.BulkImportResultDto;
+import java.io.InputStream;
+
+public interface UserImportService {
+    BulkImportResultDto importCustomers(InputStream inputStream, String contentType);
+}
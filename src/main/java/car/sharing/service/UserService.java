@@ -4,7 +4,6 @@ import car.sharing.dto.user.UserDto;
 import car.sharing.dto.user.UserRegistrationRequestDto;
 import car.sharing.dto.user.UserUpdateRequestDto;
 import car.sharing.exception.RegistrationException;
-import car.sharing.model.user.User;
 
 public interface UserService {
     UserDto register(UserRegistrationRequestDto requestDto)
@@ -12,7 +11,7 @@ public interface UserService {
 
     UserDto updateRoleById(Long id, UserUpdateRequestDto requestDto);
 
-    UserDto getInfo(User authUser);
+    UserDto getInfo(String email);
 
-    UserDto updateInfo(User updateUser, UserRegistrationRequestDto requestDto);
+    UserDto updateInfo(String email, UserRegistrationRequestDto requestDto);
 }
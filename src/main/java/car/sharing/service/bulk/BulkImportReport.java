@@ -0,0 +1,42 @@
+package car.sharing.service.bulk;
+
+import car.sharing.dto.bulk.BulkImportResultDto;
+import car.sharing.dto.bulk.RowErrorDto;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Collects the outcome of a bulk import. Only the first {@code maxErrors}
+ * row errors are kept so a bad upload can't grow the response without bound.
+ */
+public class BulkImportReport {
+    private final int maxErrors;
+    private final long startedAt = System.nanoTime();
+    private final List<RowErrorDto> errors = new ArrayList<>();
+    private long importedRows;
+    private long failedRows;
+
+    public BulkImportReport(int maxErrors) {
+        this.maxErrors = maxErrors;
+    }
+
+    public void imported(long rows) {
+        importedRows += rows;
+    }
+
+    public void failed(long row, String message) {
+        failedRows++;
+        if (errors.size() < maxErrors) {
+            errors.add(new RowErrorDto(row, message));
+        }
+    }
+
+    public BulkImportResultDto toDto() {
+        long nanos = Math.max(System.nanoTime() - startedAt, 1);
+        long totalRows = importedRows + failedRows;
+        double rowsPerSecond = totalRows * (double) TimeUnit.SECONDS.toNanos(1) / nanos;
+        return new BulkImportResultDto(totalRows, importedRows, failedRows, List.copyOf(errors),
+                TimeUnit.NANOSECONDS.toMillis(nanos), rowsPerSecond);
+    }
+}
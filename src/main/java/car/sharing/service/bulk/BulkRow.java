@@ -0,0 +1,10 @@
+package car.sharing.service.bulk;
+
+/**
+ * One parsed upload row. Either {@code value} or {@code error} is set.
+ */
+public record BulkRow<T>(long number, T value, String error) {
+    public boolean isValid() {
+        return error == null;
+    }
+}
@@ -0,0 +1,201 @@
+package car.sharing.service.bulk;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.stream.Collectors;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+
+/**
+ * Reads CSV (with a header line) or NDJSON uploads one line at a time,
+ * so an upload of any size is never held in memory.
+ * Every row is bound to the given type and validated as it is read.
+ */
+@Component
+@RequiredArgsConstructor
+public class BulkRowReader {
+    public static final String TEXT_CSV = "text/csv";
+    public static final String APPLICATION_NDJSON = "application/x-ndjson";
+
+    private final ObjectMapper objectMapper;
+    private final Validator validator;
+
+    public <T> Iterator<BulkRow<T>> read(InputStream inputStream, String contentType,
+                                         Class<T> type) {
+        BufferedReader reader = new BufferedReader(
+                new InputStreamReader(inputStream, StandardCharsets.UTF_8));
+        MediaType mediaType = MediaType.parseMediaType(contentType);
+        if (mediaType.isCompatibleWith(MediaType.parseMediaType(TEXT_CSV))) {
+            return new CsvIterator<>(reader, type);
+        }
+        if (mediaType.isCompatibleWith(MediaType.parseMediaType(APPLICATION_NDJSON))) {
+            return new NdjsonIterator<>(reader, type);
+        }
+        throw new IllegalArgumentException("Unsupported content type: " + contentType);
+    }
+
+    private <T> BulkRow<T> validate(long number, T value) {
+        Set<ConstraintViolation<T>> violations = validator.validate(value);
+        if (violations.isEmpty()) {
+            return new BulkRow<>(number, value, null);
+        }
+        String error = violations.stream()
+                .map(violation -> violation.getPropertyPath() + " " + violation.getMessage())
+                .sorted()
+                .collect(Collectors.joining(", "));
+        return new BulkRow<>(number, null, error);
+    }
+
+    static List<String> parseCsvLine(String line) {
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    field.append('"');
+                    i++;
+                } else if (c == '"') {
+                    quoted = false;
+                } else {
+                    field.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(field.toString().trim());
+                field.setLength(0);
+            } else {
+                field.append(c);
+            }
+        }
+        fields.add(field.toString().trim());
+        return fields;
+    }
+
+    private abstract class LineIterator<T> implements Iterator<BulkRow<T>> {
+        private final BufferedReader reader;
+        private String nextLine;
+        private long lineNumber;
+
+        LineIterator(BufferedReader reader) {
+            this.reader = reader;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return fill();
+        }
+
+        private boolean fill() {
+            while (nextLine == null) {
+                String line;
+                try {
+                    line = reader.readLine();
+                } catch (IOException e) {
+                    throw new UncheckedIOException("Can`t read the uploaded file", e);
+                }
+                if (line == null) {
+                    return false;
+                }
+                lineNumber++;
+                if (!line.isBlank()) {
+                    nextLine = line;
+                }
+            }
+            return true;
+        }
+
+        @Override
+        public BulkRow<T> next() {
+            String line = nextLine();
+            return parse(lineNumber, line);
+        }
+
+        String nextLine() {
+            if (!fill()) {
+                throw new NoSuchElementException();
+            }
+            String line = nextLine;
+            nextLine = null;
+            return line;
+        }
+
+        abstract BulkRow<T> parse(long number, String line);
+    }
+
+    private class CsvIterator<T> extends LineIterator<T> {
+        private final Class<T> type;
+        private List<String> header;
+
+        CsvIterator(BufferedReader reader, Class<T> type) {
+            super(reader);
+            this.type = type;
+        }
+
+        @Override
+        public boolean hasNext() {
+            if (header == null) {
+                if (!super.hasNext()) {
+                    return false;
+                }
+                header = parseCsvLine(nextLine());
+            }
+            return super.hasNext();
+        }
+
+        @Override
+        BulkRow<T> parse(long number, String line) {
+            List<String> fields = parseCsvLine(line);
+            if (fields.size() != header.size()) {
+                return new BulkRow<>(number, null, "Expected " + header.size()
+                        + " columns but found " + fields.size());
+            }
+            Map<String, String> values = new LinkedHashMap<>();
+            for (int i = 0; i < header.size(); i++) {
+                values.put(header.get(i), fields.get(i).isEmpty() ? null : fields.get(i));
+            }
+            try {
+                return validate(number, objectMapper.convertValue(values, type));
+            } catch (IllegalArgumentException e) {
+                return new BulkRow<>(number, null, "Can`t parse row: "
+                        + e.getMessage().lines().findFirst().orElse(""));
+            }
+        }
+    }
+
+    private class NdjsonIterator<T> extends LineIterator<T> {
+        private final Class<T> type;
+
+        NdjsonIterator(BufferedReader reader, Class<T> type) {
+            super(reader);
+            this.type = type;
+        }
+
+        @Override
+        BulkRow<T> parse(long number, String line) {
+            try {
+                return validate(number, objectMapper.readValue(line, type));
+            } catch (IOException e) {
+                return new BulkRow<>(number, null, "Can`t parse row: "
+                        + e.getMessage().lines().findFirst().orElse(""));
+            }
+        }
+    }
+}
@@ -0,0 +1,148 @@
+package car.sharing.service.car;
+
+import java.sql.PreparedStatement;
+import java.sql.Statement;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.NavigableSet;
+import java.util.concurrent.ConcurrentSkipListSet;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.jdbc.support.KeyHolder;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Shares car changes between instances through {@code availability_changes}.
+ * <p>
+ * Every {@link CarCatalogChangedEvent} and {@link CarInventoryChangedEvent} is
+ * appended as a row after its transaction commits and published here right away as
+ * an {@link AvailabilityChangedEvent}. Each instance polls the rows recorded since
+ * its last poll and publishes the ones other instances recorded, so every instance
+ * sees every change once. Rows younger than {@link #POLL_LAG_MILLIS} are left for a
+ * later poll, so a row committed shortly after one with a higher id isn't skipped.
+ */
+@Component
+public class AvailabilityChangeFeed implements SmartInitializingSingleton {
+    private static final String INSERT_CHANGE = "INSERT INTO availability_changes "
+            + "(car_id, catalog_edit, created_at) VALUES (?, ?, NOW(3))";
+    private static final String SELECT_LAST_CHANGE =
+            "SELECT COALESCE(MAX(id), 0) FROM availability_changes";
+    private static final String SELECT_CHANGES = "SELECT id, car_id, catalog_edit "
+            + "FROM availability_changes "
+            + "WHERE id > ? AND created_at < NOW(3) - INTERVAL ? MICROSECOND "
+            + "ORDER BY id LIMIT ?";
+    // the newest row is kept, so the last change id survives a restart
+    private static final String DELETE_OLD_CHANGES = "DELETE FROM availability_changes "
+            + "WHERE created_at < NOW(3) - INTERVAL 1 DAY "
+            + "AND id < (SELECT last_id FROM "
+            + "(SELECT MAX(id) AS last_id FROM availability_changes) last_change)";
+    private static final long POLL_LAG_MILLIS = 1000;
+    private static final int POLL_BATCH_SIZE = 1000;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ApplicationEventPublisher eventPublisher;
+    private final TransactionTemplate transactionTemplate;
+    private final NavigableSet<Long> localChanges = new ConcurrentSkipListSet<>();
+    private long startChangeId = -1;
+    private volatile long lastChangeId;
+
+    public AvailabilityChangeFeed(JdbcTemplate jdbcTemplate,
+                                  ApplicationEventPublisher eventPublisher,
+                                  PlatformTransactionManager transactionManager) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.eventPublisher = eventPublisher;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setPropagationBehavior(
+                TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        getStartChangeId();
+    }
+
+    /**
+     * Returns the id of the last change recorded before this instance started.
+     * Everything this instance loads reflects at least the changes up to it.
+     */
+    public synchronized long getStartChangeId() {
+        if (startChangeId < 0) {
+            Long last = jdbcTemplate.queryForObject(SELECT_LAST_CHANGE, Long.class);
+            startChangeId = last == null ? 0 : last;
+            lastChangeId = startChangeId;
+        }
+        return startChangeId;
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onCatalogChanged(CarCatalogChangedEvent event) {
+        record(event.carId(), true);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onInventoryChanged(CarInventoryChangedEvent event) {
+        record(event.carId(), false);
+    }
+
+    /**
+     * Publishes the changes other instances recorded since the last poll.
+     */
+    @Scheduled(fixedDelayString = "${cars.changes.poll-interval:1s}")
+    public void pollChanges() {
+        List<AvailabilityChangedEvent> changes = new ArrayList<>();
+        do {
+            changes.clear();
+            jdbcTemplate.query(SELECT_CHANGES, (RowCallbackHandler) resultSet -> {
+                long changeId = resultSet.getLong(1);
+                long carId = resultSet.getLong(2);
+                Long changedCar = resultSet.wasNull() ? null : carId;
+                changes.add(new AvailabilityChangedEvent(changeId, changedCar,
+                        resultSet.getBoolean(3), false));
+            }, lastChangeId, POLL_LAG_MILLIS * 1000, POLL_BATCH_SIZE);
+            for (AvailabilityChangedEvent change : changes) {
+                lastChangeId = change.changeId();
+                if (!localChanges.remove(change.changeId())) {
+                    eventPublisher.publishEvent(change);
+                }
+            }
+        } while (changes.size() == POLL_BATCH_SIZE);
+        // local rows the poll has passed without reading were committed out of order
+        localChanges.headSet(lastChangeId, true).clear();
+    }
+
+    @Scheduled(cron = "0 45 3 * * *")
+    public void purgeChanges() {
+        jdbcTemplate.update(DELETE_OLD_CHANGES);
+    }
+
+    /**
+     * Records the change in a transaction of its own, as the one that made the change
+     * is finished, and publishes it once the row is committed.
+     */
+    private void record(Long carId, boolean catalogEdit) {
+        Long changeId = transactionTemplate.execute(status -> {
+            KeyHolder keyHolder = new GeneratedKeyHolder();
+            jdbcTemplate.update(connection -> {
+                PreparedStatement statement = connection.prepareStatement(
+                        INSERT_CHANGE, Statement.RETURN_GENERATED_KEYS);
+                statement.setObject(1, carId, Types.BIGINT);
+                statement.setBoolean(2, catalogEdit);
+                return statement;
+            }, keyHolder);
+            long id = keyHolder.getKey().longValue();
+            localChanges.add(id);
+            return id;
+        });
+        eventPublisher.publishEvent(
+                new AvailabilityChangedEvent(changeId, carId, catalogEdit, true));
+    }
+}
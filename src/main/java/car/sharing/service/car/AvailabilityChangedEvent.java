@@ -0,0 +1,12 @@
+package car.sharing.service.car;
+
+/**
+ * Published by {@link AvailabilityChangeFeed} once for every row of
+ * {@code availability_changes}, whichever instance recorded it. {@code local} is
+ * true when the change was made on this instance, which then also updated its
+ * in-memory state directly. {@code catalogEdit} is true for changes of the catalog
+ * itself, as opposed to inventory changes from bookings and holds.
+ */
+public record AvailabilityChangedEvent(long changeId, Long carId, boolean catalogEdit,
+                                       boolean local) {
+}
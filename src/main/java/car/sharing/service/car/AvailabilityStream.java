@@ -0,0 +1,427 @@
+package car.sharing.service.car;
+
+import car.sharing.dto.car.CarAvailabilityDeltaDto;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import java.io.IOException;
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+/**
+ * Pushes car inventory changes to Server-Sent Events subscribers.
+ * <p>
+ * Changes go to one shared ring buffer, numbered by sequence. Each subscriber only
+ * keeps its position in the buffer, and a small pool sends subscribers what they
+ * missed, one task per subscriber at a time, so idle connections cost no thread.
+ * A subscriber that falls more than the buffer behind, or reconnects with a
+ * {@code Last-Event-ID} that is no longer buffered, gets a snapshot of every car
+ * instead and continues from there.
+ * <p>
+ * Sequences are local to the instance, so event ids are prefixed with an epoch
+ * picked when the instance starts. A {@code Last-Event-ID} from another instance,
+ * or from before a restart, doesn't match it and gets a snapshot.
+ * <p>
+ * Changes come from {@link AvailabilityChangeFeed}, so subscribers see changes made on
+ * any instance. A periodic full reload catches changes the feed missed.
+ * <p>
+ * A send that blocks for longer than {@code send-timeout} drops its subscriber: the
+ * sending thread is interrupted and the pool may start a spare thread in its place,
+ * so one slow client doesn't stall the others.
+ */
+@Component
+public class AvailabilityStream implements SmartInitializingSingleton {
+    private static final String SELECT_INVENTORIES = "SELECT c.id, COUNT(u.id) FROM cars c "
+            + "LEFT JOIN vehicle_units u ON u.car_id = c.id "
+            + "AND u.is_rented = FALSE AND u.is_deleted = FALSE "
+            + "WHERE c.is_deleted = FALSE GROUP BY c.id";
+    private static final String SELECT_INVENTORY = "SELECT COUNT(u.id) FROM cars c "
+            + "JOIN vehicle_units u ON u.car_id = c.id "
+            + "AND u.is_rented = FALSE AND u.is_deleted = FALSE "
+            + "WHERE c.id = ? AND c.is_deleted = FALSE";
+    private static final long STALL_CHECK_MILLIS = 1000;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final Executor executor;
+    private final long timeoutMillis;
+    private final long sendTimeoutNanos;
+    private final String epoch;
+    private final int poolSize;
+    private final CarAvailabilityDeltaDto[] buffer;
+    private final Map<Long, Integer> inventories = new HashMap<>();
+    private final Set<Subscriber> subscribers = ConcurrentHashMap.newKeySet();
+    private final AtomicBoolean reloadPending = new AtomicBoolean();
+    private final Counter resyncs;
+    private final Counter stalls;
+    private long head;
+    private long snapshotHead = -1;
+    private List<CarAvailabilityDeltaDto> snapshot;
+
+    @Autowired
+    public AvailabilityStream(JdbcTemplate jdbcTemplate,
+                              MeterRegistry meterRegistry,
+                              @Value("${cars.stream.buffer-size:4096}") int bufferSize,
+                              @Value("${cars.stream.threads:4}") int threads,
+                              @Value("${cars.stream.timeout:30m}") Duration timeout,
+                              @Value("${cars.stream.send-timeout:10s}") Duration sendTimeout) {
+        this(jdbcTemplate, meterRegistry, bufferSize,
+                Executors.newFixedThreadPool(threads, new StreamThreadFactory()), timeout,
+                sendTimeout, Long.toUnsignedString(new SecureRandom().nextLong(), 36));
+    }
+
+    AvailabilityStream(JdbcTemplate jdbcTemplate, MeterRegistry meterRegistry, int bufferSize,
+                       Executor executor, Duration timeout, Duration sendTimeout,
+                       String epoch) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.epoch = epoch;
+        this.executor = executor;
+        this.timeoutMillis = timeout.toMillis();
+        this.sendTimeoutNanos = sendTimeout.toNanos();
+        this.poolSize = executor instanceof ThreadPoolExecutor pool
+                ? pool.getCorePoolSize()
+                : 0;
+        this.buffer = new CarAvailabilityDeltaDto[bufferSize];
+        this.resyncs = Counter.builder("cars.stream.resyncs")
+                .description("Snapshots sent to subscribers that fell behind the buffer")
+                .register(meterRegistry);
+        this.stalls = Counter.builder("cars.stream.stalls")
+                .description("Subscribers dropped because a send blocked for too long")
+                .register(meterRegistry);
+        Gauge.builder("cars.stream.subscribers", subscribers, Set::size)
+                .register(meterRegistry);
+    }
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        reload();
+    }
+
+    public SseEmitter subscribe(String lastEventId) {
+        return subscribe(new SseEmitter(timeoutMillis), lastEventId);
+    }
+
+    SseEmitter subscribe(SseEmitter emitter, String lastEventId) {
+        Subscriber subscriber = new Subscriber(emitter);
+        synchronized (this) {
+            long next = parse(lastEventId) + 1;
+            if (next > 0 && next <= head && head - next <= buffer.length) {
+                subscriber.cursor = next;
+            } else {
+                subscriber.cursor = -1;
+            }
+        }
+        emitter.onCompletion(() -> subscribers.remove(subscriber));
+        emitter.onTimeout(() -> subscribers.remove(subscriber));
+        emitter.onError(e -> subscribers.remove(subscriber));
+        subscribers.add(subscriber);
+        schedule(subscriber);
+        return emitter;
+    }
+
+    @EventListener
+    public void onAvailabilityChanged(AvailabilityChangedEvent event) {
+        refresh(event.carId());
+    }
+
+    @Scheduled(fixedDelayString = "${cars.stream.resync-interval:5m}")
+    public void resync() {
+        requestReload();
+    }
+
+    /**
+     * Drops the subscribers whose send has been blocked for longer than the send
+     * timeout and interrupts their sending threads.
+     */
+    @Scheduled(fixedDelay = STALL_CHECK_MILLIS)
+    public void dropStalledSubscribers() {
+        long now = System.nanoTime();
+        subscribers.forEach(subscriber -> {
+            synchronized (subscriber) {
+                if (subscriber.sender == null || subscriber.stalled
+                        || now - subscriber.sendStartedNanos < sendTimeoutNanos) {
+                    return;
+                }
+                subscriber.stalled = true;
+                subscriber.spareThread = resizePool(1);
+                subscriber.sender.interrupt();
+            }
+            subscribers.remove(subscriber);
+            stalls.increment();
+        });
+    }
+
+    @Scheduled(fixedDelayString = "${cars.stream.heartbeat:15s}")
+    public void heartbeat() {
+        subscribers.forEach(subscriber -> {
+            subscriber.heartbeatDue = true;
+            schedule(subscriber);
+        });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (executor instanceof ExecutorService executorService) {
+            executorService.shutdownNow();
+        }
+    }
+
+    private void refresh(Long carId) {
+        if (carId == null) {
+            requestReload();
+            return;
+        }
+        Integer inventory = jdbcTemplate.queryForObject(SELECT_INVENTORY, Integer.class, carId);
+        boolean changed;
+        synchronized (this) {
+            changed = apply(carId, inventory == null ? 0 : inventory);
+        }
+        if (changed) {
+            subscribers.forEach(this::schedule);
+        }
+    }
+
+    private void requestReload() {
+        if (reloadPending.compareAndSet(false, true)) {
+            executor.execute(this::reload);
+        }
+    }
+
+    private void reload() {
+        reloadPending.set(false);
+        Map<Long, Integer> loaded = new HashMap<>();
+        jdbcTemplate.query(SELECT_INVENTORIES, (RowCallbackHandler) resultSet ->
+                loaded.put(resultSet.getLong(1), resultSet.getInt(2)));
+        boolean changed = false;
+        synchronized (this) {
+            for (Long carId : new ArrayList<>(inventories.keySet())) {
+                if (!loaded.containsKey(carId)) {
+                    changed |= apply(carId, 0);
+                }
+            }
+            for (Map.Entry<Long, Integer> entry : loaded.entrySet()) {
+                changed |= apply(entry.getKey(), entry.getValue());
+            }
+        }
+        if (changed) {
+            subscribers.forEach(this::schedule);
+        }
+    }
+
+    /**
+     * Records the new inventory of the car and appends it to the buffer if it changed.
+     * Must hold the stream lock.
+     */
+    private boolean apply(Long carId, int inventory) {
+        Integer previous = inventory == 0
+                ? inventories.remove(carId)
+                : inventories.put(carId, inventory);
+        if (previous != null ? previous == inventory : inventory == 0) {
+            return false;
+        }
+        buffer[(int) (head % buffer.length)] = new CarAvailabilityDeltaDto(carId, inventory);
+        head++;
+        return true;
+    }
+
+    private void schedule(Subscriber subscriber) {
+        if (subscriber.scheduled.compareAndSet(false, true)) {
+            executor.execute(() -> drain(subscriber));
+        }
+    }
+
+    private void drain(Subscriber subscriber) {
+        Exception failure = null;
+        synchronized (subscriber) {
+            subscriber.sender = Thread.currentThread();
+            subscriber.sendStartedNanos = System.nanoTime();
+        }
+        try {
+            send(subscriber);
+        } catch (IOException | IllegalStateException e) {
+            failure = e;
+        } finally {
+            boolean stalled;
+            boolean spareThread;
+            synchronized (subscriber) {
+                subscriber.sender = null;
+                Thread.interrupted();
+                stalled = subscriber.stalled;
+                spareThread = subscriber.spareThread;
+                subscriber.spareThread = false;
+            }
+            if (spareThread) {
+                resizePool(-1);
+            }
+            if (stalled && failure == null) {
+                failure = new TimeoutException("Send timed out");
+            }
+            subscriber.scheduled.set(false);
+        }
+        if (failure != null) {
+            subscribers.remove(subscriber);
+            subscriber.emitter.completeWithError(failure);
+            return;
+        }
+        long end;
+        synchronized (this) {
+            end = head;
+        }
+        if (subscriber.cursor < end) {
+            schedule(subscriber);
+        }
+    }
+
+    private void send(Subscriber subscriber) throws IOException {
+        List<CarAvailabilityDeltaDto> deltas = null;
+        List<CarAvailabilityDeltaDto> fullSnapshot = null;
+        long from;
+        long end;
+        synchronized (this) {
+            from = subscriber.cursor;
+            end = head;
+            if (from < 0 || end - from > buffer.length) {
+                if (from >= 0) {
+                    resyncs.increment();
+                }
+                fullSnapshot = snapshot();
+            } else if (from < end) {
+                deltas = new ArrayList<>((int) (end - from));
+                for (long sequence = from; sequence < end; sequence++) {
+                    deltas.add(buffer[(int) (sequence % buffer.length)]);
+                }
+            }
+        }
+        SseEmitter emitter = subscriber.emitter;
+        if (fullSnapshot != null) {
+            emitter.send(SseEmitter.event()
+                    .id(eventId(end - 1))
+                    .name("snapshot")
+                    .data(fullSnapshot));
+        } else if (deltas != null) {
+            for (int i = 0; i < deltas.size(); i++) {
+                emitter.send(SseEmitter.event()
+                        .id(eventId(from + i))
+                        .name("availability")
+                        .data(deltas.get(i)));
+            }
+        } else if (subscriber.heartbeatDue) {
+            emitter.send(SseEmitter.event().comment(""));
+        }
+        subscriber.heartbeatDue = false;
+        subscriber.cursor = end;
+    }
+
+    /**
+     * Grows or shrinks the pool by one thread while a send is stalled, up to twice
+     * its configured size.
+     *
+     * @return false if the pool is not resizable or already at its limit
+     */
+    private boolean resizePool(int delta) {
+        if (!(executor instanceof ThreadPoolExecutor pool)) {
+            return false;
+        }
+        synchronized (pool) {
+            int size = pool.getCorePoolSize() + delta;
+            if (size < poolSize || size > poolSize * 2) {
+                return false;
+            }
+            if (delta > 0) {
+                pool.setMaximumPoolSize(size);
+                pool.setCorePoolSize(size);
+            } else {
+                pool.setCorePoolSize(size);
+                pool.setMaximumPoolSize(size);
+            }
+            return true;
+        }
+    }
+
+    /**
+     * Must hold the stream lock.
+     */
+    private List<CarAvailabilityDeltaDto> snapshot() {
+        if (snapshotHead != head) {
+            List<CarAvailabilityDeltaDto> cars = new ArrayList<>(inventories.size());
+            inventories.forEach((carId, inventory) ->
+                    cars.add(new CarAvailabilityDeltaDto(carId, inventory)));
+            snapshot = cars;
+            snapshotHead = head;
+        }
+        return snapshot;
+    }
+
+    private String eventId(long sequence) {
+        return epoch + "-" + sequence;
+    }
+
+    /**
+     * @return the sequence of the event, or -2 if it isn't an event of this instance
+     */
+    private long parse(String lastEventId) {
+        if (lastEventId == null) {
+            return -2;
+        }
+        String id = lastEventId.trim();
+        int separator = id.indexOf('-');
+        if (separator < 0 || !epoch.equals(id.substring(0, separator))) {
+            return -2;
+        }
+        try {
+            return Long.parseLong(id.substring(separator + 1));
+        } catch (NumberFormatException e) {
+            return -2;
+        }
+    }
+
+    private static class Subscriber {
+        private final SseEmitter emitter;
+        private final AtomicBoolean scheduled = new AtomicBoolean();
+        private volatile long cursor;
+        private volatile boolean heartbeatDue;
+        private Thread sender;
+        private long sendStartedNanos;
+        private boolean stalled;
+        private boolean spareThread;
+
+        Subscriber(SseEmitter emitter) {
+            this.emitter = emitter;
+        }
+    }
+
+    private static class StreamThreadFactory implements ThreadFactory {
+        private final AtomicInteger counter = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable,
+                    "availability-stream-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
@@ -0,0 +1,397 @@
+package car.sharing.service.car;
+
+import car.sharing.dto.car.CarAvailabilityDto;
+import car.sharing.exception.EntityNotFoundException;
+import car.sharing.exception.InvalidDateRangeException;
+import car.sharing.model.rental.Rental;
+import car.sharing.model.rental.RentalHold;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.Clock;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Pageable;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * Reservation calendar of every car, answering how many units of a car are free
+ * for a date range. It is rebuilt from {@code rentals} before the application
+ * starts serving requests and kept current by the rental, hold and car services.
+ * Changes made on other instances arrive through {@link AvailabilityChangeFeed};
+ * the calendar of a car changed elsewhere is reloaded from the database.
+ * A date range is half-open: {@code to} is the day the car comes back. A checkout
+ * hold books its unit until tomorrow; it either becomes a rental or is freed.
+ * <p>
+ * For the next {@code horizon-days} days it also keeps, per day, a bitmap of the
+ * cars with every unit booked. Within the horizon a car is free for a range exactly
+ * when it is in none of the range's bitmaps, so a search for free cars only
+ * intersects bitmaps and counts set bits to skip to its page.
+ */
+@Component
+public class CarAvailabilityIndex implements SmartInitializingSingleton {
+    private static final String SELECT_CARS = "SELECT c.id, COUNT(u.id) FROM cars c "
+            + "LEFT JOIN vehicle_units u ON u.car_id = c.id AND u.is_deleted = FALSE "
+            + "WHERE c.is_deleted = FALSE GROUP BY c.id";
+    private static final String SELECT_UNITS = "SELECT COUNT(u.id) FROM cars c "
+            + "LEFT JOIN vehicle_units u ON u.car_id = c.id AND u.is_deleted = FALSE "
+            + "WHERE c.id = ? AND c.is_deleted = FALSE GROUP BY c.id";
+    private static final String SELECT_RENTALS = "SELECT id, car_id, rental_date, return_date, "
+            + "actual_return_date FROM rentals WHERE is_deleted = FALSE "
+            + "AND (actual_return_date IS NULL OR actual_return_date > ?)";
+    private static final String SELECT_CAR_RENTALS = SELECT_RENTALS + " AND car_id = ?";
+    private static final String SELECT_HOLDS = "SELECT id, car_id FROM rental_holds";
+    private static final String SELECT_CAR_HOLDS = SELECT_HOLDS + " WHERE car_id = ?";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final Clock clock;
+    private final int horizonDays;
+    private final Map<Long, CarCalendar> calendars = new ConcurrentHashMap<>();
+    private final BitSet carsWithUnits = new BitSet();
+    private final Map<Long, BitSet> fullyBookedCars = new HashMap<>();
+
+    @Autowired
+    public CarAvailabilityIndex(JdbcTemplate jdbcTemplate,
+                                @Value("${cars.availability.horizon-days:400}") int horizonDays) {
+        this(jdbcTemplate, Clock.systemDefaultZone(), horizonDays);
+    }
+
+    CarAvailabilityIndex(JdbcTemplate jdbcTemplate, Clock clock, int horizonDays) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.clock = clock;
+        this.horizonDays = horizonDays;
+    }
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        Map<Long, Integer> units = new HashMap<>();
+        jdbcTemplate.query(SELECT_CARS, (RowCallbackHandler) resultSet ->
+                units.put(resultSet.getLong(1), resultSet.getInt(2)));
+        units.keySet().forEach(carId -> calendars.put(carId, new CarCalendar()));
+        LocalDate today = LocalDate.now(clock);
+        jdbcTemplate.query(connection -> {
+            PreparedStatement statement = connection.prepareStatement(SELECT_RENTALS);
+            statement.setDate(1, Date.valueOf(today));
+            statement.setFetchSize(Integer.MIN_VALUE);
+            return statement;
+        }, (RowCallbackHandler) resultSet -> {
+            CarCalendar calendar = calendars.get(resultSet.getLong(2));
+            if (calendar != null) {
+                addRental(calendar, resultSet);
+            }
+        });
+        jdbcTemplate.query(SELECT_HOLDS, (RowCallbackHandler) resultSet -> {
+            CarCalendar calendar = calendars.get(resultSet.getLong(2));
+            if (calendar != null) {
+                addHold(calendar, resultSet, today.toEpochDay());
+            }
+        });
+        units.forEach((carId, count) -> {
+            CarCalendar calendar = calendars.get(carId);
+            calendar.setUnits(count);
+            refresh(carId, calendar, today.toEpochDay(), calendar.lastBookedDay());
+        });
+    }
+
+    /**
+     * Reads the car's units under the calendar's lock, so concurrent saves of the car
+     * apply in the order their reads see them. Units count whether they are free or
+     * rented out, so bookings made meanwhile don't change them.
+     */
+    public void carSaved(Long carId) {
+        CarCalendar calendar = calendars.computeIfAbsent(carId, id -> new CarCalendar());
+        synchronized (calendar) {
+            List<Integer> units = jdbcTemplate.queryForList(SELECT_UNITS, Integer.class, carId);
+            calendar.setUnits(units.isEmpty() ? 0 : units.get(0));
+            refresh(carId, calendar, today(), calendar.lastBookedDay());
+        }
+    }
+
+    public void carDeleted(Long carId) {
+        CarCalendar calendar = calendars.remove(carId);
+        if (calendar != null) {
+            synchronized (fullyBookedCars) {
+                carsWithUnits.clear(Math.toIntExact(carId));
+            }
+        }
+    }
+
+    public void rentalStarted(Rental rental) {
+        Long carId = rental.getCar().getId();
+        CarCalendar calendar = calendars.get(carId);
+        if (calendar == null) {
+            return;
+        }
+        long from = rental.getRentalDate().toEpochDay();
+        long to = openUntil(rental.getReturnDate());
+        synchronized (calendar) {
+            calendar.open(rental.getId(), from, to);
+            refresh(carId, calendar, from, to);
+        }
+    }
+
+    public void rentalReturned(Rental rental) {
+        Long carId = rental.getCar().getId();
+        CarCalendar calendar = calendars.get(carId);
+        if (calendar == null) {
+            return;
+        }
+        long returnedOn = rental.getActualReturnDate().toEpochDay();
+        synchronized (calendar) {
+            long until = calendar.lastBookedDay();
+            calendar.close(rental.getId(), returnedOn);
+            refresh(carId, calendar, returnedOn, until);
+        }
+    }
+
+    public void holdCreated(RentalHold hold) {
+        CarCalendar calendar = calendars.get(hold.getCarId());
+        if (calendar == null) {
+            return;
+        }
+        long today = today();
+        synchronized (calendar) {
+            calendar.hold(hold.getId(), today, today + 1);
+            refresh(hold.getCarId(), calendar, today, today + 1);
+        }
+    }
+
+    /**
+     * Frees the unit of a hold that expired, was released or became a rental.
+     */
+    public void holdFreed(RentalHold hold) {
+        CarCalendar calendar = calendars.get(hold.getCarId());
+        if (calendar == null) {
+            return;
+        }
+        long today = today();
+        synchronized (calendar) {
+            long until = calendar.lastBookedDay();
+            calendar.release(hold.getId(), today);
+            refresh(hold.getCarId(), calendar, today, until);
+        }
+    }
+
+    /**
+     * Reloads the calendars of the cars another instance changed. A change without a
+     * car is a bulk import, which only adds cars.
+     */
+    @EventListener
+    public void onAvailabilityChanged(AvailabilityChangedEvent event) {
+        if (event.local()) {
+            return;
+        }
+        if (event.carId() == null) {
+            loadNewCars();
+        } else {
+            reloadCar(event.carId());
+        }
+    }
+
+    public CarAvailabilityDto getAvailability(Long carId, LocalDate from, LocalDate to) {
+        checkRange(from, to);
+        CarCalendar calendar = calendars.get(carId);
+        if (calendar == null) {
+            throw new EntityNotFoundException("Can`t find car by id " + carId);
+        }
+        return new CarAvailabilityDto(carId,
+                calendar.freeUnits(from.toEpochDay(), to.toEpochDay()));
+    }
+
+    /**
+     * Returns the cars, in id order, that have at least one unit free
+     * for the whole range.
+     */
+    public List<CarAvailabilityDto> findAvailable(LocalDate from, LocalDate to,
+                                                  Pageable pageable) {
+        checkRange(from, to);
+        long first = from.toEpochDay();
+        long last = to.toEpochDay();
+        BitSet candidates;
+        synchronized (fullyBookedCars) {
+            candidates = (BitSet) carsWithUnits.clone();
+            for (long day = first; day < Math.min(last, horizonEnd()); day++) {
+                BitSet fullyBooked = fullyBookedCars.get(day);
+                if (fullyBooked != null) {
+                    candidates.andNot(fullyBooked);
+                }
+            }
+        }
+        List<CarAvailabilityDto> available = new ArrayList<>(pageable.getPageSize());
+        boolean withinHorizon = last <= horizonEnd();
+        long skip = withinHorizon ? 0 : pageable.getOffset();
+        int start = withinHorizon ? nthSetBit(candidates, pageable.getOffset()) : 0;
+        for (int carId = start < 0 ? -1 : candidates.nextSetBit(start); carId >= 0;
+                carId = candidates.nextSetBit(carId + 1)) {
+            CarCalendar calendar = calendars.get((long) carId);
+            int freeUnits = calendar == null ? 0 : calendar.freeUnits(first, last);
+            if (freeUnits == 0 || skip-- > 0) {
+                continue;
+            }
+            available.add(new CarAvailabilityDto((long) carId, freeUnits));
+            if (available.size() == pageable.getPageSize()) {
+                break;
+            }
+        }
+        return available;
+    }
+
+    /**
+     * Keeps overdue rentals booked for one more day, drops the bitmap of
+     * yesterday and fills the bitmap of the day that enters the horizon.
+     */
+    @Scheduled(cron = "0 0 0 * * *")
+    public void rollOver() {
+        long today = today();
+        long tomorrow = today + 1;
+        long newDay = horizonEnd() - 1;
+        calendars.forEach((carId, calendar) -> {
+            synchronized (calendar) {
+                calendar.extendOpenBookings(tomorrow);
+                refresh(carId, calendar, today, tomorrow);
+                refresh(carId, calendar, newDay, newDay + 1);
+            }
+        });
+        synchronized (fullyBookedCars) {
+            fullyBookedCars.keySet().removeIf(day -> day < today);
+        }
+    }
+
+    /**
+     * Recomputes the bitmaps of the car for the days {@code [from, to)} that are
+     * within the horizon. Callers hold the calendar's lock.
+     */
+    private void refresh(Long carId, CarCalendar calendar, long from, long to) {
+        int bit = Math.toIntExact(carId);
+        long start = Math.max(from, today());
+        long end = Math.min(to, horizonEnd());
+        synchronized (fullyBookedCars) {
+            carsWithUnits.set(bit, calendar.hasUnits());
+            for (long day = start; day < end; day++) {
+                BitSet fullyBooked = fullyBookedCars.get(day);
+                if (fullyBooked != null) {
+                    fullyBooked.clear(bit);
+                }
+            }
+            calendar.forEachFullyBooked(start, end, (first, last) -> {
+                for (long day = first; day < last; day++) {
+                    fullyBookedCars.computeIfAbsent(day, key -> new BitSet()).set(bit);
+                }
+            });
+        }
+    }
+
+    /**
+     * Rebuilds the car's calendar from the database under its lock, so the updates
+     * this instance makes meanwhile apply to the reloaded calendar.
+     */
+    private void reloadCar(Long carId) {
+        CarCalendar calendar = calendars.computeIfAbsent(carId, id -> new CarCalendar());
+        synchronized (calendar) {
+            List<Integer> units = jdbcTemplate.queryForList(SELECT_UNITS, Integer.class, carId);
+            if (units.isEmpty()) {
+                carDeleted(carId);
+                return;
+            }
+            final long today = today();
+            calendar.clear();
+            calendar.setUnits(units.get(0));
+            jdbcTemplate.query(SELECT_CAR_RENTALS, (RowCallbackHandler) resultSet ->
+                    addRental(calendar, resultSet), Date.valueOf(LocalDate.now(clock)), carId);
+            jdbcTemplate.query(SELECT_CAR_HOLDS, (RowCallbackHandler) resultSet ->
+                    addHold(calendar, resultSet, today), carId);
+            refresh(carId, calendar, today, Long.MAX_VALUE);
+        }
+    }
+
+    /**
+     * Adds the cars that are not in the index yet. New cars have no bookings; any
+     * made since come as changes of their own and reload the car.
+     */
+    private void loadNewCars() {
+        Map<Long, Integer> units = new HashMap<>();
+        jdbcTemplate.query(SELECT_CARS, (RowCallbackHandler) resultSet ->
+                units.put(resultSet.getLong(1), resultSet.getInt(2)));
+        units.forEach((carId, count) -> {
+            CarCalendar calendar = new CarCalendar();
+            synchronized (calendar) {
+                if (calendars.putIfAbsent(carId, calendar) == null) {
+                    calendar.setUnits(count);
+                    refresh(carId, calendar, today(), calendar.lastBookedDay());
+                }
+            }
+        });
+    }
+
+    private void addRental(CarCalendar calendar, ResultSet resultSet) throws SQLException {
+        LocalDate from = resultSet.getDate(3).toLocalDate();
+        Date returned = resultSet.getDate(5);
+        if (returned == null) {
+            calendar.open(resultSet.getLong(1), from.toEpochDay(),
+                    openUntil(resultSet.getDate(4).toLocalDate()));
+        } else {
+            calendar.book(from.toEpochDay(), returned.toLocalDate().toEpochDay());
+        }
+    }
+
+    private void addHold(CarCalendar calendar, ResultSet resultSet, long today)
+            throws SQLException {
+        calendar.hold(resultSet.getLong(1), today, today + 1);
+    }
+
+    private long openUntil(LocalDate returnDate) {
+        LocalDate tomorrow = LocalDate.now(clock).plusDays(1);
+        return (returnDate.isAfter(tomorrow) ? returnDate : tomorrow).toEpochDay();
+    }
+
+    private long today() {
+        return LocalDate.now(clock).toEpochDay();
+    }
+
+    private long horizonEnd() {
+        return today() + horizonDays;
+    }
+
+    /**
+     * Index of the set bit that has {@code n} set bits before it, or -1. Counts whole
+     * words, so skipping to a deep page costs one pass over the bitmap's words.
+     */
+    private static int nthSetBit(BitSet bits, long n) {
+        long[] words = bits.toLongArray();
+        long remaining = n;
+        for (int i = 0; i < words.length; i++) {
+            int count = Long.bitCount(words[i]);
+            if (remaining < count) {
+                long word = words[i];
+                for (long bit = 0; bit < remaining; bit++) {
+                    word &= word - 1;
+                }
+                return i * Long.SIZE + Long.numberOfTrailingZeros(word);
+            }
+            remaining -= count;
+        }
+        return -1;
+    }
+
+    private void checkRange(LocalDate from, LocalDate to) {
+        if (!from.isBefore(to)) {
+            throw new InvalidDateRangeException("The range must end after it starts");
+        }
+        if (from.isBefore(LocalDate.now(clock))) {
+            throw new InvalidDateRangeException("The range can`t start in the past");
+        }
+    }
+}
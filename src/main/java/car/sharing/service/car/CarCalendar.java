@@ -0,0 +1,181 @@
+package car.sharing.service.car;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Booked units of one car as a step function over epoch days, kept in two sorted
+ * parallel arrays: from {@code days[i]} until {@code days[i + 1]} the car has
+ * {@code counts[i]} units booked. Bookings are half-open {@code [from, to)} day
+ * ranges, so a car returned on a day is free again the same day. Lookups are a
+ * binary search plus a walk over the steps inside the range.
+ */
+class CarCalendar {
+    private static final int INITIAL_STEPS = 8;
+
+    private final Map<Long, Long> openBookingEnds = new HashMap<>();
+    private final Map<Long, Long> holdEnds = new HashMap<>();
+    private int[] days = new int[INITIAL_STEPS];
+    private int[] counts = new int[INITIAL_STEPS];
+    private int steps;
+    private int units;
+
+    /**
+     * Sets the number of units of the car, free or rented out.
+     */
+    synchronized void setUnits(int units) {
+        this.units = units;
+    }
+
+    synchronized void clear() {
+        openBookingEnds.clear();
+        holdEnds.clear();
+        steps = 0;
+    }
+
+    synchronized void open(Long rentalId, long from, long to) {
+        if (openBookingEnds.putIfAbsent(rentalId, to) == null) {
+            add(from, to, 1);
+        }
+    }
+
+    synchronized void close(Long rentalId, long returnedOn) {
+        Long end = openBookingEnds.remove(rentalId);
+        if (end != null && returnedOn < end) {
+            add(returnedOn, end, -1);
+        }
+    }
+
+    /**
+     * Books a unit held at checkout. Held units are rented in {@code vehicle_units},
+     * so like rented ones they count towards the car's units.
+     */
+    synchronized void hold(Long holdId, long from, long to) {
+        if (holdEnds.putIfAbsent(holdId, to) == null) {
+            add(from, to, 1);
+        }
+    }
+
+    synchronized void release(Long holdId, long releasedOn) {
+        Long end = holdEnds.remove(holdId);
+        if (end != null && releasedOn < end) {
+            add(releasedOn, end, -1);
+        }
+    }
+
+    synchronized void book(long from, long to) {
+        add(from, to, 1);
+    }
+
+    /**
+     * Pushes the end of overdue bookings and holds to {@code until}; an unreturned
+     * car stays booked past its planned return date.
+     */
+    synchronized void extendOpenBookings(long until) {
+        extend(openBookingEnds, until);
+        extend(holdEnds, until);
+    }
+
+    synchronized boolean hasUnits() {
+        return units > 0;
+    }
+
+    /**
+     * Start of the last step; every day from it on has no units booked.
+     */
+    synchronized long lastBookedDay() {
+        return steps == 0 ? Long.MIN_VALUE : days[steps - 1];
+    }
+
+    /**
+     * Reports the runs of days in {@code [from, to)} on which every unit is booked.
+     */
+    synchronized void forEachFullyBooked(long from, long to, DayRangeConsumer consumer) {
+        if (units == 0) {
+            return;
+        }
+        for (int step = Math.max(floor((int) from), 0); step < steps && days[step] < to;
+                step++) {
+            if (counts[step] >= units) {
+                long end = step + 1 < steps ? Math.min(days[step + 1], to) : to;
+                consumer.accept(Math.max(days[step], from), end);
+            }
+        }
+    }
+
+    synchronized int freeUnits(long from, long to) {
+        int step = floor((int) from);
+        int peak = step < 0 ? 0 : counts[step];
+        for (int next = step + 1; next < steps && days[next] < to; next++) {
+            peak = Math.max(peak, counts[next]);
+        }
+        return Math.max(units - peak, 0);
+    }
+
+    private void extend(Map<Long, Long> ends, long until) {
+        ends.replaceAll((id, end) -> {
+            if (end < until) {
+                add(end, until, 1);
+                return until;
+            }
+            return end;
+        });
+    }
+
+    private void add(long from, long to, int delta) {
+        if (from >= to) {
+            return;
+        }
+        int first = split((int) from);
+        int last = split((int) to);
+        for (int step = first; step < last; step++) {
+            counts[step] += delta;
+        }
+        merge(last);
+        merge(first);
+    }
+
+    /**
+     * Makes {@code day} the start of a step and returns the step's index.
+     */
+    private int split(int day) {
+        int step = floor(day);
+        if (step >= 0 && days[step] == day) {
+            return step;
+        }
+        if (steps == days.length) {
+            days = Arrays.copyOf(days, steps * 2);
+            counts = Arrays.copyOf(counts, steps * 2);
+        }
+        int inserted = step + 1;
+        System.arraycopy(days, inserted, days, inserted + 1, steps - inserted);
+        System.arraycopy(counts, inserted, counts, inserted + 1, steps - inserted);
+        days[inserted] = day;
+        counts[inserted] = step < 0 ? 0 : counts[step];
+        steps++;
+        return inserted;
+    }
+
+    private void merge(int step) {
+        int previous = step == 0 ? 0 : counts[step - 1];
+        if (step < steps && counts[step] == previous) {
+            System.arraycopy(days, step + 1, days, step, steps - step - 1);
+            System.arraycopy(counts, step + 1, counts, step, steps - step - 1);
+            steps--;
+        }
+    }
+
+    /**
+     * Index of the last step starting on or before {@code day}, or -1.
+     */
+    private int floor(int day) {
+        int found = Arrays.binarySearch(days, 0, steps, day);
+        return found >= 0 ? found : -found - 2;
+    }
+
+    @FunctionalInterface
+    interface DayRangeConsumer {
+        void accept(long from, long to);
+    }
+}
@@ -0,0 +1,217 @@
+package car.sharing.service.car;
+
+import car.sharing.dto.car.CarDto;
+import car.sharing.dto.page.CursorPageDto;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Sort;
+import org.springframework.stereotype.Component;
+
+/**
+ * Read cache for the car catalog. Entries keep both the DTOs and their serialized
+ * JSON, and are tagged with the version of the cars they hold.
+ * <p>
+ * Versions are ids of the changes {@link AvailabilityChangeFeed} delivers, kept in
+ * memory, so reading them costs nothing. A car's version is its last change; a page's
+ * is the last change of any car on it or the last catalog edit, as edits can move cars
+ * between pages. Booking a car thus only reloads that car and the pages it is on.
+ * An entry is current until a change that concerns it is delivered after its load
+ * began, which every replica sees within a poll.
+ * Pages are keyed by their continuation cursor, page size and sort.
+ */
+@Component
+public class CarCatalogCache implements SmartInitializingSingleton {
+    private static final String INVENTORY = "inventory";
+    private static final int LOAD_ATTEMPTS = 3;
+
+    private final ObjectMapper objectMapper;
+    private final AvailabilityChangeFeed changeFeed;
+    private final AtomicLong deliveries = new AtomicLong();
+    private final Map<Long, Version> carVersions = new ConcurrentHashMap<>();
+    private final AtomicReference<Version> allCarsVersion = new AtomicReference<>(Version.NONE);
+    private final AtomicReference<Version> catalogVersion = new AtomicReference<>(Version.NONE);
+    private final AtomicReference<Version> lastVersion = new AtomicReference<>(Version.NONE);
+    private final Cache<PageKey, Cached<CursorPageDto<CarDto>>> pages;
+    private final Cache<Long, Cached<CarDto>> cars;
+
+    public CarCatalogCache(ObjectMapper objectMapper,
+                           AvailabilityChangeFeed changeFeed,
+                           MeterRegistry meterRegistry,
+                           @Value("${cars.cache.max-pages:500}") long maxPages,
+                           @Value("${cars.cache.max-cars:10000}") long maxCars,
+                           @Value("${cars.cache.ttl:10m}") Duration ttl) {
+        this.objectMapper = objectMapper;
+        this.changeFeed = changeFeed;
+        this.pages = Caffeine.newBuilder()
+                .maximumSize(maxPages)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+        this.cars = Caffeine.newBuilder()
+                .maximumSize(maxCars)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, pages, "carCatalogPages");
+        CaffeineCacheMetrics.monitor(meterRegistry, cars, "carCatalogCars");
+        Gauge.builder("cars.catalog.version", catalogVersion, version -> version.get().changeId())
+                .register(meterRegistry);
+    }
+
+    public static String pageETag(long version) {
+        return "\"cars-" + version + "\"";
+    }
+
+    public static String carETag(Long id, long version) {
+        return "\"car-" + id + "-" + version + "\"";
+    }
+
+    public long getCarVersion(Long id) {
+        return carVersion(id).changeId();
+    }
+
+    /**
+     * Returns the page from the cache, loading it if a change concerning it came in
+     * since. The cached JSON holds only the page content.
+     */
+    public CatalogEntry<CursorPageDto<CarDto>> getPage(String cursor, int size, Sort sort,
+                                                       Supplier<CursorPageDto<CarDto>> loader) {
+        Function<CursorPageDto<CarDto>, Version> versionOf =
+                sort.getOrderFor(INVENTORY) != null
+                        ? page -> lastVersion.get()
+                        : this::pageVersion;
+        return get(pages, new PageKey(cursor, size, sort), versionOf, loader,
+                CursorPageDto::content);
+    }
+
+    public CatalogEntry<CarDto> getCar(Long id, Supplier<CarDto> loader) {
+        return get(cars, id, car -> carVersion(id), loader, Function.identity());
+    }
+
+    /**
+     * Starts from the last change recorded before this instance started, so versions
+     * never go back across restarts and match those of the other replicas.
+     */
+    @Override
+    public void afterSingletonsInstantiated() {
+        Version start = new Version(changeFeed.getStartChangeId(), 0);
+        allCarsVersion.accumulateAndGet(start, Version::max);
+        catalogVersion.accumulateAndGet(start, Version::max);
+        lastVersion.accumulateAndGet(start, Version::max);
+    }
+
+    @EventListener
+    public void onAvailabilityChanged(AvailabilityChangedEvent event) {
+        Version version = new Version(event.changeId(), deliveries.incrementAndGet());
+        if (event.carId() == null) {
+            allCarsVersion.accumulateAndGet(version, Version::max);
+        } else {
+            carVersions.merge(event.carId(), version, Version::max);
+        }
+        if (event.catalogEdit()) {
+            catalogVersion.accumulateAndGet(version, Version::max);
+        }
+        lastVersion.accumulateAndGet(version, Version::max);
+    }
+
+    private Version carVersion(Long id) {
+        Version version = carVersions.get(id);
+        Version allCars = allCarsVersion.get();
+        return version == null ? allCars : Version.max(version, allCars);
+    }
+
+    private Version pageVersion(CursorPageDto<CarDto> page) {
+        Version version = Version.max(catalogVersion.get(), allCarsVersion.get());
+        for (CarDto car : page.content()) {
+            Version carVersion = carVersions.get(car.getId());
+            if (carVersion != null) {
+                version = Version.max(version, carVersion);
+            }
+        }
+        return version;
+    }
+
+    /**
+     * Checks the cached entry without locking, so hits never wait. A stale entry is
+     * dropped and the key is loaded through {@link Cache#get}, which lets concurrent
+     * misses of the same key share one load. An entry whose load raced a change that
+     * concerns it is loaded again; if that keeps happening it is served without a
+     * version, as its content may be older than the change.
+     */
+    private <K, T> CatalogEntry<T> get(Cache<K, Cached<T>> cache, K key,
+                                       Function<T, Version> versionOf,
+                                       Supplier<T> loader, Function<T, ?> body) {
+        Cached<T> cached = cache.getIfPresent(key);
+        if (cached != null && cached.isCurrent(versionOf)) {
+            return cached.entry();
+        }
+        if (cached != null) {
+            cache.asMap().remove(key, cached);
+        }
+        Cached<T> loaded = cache.get(key, missing -> load(versionOf, loader, body));
+        for (int attempt = 1; !loaded.isCurrent(versionOf); attempt++) {
+            if (attempt == LOAD_ATTEMPTS) {
+                cache.asMap().remove(key, loaded);
+                CatalogEntry<T> entry = loaded.entry();
+                return new CatalogEntry<>(CatalogEntry.UNVERSIONED, entry.value(), entry.json());
+            }
+            loaded = load(versionOf, loader, body);
+            cache.put(key, loaded);
+        }
+        return loaded.entry();
+    }
+
+    private <T> Cached<T> load(Function<T, Version> versionOf, Supplier<T> loader,
+                               Function<T, ?> body) {
+        long loadedAfter = deliveries.get();
+        T value = loader.get();
+        try {
+            byte[] json = objectMapper.writeValueAsBytes(body.apply(value));
+            CatalogEntry<T> entry =
+                    new CatalogEntry<>(versionOf.apply(value).changeId(), value, json);
+            return new Cached<>(entry, loadedAfter);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Can`t serialize car catalog", e);
+        }
+    }
+
+    private record PageKey(String cursor, int size, Sort sort) {
+    }
+
+    /**
+     * The id of the last change of a car or the catalog, and the number of changes
+     * this instance had been delivered when it came in.
+     */
+    private record Version(long changeId, long delivery) {
+        private static final Version NONE = new Version(0, 0);
+
+        static Version max(Version first, Version second) {
+            return new Version(Math.max(first.changeId, second.changeId),
+                    Math.max(first.delivery, second.delivery));
+        }
+    }
+
+    /**
+     * A cached entry and the number of changes delivered before its load began.
+     */
+    private record Cached<T>(CatalogEntry<T> entry, long loadedAfter) {
+        boolean isCurrent(Function<T, Version> versionOf) {
+            return versionOf.apply(entry.value()).delivery() <= loadedAfter;
+        }
+    }
+}
@@ -0,0 +1,8 @@
+package car.sharing.service.car;
+
+/**
+ * Published when cars are added, edited, deleted or imported. {@code carId} is
+ * {@code null} when several cars changed at once, as in a bulk import.
+ */
+public record CarCatalogChangedEvent(Long carId) {
+}
@@ -0,0 +1,8 @@
+package car.sharing.service.car;
+
+/**
+ * Published when the number of free units of a car changes without the catalog
+ * itself changing, as when a unit is booked, returned, held or released.
+ */
+public record CarInventoryChangedEvent(Long carId) {
+}
@@ -0,0 +1,13 @@
+package car.sharing.service.car;
+
+/**
+ * A cached catalog value together with its JSON form and the version its ETag is
+ * built from, or {@link #UNVERSIONED} when it must be served without an ETag.
+ */
+public record CatalogEntry<T>(long version, T value, byte[] json) {
+    public static final long UNVERSIONED = -1;
+
+    public boolean isVersioned() {
+        return version != UNVERSIONED;
+    }
+}
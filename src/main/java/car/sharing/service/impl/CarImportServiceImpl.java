@@ -0,0 +1,103 @@
+package car.sharing.service.impl;
+
+import car.sharing.dto.bulk.BulkImportResultDto;
+import car.sharing.dto.car.CarImportRowDto;
+import car.sharing.model.car.Car;
+import car.sharing.repository.CarBulkRepository;
+import car.sharing.service.CarImportService;
+import car.sharing.service.bulk.BulkImportReport;
+import car.sharing.service.bulk.BulkRow;
+import car.sharing.service.bulk.BulkRowReader;
+import car.sharing.service.car.CarAvailabilityIndex;
+import car.sharing.service.car.CarCatalogChangedEvent;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataAccessException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Imports a fleet from a CSV or NDJSON upload. Rows are validated as they are
+ * read and inserted in JDBC batches, one transaction per batch, so only one
+ * batch of rows is held in memory however large the upload is. A batch the
+ * database rejects is rolled back and all of its rows are reported as failed.
+ */
+@Service
+public class CarImportServiceImpl implements CarImportService {
+    private static final int MAX_REPORTED_ERRORS = 1000;
+
+    private final BulkRowReader rowReader;
+    private final CarBulkRepository carBulkRepository;
+    private final CarAvailabilityIndex availabilityIndex;
+    private final ApplicationEventPublisher eventPublisher;
+    private final TransactionTemplate transactionTemplate;
+    private final int batchSize;
+
+    public CarImportServiceImpl(BulkRowReader rowReader,
+                                CarBulkRepository carBulkRepository,
+                                CarAvailabilityIndex availabilityIndex,
+                                ApplicationEventPublisher eventPublisher,
+                                TransactionTemplate transactionTemplate,
+                                @Value("${cars.import.batch-size:1000}") int batchSize) {
+        this.rowReader = rowReader;
+        this.carBulkRepository = carBulkRepository;
+        this.availabilityIndex = availabilityIndex;
+        this.eventPublisher = eventPublisher;
+        this.transactionTemplate = transactionTemplate;
+        this.batchSize = batchSize;
+    }
+
+    @Override
+    public BulkImportResultDto importCars(InputStream inputStream, String contentType) {
+        BulkImportReport report = new BulkImportReport(MAX_REPORTED_ERRORS);
+        Iterator<BulkRow<CarImportRowDto>> rows =
+                rowReader.read(inputStream, contentType, CarImportRowDto.class);
+        List<BulkRow<CarImportRowDto>> batch = new ArrayList<>(batchSize);
+        while (rows.hasNext()) {
+            BulkRow<CarImportRowDto> row = rows.next();
+            if (!row.isValid()) {
+                report.failed(row.number(), row.error());
+                continue;
+            }
+            batch.add(row);
+            if (batch.size() == batchSize) {
+                insertBatch(batch, report);
+                batch.clear();
+            }
+        }
+        if (!batch.isEmpty()) {
+            insertBatch(batch, report);
+        }
+        return report.toDto();
+    }
+
+    private void insertBatch(List<BulkRow<CarImportRowDto>> batch, BulkImportReport report) {
+        List<Car> cars = batch.stream()
+                .map(row -> toCar(row.value()))
+                .toList();
+        try {
+            transactionTemplate.executeWithoutResult(status -> carBulkRepository.insertAll(cars));
+        } catch (DataAccessException e) {
+            batch.forEach(row -> report.failed(row.number(),
+                    "Can`t save car: " + e.getMostSpecificCause().getMessage()));
+            return;
+        }
+        cars.forEach(car -> availabilityIndex.carSaved(car.getId()));
+        report.imported(cars.size());
+        eventPublisher.publishEvent(new CarCatalogChangedEvent(null));
+    }
+
+    private Car toCar(CarImportRowDto row) {
+        Car car = new Car();
+        car.setModel(row.getModel());
+        car.setBrand(row.getBrand());
+        car.setType(row.getType());
+        car.setInventory(row.getInventory());
+        car.setDailyFee(row.getDailyFee());
+        return car;
+    }
+}
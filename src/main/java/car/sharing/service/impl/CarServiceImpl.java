@@ -1,54 +1,203 @@
 package car.sharing.service.impl;
 
+import car.sharing.dto.car.CarAvailabilityDto;
 import car.sharing.dto.car.CarDto;
 import car.sharing.dto.car.CarRequestDto;
+import car.sharing.dto.car.CarSearchParametersDto;
+import car.sharing.dto.car.VehicleUnitDto;
+import car.sharing.dto.car.VehicleUnitRequestDto;
+import car.sharing.dto.page.CursorPageDto;
+import car.sharing.exception.DuplicateVehicleUnitException;
 import car.sharing.exception.EntityNotFoundException;
 import car.sharing.mapper.CarMapper;
+import car.sharing.mapper.VehicleUnitMapper;
 import car.sharing.model.car.Car;
+import car.sharing.model.car.VehicleUnit;
+import car.sharing.repository.CarBulkRepository;
 import car.sharing.repository.CarRepository;
+import car.sharing.repository.CarSpecifications;
+import car.sharing.repository.VehicleUnitRepository;
 import car.sharing.service.CarService;
+import car.sharing.service.car.AvailabilityStream;
+import car.sharing.service.car.CarAvailabilityIndex;
+import car.sharing.service.car.CarCatalogCache;
+import car.sharing.service.car.CarCatalogChangedEvent;
+import car.sharing.service.car.CarInventoryChangedEvent;
+import car.sharing.service.car.CatalogEntry;
+import car.sharing.service.page.CursorCodec;
+import java.time.LocalDate;
 import java.util.List;
 import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Window;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 @RequiredArgsConstructor
 @Service
 public class CarServiceImpl implements CarService {
     private final CarRepository carRepository;
     private final CarMapper carMapper;
+    private final CarCatalogCache catalogCache;
+    private final ApplicationEventPublisher eventPublisher;
+    private final CursorCodec cursorCodec;
+    private final CarAvailabilityIndex availabilityIndex;
+    private final VehicleUnitRepository vehicleUnitRepository;
+    private final VehicleUnitMapper vehicleUnitMapper;
+    private final TransactionTemplate transactionTemplate;
+    private final AvailabilityStream availabilityStream;
+    private final CarBulkRepository carBulkRepository;
 
     @Override
     public CarDto add(CarRequestDto requestDto) {
         Car car = carMapper.toModel(requestDto);
-        return carMapper.toDto(carRepository.save(car));
+        Car savedCar = transactionTemplate.execute(status -> {
+            Car saved = carRepository.save(car);
+            saved.setInventory(syncFreeUnits(saved, requestDto.getInventory()));
+            return saved;
+        });
+        availabilityIndex.carSaved(savedCar.getId());
+        eventPublisher.publishEvent(new CarCatalogChangedEvent(savedCar.getId()));
+        return carMapper.toDto(savedCar);
     }
 
     @Override
-    public List<CarDto> findAll(Pageable pageable) {
-        return carRepository.findAll(pageable).stream()
+    public CursorPageDto<CarDto> findAll(String cursor, Pageable pageable) {
+        return findAllSerialized(cursor, pageable).value();
+    }
+
+    @Override
+    public CatalogEntry<CursorPageDto<CarDto>> findAllSerialized(String cursor,
+                                                                 Pageable pageable) {
+        Sort sort = cursorCodec.keysetSort(pageable.getSort());
+        return catalogCache.getPage(cursor, pageable.getPageSize(), sort, () -> {
+            ScrollPosition position = cursorCodec.decode(cursor, Car.class, sort);
+            Window<Car> cars = carRepository.findAllBy(
+                    position, Limit.of(pageable.getPageSize()), sort);
+            return cursorCodec.toPage(cars, sort, carMapper::toDto);
+        });
+    }
+
+    @Override
+    public List<CarDto> search(CarSearchParametersDto parameters, Pageable pageable) {
+        return carRepository.findAll(CarSpecifications.search(parameters), pageable).stream()
                 .map(carMapper::toDto)
                 .toList();
     }
 
+    @Override
+    public CarAvailabilityDto getAvailability(Long id, LocalDate from, LocalDate to) {
+        return availabilityIndex.getAvailability(id, from, to);
+    }
+
+    @Override
+    public List<CarAvailabilityDto> findAvailable(LocalDate from, LocalDate to,
+                                                  Pageable pageable) {
+        return availabilityIndex.findAvailable(from, to, pageable);
+    }
+
     @Override
     public CarDto getById(Long id) {
-        Car car = carRepository.findById(id).orElseThrow(
-                () -> new EntityNotFoundException("Can`t find car by id " + id));
-        return carMapper.toDto(car);
+        return getSerializedById(id).value();
+    }
+
+    @Override
+    public long getCarVersion(Long id) {
+        return catalogCache.getCarVersion(id);
+    }
+
+    @Override
+    public CatalogEntry<CarDto> getSerializedById(Long id) {
+        return catalogCache.getCar(id, () -> {
+            Car car = carRepository.findById(id).orElseThrow(
+                    () -> new EntityNotFoundException("Can`t find car by id " + id));
+            return carMapper.toDto(car);
+        });
     }
 
     @Override
     public CarDto updateById(Long id, CarRequestDto requestDto) {
-        Car car = carRepository.findById(id).orElseThrow(
-                () -> new EntityNotFoundException("Can`t find car by id " + id));
+        if (!carRepository.existsById(id)) {
+            throw new EntityNotFoundException("Can`t find car by id " + id);
+        }
         Car updatedCar = carMapper.toModel(requestDto);
         updatedCar.setId(id);
-        return carMapper.toDto(carRepository.save(updatedCar));
+        Car savedCar = transactionTemplate.execute(status -> {
+            Car saved = carRepository.save(updatedCar);
+            saved.setInventory(syncFreeUnits(saved, requestDto.getInventory()));
+            return saved;
+        });
+        availabilityIndex.carSaved(savedCar.getId());
+        eventPublisher.publishEvent(new CarCatalogChangedEvent(id));
+        return carMapper.toDto(savedCar);
     }
 
     @Override
     public void deleteById(Long id) {
         carRepository.deleteById(id);
+        availabilityIndex.carDeleted(id);
+        eventPublisher.publishEvent(new CarCatalogChangedEvent(id));
+    }
+
+    @Override
+    public VehicleUnitDto addUnit(Long carId, VehicleUnitRequestDto requestDto) {
+        Car car = carRepository.findById(carId).orElseThrow(
+                () -> new EntityNotFoundException("Can`t find car by id " + carId));
+        if (vehicleUnitRepository.existsByPlate(requestDto.getPlate())
+                || requestDto.getVin() != null
+                && vehicleUnitRepository.existsByVin(requestDto.getVin())) {
+            throw new DuplicateVehicleUnitException("Vehicle unit with plate "
+                    + requestDto.getPlate() + " or VIN " + requestDto.getVin() + " already exists");
+        }
+        VehicleUnit unit = new VehicleUnit();
+        unit.setCar(car);
+        unit.setPlate(requestDto.getPlate());
+        unit.setVin(requestDto.getVin());
+        final VehicleUnit savedUnit = vehicleUnitRepository.save(unit);
+        availabilityIndex.carSaved(carId);
+        eventPublisher.publishEvent(new CarInventoryChangedEvent(carId));
+        return vehicleUnitMapper.toDto(savedUnit);
+    }
+
+    @Override
+    public List<VehicleUnitDto> getUnits(Long carId) {
+        if (!carRepository.existsById(carId)) {
+            throw new EntityNotFoundException("Can`t find car by id " + carId);
+        }
+        return vehicleUnitRepository.findAllByCarId(carId).stream()
+                .map(vehicleUnitMapper::toDto)
+                .toList();
+    }
+
+    @Override
+    public SseEmitter streamAvailability(String lastEventId) {
+        return availabilityStream.subscribe(lastEventId);
+    }
+
+    /**
+     * Adds blank units or retires free ones until the car has the requested number
+     * of free units. Without a requested number the units are left as they are.
+     * The car's row is locked first, so two updates of one car don't both count the
+     * same free units and add or retire them twice.
+     *
+     * @return the number of free units of the car
+     */
+    private int syncFreeUnits(Car car, Integer requested) {
+        carRepository.lockById(car.getId());
+        int free = (int) vehicleUnitRepository.countFreeUnits(car.getId());
+        if (requested == null) {
+            return free;
+        }
+        if (requested > free) {
+            carBulkRepository.insertUnits(car.getId(), requested - free);
+        } else if (requested < free) {
+            vehicleUnitRepository.retireFreeUnits(car.getId(), free - requested);
+        }
+        return requested;
     }
 }
@@ -1,5 +1,6 @@
 package car.sharing.service.impl;
 
+import car.sharing.dto.page.CursorPageDto;
 import car.sharing.dto.payment.PaymentDto;
 import car.sharing.dto.payment.PaymentRequestDto;
 import car.sharing.exception.EntityNotFoundException;
@@ -15,12 +16,17 @@ import car.sharing.repository.PaymentRepository;
 import car.sharing.repository.RentalRepository;
 import car.sharing.service.PaymentService;
 import car.sharing.service.StripeService;
-import car.sharing.service.telegram.TelegramNotificationService;
+import car.sharing.service.page.CursorCodec;
+import car.sharing.service.telegram.NotificationOutbox;
 import java.math.BigDecimal;
 import java.time.Duration;
 import java.time.LocalDateTime;
-import java.util.List;
 import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Window;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -34,20 +40,26 @@ public class PaymentServiceImpl implements PaymentService {
     private final PaymentMapper paymentMapper;
     private final StripeService stripeService;
     private final RentalRepository rentalRepository;
-    private final TelegramNotificationService notificationService;
+    private final NotificationOutbox notificationOutbox;
+    private final CursorCodec cursorCodec;
 
     @Override
-    public List<PaymentDto> findAllByUserId(Long userId) {
-        return paymentRepository.findAllByRentalUserId(userId).stream()
-                .map(paymentMapper::toDto)
-                .toList();
+    public CursorPageDto<PaymentDto> findAllByUserId(Long userId, String cursor,
+                                                     Pageable pageable) {
+        Sort sort = cursorCodec.keysetSort(pageable.getSort());
+        ScrollPosition position = cursorCodec.decode(cursor, Payment.class, sort);
+        Window<Payment> payments = paymentRepository.findAllByRentalUserId(
+                userId, position, Limit.of(pageable.getPageSize()), sort);
+        return cursorCodec.toPage(payments, sort, paymentMapper::toDto);
     }
 
     @Override
-    public List<PaymentDto> findAll() {
-        return paymentRepository.findAll().stream()
-                .map(paymentMapper::toDto)
-                .toList();
+    public CursorPageDto<PaymentDto> findAll(String cursor, Pageable pageable) {
+        Sort sort = cursorCodec.keysetSort(pageable.getSort());
+        ScrollPosition position = cursorCodec.decode(cursor, Payment.class, sort);
+        Window<Payment> payments = paymentRepository.findAllBy(
+                position, Limit.of(pageable.getPageSize()), sort);
+        return cursorCodec.toPage(payments, sort, paymentMapper::toDto);
     }
 
     @Override
@@ -110,7 +122,7 @@ public class PaymentServiceImpl implements PaymentService {
         String message = "The payment: " + payment.getId()
                 + " was successfully paid.\n"
                 + "Amount paid: " + payment.getAmountToPay() + " USD";
-        notificationService.sendMessage(message);
+        notificationOutbox.enqueue(message);
         return paymentMapper.toDto(payment);
     }
 
@@ -128,7 +140,7 @@ public class PaymentServiceImpl implements PaymentService {
                 + " for the car has failed.\n"
                 + "Please try again!\n"
                 + "Amount to pay: " + payment.getAmountToPay() + " USD";
-        notificationService.sendMessage(message);
+        notificationOutbox.enqueue(message);
         return paymentMapper.toDto(payment);
     }
 }
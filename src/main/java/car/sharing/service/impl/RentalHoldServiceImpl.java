@@ -0,0 +1,363 @@
+package car.sharing.service.impl;
+
+import car.sharing.dto.rental.RentalHoldDto;
+import car.sharing.dto.rental.RentalHoldRequestDto;
+import car.sharing.dto.rental.WaitlistEntryDto;
+import car.sharing.exception.CarNotAvailableException;
+import car.sharing.exception.EntityNotFoundException;
+import car.sharing.exception.HoldLimitExceededException;
+import car.sharing.mapper.RentalHoldMapper;
+import car.sharing.model.rental.RentalHold;
+import car.sharing.model.rental.Waiter;
+import car.sharing.repository.CarRepository;
+import car.sharing.repository.RentalHoldRepository;
+import car.sharing.repository.UserRepository;
+import car.sharing.repository.VehicleUnitRepository;
+import car.sharing.service.RentalHoldService;
+import car.sharing.service.car.CarAvailabilityIndex;
+import car.sharing.service.car.CarInventoryChangedEvent;
+import car.sharing.service.rental.CarWaitlist;
+import car.sharing.service.rental.RentalHoldTable;
+import car.sharing.service.rental.TimerWheel;
+import car.sharing.service.telegram.NotificationOutbox;
+import jakarta.annotation.PostConstruct;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.List;
+import java.util.Optional;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Checkout holds. A hold marks a vehicle unit rented and is kept both in the
+ * in-memory {@link RentalHoldTable} and in {@code rental_holds}. A timer wheel
+ * frees the unit when the hold expires, and a periodic sweep of {@code rental_holds}
+ * frees the expired holds the wheel doesn't know about, such as holds taken on
+ * another instance. Deleting the hold row is the claim: whoever deletes it first,
+ * the rental, the wheel or the sweep, decides the unit's fate.
+ * The {@link CarAvailabilityIndex} is told about every hold that is created or
+ * freed, so it keeps counting held units as the car's units.
+ * <p>
+ * A customer holds at most one unit of a car, enforced by a unique key on
+ * {@code rental_holds}, and at most {@code max-per-user} cars at once, checked under
+ * a lock on the customer's row.
+ * <p>
+ * A unit that is freed while customers wait for its car is not freed at all:
+ * it is handed to the head of the {@link CarWaitlist} as a new hold, in the same
+ * transaction that takes the customer off the waitlist.
+ */
+@Service
+public class RentalHoldServiceImpl implements RentalHoldService {
+    private static final int WHEEL_SLOTS = 4096;
+    private static final long TICK_MILLIS = 1000;
+    private static final int SWEEP_BATCH_SIZE = 500;
+
+    private final RentalHoldRepository holdRepository;
+    private final VehicleUnitRepository vehicleUnitRepository;
+    private final CarRepository carRepository;
+    private final UserRepository userRepository;
+    private final RentalHoldTable holdTable;
+    private final RentalHoldMapper holdMapper;
+    private final ApplicationEventPublisher eventPublisher;
+    private final TransactionTemplate transactionTemplate;
+    private final CarWaitlist waitlist;
+    private final NotificationOutbox notificationOutbox;
+    private final CarAvailabilityIndex availabilityIndex;
+    private final Duration ttl;
+    private final Duration acceptWindow;
+    private final int maxHoldsPerUser;
+    private final TimerWheel<RentalHold> expiryWheel =
+            new TimerWheel<>(WHEEL_SLOTS, TICK_MILLIS, System.currentTimeMillis());
+
+    public RentalHoldServiceImpl(RentalHoldRepository holdRepository,
+                                 VehicleUnitRepository vehicleUnitRepository,
+                                 CarRepository carRepository,
+                                 UserRepository userRepository,
+                                 RentalHoldTable holdTable,
+                                 RentalHoldMapper holdMapper,
+                                 ApplicationEventPublisher eventPublisher,
+                                 TransactionTemplate transactionTemplate,
+                                 CarWaitlist waitlist,
+                                 NotificationOutbox notificationOutbox,
+                                 CarAvailabilityIndex availabilityIndex,
+                                 @Value("${rentals.holds.ttl:10m}") Duration ttl,
+                                 @Value("${rentals.waitlist.accept-window:5m}")
+                                 Duration acceptWindow,
+                                 @Value("${rentals.holds.max-per-user:3}")
+                                 int maxHoldsPerUser) {
+        this.holdRepository = holdRepository;
+        this.vehicleUnitRepository = vehicleUnitRepository;
+        this.carRepository = carRepository;
+        this.userRepository = userRepository;
+        this.holdTable = holdTable;
+        this.holdMapper = holdMapper;
+        this.eventPublisher = eventPublisher;
+        this.transactionTemplate = transactionTemplate;
+        this.waitlist = waitlist;
+        this.notificationOutbox = notificationOutbox;
+        this.availabilityIndex = availabilityIndex;
+        this.ttl = ttl;
+        this.acceptWindow = acceptWindow;
+        this.maxHoldsPerUser = maxHoldsPerUser;
+    }
+
+    @PostConstruct
+    public void loadHolds() {
+        holdRepository.findAll().forEach(this::track);
+    }
+
+    @Override
+    public RentalHoldDto hold(RentalHoldRequestDto requestDto, Long userId) {
+        Long carId = requestDto.getCarId();
+        RentalHold existing = holdTable.findByCar(userId, carId);
+        if (existing != null) {
+            if (isLive(existing)) {
+                return holdMapper.toDto(existing);
+            }
+            if (holdTable.remove(existing)) {
+                free(existing);
+            }
+        }
+        Duration duration = requestDto.getMinutes() == null
+                ? ttl
+                : Duration.ofMinutes(requestDto.getMinutes());
+        RentalHold savedHold = null;
+        for (int attempt = 0; savedHold == null; attempt++) {
+            try {
+                savedHold = transactionTemplate.execute(
+                        status -> reserve(carId, userId, duration));
+            } catch (DataIntegrityViolationException e) {
+                // the unique key says the user holds the car already, taken elsewhere
+                Optional<RentalHold> current =
+                        holdRepository.findByUserIdAndCarId(userId, carId);
+                if (current.isPresent() && isLive(current.get())) {
+                    track(current.get());
+                    return holdMapper.toDto(current.get());
+                }
+                if (attempt > 0) {
+                    throw new CarNotAvailableException(
+                            "Can`t hold car " + carId + " now, try again");
+                }
+                current.ifPresent(expired -> {
+                    holdTable.remove(expired);
+                    free(expired);
+                });
+            }
+        }
+        track(savedHold);
+        availabilityIndex.holdCreated(savedHold);
+        eventPublisher.publishEvent(new CarInventoryChangedEvent(carId));
+        return holdMapper.toDto(savedHold);
+    }
+
+    private RentalHold reserve(Long carId, Long userId, Duration duration) {
+        userRepository.lockById(userId);
+        if (holdRepository.countByUserIdAndCarIdNotAndExpiresAtAfter(
+                userId, carId, LocalDateTime.now()) >= maxHoldsPerUser) {
+            throw new HoldLimitExceededException("User " + userId + " can hold at most "
+                    + maxHoldsPerUser + " cars at once");
+        }
+        Optional<Long> unitId = vehicleUnitRepository.lockFreeUnitId(carId);
+        if (unitId.isEmpty()) {
+            if (!carRepository.existsById(carId)) {
+                throw new EntityNotFoundException("Can`t find car by id" + carId);
+            }
+            throw new CarNotAvailableException("Car is not available");
+        }
+        vehicleUnitRepository.setRented(unitId.get(), true);
+        RentalHold hold = new RentalHold();
+        hold.setCarId(carId);
+        hold.setVehicleUnitId(unitId.get());
+        hold.setUserId(userId);
+        hold.setExpiresAt(LocalDateTime.now().plus(duration));
+        return holdRepository.save(hold);
+    }
+
+    @Override
+    public void release(Long holdId, Long userId) {
+        RentalHold hold = findHold(holdId, userId).orElseThrow(
+                () -> new EntityNotFoundException("Can`t find hold by id " + holdId));
+        holdTable.remove(hold);
+        free(hold);
+    }
+
+    @Override
+    public Optional<Long> consume(Long holdId, Long userId, Long carId) {
+        Optional<RentalHold> hold = findHold(holdId, userId)
+                .filter(found -> found.getCarId().equals(carId));
+        if (hold.isEmpty()
+                || holdRepository.deleteLiveHold(holdId, LocalDateTime.now()) == 0) {
+            return Optional.empty();
+        }
+        afterCommit(() -> {
+            holdTable.remove(hold.get());
+            availabilityIndex.holdFreed(hold.get());
+        });
+        return Optional.of(hold.get().getVehicleUnitId());
+    }
+
+    @Override
+    public WaitlistEntryDto joinWaitlist(Long carId, Long userId) {
+        if (waitlist.size(carId) == 0) {
+            try {
+                RentalHoldDto hold = hold(new RentalHoldRequestDto().setCarId(carId), userId);
+                return new WaitlistEntryDto().setCarId(carId).setHold(hold);
+            } catch (CarNotAvailableException e) {
+                // sold out, wait in line
+            }
+        }
+        int waiting = waitlist.join(carId, userId);
+        return new WaitlistEntryDto()
+                .setCarId(carId)
+                .setWaiting(waiting)
+                .setPosition(waitlist.position(carId, userId));
+    }
+
+    @Override
+    public void leaveWaitlist(Long carId, Long userId) {
+        if (!waitlist.leave(carId, userId)) {
+            throw new EntityNotFoundException("User " + userId + " doesn`t wait for car " + carId);
+        }
+    }
+
+    @Override
+    public WaitlistEntryDto getWaitlistEntry(Long carId, Long userId) {
+        Optional<RentalHold> hold = holdRepository.findFirstByUserIdAndCarIdAndExpiresAtAfter(
+                userId, carId, LocalDateTime.now());
+        if (hold.isPresent()) {
+            return new WaitlistEntryDto().setCarId(carId).setHold(holdMapper.toDto(hold.get()));
+        }
+        int position = waitlist.position(carId, userId);
+        if (position == 0) {
+            throw new EntityNotFoundException("User " + userId + " doesn`t wait for car " + carId);
+        }
+        return new WaitlistEntryDto()
+                .setCarId(carId)
+                .setWaiting(waitlist.size(carId))
+                .setPosition(position);
+    }
+
+    @Override
+    public boolean handOff(Long carId, Long unitId) {
+        final long freedAt = System.nanoTime();
+        Waiter waiter = pollWaiter(carId);
+        if (waiter == null) {
+            return false;
+        }
+        RentalHold hold = new RentalHold();
+        hold.setCarId(carId);
+        hold.setVehicleUnitId(unitId);
+        hold.setUserId(waiter.userId());
+        hold.setExpiresAt(LocalDateTime.now().plus(acceptWindow));
+        RentalHold savedHold = holdRepository.save(hold);
+        notificationOutbox.enqueue("<b>Car Available!</b>\n"
+                + "User ID: " + savedHold.getUserId() + "\n"
+                + "Car ID: " + carId + " \n"
+                + "Hold ID: " + savedHold.getId() + "\n"
+                + "Accept Until: " + savedHold.getExpiresAt());
+        afterCommit(() -> {
+            track(savedHold);
+            availabilityIndex.holdCreated(savedHold);
+            waitlist.handedOff(waiter, freedAt);
+        });
+        return true;
+    }
+
+    /**
+     * Takes the first customer waiting for the car, skipping those who already hold
+     * a unit of it, as a customer holds only one.
+     */
+    private Waiter pollWaiter(Long carId) {
+        Waiter waiter = waitlist.poll(carId);
+        while (waiter != null && holdRepository.existsByUserIdAndCarId(waiter.userId(), carId)) {
+            waiter = waitlist.poll(carId);
+        }
+        return waiter;
+    }
+
+    @Scheduled(fixedDelay = TICK_MILLIS)
+    public void expireHolds() {
+        expiryWheel.advance(System.currentTimeMillis(), hold -> {
+            if (holdTable.remove(hold)) {
+                free(hold);
+            }
+        });
+    }
+
+    @Scheduled(fixedDelayString = "${rentals.holds.sweep-interval:1m}")
+    public void sweepExpiredHolds() {
+        List<RentalHold> expired;
+        do {
+            expired = holdRepository.findByExpiresAtBeforeOrderByExpiresAt(
+                    LocalDateTime.now(), Limit.of(SWEEP_BATCH_SIZE));
+            expired.forEach(hold -> {
+                holdTable.remove(hold);
+                free(hold);
+            });
+        } while (expired.size() == SWEEP_BATCH_SIZE);
+    }
+
+    private Optional<RentalHold> findHold(Long holdId, Long userId) {
+        RentalHold hold = holdTable.get(userId, holdId);
+        if (hold != null) {
+            return Optional.of(hold);
+        }
+        return holdRepository.findById(holdId)
+                .filter(found -> found.getUserId().equals(userId));
+    }
+
+    private void track(RentalHold hold) {
+        holdTable.put(hold);
+        expiryWheel.schedule(hold, toMillis(hold.getExpiresAt()));
+    }
+
+    private void free(RentalHold hold) {
+        Boolean freed = transactionTemplate.execute(status -> {
+            if (holdRepository.deleteHold(hold.getId()) == 0) {
+                return false;
+            }
+            if (!handOff(hold.getCarId(), hold.getVehicleUnitId())) {
+                vehicleUnitRepository.setRented(hold.getVehicleUnitId(), false);
+            }
+            return true;
+        });
+        if (Boolean.TRUE.equals(freed)) {
+            availabilityIndex.holdFreed(hold);
+            eventPublisher.publishEvent(new CarInventoryChangedEvent(hold.getCarId()));
+        }
+    }
+
+    /**
+     * Runs {@code onCommit} once the current transaction commits, or right away
+     * outside of a transaction.
+     */
+    private static void afterCommit(Runnable onCommit) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            onCommit.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(
+                new TransactionSynchronization() {
+                    @Override
+                    public void afterCommit() {
+                        onCommit.run();
+                    }
+                });
+    }
+
+    private boolean isLive(RentalHold hold) {
+        return hold.getExpiresAt().isAfter(LocalDateTime.now());
+    }
+
+    private static long toMillis(LocalDateTime dateTime) {
+        return dateTime.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+}
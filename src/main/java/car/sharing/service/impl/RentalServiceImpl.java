@@ -1,23 +1,37 @@
 package car.sharing.service.impl;
 
+import car.sharing.dto.page.CursorPageDto;
 import car.sharing.dto.rental.RentalDto;
 import car.sharing.dto.rental.RentalRequestDto;
 import car.sharing.exception.CarNotAvailableException;
 import car.sharing.exception.EntityNotFoundException;
+import car.sharing.exception.RentalAlreadyReturnedException;
 import car.sharing.mapper.RentalMapper;
-import car.sharing.model.car.Car;
 import car.sharing.model.rental.Rental;
 import car.sharing.repository.CarRepository;
 import car.sharing.repository.RentalRepository;
 import car.sharing.repository.UserRepository;
+import car.sharing.repository.VehicleUnitRepository;
+import car.sharing.service.RentalHoldService;
 import car.sharing.service.RentalService;
-import car.sharing.service.telegram.TelegramNotificationService;
+import car.sharing.service.car.CarAvailabilityIndex;
+import car.sharing.service.car.CarInventoryChangedEvent;
+import car.sharing.service.job.PartitionedJobRunner;
+import car.sharing.service.page.CursorCodec;
+import car.sharing.service.rental.OverdueRentalJob;
+import car.sharing.service.telegram.NotificationOutbox;
 import java.time.LocalDate;
-import java.util.List;
+import java.util.Optional;
 import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Window;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
 
 @RequiredArgsConstructor
 @Service
@@ -26,47 +40,76 @@ public class RentalServiceImpl implements RentalService {
     private final RentalMapper rentalMapper;
     private final CarRepository carRepository;
     private final UserRepository userRepository;
-    private final TelegramNotificationService notificationService;
+    private final NotificationOutbox notificationOutbox;
+    private final ApplicationEventPublisher eventPublisher;
+    private final CursorCodec cursorCodec;
+    private final CarAvailabilityIndex availabilityIndex;
+    private final TransactionTemplate transactionTemplate;
+    private final VehicleUnitRepository vehicleUnitRepository;
+    private final RentalHoldService holdService;
+    private final PartitionedJobRunner jobRunner;
+    private final OverdueRentalJob overdueRentalJob;
 
+    /**
+     * Takes the unit of the customer's hold, or else locks a free vehicle unit of the
+     * car with {@code SKIP LOCKED}, and inserts the rental in the same short transaction.
+     * Concurrent bookings of the same car lock different units instead of waiting on
+     * each other, and a unit is never rented twice.
+     */
     @Override
     public RentalDto add(RentalRequestDto requestDto, Long userId) {
-        Car car = carRepository.findById(requestDto.getCarId()).orElseThrow(
-                () -> new EntityNotFoundException("Can`t find car by id" + requestDto.getCarId())
-        );
-        if (car.getInventory() < 1) {
-            throw new CarNotAvailableException("Car is not available");
-        }
-        car.setInventory(car.getInventory() - 1);
-        Rental rental = new Rental();
-        rental.setRentalDate(LocalDate.now());
-        rental.setReturnDate(requestDto.getReturnDate());
-        rental.setCar(car);
-        rental.setUser(userRepository.getReferenceById(userId));
-        Rental savedRental = rentalRepository.save(rental);
-
-        String message = "<b>New Rental Created!</b>\n"
-                + "Rental ID: " + rental.getId() + "\n"
-                + "User ID: " + userId + "\n"
-                + "Car ID: " + car.getId() + " \n"
-                + "Return Date: " + rental.getReturnDate();
-        notificationService.sendMessage(message);
+        Long carId = requestDto.getCarId();
+        Rental savedRental = transactionTemplate.execute(status -> {
+            Optional<Long> unitId = requestDto.getHoldId() == null
+                    ? Optional.empty()
+                    : holdService.consume(requestDto.getHoldId(), userId, carId);
+            if (unitId.isEmpty()) {
+                unitId = vehicleUnitRepository.lockFreeUnitId(carId);
+                if (unitId.isEmpty()) {
+                    if (!carRepository.existsById(carId)) {
+                        throw new EntityNotFoundException("Can`t find car by id" + carId);
+                    }
+                    throw new CarNotAvailableException("Car is not available");
+                }
+                vehicleUnitRepository.setRented(unitId.get(), true);
+            }
+            Rental rental = new Rental();
+            rental.setRentalDate(LocalDate.now());
+            rental.setReturnDate(requestDto.getReturnDate());
+            rental.setCar(carRepository.getReferenceById(carId));
+            rental.setVehicleUnit(vehicleUnitRepository.getReferenceById(unitId.get()));
+            rental.setUser(userRepository.getReferenceById(userId));
+            Rental saved = rentalRepository.save(rental);
+            notificationOutbox.enqueue("<b>New Rental Created!</b>\n"
+                    + "Rental ID: " + saved.getId() + "\n"
+                    + "User ID: " + userId + "\n"
+                    + "Car ID: " + carId + " \n"
+                    + "Return Date: " + saved.getReturnDate());
+            return saved;
+        });
+        availabilityIndex.rentalStarted(savedRental);
+        eventPublisher.publishEvent(new CarInventoryChangedEvent(carId));
         return rentalMapper.toDto(savedRental);
     }
 
     @Override
-    public List<RentalDto> findAllActiveRentals(Long userId, Pageable pageable) {
-        return rentalRepository.getAllByUserIdAndActualReturnDateIsNull(userId, pageable).stream()
-                .map(rentalMapper::toDto)
-                .toList();
+    public CursorPageDto<RentalDto> findAllActiveRentals(Long userId, String cursor,
+                                                         Pageable pageable) {
+        Sort sort = cursorCodec.keysetSort(pageable.getSort());
+        ScrollPosition position = cursorCodec.decode(cursor, Rental.class, sort);
+        Window<Rental> rentals = rentalRepository.getAllByUserIdAndActualReturnDateIsNull(
+                userId, position, Limit.of(pageable.getPageSize()), sort);
+        return cursorCodec.toPage(rentals, sort, rentalMapper::toDto);
     }
 
     @Override
-    public List<RentalDto> findAllNotActiveRentals(Long userId, Pageable pageable) {
-        return rentalRepository
-                .getAllByUserIdAndActualReturnDateIsNotNull(userId, pageable)
-                .stream()
-                .map(rentalMapper::toDto)
-                .toList();
+    public CursorPageDto<RentalDto> findAllNotActiveRentals(Long userId, String cursor,
+                                                            Pageable pageable) {
+        Sort sort = cursorCodec.keysetSort(pageable.getSort());
+        ScrollPosition position = cursorCodec.decode(cursor, Rental.class, sort);
+        Window<Rental> rentals = rentalRepository.getAllByUserIdAndActualReturnDateIsNotNull(
+                userId, position, Limit.of(pageable.getPageSize()), sort);
+        return cursorCodec.toPage(rentals, sort, rentalMapper::toDto);
     }
 
     @Override
@@ -78,42 +121,46 @@ public class RentalServiceImpl implements RentalService {
     }
 
     @Override
-    public RentalDto setActualReturnDateById(Long id) {
-        Rental rental = rentalRepository.findById(id).orElseThrow(
-                () -> new EntityNotFoundException("Can`t find rental by id" + id)
-        );
-        rental.setActualReturnDate(LocalDate.now());
-        Car car = carRepository.findById(rental.getCar().getId()).orElseThrow(
-                () -> new EntityNotFoundException(
-                        "Can't find the car by id: " + rental.getCar().getId())
-        );
-        car.setInventory(car.getInventory() + 1);
+    public String getETag(Long id) {
+        return rentalRepository.findVersionById(id)
+                .map(version -> "\"" + id + "-" + version + "\"")
+                .orElse(null);
+    }
 
-        carRepository.save(car);
-        return rentalMapper.toDto(rentalRepository.save(rental));
+    /**
+     * Closes the rental with a conditional update and, in the same transaction, hands
+     * its vehicle unit to the first customer on the waitlist or frees it, so a rental
+     * can only be returned once.
+     */
+    @Override
+    public RentalDto setActualReturnDateById(Long id) {
+        Rental returnedRental = transactionTemplate.execute(status -> {
+            if (rentalRepository.markReturned(id, LocalDate.now()) == 0) {
+                if (!rentalRepository.existsById(id)) {
+                    throw new EntityNotFoundException("Can`t find rental by id" + id);
+                }
+                throw new RentalAlreadyReturnedException("Rental is already returned: " + id);
+            }
+            Rental rental = rentalRepository.findByIdWithCar(id).orElseThrow(
+                    () -> new EntityNotFoundException("Can`t find rental by id" + id)
+            );
+            if (rental.getVehicleUnit() != null && !holdService.handOff(
+                    rental.getCar().getId(), rental.getVehicleUnit().getId())) {
+                vehicleUnitRepository.setRented(rental.getVehicleUnit().getId(), false);
+            }
+            return rental;
+        });
+        eventPublisher.publishEvent(new CarInventoryChangedEvent(returnedRental.getCar().getId()));
+        availabilityIndex.rentalReturned(returnedRental);
+        return rentalMapper.toDto(returnedRental);
     }
 
+    /**
+     * Starts today's overdue scan. Only the first node to get here plans the run, and
+     * every node then works on its partitions.
+     */
     @Scheduled(cron = "0 0 8 * * *")// at 8 am
     public void checkOverdueRentals() {
-        LocalDate today = LocalDate.now();
-        LocalDate tomorrow = today.plusDays(1);
-        List<Rental> overdueRentals =
-                rentalRepository.getAllByReturnDateBeforeAndActualReturnDateIsNull(tomorrow);
-
-        if (overdueRentals.isEmpty()) {
-            notificationService.sendMessage("No rentals overdue today!");
-        } else {
-            overdueRentals.forEach(
-                    rental -> {
-                        String message = "<b>Overdue Rental Notification!</b>\n"
-                                + "Rental ID: " + rental.getId() + "\n"
-                                + "User ID: " + rental.getUser().getId() + "\n"
-                                + "Car ID: " + rental.getCar().getId() + " \n"
-                                + "Return Date: " + rental.getReturnDate();
-                        notificationService.sendMessage(message);
-                    }
-            );
-        }
-
+        jobRunner.start(overdueRentalJob, LocalDate.now().toString());
     }
 }
@@ -0,0 +1,129 @@
+package car.sharing.service.impl;
+
+import car.sharing.dto.bulk.BulkImportResultDto;
+import car.sharing.dto.user.UserImportRowDto;
+import car.sharing.exception.EntityNotFoundException;
+import car.sharing.model.user.Role;
+import car.sharing.model.user.RoleName;
+import car.sharing.model.user.User;
+import car.sharing.repository.RoleRepository;
+import car.sharing.repository.UserBulkRepository;
+import car.sharing.service.UserImportService;
+import car.sharing.service.bulk.BulkImportReport;
+import car.sharing.service.bulk.BulkRow;
+import car.sharing.service.bulk.BulkRowReader;
+import car.sharing.service.user.RegisteredEmailFilter;
+import jakarta.annotation.PreDestroy;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Onboards customers from a CSV or NDJSON upload. Rows are read and inserted
+ * in batches, and the passwords of a batch are hashed in parallel on a pool
+ * bounded by the number of cores, so BCrypt never runs on request threads.
+ */
+@Service
+public class UserImportServiceImpl implements UserImportService {
+    private static final int MAX_REPORTED_ERRORS = 1000;
+
+    private final BulkRowReader rowReader;
+    private final PasswordEncoder passwordEncoder;
+    private final RoleRepository roleRepository;
+    private final UserBulkRepository userBulkRepository;
+    private final RegisteredEmailFilter registeredEmailFilter;
+    private final TransactionTemplate transactionTemplate;
+    private final ForkJoinPool hashingPool;
+    private final int batchSize;
+
+    public UserImportServiceImpl(BulkRowReader rowReader,
+                                 PasswordEncoder passwordEncoder,
+                                 RoleRepository roleRepository,
+                                 UserBulkRepository userBulkRepository,
+                                 RegisteredEmailFilter registeredEmailFilter,
+                                 TransactionTemplate transactionTemplate,
+                                 @Value("${users.import.batch-size:500}") int batchSize) {
+        this.rowReader = rowReader;
+        this.passwordEncoder = passwordEncoder;
+        this.roleRepository = roleRepository;
+        this.userBulkRepository = userBulkRepository;
+        this.registeredEmailFilter = registeredEmailFilter;
+        this.transactionTemplate = transactionTemplate;
+        this.batchSize = batchSize;
+        this.hashingPool = new ForkJoinPool(Runtime.getRuntime().availableProcessors());
+    }
+
+    @Override
+    public BulkImportResultDto importCustomers(InputStream inputStream, String contentType) {
+        Role role = roleRepository.findByName(RoleName.CUSTOMER).orElseThrow(
+                () -> new EntityNotFoundException("Can`t find role by name" + RoleName.CUSTOMER)
+        );
+        BulkImportReport report = new BulkImportReport(MAX_REPORTED_ERRORS);
+        Iterator<BulkRow<UserImportRowDto>> rows =
+                rowReader.read(inputStream, contentType, UserImportRowDto.class);
+        List<BulkRow<UserImportRowDto>> batch = new ArrayList<>(batchSize);
+        while (rows.hasNext()) {
+            BulkRow<UserImportRowDto> row = rows.next();
+            if (!row.isValid()) {
+                report.failed(row.number(), row.error());
+                continue;
+            }
+            batch.add(row);
+            if (batch.size() == batchSize) {
+                insertBatch(batch, role, report);
+                batch.clear();
+            }
+        }
+        if (!batch.isEmpty()) {
+            insertBatch(batch, role, report);
+        }
+        return report.toDto();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        hashingPool.shutdown();
+    }
+
+    private void insertBatch(List<BulkRow<UserImportRowDto>> batch, Role role,
+                             BulkImportReport report) {
+        List<User> users = hashingPool.submit(() -> batch.parallelStream()
+                .map(row -> toUser(row.value()))
+                .toList())
+                .join();
+        boolean[] inserted;
+        try {
+            inserted = transactionTemplate.execute(
+                    status -> userBulkRepository.insertAll(users, role.getId()));
+        } catch (DataAccessException e) {
+            batch.forEach(row -> report.failed(row.number(),
+                    "Can`t save user: " + e.getMostSpecificCause().getMessage()));
+            return;
+        }
+        for (int i = 0; i < inserted.length; i++) {
+            if (inserted[i]) {
+                registeredEmailFilter.add(users.get(i).getEmail());
+                report.imported(1);
+            } else {
+                report.failed(batch.get(i).number(),
+                        "Can`t register user by email: " + users.get(i).getEmail());
+            }
+        }
+    }
+
+    private User toUser(UserImportRowDto row) {
+        User user = new User();
+        user.setEmail(row.getEmail());
+        user.setPassword(passwordEncoder.encode(row.getPassword()));
+        user.setFirstName(row.getFirstName());
+        user.setLastName(row.getLastName());
+        return user;
+    }
+}
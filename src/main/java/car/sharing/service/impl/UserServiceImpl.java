@@ -11,10 +11,15 @@ import car.sharing.model.user.RoleName;
 import car.sharing.model.user.User;
 import car.sharing.repository.RoleRepository;
 import car.sharing.repository.UserRepository;
+import car.sharing.security.TokenVersionStore;
+import car.sharing.security.UserChangedEvent;
 import car.sharing.service.UserService;
+import car.sharing.service.user.RegisteredEmailFilter;
 import java.util.HashSet;
 import java.util.Set;
 import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 
@@ -25,13 +30,19 @@ public class UserServiceImpl implements UserService {
     private final UserMapper userMapper;
     private final PasswordEncoder passwordEncoder;
     private final RoleRepository roleRepository;
+    private final TokenVersionStore tokenVersionStore;
+    private final ApplicationEventPublisher eventPublisher;
+    private final RegisteredEmailFilter registeredEmailFilter;
 
     @Override
     public UserDto register(UserRegistrationRequestDto requestDto)
             throws RegistrationException {
         String email = requestDto.getEmail();
-        if (userRepository.existsByEmail(email)) {
-            throw new RegistrationException("Can`t register user by email: " + email);
+        if (registeredEmailFilter.mightContain(email)) {
+            if (userRepository.existsByEmail(email)) {
+                throw new RegistrationException("Can`t register user by email: " + email);
+            }
+            registeredEmailFilter.falsePositive();
         }
         User user = new User();
         user.setEmail(requestDto.getEmail());
@@ -45,7 +56,13 @@ public class UserServiceImpl implements UserService {
         roles.add(role);
         user.setRoles(roles);
 
-        User savedUser = userRepository.save(user);
+        User savedUser;
+        try {
+            savedUser = userRepository.save(user);
+        } catch (DataIntegrityViolationException e) {
+            throw new RegistrationException("Can`t register user by email: " + email);
+        }
+        registeredEmailFilter.add(email);
         return userMapper.toDto(savedUser);
     }
 
@@ -63,24 +80,36 @@ public class UserServiceImpl implements UserService {
         updatedRoles.add(role);
         user.setRoles(updatedRoles);
 
-        return userMapper.toDto(userRepository.save(user));
+        User savedUser = userRepository.save(user);
+        tokenVersionStore.bump(id);
+        eventPublisher.publishEvent(new UserChangedEvent(savedUser.getEmail()));
+        return userMapper.toDto(savedUser);
     }
 
     @Override
-    public UserDto getInfo(User authUser) {
-        User user = userRepository.findByEmail(authUser.getEmail()).orElseThrow(
-                () -> new EntityNotFoundException("Can`t find user by email:" + authUser.getEmail())
+    public UserDto getInfo(String email) {
+        User user = userRepository.findByEmail(email).orElseThrow(
+                () -> new EntityNotFoundException("Can`t find user by email:" + email)
         );
         return userMapper.toDto(user);
     }
 
     @Override
-    public UserDto updateInfo(User updateUser,
+    public UserDto updateInfo(String email,
                               UserRegistrationRequestDto requestDto) {
+        User updateUser = userRepository.findByEmail(email).orElseThrow(
+                () -> new EntityNotFoundException("Can`t find user by email:" + email)
+        );
         updateUser.setEmail(requestDto.getEmail());
         updateUser.setPassword(requestDto.getPassword());
         updateUser.setFirstName(requestDto.getFirstName());
         updateUser.setLastName(requestDto.getLastName());
-        return userMapper.toDto(userRepository.save(updateUser));
+        User savedUser = userRepository.save(updateUser);
+        eventPublisher.publishEvent(new UserChangedEvent(email));
+        if (!email.equals(savedUser.getEmail())) {
+            registeredEmailFilter.add(savedUser.getEmail());
+            eventPublisher.publishEvent(new UserChangedEvent(savedUser.getEmail()));
+        }
+        return userMapper.toDto(savedUser);
     }
 }
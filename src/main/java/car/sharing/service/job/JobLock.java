@@ -0,0 +1,87 @@
+package car.sharing.service.job;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.time.Duration;
+import java.util.UUID;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+/**
+ * Lease lock that lets only one replica run each occurrence of a scheduled job.
+ * <p>
+ * Each job has a row in {@code job_locks}. A replica takes the lock with a conditional
+ * update that only matches once the previous lease has expired, or by inserting the row
+ * the first time, and writes its owner ID into it. Times come from the database clock,
+ * so replicas with skewed clocks agree. If the holder dies its lease runs out after
+ * {@code lockAtMostFor} and another replica can take over. On release the lease is kept
+ * until {@code lockAtLeastFor} after it was taken, so a replica whose scheduler fires a
+ * little later skips the occurrence that already ran.
+ */
+@Component
+public class JobLock {
+    private static final String TAKE_EXPIRED_LOCK = "UPDATE job_locks "
+            + "SET locked_until = TIMESTAMPADD(MICROSECOND, ?, NOW(3)), "
+            + "locked_at = NOW(3), locked_by = ? "
+            + "WHERE name = ? AND locked_until <= NOW(3)";
+    private static final String INSERT_LOCK = "INSERT IGNORE INTO job_locks "
+            + "(name, locked_until, locked_at, locked_by) "
+            + "VALUES (?, TIMESTAMPADD(MICROSECOND, ?, NOW(3)), NOW(3), ?)";
+    private static final int MAX_HOST_NAME_LENGTH = 200;
+    private static final String RELEASE_LOCK = "UPDATE job_locks "
+            + "SET locked_until = GREATEST(NOW(3), TIMESTAMPADD(MICROSECOND, ?, locked_at)) "
+            + "WHERE name = ? AND locked_by = ?";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final String ownerId;
+
+    @Autowired
+    public JobLock(JdbcTemplate jdbcTemplate) {
+        this(jdbcTemplate, hostName() + "-" + UUID.randomUUID());
+    }
+
+    JobLock(JdbcTemplate jdbcTemplate, String ownerId) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.ownerId = ownerId;
+    }
+
+    /**
+     * Runs the job if no other replica holds its lock.
+     *
+     * @return true if the job ran here
+     */
+    public boolean runLocked(String name, Duration lockAtMostFor, Duration lockAtLeastFor,
+                             Runnable job) {
+        if (!tryLock(name, lockAtMostFor)) {
+            return false;
+        }
+        try {
+            job.run();
+        } finally {
+            unlock(name, lockAtLeastFor);
+        }
+        return true;
+    }
+
+    boolean tryLock(String name, Duration lockAtMostFor) {
+        long micros = lockAtMostFor.toNanos() / 1000;
+        return jdbcTemplate.update(TAKE_EXPIRED_LOCK, micros, ownerId, name) == 1
+                || jdbcTemplate.update(INSERT_LOCK, name, micros, ownerId) == 1;
+    }
+
+    void unlock(String name, Duration lockAtLeastFor) {
+        jdbcTemplate.update(RELEASE_LOCK, lockAtLeastFor.toNanos() / 1000, name, ownerId);
+    }
+
+    private static String hostName() {
+        try {
+            String hostName = InetAddress.getLocalHost().getHostName();
+            return hostName.length() > MAX_HOST_NAME_LENGTH
+                    ? hostName.substring(0, MAX_HOST_NAME_LENGTH)
+                    : hostName;
+        } catch (UnknownHostException e) {
+            return "unknown";
+        }
+    }
+}
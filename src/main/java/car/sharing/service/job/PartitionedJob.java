@@ -0,0 +1,39 @@
+package car.sharing.service.job;
+
+import java.util.Optional;
+
+/**
+ * Batch work over a range of numeric keys, such as rental ids, that
+ * {@link PartitionedJobRunner} splits into partitions and spreads over the nodes.
+ */
+public interface PartitionedJob {
+    String name();
+
+    /**
+     * @return the smallest and largest key of the run, empty if there is nothing to do
+     */
+    Optional<KeyRange> keyRange(String runKey);
+
+    /**
+     * Processes the next chunk of keys after {@code afterKey}, up to {@code toKey}.
+     * Runs in the transaction that also saves the partition's checkpoint.
+     *
+     * @return the chunk processed, with no keys once the range is exhausted
+     */
+    JobChunk processChunk(String runKey, long afterKey, long toKey);
+
+    /**
+     * Called on the node that completes the last partition of the run.
+     */
+    default void onRunFinished(String runKey, long processed) {
+    }
+
+    record KeyRange(long min, long max) {
+    }
+
+    record JobChunk(int processed, long lastKey) {
+        public static JobChunk empty() {
+            return new JobChunk(0, 0);
+        }
+    }
+}
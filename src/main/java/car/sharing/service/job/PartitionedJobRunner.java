@@ -0,0 +1,274 @@
+package car.sharing.service.job;
+
+import car.sharing.model.job.JobPartition;
+import car.sharing.model.job.JobRunResult;
+import car.sharing.repository.JobPartitionRepository;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Runs {@link PartitionedJob}s across all nodes.
+ * <p>
+ * The node whose scheduler creates a run first splits the job's key range into
+ * partitions in {@code job_partitions}; the unique run key makes the others skip it.
+ * Every node then claims partitions with {@code SKIP LOCKED}, as many as it has free
+ * workers, and leases them. Each chunk is processed in one transaction with the
+ * partition's checkpoint, which also renews the lease, so a crashed node's partitions
+ * are claimed again once their lease runs out and resume after the last checkpoint.
+ * A partition that fails {@code max-attempts} times, or is claimed again after its
+ * last attempt died with its node, is marked failed instead of retried forever.
+ * The node that completes or fails the last partition finishes the run and records
+ * its wall-clock time.
+ */
+@Slf4j
+@Component
+public class PartitionedJobRunner {
+    private final JobPartitionRepository partitionRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final Map<String, PartitionedJob> jobs;
+    private final MeterRegistry meterRegistry;
+    private final Executor executor;
+    private final Semaphore workers;
+    private final int partitions;
+    private final Duration lease;
+    private final int maxAttempts;
+    private final String ownerId = UUID.randomUUID().toString();
+
+    @Autowired
+    public PartitionedJobRunner(JobPartitionRepository partitionRepository,
+                                TransactionTemplate transactionTemplate,
+                                List<PartitionedJob> jobs,
+                                MeterRegistry meterRegistry,
+                                @Value("${jobs.workers:4}") int workers,
+                                @Value("${jobs.partitions:16}") int partitions,
+                                @Value("${jobs.lease:2m}") Duration lease,
+                                @Value("${jobs.max-attempts:5}") int maxAttempts) {
+        this(partitionRepository, transactionTemplate, jobs, meterRegistry,
+                Executors.newFixedThreadPool(workers, new JobThreadFactory()),
+                workers, partitions, lease, maxAttempts);
+    }
+
+    PartitionedJobRunner(JobPartitionRepository partitionRepository,
+                         TransactionTemplate transactionTemplate,
+                         List<PartitionedJob> jobs,
+                         MeterRegistry meterRegistry,
+                         Executor executor,
+                         int workers,
+                         int partitions,
+                         Duration lease,
+                         int maxAttempts) {
+        this.partitionRepository = partitionRepository;
+        this.transactionTemplate = transactionTemplate;
+        this.jobs = jobs.stream()
+                .collect(Collectors.toMap(PartitionedJob::name, Function.identity()));
+        this.meterRegistry = meterRegistry;
+        this.executor = executor;
+        this.workers = new Semaphore(workers);
+        this.partitions = partitions;
+        this.lease = lease;
+        this.maxAttempts = maxAttempts;
+    }
+
+    /**
+     * Plans the run of the job unless another node already did, then starts
+     * working on its partitions here.
+     *
+     * @return true if this node planned the run
+     */
+    public boolean start(PartitionedJob job, String runKey) {
+        PlannedRun run = transactionTemplate.execute(status -> partitionRepository
+                .createRun(job.name(), runKey)
+                .map(runId -> {
+                    List<long[]> ranges = job.keyRange(runKey)
+                            .map(this::split)
+                            .orElse(List.of());
+                    partitionRepository.insertPartitions(runId, ranges);
+                    return new PlannedRun(runId, ranges.size());
+                })
+                .orElse(null));
+        if (run == null) {
+            return false;
+        }
+        if (run.partitions() == 0) {
+            if (partitionRepository.finishRun(run.id())) {
+                finish(job, run.id(), runKey);
+            }
+        } else {
+            claimPartitions();
+        }
+        return true;
+    }
+
+    @Scheduled(fixedDelayString = "${jobs.poll-interval:5s}")
+    public void claimPartitions() {
+        if (jobs.isEmpty()) {
+            return;
+        }
+        int free = workers.drainPermits();
+        if (free == 0) {
+            return;
+        }
+        List<JobPartition> claimed = List.of();
+        try {
+            claimed = transactionTemplate.execute(status ->
+                    partitionRepository.claim(jobs.keySet(), ownerId, free, lease));
+        } finally {
+            workers.release(free - claimed.size());
+        }
+        for (JobPartition partition : claimed) {
+            executor.execute(() -> {
+                try {
+                    process(partition);
+                } finally {
+                    workers.release();
+                }
+            });
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (executor instanceof ExecutorService executorService) {
+            executorService.shutdownNow();
+        }
+    }
+
+    private void process(JobPartition partition) {
+        PartitionedJob job = jobs.get(partition.jobName());
+        if (partition.attempts() > maxAttempts) {
+            log.error("Partition {} of job {} used up its {} attempts, giving up",
+                    partition.id(), job.name(), maxAttempts);
+            fail(job, partition);
+            return;
+        }
+        final long startedAt = System.nanoTime();
+        long checkpoint = partition.checkpoint();
+        long processed = 0;
+        try {
+            while (true) {
+                final long afterKey = checkpoint;
+                PartitionedJob.JobChunk chunk = transactionTemplate.execute(status -> {
+                    PartitionedJob.JobChunk next = job.processChunk(
+                            partition.runKey(), afterKey, partition.rangeEnd());
+                    if (next.processed() > 0 && !partitionRepository.checkpoint(
+                            partition.id(), ownerId, next.lastKey(), next.processed(), lease)) {
+                        status.setRollbackOnly();
+                        return null;
+                    }
+                    return next;
+                });
+                if (chunk == null) {
+                    log.warn("Lost the lease of partition {} of job {}",
+                            partition.id(), job.name());
+                    return;
+                }
+                if (chunk.processed() == 0) {
+                    break;
+                }
+                checkpoint = chunk.lastKey();
+                processed += chunk.processed();
+            }
+        } catch (RuntimeException e) {
+            if (partition.attempts() >= maxAttempts) {
+                log.error("Partition {} of job {} failed {} times, giving up",
+                        partition.id(), job.name(), partition.attempts(), e);
+                fail(job, partition);
+            } else {
+                log.warn("Partition {} of job {} failed, it will be retried once its lease "
+                        + "ends", partition.id(), job.name(), e);
+            }
+            return;
+        }
+        if (!partitionRepository.complete(partition.id(), ownerId)) {
+            return;
+        }
+        recordThroughput(job, processed, System.nanoTime() - startedAt);
+        if (partitionRepository.finishRun(partition.runId())) {
+            finish(job, partition.runId(), partition.runKey());
+        }
+    }
+
+    private void fail(PartitionedJob job, JobPartition partition) {
+        if (partitionRepository.fail(partition.id(), ownerId)
+                && partitionRepository.finishRun(partition.runId())) {
+            finish(job, partition.runId(), partition.runKey());
+        }
+    }
+
+    /**
+     * Records the run; only a run without failed partitions is reported to the job.
+     */
+    private void finish(PartitionedJob job, Long runId, String runKey) {
+        JobRunResult result = partitionRepository.getResult(runId);
+        boolean failed = result.failedPartitions() > 0;
+        Timer.builder("jobs.run")
+                .description("Wall-clock time from planning a job run to its last partition")
+                .tag("job", job.name())
+                .tag("outcome", failed ? "failed" : "succeeded")
+                .register(meterRegistry)
+                .record(result.wallClock());
+        if (failed) {
+            log.error("Run {} of job {} finished with {} failed partitions",
+                    runKey, job.name(), result.failedPartitions());
+            return;
+        }
+        job.onRunFinished(runKey, result.processed());
+    }
+
+    private void recordThroughput(PartitionedJob job, long processed, long elapsedNanos) {
+        DistributionSummary.builder("jobs.partition.throughput")
+                .description("Keys processed per second by one partition")
+                .baseUnit("keys/s")
+                .tag("job", job.name())
+                .register(meterRegistry)
+                .record(processed * 1e9 / Math.max(elapsedNanos, 1));
+    }
+
+    /**
+     * Splits the range into at most {@code partitions} ranges of equal width.
+     */
+    List<long[]> split(PartitionedJob.KeyRange range) {
+        long keys = range.max() - range.min() + 1;
+        long width = Math.max(1, (keys + partitions - 1) / partitions);
+        List<long[]> ranges = new ArrayList<>();
+        for (long start = range.min(); start <= range.max(); start += width) {
+            ranges.add(new long[] {start, Math.min(start + width - 1, range.max())});
+        }
+        return ranges;
+    }
+
+    private record PlannedRun(Long id, int partitions) {
+    }
+
+    private static class JobThreadFactory implements ThreadFactory {
+        private final AtomicInteger counter = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, "partitioned-job-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package car.sharing.service.page;
+
+import car.sharing.dto.page.CursorPageDto;
+import car.sharing.exception.InvalidCursorException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.IOException;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Function;
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.KeysetScrollPosition;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Window;
+import org.springframework.data.mapping.PropertyPath;
+import org.springframework.data.mapping.PropertyReferenceException;
+import org.springframework.stereotype.Component;
+
+/**
+ * Translates keyset scroll positions to opaque continuation tokens and back.
+ * A token holds the sort it was issued for and the sort key values of the last
+ * row of the page, so the next page seeks on {@code (sort key, id)} instead of
+ * skipping an offset.
+ */
+@Component
+@RequiredArgsConstructor
+public class CursorCodec {
+    private static final String ID = "id";
+
+    private final ObjectMapper objectMapper;
+
+    /**
+     * Appends the id to the requested sort so that every position is unique.
+     */
+    public Sort keysetSort(Sort sort) {
+        return sort.getOrderFor(ID) == null ? sort.and(Sort.by(ID)) : sort;
+    }
+
+    public ScrollPosition decode(String cursor, Class<?> type, Sort sort) {
+        if (cursor == null || cursor.isBlank()) {
+            return ScrollPosition.keyset();
+        }
+        Cursor decoded;
+        try {
+            decoded = objectMapper.readValue(Base64.getUrlDecoder().decode(cursor), Cursor.class);
+        } catch (IOException | IllegalArgumentException e) {
+            throw new InvalidCursorException("Invalid cursor");
+        }
+        if (!sort.toString().equals(decoded.sort()) || decoded.keys() == null) {
+            throw new InvalidCursorException("Cursor was issued for a different sort");
+        }
+        Map<String, Object> keys = new LinkedHashMap<>();
+        for (Sort.Order order : sort) {
+            String property = order.getProperty();
+            try {
+                Class<?> propertyType = PropertyPath.from(property, type).getLeafType();
+                keys.put(property,
+                        objectMapper.convertValue(decoded.keys().get(property), propertyType));
+            } catch (IllegalArgumentException | PropertyReferenceException e) {
+                throw new InvalidCursorException("Invalid cursor");
+            }
+        }
+        return ScrollPosition.forward(keys);
+    }
+
+    public <T, R> CursorPageDto<R> toPage(Window<T> window, Sort sort, Function<T, R> mapper) {
+        String nextCursor = null;
+        if (window.hasNext() && !window.isEmpty()
+                && window.positionAt(window.size() - 1) instanceof KeysetScrollPosition last) {
+            nextCursor = encode(sort, last.getKeys());
+        }
+        return new CursorPageDto<>(window.getContent().stream().map(mapper).toList(),
+                nextCursor);
+    }
+
+    private String encode(Sort sort, Map<String, ?> keys) {
+        try {
+            byte[] json = objectMapper.writeValueAsBytes(new Cursor(sort.toString(), keys));
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(json);
+        } catch (IOException e) {
+            throw new IllegalStateException("Can`t encode cursor", e);
+        }
+    }
+
+    private record Cursor(String sort, Map<String, ?> keys) {
+    }
+}
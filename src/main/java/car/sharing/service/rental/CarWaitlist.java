@@ -0,0 +1,75 @@
+package car.sharing.service.rental;
+
+import car.sharing.model.rental.Waiter;
+import car.sharing.repository.WaitlistRepository;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import java.util.concurrent.TimeUnit;
+import org.springframework.stereotype.Component;
+
+/**
+ * Per-car FIFO queues of customers waiting for a sold-out car. The queues are kept
+ * in {@code waitlist}, so every instance serves the same line and it survives a
+ * restart; only the metrics live in memory.
+ */
+@Component
+public class CarWaitlist {
+    private final WaitlistRepository waitlistRepository;
+    private final Timer waitTimer;
+    private final Timer handoffTimer;
+
+    public CarWaitlist(WaitlistRepository waitlistRepository, MeterRegistry meterRegistry) {
+        this.waitlistRepository = waitlistRepository;
+        Gauge.builder("rentals.waitlist.depth", waitlistRepository,
+                        WaitlistRepository::countAll)
+                .description("Customers waiting for a sold-out car")
+                .register(meterRegistry);
+        this.waitTimer = Timer.builder("rentals.waitlist.wait")
+                .description("Time from joining the waitlist to being offered a unit")
+                .register(meterRegistry);
+        this.handoffTimer = Timer.builder("rentals.waitlist.handoff")
+                .description("Time from a unit being freed to the next waiter being notified")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Adds the user to the end of the car's queue unless they already wait for it.
+     *
+     * @return the number of customers waiting for the car
+     */
+    public int join(Long carId, Long userId) {
+        waitlistRepository.insert(carId, userId);
+        return waitlistRepository.countByCarId(carId);
+    }
+
+    public boolean leave(Long carId, Long userId) {
+        return waitlistRepository.delete(carId, userId);
+    }
+
+    /**
+     * Takes the first customer waiting for the car, or null if there is none.
+     * Must run in the transaction that hands the unit over, so the customer keeps
+     * their place if it rolls back.
+     */
+    public Waiter poll(Long carId) {
+        return waitlistRepository.pollFirst(carId).orElse(null);
+    }
+
+    /**
+     * @return the user's place in the car's queue, counting from 1, or 0 if they
+     *         don't wait for the car
+     */
+    public int position(Long carId, Long userId) {
+        return waitlistRepository.findPosition(carId, userId);
+    }
+
+    public int size(Long carId) {
+        return waitlistRepository.countByCarId(carId);
+    }
+
+    public void handedOff(Waiter waiter, long freedAtNanos) {
+        waitTimer.record(waiter.waited());
+        handoffTimer.record(System.nanoTime() - freedAtNanos, TimeUnit.NANOSECONDS);
+    }
+}
@@ -0,0 +1,91 @@
+package car.sharing.service.rental;
+
+import car.sharing.model.rental.OverdueRental;
+import car.sharing.repository.RentalRepository;
+import car.sharing.service.job.PartitionedJob;
+import car.sharing.service.telegram.NotificationOutbox;
+import car.sharing.service.telegram.TelegramNotificationService;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Optional;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Component;
+
+/**
+ * Finds the rentals overdue on the day of the run and enqueues one digest message per
+ * chunk. The key range is the IDs of the open rentals, read through a projection of
+ * just the columns the digest needs.
+ */
+@Component
+public class OverdueRentalJob implements PartitionedJob {
+    public static final String NAME = "overdue-rentals";
+
+    private final RentalRepository rentalRepository;
+    private final NotificationOutbox notificationOutbox;
+    private final int chunkSize;
+
+    public OverdueRentalJob(RentalRepository rentalRepository,
+                            NotificationOutbox notificationOutbox,
+                            @Value("${rentals.overdue.chunk-size:50}") int chunkSize) {
+        this.rentalRepository = rentalRepository;
+        this.notificationOutbox = notificationOutbox;
+        this.chunkSize = chunkSize;
+    }
+
+    @Override
+    public String name() {
+        return NAME;
+    }
+
+    @Override
+    public Optional<KeyRange> keyRange(String runKey) {
+        Long min = rentalRepository.findMinOpenRentalId();
+        Long max = rentalRepository.findMaxOpenRentalId();
+        if (min == null || max == null) {
+            return Optional.empty();
+        }
+        return Optional.of(new KeyRange(min, max));
+    }
+
+    @Override
+    public JobChunk processChunk(String runKey, long afterKey, long toKey) {
+        LocalDate tomorrow = LocalDate.parse(runKey).plusDays(1);
+        List<OverdueRental> rentals = rentalRepository.findOverdueBetween(
+                tomorrow, afterKey, toKey, Limit.of(chunkSize));
+        if (rentals.isEmpty()) {
+            return JobChunk.empty();
+        }
+        enqueueDigest(rentals);
+        return new JobChunk(rentals.size(), rentals.get(rentals.size() - 1).id());
+    }
+
+    @Override
+    public void onRunFinished(String runKey, long processed) {
+        if (processed == 0) {
+            notificationOutbox.enqueue("No rentals overdue today!");
+        }
+    }
+
+    private void enqueueDigest(List<OverdueRental> rentals) {
+        StringBuilder digest = new StringBuilder(digestHeader(rentals));
+        for (OverdueRental rental : rentals) {
+            String line = "Rental " + rental.id()
+                    + ": user " + rental.userId()
+                    + ", car " + rental.carId()
+                    + ", due " + rental.returnDate() + "\n";
+            if (digest.length() + line.length() > TelegramNotificationService.MAX_MESSAGE_LENGTH) {
+                notificationOutbox.enqueue(digest.toString());
+                digest.setLength(0);
+            }
+            digest.append(line);
+        }
+        notificationOutbox.enqueue(digest.toString());
+    }
+
+    private static String digestHeader(List<OverdueRental> rentals) {
+        return "<b>Overdue Rental Notification!</b>\n"
+                + rentals.size() + " rentals, IDs " + rentals.get(0).id()
+                + "-" + rentals.get(rentals.size() - 1).id() + ":\n";
+    }
+}
@@ -0,0 +1,81 @@
+package car.sharing.service.rental;
+
+import car.sharing.model.rental.RentalHold;
+import java.util.HashMap;
+import java.util.Map;
+import org.springframework.stereotype.Component;
+
+/**
+ * In-memory table of live rental holds, split in lock stripes by user id so
+ * checkouts of different customers don't contend on one lock. Every hold is
+ * also stored in {@code rental_holds}, which is reloaded after a restart.
+ */
+@Component
+public class RentalHoldTable {
+    private static final int STRIPES = 64;
+
+    private final Stripe[] stripes = new Stripe[STRIPES];
+
+    public RentalHoldTable() {
+        for (int i = 0; i < STRIPES; i++) {
+            stripes[i] = new Stripe();
+        }
+    }
+
+    public void put(RentalHold hold) {
+        Stripe stripe = stripeOf(hold.getUserId());
+        synchronized (stripe) {
+            stripe.holdsByUser.computeIfAbsent(hold.getUserId(), userId -> new HashMap<>())
+                    .put(hold.getId(), hold);
+        }
+    }
+
+    public RentalHold get(Long userId, Long holdId) {
+        Stripe stripe = stripeOf(userId);
+        synchronized (stripe) {
+            Map<Long, RentalHold> holds = stripe.holdsByUser.get(userId);
+            return holds == null ? null : holds.get(holdId);
+        }
+    }
+
+    public RentalHold findByCar(Long userId, Long carId) {
+        Stripe stripe = stripeOf(userId);
+        synchronized (stripe) {
+            Map<Long, RentalHold> holds = stripe.holdsByUser.get(userId);
+            if (holds == null) {
+                return null;
+            }
+            for (RentalHold hold : holds.values()) {
+                if (hold.getCarId().equals(carId)) {
+                    return hold;
+                }
+            }
+            return null;
+        }
+    }
+
+    /**
+     * @return true if the hold was in the table
+     */
+    public boolean remove(RentalHold hold) {
+        Stripe stripe = stripeOf(hold.getUserId());
+        synchronized (stripe) {
+            Map<Long, RentalHold> holds = stripe.holdsByUser.get(hold.getUserId());
+            if (holds == null || holds.remove(hold.getId()) == null) {
+                return false;
+            }
+            if (holds.isEmpty()) {
+                stripe.holdsByUser.remove(hold.getUserId());
+            }
+            return true;
+        }
+    }
+
+    private Stripe stripeOf(Long userId) {
+        return stripes[Math.floorMod(Long.hashCode(userId), STRIPES)];
+    }
+
+    private static class Stripe {
+        private final Map<Long, Map<Long, RentalHold>> holdsByUser = new HashMap<>();
+    }
+}
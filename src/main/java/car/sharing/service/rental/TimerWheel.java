@@ -0,0 +1,61 @@
+package car.sharing.service.rental;
+
+import java.lang.reflect.Array;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Hashed timer wheel. An item is put in the slot of its deadline tick, and each
+ * tick only looks at the items of one slot, so expiring items never scans all of
+ * them. Items due in a later turn of the wheel stay in their slot until then.
+ * Items can't be cancelled: the expiry callback checks whether they still matter.
+ */
+public class TimerWheel<T> {
+    private final long tickMillis;
+    private final ArrayList<Entry<T>>[] slots;
+    private long currentTick;
+
+    @SuppressWarnings("unchecked")
+    public TimerWheel(int slotCount, long tickMillis, long nowMillis) {
+        this.tickMillis = tickMillis;
+        this.slots = (ArrayList<Entry<T>>[]) Array.newInstance(ArrayList.class, slotCount);
+        for (int i = 0; i < slotCount; i++) {
+            slots[i] = new ArrayList<>();
+        }
+        this.currentTick = nowMillis / tickMillis;
+    }
+
+    public synchronized void schedule(T item, long deadlineMillis) {
+        long deadlineTick = Math.floorDiv(deadlineMillis + tickMillis - 1, tickMillis);
+        long slotTick = Math.max(deadlineTick, currentTick + 1);
+        slots[(int) (slotTick % slots.length)].add(new Entry<>(item, deadlineTick));
+    }
+
+    /**
+     * Moves the wheel up to {@code nowMillis} and passes every item that is due
+     * to {@code expired}, outside the wheel lock.
+     */
+    public void advance(long nowMillis, Consumer<T> expired) {
+        List<T> dueItems = new ArrayList<>();
+        synchronized (this) {
+            long nowTick = nowMillis / tickMillis;
+            currentTick = Math.max(currentTick, nowTick - slots.length);
+            while (currentTick < nowTick) {
+                currentTick++;
+                long tick = currentTick;
+                slots[(int) (tick % slots.length)].removeIf(entry -> {
+                    if (entry.deadlineTick() > tick) {
+                        return false;
+                    }
+                    dueItems.add(entry.item());
+                    return true;
+                });
+            }
+        }
+        dueItems.forEach(expired);
+    }
+
+    private record Entry<T>(T item, long deadlineTick) {
+    }
+}
@@ -0,0 +1,48 @@
+package car.sharing.service.telegram;
+
+import car.sharing.model.notification.OutboxMessage;
+import car.sharing.repository.OutboxMessageRepository;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+@RequiredArgsConstructor
+@Component
+public class NotificationOutbox {
+    private final OutboxMessageRepository outboxRepository;
+
+    /**
+     * Saves the message in the current transaction, so it is sent by {@link OutboxRelay}
+     * only if that transaction commits. Without a transaction it is saved on its own.
+     * A message longer than Telegram allows is saved in parts, split at line breaks
+     * where possible.
+     */
+    public void enqueue(String message) {
+        LocalDateTime now = LocalDateTime.now();
+        for (String part : split(message)) {
+            OutboxMessage outboxMessage = new OutboxMessage();
+            outboxMessage.setMessage(part);
+            outboxMessage.setCreatedAt(now);
+            outboxMessage.setNextAttemptAt(now);
+            outboxRepository.save(outboxMessage);
+        }
+    }
+
+    static List<String> split(String message) {
+        List<String> parts = new ArrayList<>();
+        int start = 0;
+        while (message.length() - start > TelegramNotificationService.MAX_MESSAGE_LENGTH) {
+            int end = start + TelegramNotificationService.MAX_MESSAGE_LENGTH;
+            int lineBreak = message.lastIndexOf('\n', end - 1);
+            if (lineBreak > start) {
+                end = lineBreak + 1;
+            }
+            parts.add(message.substring(start, end));
+            start = end;
+        }
+        parts.add(message.substring(start));
+        return parts;
+    }
+}
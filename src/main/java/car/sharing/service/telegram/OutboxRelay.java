@@ -0,0 +1,189 @@
+package car.sharing.service.telegram;
+
+import car.sharing.exception.TelegramRateLimitException;
+import car.sharing.model.notification.OutboxMessage;
+import car.sharing.repository.OutboxMessageRepository;
+import car.sharing.service.job.JobLock;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Collectors;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Delivers the messages of the notification outbox to Telegram.
+ * <p>
+ * Each batch is claimed in a short transaction: due rows are locked with
+ * {@code SKIP LOCKED} and leased by moving their next attempt forward, so several
+ * instances can relay at once and a crashed relay's rows are picked up again once
+ * the lease runs out. Messages are coalesced into as few Telegram messages as fit,
+ * sent outside the transaction, then marked sent, or scheduled again with
+ * exponential backoff until the attempts run out. When the Telegram rate limits are
+ * reached, the rest of the batch is left pending until they allow sending again,
+ * without counting an attempt.
+ */
+@Slf4j
+@Component
+public class OutboxRelay {
+    private static final String SEPARATOR = "\n\n";
+    private static final String PURGE_JOB = "purge-sent-notifications";
+    private static final Duration PURGE_LOCK_AT_MOST_FOR = Duration.ofMinutes(30);
+    private static final Duration PURGE_LOCK_AT_LEAST_FOR = Duration.ofMinutes(5);
+
+    private final OutboxMessageRepository outboxRepository;
+    private final TelegramNotificationService notificationService;
+    private final TransactionTemplate transactionTemplate;
+    private final JobLock jobLock;
+    private final int batchSize;
+    private final int maxAttempts;
+    private final Duration lease;
+    private final Duration backoff;
+    private final Duration maxBackoff;
+    private final Duration retention;
+
+    public OutboxRelay(OutboxMessageRepository outboxRepository,
+                       TelegramNotificationService notificationService,
+                       TransactionTemplate transactionTemplate,
+                       JobLock jobLock,
+                       @Value("${telegram.outbox.batch-size:50}") int batchSize,
+                       @Value("${telegram.outbox.max-attempts:10}") int maxAttempts,
+                       @Value("${telegram.outbox.lease:5m}") Duration lease,
+                       @Value("${telegram.outbox.backoff:5s}") Duration backoff,
+                       @Value("${telegram.outbox.max-backoff:30m}") Duration maxBackoff,
+                       @Value("${telegram.outbox.retention:7d}") Duration retention) {
+        this.outboxRepository = outboxRepository;
+        this.notificationService = notificationService;
+        this.transactionTemplate = transactionTemplate;
+        this.jobLock = jobLock;
+        this.batchSize = batchSize;
+        this.maxAttempts = maxAttempts;
+        this.lease = lease;
+        this.backoff = backoff;
+        this.maxBackoff = maxBackoff;
+        this.retention = retention;
+    }
+
+    @Scheduled(fixedDelayString = "${telegram.outbox.poll-interval:1s}")
+    public void relay() {
+        List<OutboxMessage> batch;
+        do {
+            batch = transactionTemplate.execute(status -> claimBatch());
+            if (!deliver(coalesce(batch))) {
+                return;
+            }
+        } while (batch.size() == batchSize);
+    }
+
+    @Scheduled(cron = "0 30 3 * * *")
+    public void purgeSent() {
+        jobLock.runLocked(PURGE_JOB, PURGE_LOCK_AT_MOST_FOR, PURGE_LOCK_AT_LEAST_FOR, () -> {
+            LocalDateTime before = LocalDateTime.now().minus(retention);
+            Integer deleted = transactionTemplate.execute(
+                    status -> outboxRepository.deleteSentBefore(before));
+            log.info("Purged {} sent notifications", deleted);
+        });
+    }
+
+    private List<OutboxMessage> claimBatch() {
+        LocalDateTime now = LocalDateTime.now();
+        List<Long> ids = outboxRepository.lockDueIds(now, maxAttempts, batchSize);
+        if (ids.isEmpty()) {
+            return List.of();
+        }
+        outboxRepository.lease(ids, now.plus(lease));
+        return outboxRepository.findAllById(ids).stream()
+                .sorted(Comparator.comparing(OutboxMessage::getId))
+                .toList();
+    }
+
+    /**
+     * Groups consecutive messages into as few Telegram messages as fit in
+     * {@link TelegramNotificationService#MAX_MESSAGE_LENGTH}, keeping their order.
+     */
+    static List<List<OutboxMessage>> coalesce(List<OutboxMessage> messages) {
+        List<List<OutboxMessage>> groups = new ArrayList<>();
+        List<OutboxMessage> group = new ArrayList<>();
+        int length = 0;
+        for (OutboxMessage message : messages) {
+            int added = message.getMessage().length()
+                    + (group.isEmpty() ? 0 : SEPARATOR.length());
+            if (!group.isEmpty()
+                    && length + added > TelegramNotificationService.MAX_MESSAGE_LENGTH) {
+                groups.add(group);
+                group = new ArrayList<>();
+                added = message.getMessage().length();
+                length = 0;
+            }
+            group.add(message);
+            length += added;
+        }
+        if (!group.isEmpty()) {
+            groups.add(group);
+        }
+        return groups;
+    }
+
+    /**
+     * Sends the groups in order.
+     *
+     * @return false if rate limited, leaving the unsent groups pending
+     */
+    private boolean deliver(List<List<OutboxMessage>> groups) {
+        for (int i = 0; i < groups.size(); i++) {
+            try {
+                send(groups.get(i));
+            } catch (TelegramRateLimitException e) {
+                List<Long> ids = groups.subList(i, groups.size()).stream()
+                        .flatMap(List::stream)
+                        .map(OutboxMessage::getId)
+                        .toList();
+                log.debug("Rate limited, notifications {} wait {}", ids, e.getRetryAfter());
+                LocalDateTime nextAttemptAt = LocalDateTime.now().plus(e.getRetryAfter());
+                transactionTemplate.executeWithoutResult(
+                        status -> outboxRepository.lease(ids, nextAttemptAt));
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void send(List<OutboxMessage> group) {
+        List<Long> ids = group.stream()
+                .map(OutboxMessage::getId)
+                .toList();
+        try {
+            notificationService.sendMessage(group.stream()
+                    .map(OutboxMessage::getMessage)
+                    .collect(Collectors.joining(SEPARATOR)));
+        } catch (TelegramRateLimitException e) {
+            throw e;
+        } catch (RuntimeException e) {
+            int attempts = group.stream()
+                    .mapToInt(OutboxMessage::getAttempts)
+                    .max()
+                    .orElse(0) + 1;
+            if (attempts >= maxAttempts) {
+                log.error("Giving up on notifications {} after {} attempts", ids, attempts, e);
+            } else {
+                log.warn("Can`t send notifications {}, attempt {}", ids, attempts, e);
+            }
+            LocalDateTime nextAttemptAt = LocalDateTime.now().plus(backoff(attempts));
+            transactionTemplate.executeWithoutResult(
+                    status -> outboxRepository.markFailed(ids, nextAttemptAt));
+            return;
+        }
+        transactionTemplate.executeWithoutResult(
+                status -> outboxRepository.markSent(ids, LocalDateTime.now()));
+    }
+
+    private Duration backoff(int attempts) {
+        Duration delay = backoff.multipliedBy(1L << Math.min(attempts - 1, 20));
+        return delay.compareTo(maxBackoff) > 0 ? maxBackoff : delay;
+    }
+}
@@ -1,5 +1,13 @@
 package car.sharing.service.telegram;
 
 public interface TelegramNotificationService {
+    int MAX_MESSAGE_LENGTH = 4096;
+
+    /**
+     * Sends the message to the chat.
+     *
+     * @throws car.sharing.exception.TelegramRateLimitException if the rate limits
+     *         don't allow sending it now; nothing was sent
+     */
     void sendMessage(String message);
 }
@@ -1,38 +1,74 @@
 package car.sharing.service.telegram;
 
 import car.sharing.exception.TelegramNotificationException;
-import lombok.RequiredArgsConstructor;
+import car.sharing.exception.TelegramRateLimitException;
+import java.time.Duration;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Profile;
 import org.springframework.stereotype.Component;
+import org.telegram.telegrambots.bots.DefaultBotOptions;
 import org.telegram.telegrambots.bots.TelegramLongPollingBot;
 import org.telegram.telegrambots.meta.api.methods.send.SendMessage;
 import org.telegram.telegrambots.meta.api.objects.Message;
 import org.telegram.telegrambots.meta.api.objects.Update;
 import org.telegram.telegrambots.meta.exceptions.TelegramApiException;
+import org.telegram.telegrambots.meta.exceptions.TelegramApiRequestException;
 
-@RequiredArgsConstructor
 @Component
 @Profile("!test")
 public class TelegramNotificationServiceImpl extends TelegramLongPollingBot
         implements TelegramNotificationService {
-    @Value("${telegram.bot.username}")
-    private String username;
+    private static final int TOO_MANY_REQUESTS = 429;
 
-    @Value("${telegram.bot.token}")
-    private String token;
+    private final String username;
+    private final String token;
+    private final TelegramRateLimiter rateLimiter;
+    private volatile Long chatId;
 
-    @Value("${telegram.chat.id}")
-    private Long chatId;
+    @Autowired
+    public TelegramNotificationServiceImpl(@Value("${telegram.bot.username}") String username,
+                                           @Value("${telegram.bot.token}") String token,
+                                           @Value("${telegram.chat.id}") Long chatId,
+                                           TelegramRateLimiter rateLimiter) {
+        this(new DefaultBotOptions(), username, token, chatId, rateLimiter);
+    }
+
+    TelegramNotificationServiceImpl(DefaultBotOptions options, String username, String token,
+                                    Long chatId, TelegramRateLimiter rateLimiter) {
+        super(options);
+        this.username = username;
+        this.token = token;
+        this.chatId = chatId;
+        this.rateLimiter = rateLimiter;
+    }
 
+    /**
+     * Sends the message if the rate limiter allows it. Otherwise, or if Telegram
+     * answers 429, nothing is sent and a {@link TelegramRateLimitException} tells
+     * the caller when to try again, so no thread waits for the limits.
+     */
     @Override
     public void sendMessage(String message) {
+        final Long chat = chatId;
+        Duration wait = rateLimiter.tryAcquire(chat);
+        if (!wait.isZero()) {
+            throw new TelegramRateLimitException("Rate limited, can`t send message now", wait);
+        }
         SendMessage sendMessage = new SendMessage();
-        sendMessage.setChatId(String.valueOf(chatId));
+        sendMessage.setChatId(String.valueOf(chat));
         sendMessage.setText(message);
         sendMessage.setParseMode("HTML");
         try {
             execute(sendMessage);
+        } catch (TelegramApiRequestException e) {
+            if (!Integer.valueOf(TOO_MANY_REQUESTS).equals(e.getErrorCode())) {
+                throw new TelegramNotificationException("Can`t send message: " + message);
+            }
+            Duration retryAfter = Duration.ofSeconds(retryAfterSeconds(e));
+            rateLimiter.pause(chat, retryAfter);
+            throw new TelegramRateLimitException("Too many requests, can`t send message now",
+                    retryAfter);
         } catch (TelegramApiException e) {
             throw new TelegramNotificationException("Can`t send message: " + message);
         }
@@ -59,6 +95,13 @@ public class TelegramNotificationServiceImpl extends TelegramLongPollingBot
         }
     }
 
+    private static int retryAfterSeconds(TelegramApiRequestException e) {
+        if (e.getParameters() == null || e.getParameters().getRetryAfter() == null) {
+            return 1;
+        }
+        return e.getParameters().getRetryAfter();
+    }
+
     private void sendInfoMessage(String name) {
         String info = "Hello, " + name + "!\n"
                 + "<b>I am your Car Sharing Bot.</b>\n"
@@ -0,0 +1,111 @@
+package car.sharing.service.telegram;
+
+import java.time.Duration;
+import java.time.temporal.ChronoUnit;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Rate limits for the Telegram Bot API: one bucket shared by all chats and one per
+ * chat. A message takes a slot from both. A chat can also be paused when Telegram
+ * answers 429 with {@code retry_after}.
+ * <p>
+ * The buckets are rows of {@code telegram_rate_limits}, so every instance relaying
+ * the outbox shares them. Each row keeps the time its next message is due, which
+ * moves one interval forward per message sent; a bucket allows a burst of messages
+ * while that time is less than a burst of intervals ahead of the database clock.
+ */
+@Component
+class TelegramRateLimiter {
+    private static final String GLOBAL_BUCKET = "global";
+    private static final String INSERT_BUCKET = "INSERT IGNORE INTO telegram_rate_limits "
+            + "(bucket, next_send_at) VALUES (?, NOW(3))";
+    private static final String LOCK_BUCKETS = "SELECT bucket, "
+            + "TIMESTAMPDIFF(MICROSECOND, NOW(3), next_send_at) FROM telegram_rate_limits "
+            + "WHERE bucket IN (?, ?) ORDER BY bucket FOR UPDATE";
+    private static final String TAKE_SLOT = "UPDATE telegram_rate_limits "
+            + "SET next_send_at = TIMESTAMPADD(MICROSECOND, ?, GREATEST(next_send_at, NOW(3))) "
+            + "WHERE bucket = ?";
+    private static final String PAUSE = "UPDATE telegram_rate_limits "
+            + "SET next_send_at = GREATEST(next_send_at, TIMESTAMPADD(MICROSECOND, ?, NOW(3))) "
+            + "WHERE bucket = ?";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final Set<String> knownBuckets = ConcurrentHashMap.newKeySet();
+    private final long globalIntervalMicros;
+    private final long globalToleranceMicros;
+    private final long chatIntervalMicros;
+    private final long chatToleranceMicros;
+
+    public TelegramRateLimiter(JdbcTemplate jdbcTemplate,
+                               PlatformTransactionManager transactionManager,
+                               @Value("${telegram.rate.global-per-second:30}") int globalPerSecond,
+                               @Value("${telegram.rate.chat-per-minute:20}") int chatPerMinute,
+                               @Value("${telegram.rate.chat-burst:3}") int chatBurst) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setPropagationBehavior(
+                TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.globalIntervalMicros = TimeUnit.SECONDS.toMicros(1) / globalPerSecond;
+        this.globalToleranceMicros = globalIntervalMicros * (globalPerSecond - 1);
+        this.chatIntervalMicros = TimeUnit.MINUTES.toMicros(1) / chatPerMinute;
+        this.chatToleranceMicros = chatIntervalMicros * (chatBurst - 1);
+    }
+
+    /**
+     * Takes a slot for a message to the chat.
+     *
+     * @return zero if the message can be sent now, otherwise the time to wait
+     */
+    Duration tryAcquire(long chatId) {
+        String chatBucket = chatBucket(chatId);
+        ensureBucket(GLOBAL_BUCKET);
+        ensureBucket(chatBucket);
+        long waitMicros = transactionTemplate.execute(status -> {
+            Map<String, Long> aheadMicros = new HashMap<>();
+            jdbcTemplate.query(LOCK_BUCKETS, (RowCallbackHandler) resultSet ->
+                    aheadMicros.put(resultSet.getString(1), resultSet.getLong(2)),
+                    GLOBAL_BUCKET, chatBucket);
+            long wait = Math.max(
+                    aheadMicros.getOrDefault(GLOBAL_BUCKET, 0L) - globalToleranceMicros,
+                    aheadMicros.getOrDefault(chatBucket, 0L) - chatToleranceMicros);
+            if (wait <= 0) {
+                jdbcTemplate.update(TAKE_SLOT, globalIntervalMicros, GLOBAL_BUCKET);
+                jdbcTemplate.update(TAKE_SLOT, chatIntervalMicros, chatBucket);
+            }
+            return wait;
+        });
+        return waitMicros > 0 ? Duration.of(waitMicros, ChronoUnit.MICROS) : Duration.ZERO;
+    }
+
+    /**
+     * Sends nothing to the chat for the given time, on any instance.
+     */
+    void pause(long chatId, Duration pause) {
+        String chatBucket = chatBucket(chatId);
+        ensureBucket(chatBucket);
+        jdbcTemplate.update(PAUSE, TimeUnit.NANOSECONDS.toMicros(pause.toNanos())
+                + chatToleranceMicros, chatBucket);
+    }
+
+    private void ensureBucket(String bucket) {
+        if (knownBuckets.add(bucket)) {
+            jdbcTemplate.update(INSERT_BUCKET, bucket);
+        }
+    }
+
+    private static String chatBucket(long chatId) {
+        return "chat:" + chatId;
+    }
+}
@@ -0,0 +1,146 @@
+package car.sharing.service.user;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.sql.PreparedStatement;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Component;
+
+/**
+ * In-memory Bloom filter of every email in the users table, soft-deleted ones included.
+ * A miss means the email is definitely free, so registration can skip the
+ * {@code existsByEmail} query and rely on the unique constraint.
+ * Until the table has been loaded every email is reported as a possible hit.
+ */
+@Component
+public class RegisteredEmailFilter {
+    private static final String SELECT_EMAILS = "SELECT email FROM users";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final AtomicLongArray words;
+    private final long bits;
+    private final int hashFunctions;
+    private final AtomicLong bitsSet = new AtomicLong();
+    private final Counter misses;
+    private final Counter hits;
+    private final Counter falsePositives;
+    private volatile boolean loaded;
+
+    public RegisteredEmailFilter(
+            JdbcTemplate jdbcTemplate,
+            MeterRegistry meterRegistry,
+            @Value("${users.email-filter.expected-insertions:1000000}") long expectedInsertions,
+            @Value("${users.email-filter.false-positive-rate:0.01}") double falsePositiveRate) {
+        this.jdbcTemplate = jdbcTemplate;
+        long optimalBits = (long) Math.ceil(-expectedInsertions * Math.log(falsePositiveRate)
+                / (Math.log(2) * Math.log(2)));
+        this.words = new AtomicLongArray((int) ((Math.max(optimalBits, Long.SIZE) + 63) >>> 6));
+        this.bits = (long) words.length() * Long.SIZE;
+        this.hashFunctions = Math.max(1,
+                (int) Math.round((double) bits / expectedInsertions * Math.log(2)));
+        this.misses = checkCounter(meterRegistry, "miss");
+        this.hits = checkCounter(meterRegistry, "hit");
+        this.falsePositives = checkCounter(meterRegistry, "false_positive");
+        Gauge.builder("users.email.filter.false_positive_rate", this,
+                        RegisteredEmailFilter::expectedFalsePositiveRate)
+                .description("Estimated false positive rate of the registered email filter")
+                .register(meterRegistry);
+        Gauge.builder("users.email.filter.memory", this, filter -> filter.words.length() * 8.0)
+                .baseUnit("bytes")
+                .register(meterRegistry);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        jdbcTemplate.query(connection -> {
+            PreparedStatement statement = connection.prepareStatement(SELECT_EMAILS);
+            statement.setFetchSize(Integer.MIN_VALUE);
+            return statement;
+        }, (RowCallbackHandler) resultSet -> add(resultSet.getString(1)));
+        loaded = true;
+    }
+
+    public boolean mightContain(String email) {
+        if (!loaded) {
+            hits.increment();
+            return true;
+        }
+        long hash = hash(email);
+        long h1 = mix(hash);
+        long h2 = mix(hash ^ 0x9E3779B97F4A7C15L) | 1;
+        for (int i = 0; i < hashFunctions; i++) {
+            long bit = Math.floorMod(h1 + i * h2, bits);
+            if ((words.get((int) (bit >>> 6)) & (1L << bit)) == 0) {
+                misses.increment();
+                return false;
+            }
+        }
+        hits.increment();
+        return true;
+    }
+
+    public void add(String email) {
+        long hash = hash(email);
+        long h1 = mix(hash);
+        long h2 = mix(hash ^ 0x9E3779B97F4A7C15L) | 1;
+        for (int i = 0; i < hashFunctions; i++) {
+            long bit = Math.floorMod(h1 + i * h2, bits);
+            int index = (int) (bit >>> 6);
+            long mask = 1L << bit;
+            long word;
+            do {
+                word = words.get(index);
+                if ((word & mask) != 0) {
+                    break;
+                }
+            } while (!words.compareAndSet(index, word, word | mask));
+            if ((word & mask) == 0) {
+                bitsSet.incrementAndGet();
+            }
+        }
+    }
+
+    /**
+     * Records a possible hit that the database reported as a free email.
+     */
+    public void falsePositive() {
+        falsePositives.increment();
+    }
+
+    double expectedFalsePositiveRate() {
+        return Math.pow((double) bitsSet.get() / bits, hashFunctions);
+    }
+
+    private static long hash(String email) {
+        String normalized = email.toLowerCase(Locale.ROOT);
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < normalized.length(); i++) {
+            hash ^= normalized.charAt(i);
+            hash *= 0x100000001b3L;
+        }
+        return hash;
+    }
+
+    private static long mix(long value) {
+        value ^= value >>> 33;
+        value *= 0xff51afd7ed558ccdL;
+        value ^= value >>> 33;
+        value *= 0xc4ceb9fe1a85ec53L;
+        value ^= value >>> 33;
+        return value;
+    }
+
+    private static Counter checkCounter(MeterRegistry meterRegistry, String result) {
+        return Counter.builder("users.email.filter.checks")
+                .tag("result", result)
+                .register(meterRegistry);
+    }
+}
@@ -0,0 +1,96 @@
+package car.sharing.benchmark;
+
+import car.sharing.model.user.Role;
+import car.sharing.model.user.RoleName;
+import car.sharing.model.user.User;
+import car.sharing.security.RoleMaskAuthorizationManager;
+import car.sharing.security.UserPrincipal;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import org.aopalliance.intercept.MethodInvocation;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.authorization.method.PreAuthorizeAuthorizationManager;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.util.SimpleMethodInvocation;
+
+/**
+ * Authorization hot path of a manager endpoint: building the authorities
+ * and checking {@code @PreAuthorize("hasRole('MANAGER')")}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AuthorizationBenchmark {
+    private User user;
+    private UserPrincipal principal;
+    private MethodInvocation invocation;
+    private PreAuthorizeAuthorizationManager spelManager;
+    private RoleMaskAuthorizationManager roleMaskManager;
+
+    @Setup
+    public void setup() throws NoSuchMethodException {
+        Role role = new Role();
+        role.setName(RoleName.MANAGER);
+        user = new User();
+        user.setId(1L);
+        user.setEmail("manager@gmail.com");
+        user.setRoles(Set.of(role));
+        principal = new UserPrincipal(1L, "manager@gmail.com", List.of(RoleName.MANAGER), 0L);
+        invocation = new SimpleMethodInvocation(new ManagerEndpoint(),
+                ManagerEndpoint.class.getMethod("update"));
+        spelManager = new PreAuthorizeAuthorizationManager();
+        roleMaskManager = new RoleMaskAuthorizationManager();
+    }
+
+    @Benchmark
+    public boolean spelWithStreamedAuthorities() {
+        Collection<? extends GrantedAuthority> authorities = user.getRoles().stream()
+                .map(role -> new SimpleGrantedAuthority("ROLE_" + role.getName().name()))
+                .collect(Collectors.toList());
+        Authentication authentication =
+                new UsernamePasswordAuthenticationToken(user, null, authorities);
+        return spelManager.check(() -> authentication, invocation).isGranted();
+    }
+
+    @Benchmark
+    public boolean compiledMaskWithCachedAuthorities() {
+        Authentication authentication = new UsernamePasswordAuthenticationToken(
+                principal, null, principal.getAuthorities());
+        return roleMaskManager.check(() -> authentication, invocation).isGranted();
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(AuthorizationBenchmark.class.getSimpleName())
+                .build())
+                .run();
+    }
+
+    public static class ManagerEndpoint {
+        @PreAuthorize("hasRole('MANAGER')")
+        public void update() {
+        }
+    }
+}
@@ -0,0 +1,147 @@
+package car.sharing.benchmark;
+
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import car.sharing.dto.car.CarAvailabilityDto;
+import car.sharing.model.car.Car;
+import car.sharing.model.rental.Rental;
+import car.sharing.service.car.CarAvailabilityIndex;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+/**
+ * Free units of one car for a week or a quarter, and the first page of free cars, on a fleet
+ * of 50k cars booked for the next year. The baseline keeps each car's bookings
+ * in a flat array and counts overlaps day by day, as a query over the car's
+ * rentals would.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class AvailabilityBenchmark {
+    private static final int CARS = 50_000;
+    private static final int DAYS = 365;
+    private static final int QUERIES = 1 << 12;
+    private static final Pageable PAGE = PageRequest.of(0, 20);
+
+    private final Random random = new Random(42);
+    @Param({"7", "90"})
+    private int rangeDays;
+
+    private CarAvailabilityIndex index;
+    private final Map<Long, int[]> bookings = new ConcurrentSkipListMap<>();
+    private long[] queryCars;
+    private LocalDate[] queryStarts;
+    private int query;
+
+    @Setup
+    public void setup() {
+        Map<Long, Integer> units = new HashMap<>();
+        JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+        when(jdbcTemplate.queryForList(anyString(), eq(Integer.class), anyLong()))
+                .thenAnswer(invocation -> List.of(units.get(invocation.getArgument(2))));
+        index = new CarAvailabilityIndex(jdbcTemplate, 400);
+        LocalDate today = LocalDate.now();
+        long rentalId = 0;
+        for (int carId = 1; carId <= CARS; carId++) {
+            Car car = new Car();
+            car.setId((long) carId);
+            car.setInventory(1 + random.nextInt(3));
+            units.put(car.getId(), car.getInventory());
+            index.carSaved(car.getId());
+            List<Integer> days = new ArrayList<>();
+            days.add(car.getInventory());
+            for (int unit = 0; unit < car.getInventory(); unit++) {
+                int day = random.nextInt(5);
+                while (day < DAYS) {
+                    int end = Math.min(day + 1 + random.nextInt(10), DAYS);
+                    Rental rental = new Rental();
+                    rental.setId(++rentalId);
+                    rental.setCar(car);
+                    rental.setRentalDate(today.plusDays(day));
+                    rental.setReturnDate(today.plusDays(end));
+                    index.rentalStarted(rental);
+                    rental.setActualReturnDate(rental.getReturnDate());
+                    index.rentalReturned(rental);
+                    days.add(day);
+                    days.add(end);
+                    day = end + random.nextInt(6);
+                }
+            }
+            bookings.put((long) carId, days.stream().mapToInt(Integer::intValue).toArray());
+        }
+        queryCars = new long[QUERIES];
+        queryStarts = new LocalDate[QUERIES];
+        for (int i = 0; i < QUERIES; i++) {
+            queryCars[i] = 1 + random.nextInt(CARS);
+            queryStarts[i] = today.plusDays(random.nextInt(DAYS - rangeDays));
+        }
+    }
+
+    @Benchmark
+    public int freeUnitsIndexed() {
+        int next = query++ & (QUERIES - 1);
+        LocalDate from = queryStarts[next];
+        return index.getAvailability(queryCars[next], from, from.plusDays(rangeDays))
+                .freeUnits();
+    }
+
+    @Benchmark
+    public int freeUnitsScan() {
+        int next = query++ & (QUERIES - 1);
+        int from = (int) (queryStarts[next].toEpochDay() - LocalDate.now().toEpochDay());
+        int[] booked = new int[rangeDays];
+        int[] days = bookings.get(queryCars[next]);
+        int peak = 0;
+        for (int i = 1; i < days.length; i += 2) {
+            for (int day = Math.max(days[i], from);
+                    day < Math.min(days[i + 1], from + rangeDays); day++) {
+                peak = Math.max(peak, ++booked[day - from]);
+            }
+        }
+        return days[0] - peak;
+    }
+
+    @Benchmark
+    public List<CarAvailabilityDto> findAvailablePage() {
+        LocalDate from = queryStarts[query++ & (QUERIES - 1)];
+        return index.findAvailable(from, from.plusDays(rangeDays), PAGE);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(AvailabilityBenchmark.class.getSimpleName())
+                .build())
+                .run();
+    }
+}
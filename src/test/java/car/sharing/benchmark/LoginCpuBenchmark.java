@@ -0,0 +1,80 @@
+package car.sharing.benchmark;
+
+import car.sharing.model.user.RoleName;
+import car.sharing.security.JwtUnit;
+import car.sharing.security.TokenHasher;
+import car.sharing.security.UserPrincipal;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.test.util.ReflectionTestUtils;
+
+/**
+ * Sustained token issuance with every core busy: a password login
+ * (BCrypt check + new tokens) against a refresh (hash lookup key + new tokens).
+ * Database round-trips are left out, both flows do one indexed read.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Threads(Threads.MAX)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class LoginCpuBenchmark {
+    private static final String SECRET = "mySecretiveness349bv890nnPasswordKey";
+    private static final String PASSWORD = "123456789";
+    private static final UserPrincipal PRINCIPAL =
+            new UserPrincipal(1L, "bob@example.com", List.of(RoleName.CUSTOMER), 0L);
+
+    private PasswordEncoder passwordEncoder;
+    private JwtUnit jwtUnit;
+    private String passwordHash;
+    private String refreshToken;
+
+    @Setup
+    public void setup() {
+        passwordEncoder = new BCryptPasswordEncoder();
+        jwtUnit = new JwtUnit(SECRET, 10_000);
+        ReflectionTestUtils.setField(jwtUnit, "expiration", 300_000L);
+        passwordHash = passwordEncoder.encode(PASSWORD);
+        refreshToken = TokenHasher.randomToken();
+    }
+
+    @Benchmark
+    public String passwordLogin() {
+        if (!passwordEncoder.matches(PASSWORD, passwordHash)) {
+            throw new IllegalStateException("Bad credentials");
+        }
+        return jwtUnit.generateToken(PRINCIPAL) + TokenHasher.sha256(TokenHasher.randomToken());
+    }
+
+    @Benchmark
+    public String refresh() {
+        String lookupKey = TokenHasher.sha256(refreshToken);
+        return lookupKey + jwtUnit.generateToken(PRINCIPAL)
+                + TokenHasher.sha256(TokenHasher.randomToken());
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(LoginCpuBenchmark.class.getSimpleName())
+                .build())
+                .run();
+    }
+}
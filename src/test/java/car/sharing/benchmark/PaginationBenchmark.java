@@ -0,0 +1,134 @@
+package car.sharing.benchmark;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.testcontainers.containers.MySQLContainer;
+
+/**
+ * Latency of one page of a user's active rentals with offset paging
+ * ({@code LIMIT x OFFSET y}) against keyset paging ({@code id > last id}),
+ * on a MySQL table with the same user index as {@code rentals}. Needs Docker.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PaginationBenchmark {
+    private static final int PAGE_SIZE = 20;
+    private static final int ROWS = 400_000;
+    private static final long USER_ID = 1L;
+    private static final String COLUMNS = "SELECT id, car_id, rental_date, return_date "
+            + "FROM rentals_bench WHERE user_id = ? AND actual_return_date IS NULL ";
+
+    @Param({"1", "10000"})
+    private int page;
+
+    private MySQLContainer<?> mysql;
+    private Connection connection;
+    private PreparedStatement offsetQuery;
+    private PreparedStatement keysetQuery;
+    private long lastIdOfPreviousPage;
+
+    @Setup(Level.Trial)
+    public void setup() throws SQLException {
+        mysql = new MySQLContainer<>("mysql:8");
+        mysql.start();
+        connection = DriverManager.getConnection(
+                mysql.getJdbcUrl(), mysql.getUsername(), mysql.getPassword());
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("CREATE TABLE rentals_bench ("
+                    + "id BIGINT AUTO_INCREMENT PRIMARY KEY, "
+                    + "user_id BIGINT NOT NULL, "
+                    + "car_id BIGINT NOT NULL, "
+                    + "rental_date DATE NOT NULL, "
+                    + "return_date DATE NOT NULL, "
+                    + "actual_return_date DATE NULL, "
+                    + "INDEX idx_rentals_bench_user_id (user_id))");
+            statement.execute("SET SESSION cte_max_recursion_depth = " + ROWS);
+            statement.execute("INSERT INTO rentals_bench "
+                    + "(user_id, car_id, rental_date, return_date) "
+                    + "WITH RECURSIVE seq (n) AS "
+                    + "(SELECT 1 UNION ALL SELECT n + 1 FROM seq WHERE n < " + ROWS + ") "
+                    + "SELECT n % 2 + 1, n % 100, CURRENT_DATE, CURRENT_DATE + INTERVAL 3 DAY "
+                    + "FROM seq");
+            statement.execute("ANALYZE TABLE rentals_bench");
+        }
+        offsetQuery = connection.prepareStatement(COLUMNS + "ORDER BY id LIMIT ? OFFSET ?");
+        keysetQuery = connection.prepareStatement(COLUMNS + "AND id > ? ORDER BY id LIMIT ?");
+        lastIdOfPreviousPage = lastIdBefore((long) (page - 1) * PAGE_SIZE);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws SQLException {
+        connection.close();
+        mysql.stop();
+    }
+
+    @Benchmark
+    public long offsetPage() throws SQLException {
+        offsetQuery.setLong(1, USER_ID);
+        offsetQuery.setInt(2, PAGE_SIZE);
+        offsetQuery.setLong(3, (long) (page - 1) * PAGE_SIZE);
+        return lastId(offsetQuery);
+    }
+
+    @Benchmark
+    public long keysetPage() throws SQLException {
+        keysetQuery.setLong(1, USER_ID);
+        keysetQuery.setLong(2, lastIdOfPreviousPage);
+        keysetQuery.setInt(3, PAGE_SIZE);
+        return lastId(keysetQuery);
+    }
+
+    private long lastIdBefore(long offset) throws SQLException {
+        if (offset == 0) {
+            return 0;
+        }
+        try (PreparedStatement statement = connection.prepareStatement(
+                COLUMNS + "ORDER BY id LIMIT 1 OFFSET ?")) {
+            statement.setLong(1, USER_ID);
+            statement.setLong(2, offset - 1);
+            return lastId(statement);
+        }
+    }
+
+    private static long lastId(PreparedStatement statement) throws SQLException {
+        long id = 0;
+        try (ResultSet resultSet = statement.executeQuery()) {
+            while (resultSet.next()) {
+                id = resultSet.getLong(1);
+            }
+        }
+        return id;
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(PaginationBenchmark.class.getSimpleName())
+                .build())
+                .run();
+    }
+}
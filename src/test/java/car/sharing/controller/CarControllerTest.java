@@ -6,6 +6,7 @@ import static org.springframework.test.web.servlet.request.MockMvcRequestBuilder
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
@@ -24,6 +25,7 @@ import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.core.io.ClassPathResource;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.jdbc.datasource.init.ScriptUtils;
 import org.springframework.security.test.context.support.WithMockUser;
@@ -140,6 +142,46 @@ public class CarControllerTest {
                 .andExpect(jsonPath("$.inventory", is(5)));
     }
 
+    @WithMockUser(username = "customer", roles = {"CUSTOMER"})
+    @Test
+    @DisplayName("Get car by ID with a matching ETag")
+    void getCarById_givenMatchingETag_shouldReturnNotModified() throws Exception {
+        String etag = mockMvc.perform(get("/cars/{id}", 1L))
+                .andExpect(status().isOk())
+                .andReturn()
+                .getResponse()
+                .getHeader(HttpHeaders.ETAG);
+
+        mockMvc.perform(get("/cars/{id}", 1L).header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isNotModified())
+                .andExpect(content().bytes(new byte[0]));
+    }
+
+    @WithMockUser(username = "customer", roles = {"CUSTOMER"})
+    @Test
+    @DisplayName("Get all cars with a matching ETag")
+    void getAll_givenMatchingETag_shouldReturnNotModified() throws Exception {
+        String etag = mockMvc.perform(get("/cars"))
+                .andExpect(status().isOk())
+                .andReturn()
+                .getResponse()
+                .getHeader(HttpHeaders.ETAG);
+
+        mockMvc.perform(get("/cars").header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isNotModified())
+                .andExpect(content().bytes(new byte[0]));
+    }
+
+    @WithMockUser(username = "customer", roles = {"CUSTOMER"})
+    @Test
+    @DisplayName("Get car availability for a range in the past")
+    void getAvailability_givenPastRange_shouldReturnBadRequest() throws Exception {
+        mockMvc.perform(get("/cars/{id}/availability", 1L)
+                        .param("from", "2020-01-01")
+                        .param("to", "2020-01-05"))
+                .andExpect(status().isBadRequest());
+    }
+
     @WithMockUser(username = "manager", roles = {"MANAGER"})
     @Test
     @DisplayName("Update car by ID")
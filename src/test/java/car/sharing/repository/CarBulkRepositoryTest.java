@@ -0,0 +1,71 @@
+package car.sharing.repository;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import car.sharing.model.car.Car;
+import car.sharing.model.car.CarType;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.jdbc.Sql;
+
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import(CarBulkRepository.class)
+@Sql(scripts = "classpath:database/cars/remove-cars.sql",
+        executionPhase = Sql.ExecutionPhase.AFTER_TEST_METHOD)
+class CarBulkRepositoryTest {
+    @Autowired
+    private CarBulkRepository carBulkRepository;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    @DisplayName("Rewritten batch inserts give every car its own generated id")
+    void insertAll_RewrittenBatch_SetsIdsInOrder() {
+        List<Car> cars = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            cars.add(car("Model " + i, i % 3));
+        }
+
+        carBulkRepository.insertAll(cars);
+
+        for (Car car : cars) {
+            assertEquals(car.getModel(), jdbcTemplate.queryForObject(
+                    "SELECT model FROM cars WHERE id = ?", String.class, car.getId()));
+            assertEquals(car.getInventory(), jdbcTemplate.queryForObject(
+                    "SELECT COUNT(*) FROM vehicle_units WHERE car_id = ?",
+                    Integer.class, car.getId()));
+        }
+    }
+
+    @Test
+    @DisplayName("Units are inserted across several batches")
+    void insertUnits_MoreThanOneBatch_InsertsAllUnits() {
+        List<Car> cars = new ArrayList<>(List.of(car("Model", 0)));
+        carBulkRepository.insertAll(cars);
+
+        carBulkRepository.insertUnits(cars.get(0).getId(), 2_500);
+
+        assertEquals(2_500, jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM vehicle_units WHERE car_id = ?",
+                Integer.class, cars.get(0).getId()));
+    }
+
+    private static Car car(String model, int inventory) {
+        Car car = new Car();
+        car.setModel(model);
+        car.setBrand("Brand");
+        car.setType(CarType.SEDAN);
+        car.setDailyFee(BigDecimal.TEN);
+        car.setInventory(inventory);
+        return car;
+    }
+}
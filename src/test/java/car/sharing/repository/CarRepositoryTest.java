@@ -0,0 +1,156 @@
+package car.sharing.repository;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import car.sharing.dto.car.CarSearchParametersDto;
+import car.sharing.model.car.Car;
+import car.sharing.model.car.CarType;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.jdbc.Sql;
+
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.session_factory.statement_inspector="
+        + "car.sharing.repository.CarRepositoryTest$SqlRecorder")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Sql(scripts = "classpath:database/cars/add-cars.sql",
+        executionPhase = Sql.ExecutionPhase.BEFORE_TEST_METHOD)
+@Sql(scripts = "classpath:database/cars/remove-cars.sql",
+        executionPhase = Sql.ExecutionPhase.AFTER_TEST_METHOD)
+public class CarRepositoryTest {
+    private static final String UNITS_INDEX = "idx_vehicle_units_car_rented_deleted";
+    private static final Pattern CARS_ALIAS = Pattern.compile(" from cars (\\w+)");
+    // brand, model, type, min and max daily fee, availability
+    private static final int SEARCH_FILTERS = 6;
+
+    @Autowired
+    private CarRepository carRepository;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    @DisplayName("Search cars by brand and availability")
+    void findAll_BrandAndAvailableSpecification_ReturnsMatchingCars() {
+        CarSearchParametersDto parameters = new CarSearchParametersDto()
+                .setBrand("Tesla")
+                .setType(CarType.SEDAN)
+                .setMinDailyFee(BigDecimal.valueOf(15))
+                .setAvailable(true);
+
+        List<Car> cars = carRepository.findAll(CarSpecifications.search(parameters),
+                Pageable.unpaged()).getContent();
+
+        assertEquals(1, cars.size());
+        assertEquals("Model S", cars.get(0).getModel());
+    }
+
+    @Test
+    @DisplayName("Every search filter combination is served by an index")
+    void explain_EveryFilterCombination_UsesIndex() {
+        insertCatalog(2_000);
+        jdbcTemplate.update("INSERT INTO vehicle_units (car_id, is_rented, is_deleted) "
+                + "SELECT id, id % 3 = 0, FALSE FROM cars");
+
+        for (int mask = 1; mask < 1 << SEARCH_FILTERS; mask++) {
+            CarSearchParametersDto parameters = new CarSearchParametersDto();
+            List<Object> arguments = new ArrayList<>();
+            if ((mask & 1) != 0) {
+                parameters.setBrand("Brand1");
+                arguments.add("Brand1");
+            }
+            if ((mask & 1 << 1) != 0) {
+                parameters.setModel("Model1");
+                arguments.add("Model1");
+            }
+            if ((mask & 1 << 2) != 0) {
+                parameters.setType(CarType.SUV);
+                arguments.add(CarType.SUV.name());
+            }
+            if ((mask & 1 << 3) != 0) {
+                parameters.setMinDailyFee(BigDecimal.valueOf(50));
+                arguments.add(BigDecimal.valueOf(50));
+            }
+            if ((mask & 1 << 4) != 0) {
+                parameters.setMaxDailyFee(BigDecimal.valueOf(55));
+                arguments.add(BigDecimal.valueOf(55));
+            }
+            parameters.setAvailable((mask & 1 << 5) != 0);
+            assertIndexesUsed(parameters, arguments.toArray());
+        }
+    }
+
+    /**
+     * Explains the query generated for the search. The cars are looked up by an
+     * index unless only availability is asked for, which matches most of the
+     * catalog, and availability probes the units index, as {@code cars} no longer
+     * has an inventory column to index.
+     */
+    private void assertIndexesUsed(CarSearchParametersDto parameters, Object... arguments) {
+        SqlRecorder.STATEMENTS.clear();
+        carRepository.findAll(CarSpecifications.search(parameters), Pageable.unpaged());
+        String sql = SqlRecorder.STATEMENTS.stream()
+                .filter(statement -> statement.contains(" from cars "))
+                .findFirst()
+                .orElseThrow(() -> new AssertionError("No search query was recorded"));
+        Matcher carsAlias = CARS_ALIAS.matcher(sql);
+        assertTrue(carsAlias.find(), "No cars alias in: " + sql);
+
+        List<Map<String, Object>> plan = jdbcTemplate.queryForList("EXPLAIN " + sql, arguments);
+
+        if (arguments.length > 0) {
+            Map<String, Object> cars = plan.stream()
+                    .filter(row -> carsAlias.group(1).equals(row.get("table")))
+                    .findFirst()
+                    .orElseThrow(() -> new AssertionError("No cars in plan " + plan));
+            assertNotEquals("ALL", cars.get("type"), "Full scan for: " + sql);
+            assertNotNull(cars.get("key"), "No index for: " + sql);
+        }
+        if (parameters.isAvailable()) {
+            // the inventory formula probes the same index as "u", so look only at the filter
+            assertTrue(plan.stream()
+                            .filter(row -> !"u".equals(row.get("table")))
+                            .anyMatch(row -> UNITS_INDEX.equals(row.get("key"))),
+                    "No " + UNITS_INDEX + " in plan " + plan + " for: " + sql);
+        }
+    }
+
+    private void insertCatalog(int size) {
+        List<Object[]> rows = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            rows.add(new Object[] {
+                    "Model" + i % 100,
+                    "Brand" + i % 20,
+                    i % 20 == 1 ? CarType.SUV.name() : CarType.SEDAN.name(),
+                    BigDecimal.valueOf(10 + i % 200)
+            });
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO cars "
+                + "(model, brand, car_type, daily_fee, is_deleted) "
+                + "VALUES (?, ?, ?, ?, FALSE)", rows);
+    }
+
+    public static class SqlRecorder implements StatementInspector {
+        private static final List<String> STATEMENTS = new CopyOnWriteArrayList<>();
+
+        @Override
+        public String inspect(String sql) {
+            STATEMENTS.add(sql);
+            return sql;
+        }
+    }
+}
@@ -0,0 +1,154 @@
+package car.sharing.repository;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import car.sharing.model.job.JobPartition;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import(JobPartitionRepository.class)
+class JobPartitionRepositoryTest {
+    private static final String JOB = "test-job";
+    private static final Set<String> JOBS = Set.of(JOB);
+    private static final String OWNER = "node-1";
+    private static final Duration LEASE = Duration.ofMinutes(1);
+
+    @Autowired
+    private JobPartitionRepository partitionRepository;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Test
+    @DisplayName("A run key is planned only once")
+    void createRun_SameRunKey_CreatesOnce() {
+        assertTrue(partitionRepository.createRun(JOB, "run-1").isPresent());
+        assertTrue(partitionRepository.createRun(JOB, "run-1").isEmpty());
+    }
+
+    @Test
+    @DisplayName("A leased partition is claimed again only after its lease ends")
+    void claim_LeasedPartition_ReclaimedAfterLeaseEnds() {
+        final Long runId = plan("run-2", 1);
+
+        JobPartition first = partitionRepository.claim(JOBS, OWNER, 5, LEASE).get(0);
+        assertEquals(1, first.attempts());
+        assertEquals(0, first.checkpoint());
+        assertTrue(partitionRepository.claim(JOBS, "node-2", 5, LEASE).isEmpty());
+
+        jdbcTemplate.update("UPDATE job_partitions SET lease_until = NOW(3) - INTERVAL 1 SECOND "
+                + "WHERE run_id = ?", runId);
+        List<JobPartition> reclaimed = partitionRepository.claim(JOBS, "node-2", 5, LEASE);
+
+        assertEquals(1, reclaimed.size());
+        assertEquals(2, reclaimed.get(0).attempts());
+        assertFalse(partitionRepository.checkpoint(first.id(), OWNER, 10, 10, LEASE));
+    }
+
+    @Test
+    @DisplayName("A checkpoint saves progress that the next claim resumes from")
+    void checkpoint_LeaseOwner_SavesProgress() {
+        Long runId = plan("run-3", 1);
+        JobPartition partition = partitionRepository.claim(JOBS, OWNER, 5, LEASE).get(0);
+
+        assertTrue(partitionRepository.checkpoint(partition.id(), OWNER, 40, 40, LEASE));
+        jdbcTemplate.update("UPDATE job_partitions SET lease_until = NULL WHERE run_id = ?",
+                runId);
+
+        assertEquals(40, partitionRepository.claim(JOBS, OWNER, 5, LEASE).get(0).checkpoint());
+    }
+
+    @Test
+    @DisplayName("A run finishes once, after every partition is done or failed")
+    void finishRun_PartitionsDoneAndFailed_FinishesOnce() {
+        Long runId = plan("run-4", 2);
+        List<JobPartition> partitions = partitionRepository.claim(JOBS, OWNER, 5, LEASE);
+        assertTrue(partitionRepository.checkpoint(partitions.get(0).id(), OWNER, 50, 50, LEASE));
+        assertTrue(partitionRepository.complete(partitions.get(0).id(), OWNER));
+
+        assertFalse(partitionRepository.finishRun(runId));
+        assertTrue(partitionRepository.fail(partitions.get(1).id(), OWNER));
+
+        assertTrue(partitionRepository.finishRun(runId));
+        assertFalse(partitionRepository.finishRun(runId));
+        assertEquals(50, partitionRepository.getResult(runId).processed());
+        assertEquals(1, partitionRepository.getResult(runId).failedPartitions());
+        assertTrue(partitionRepository.claim(JOBS, OWNER, 5, LEASE).isEmpty());
+    }
+
+    @Test
+    @DisplayName("Concurrent claims skip the partitions another node is claiming")
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    void claim_ConcurrentNodes_ClaimDifferentPartitions() throws InterruptedException {
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        transactionTemplate.executeWithoutResult(status -> plan("run-5", 2));
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        CountDownLatch firstClaimed = new CountDownLatch(1);
+        CountDownLatch secondClaimed = new CountDownLatch(1);
+        try {
+            final Future<List<JobPartition>> first = executor.submit(() ->
+                    transactionTemplate.execute(status -> {
+                        List<JobPartition> claimed =
+                                partitionRepository.claim(JOBS, OWNER, 1, LEASE);
+                        firstClaimed.countDown();
+                        await(secondClaimed);
+                        return claimed;
+                    }));
+            firstClaimed.await();
+            List<JobPartition> second = transactionTemplate.execute(status ->
+                    partitionRepository.claim(JOBS, "node-2", 2, LEASE));
+            secondClaimed.countDown();
+
+            assertEquals(1, second.size());
+            assertNotEquals(first.get().get(0).id(), second.get(0).id());
+        } catch (ExecutionException e) {
+            throw new IllegalStateException(e.getCause());
+        } finally {
+            executor.shutdown();
+            jdbcTemplate.update("DELETE FROM job_partitions");
+            jdbcTemplate.update("DELETE FROM job_runs");
+        }
+    }
+
+    private Long plan(String runKey, int partitions) {
+        Long runId = partitionRepository.createRun(JOB, runKey).orElseThrow();
+        List<long[]> ranges = new ArrayList<>();
+        for (int i = 0; i < partitions; i++) {
+            ranges.add(new long[] {i * 100L + 1, i * 100L + 100});
+        }
+        partitionRepository.insertPartitions(runId, ranges);
+        return runId;
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -5,13 +5,16 @@ import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import car.sharing.model.payment.Payment;
 import car.sharing.model.payment.Status;
-import java.util.List;
 import java.util.Optional;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
 import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Window;
 import org.springframework.test.context.jdbc.Sql;
 
 @DataJpaTest
@@ -38,7 +41,8 @@ public class PaymentRepositoryTest {
     @DisplayName("Find the payment by correct rental user_id")
     void findAllByRentalUserId_correctUserId_returnTrue() {
         Long userId = 3L;
-        List<Payment> payments = paymentRepository.findAllByRentalUserId(userId);
+        Window<Payment> payments = paymentRepository.findAllByRentalUserId(
+                userId, ScrollPosition.keyset(), Limit.of(20), Sort.by("id"));
         assertEquals(1, payments.size());
     }
 
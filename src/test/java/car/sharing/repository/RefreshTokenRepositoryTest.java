@@ -0,0 +1,96 @@
+package car.sharing.repository;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import car.sharing.security.RefreshTokenService;
+import car.sharing.security.TokenHasher;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.authentication.BadCredentialsException;
+import org.springframework.test.context.jdbc.Sql;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import(RefreshTokenService.class)
+@Sql(scripts = "classpath:database/users/add-users.sql",
+        executionPhase = Sql.ExecutionPhase.BEFORE_TEST_METHOD)
+@Sql(scripts = "classpath:database/users/remove-users.sql",
+        executionPhase = Sql.ExecutionPhase.AFTER_TEST_METHOD)
+class RefreshTokenRepositoryTest {
+    private static final String TOKEN = "refresh-token";
+
+    @Autowired
+    private RefreshTokenRepository refreshTokenRepository;
+    @Autowired
+    private RefreshTokenService refreshTokenService;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    @DisplayName("Revoke an expired token changes nothing")
+    void revokeIfActive_ExpiredToken_ReturnsZero() {
+        insertToken(TOKEN, "NOW() - INTERVAL 1 MINUTE");
+
+        assertEquals(0, refreshTokenRepository.revokeIfActive(
+                TokenHasher.sha256(TOKEN), LocalDateTime.now()));
+    }
+
+    @Test
+    @DisplayName("Concurrent refreshes with one token rotate it once and revoke the rest")
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    void consume_ConcurrentRefreshes_RotatesOnce() throws InterruptedException {
+        final int requests = 20;
+        insertToken(TOKEN, "NOW() + INTERVAL 1 DAY");
+        insertToken("other-device-token", "NOW() + INTERVAL 1 DAY");
+        ExecutorService executor = Executors.newFixedThreadPool(requests);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<Boolean>> futures = new ArrayList<>();
+        for (int i = 0; i < requests; i++) {
+            futures.add(executor.submit(() -> {
+                start.await();
+                try {
+                    refreshTokenService.consume(TOKEN);
+                    return true;
+                } catch (BadCredentialsException e) {
+                    return false;
+                }
+            }));
+        }
+        start.countDown();
+        int rotated = 0;
+        for (Future<Boolean> future : futures) {
+            try {
+                rotated += future.get() ? 1 : 0;
+            } catch (ExecutionException e) {
+                throw new IllegalStateException(e.getCause());
+            }
+        }
+        executor.shutdown();
+
+        assertEquals(1, rotated);
+        assertTrue(jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) = SUM(is_revoked) FROM refresh_tokens WHERE user_id = 2",
+                Boolean.class));
+    }
+
+    private void insertToken(String token, String expiresAt) {
+        jdbcTemplate.update("INSERT INTO refresh_tokens (token_hash, user_id, expires_at) "
+                + "VALUES (?, 2, " + expiresAt + ")", TokenHasher.sha256(token));
+    }
+}
@@ -5,6 +5,7 @@ import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
+import car.sharing.model.rental.OverdueRental;
 import car.sharing.model.rental.Rental;
 import java.time.LocalDate;
 import java.util.List;
@@ -14,7 +15,10 @@ import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
 import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
-import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Window;
 import org.springframework.test.context.jdbc.Sql;
 
 @DataJpaTest
@@ -39,8 +43,8 @@ public class RentalRepositoryTest {
     @DisplayName("Find all rentals by user with null actual return date")
     public void getAllByUserIdAndActualReturnDateIsNull_correctUserId_ok() {
         Long userId = 2L;
-        List<Rental> rentals = rentalRepository
-                .getAllByUserIdAndActualReturnDateIsNull(userId, Pageable.unpaged());
+        Window<Rental> rentals = rentalRepository.getAllByUserIdAndActualReturnDateIsNull(
+                userId, ScrollPosition.keyset(), Limit.of(20), Sort.by("id"));
         assertFalse(rentals.isEmpty(), "Rentals should not be empty");
         assertEquals(1, rentals.size());
     }
@@ -49,20 +53,27 @@ public class RentalRepositoryTest {
     @DisplayName("Find all rentals by user with non-null actual return date")
     public void getAllByUserIdAndActualReturnDateIsNotNull_correctUserId_ok() {
         Long userId = 3L;
-        List<Rental> rentals = rentalRepository
-                .getAllByUserIdAndActualReturnDateIsNotNull(userId, Pageable.unpaged());
+        Window<Rental> rentals = rentalRepository.getAllByUserIdAndActualReturnDateIsNotNull(
+                userId, ScrollPosition.keyset(), Limit.of(20), Sort.by("id"));
         assertFalse(rentals.isEmpty(), "Rentals should not be empty");
         assertEquals(1, rentals.size());
     }
 
     @Test
-    @DisplayName("Find rentals with return date"
-            + " before specified date and actual return date is null")
-    public void getAllByReturnDateBeforeAndActualReturnDateIsNull_correctDate_ok() {
-        List<Rental> rentals = rentalRepository
-                .getAllByReturnDateBeforeAndActualReturnDateIsNull(LocalDate.now());
-        assertFalse(rentals.isEmpty(), "Rentals should not be empty");
+    @DisplayName("Find overdue rentals in chunks within an id range")
+    public void findOverdueBetween_correctDate_ok() {
+        Long minId = rentalRepository.findMinOpenRentalId();
+        Long maxId = rentalRepository.findMaxOpenRentalId();
+        assertNotNull(minId, "Open rentals should exist");
+        List<OverdueRental> rentals = rentalRepository
+                .findOverdueBetween(LocalDate.now(), minId - 1, maxId, Limit.of(20));
         assertEquals(1, rentals.size());
+        assertNotNull(rentals.get(0).userId(), "User id should be present");
+        assertNotNull(rentals.get(0).carId(), "Car id should be present");
+
+        List<OverdueRental> nextChunk = rentalRepository
+                .findOverdueBetween(LocalDate.now(), rentals.get(0).id(), maxId, Limit.of(20));
+        assertTrue(nextChunk.isEmpty(), "Next chunk should be empty");
     }
 
     @Test
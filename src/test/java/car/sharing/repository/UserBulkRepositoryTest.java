@@ -0,0 +1,59 @@
+package car.sharing.repository;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import car.sharing.model.user.User;
+import java.util.List;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.jdbc.Sql;
+
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import(UserBulkRepository.class)
+@Sql(scripts = "classpath:database/users/add-users.sql",
+        executionPhase = Sql.ExecutionPhase.BEFORE_TEST_METHOD)
+@Sql(scripts = {
+        "classpath:database/users/remove-users-roles.sql",
+        "classpath:database/users/remove-users.sql"
+}, executionPhase = Sql.ExecutionPhase.AFTER_TEST_METHOD)
+class UserBulkRepositoryTest {
+    private static final Long CUSTOMER_ROLE_ID = 2L;
+
+    @Autowired
+    private UserBulkRepository userBulkRepository;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    @DisplayName("Rewritten batch reports duplicate emails per row")
+    void insertAll_DuplicateEmails_ReportsOnlyDuplicatesAsFailed() {
+        List<User> users = List.of(
+                user("new@email.com", "hash-1"),
+                user("sam@email.com", "hash-2"),
+                user("other@email.com", "hash-3"),
+                user("new@email.com", "hash-4"));
+
+        boolean[] inserted = userBulkRepository.insertAll(users, CUSTOMER_ROLE_ID);
+
+        assertArrayEquals(new boolean[] {true, false, true, false}, inserted);
+        assertEquals(2, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM users_roles ur "
+                + "JOIN users u ON u.id = ur.user_id "
+                + "WHERE u.email IN ('new@email.com', 'other@email.com')", Integer.class));
+    }
+
+    private static User user(String email, String password) {
+        User user = new User();
+        user.setEmail(email);
+        user.setPassword(password);
+        user.setFirstName("First");
+        user.setLastName("Last");
+        return user;
+    }
+}
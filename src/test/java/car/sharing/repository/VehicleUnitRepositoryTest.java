@@ -0,0 +1,100 @@
+package car.sharing.repository;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.jdbc.Sql;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+@Slf4j
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Sql(scripts = "classpath:database/cars/add-cars.sql",
+        executionPhase = Sql.ExecutionPhase.BEFORE_TEST_METHOD)
+@Sql(scripts = "classpath:database/cars/remove-cars.sql",
+        executionPhase = Sql.ExecutionPhase.AFTER_TEST_METHOD)
+public class VehicleUnitRepositoryTest {
+    @Autowired
+    private VehicleUnitRepository vehicleUnitRepository;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Test
+    @DisplayName("Lock a free unit of a car")
+    void lockFreeUnitId_CarWithFreeUnits_ReturnsUnitOfCar() {
+        Optional<Long> unitId = vehicleUnitRepository.lockFreeUnitId(1L);
+
+        assertTrue(unitId.isPresent());
+        assertEquals(1L, vehicleUnitRepository.findById(unitId.get())
+                .orElseThrow().getCar().getId());
+    }
+
+    @Test
+    @DisplayName("Concurrent bookings of one car take distinct units and never oversell")
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    void lockFreeUnitId_ConcurrentBookings_AllocatesEachUnitOnce()
+            throws InterruptedException {
+        int units = 100;
+        final int bookings = 500;
+        jdbcTemplate.update("DELETE FROM vehicle_units WHERE car_id = 1");
+        List<Object[]> rows = new ArrayList<>(units);
+        for (int i = 0; i < units; i++) {
+            rows.add(new Object[] {1L});
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO vehicle_units (car_id, is_rented, is_deleted) "
+                + "VALUES (?, FALSE, FALSE)", rows);
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        ExecutorService executor = Executors.newFixedThreadPool(50);
+        CountDownLatch start = new CountDownLatch(1);
+        Set<Long> allocated = ConcurrentHashMap.newKeySet();
+        List<Future<?>> futures = new ArrayList<>();
+        for (int i = 0; i < bookings; i++) {
+            futures.add(executor.submit(() -> {
+                start.await();
+                transactionTemplate.executeWithoutResult(status ->
+                        vehicleUnitRepository.lockFreeUnitId(1L).ifPresent(unitId -> {
+                            vehicleUnitRepository.setRented(unitId, true);
+                            assertTrue(allocated.add(unitId), "Unit rented twice: " + unitId);
+                        }));
+                return null;
+            }));
+        }
+        final long startedAt = System.nanoTime();
+        start.countDown();
+        for (Future<?> future : futures) {
+            try {
+                future.get();
+            } catch (ExecutionException e) {
+                throw new IllegalStateException(e.getCause());
+            }
+        }
+        executor.shutdown();
+        log.info("{} bookings of one car on 50 threads: {} bookings/s", bookings,
+                Math.round(bookings / ((System.nanoTime() - startedAt) / 1e9)));
+
+        assertEquals(units, allocated.size());
+        assertEquals(0L, vehicleUnitRepository.countFreeUnits(1L));
+    }
+}
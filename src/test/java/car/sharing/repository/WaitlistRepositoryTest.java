@@ -0,0 +1,109 @@
+package car.sharing.repository;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import car.sharing.model.rental.Waiter;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.jdbc.Sql;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import(WaitlistRepository.class)
+@Sql(scripts = {"classpath:database/users/add-users.sql", "classpath:database/cars/add-cars.sql"},
+        executionPhase = Sql.ExecutionPhase.BEFORE_TEST_METHOD)
+@Sql(scripts = {"classpath:database/cars/remove-cars.sql",
+        "classpath:database/users/remove-users.sql"},
+        executionPhase = Sql.ExecutionPhase.AFTER_TEST_METHOD)
+class WaitlistRepositoryTest {
+    @Autowired
+    private WaitlistRepository waitlistRepository;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Test
+    @DisplayName("Waiters are polled in the order they joined, skipping those who left")
+    void pollFirst_JoinedAndLeft_ServesRemainingInOrder() {
+        waitlistRepository.insert(1L, 2L);
+        waitlistRepository.insert(1L, 3L);
+        assertFalse(waitlistRepository.insert(1L, 2L));
+        assertTrue(waitlistRepository.delete(1L, 3L));
+        waitlistRepository.insert(1L, 3L);
+
+        assertEquals(2, waitlistRepository.countByCarId(1L));
+        assertEquals(2L, waitlistRepository.pollFirst(1L).orElseThrow().userId());
+        assertEquals(3L, waitlistRepository.pollFirst(1L).orElseThrow().userId());
+        assertTrue(waitlistRepository.pollFirst(1L).isEmpty());
+        assertEquals(0, waitlistRepository.countAll());
+    }
+
+    @Test
+    @DisplayName("A waiter's position counts the customers ahead of them on the car")
+    void findPosition_SeveralWaiters_CountsFromHead() {
+        waitlistRepository.insert(1L, 2L);
+        waitlistRepository.insert(1L, 3L);
+        waitlistRepository.insert(2L, 3L);
+
+        assertEquals(1, waitlistRepository.findPosition(1L, 2L));
+        assertEquals(2, waitlistRepository.findPosition(1L, 3L));
+        assertEquals(1, waitlistRepository.findPosition(2L, 3L));
+        assertEquals(0, waitlistRepository.findPosition(2L, 2L));
+    }
+
+    @Test
+    @DisplayName("Concurrent polls skip the waiter another transaction is taking")
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    void pollFirst_ConcurrentTransactions_TakeDifferentWaiters()
+            throws InterruptedException {
+        waitlistRepository.insert(1L, 2L);
+        waitlistRepository.insert(1L, 3L);
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        CountDownLatch firstPolled = new CountDownLatch(1);
+        CountDownLatch secondPolled = new CountDownLatch(1);
+        Future<Optional<Waiter>> first = executor.submit(() ->
+                transactionTemplate.execute(status -> {
+                    Optional<Waiter> waiter = waitlistRepository.pollFirst(1L);
+                    firstPolled.countDown();
+                    await(secondPolled);
+                    return waiter;
+                }));
+        firstPolled.await();
+        Optional<Waiter> second = transactionTemplate.execute(status ->
+                waitlistRepository.pollFirst(1L));
+        secondPolled.countDown();
+        try {
+            assertNotEquals(first.get().orElseThrow().userId(), second.orElseThrow().userId());
+        } catch (ExecutionException e) {
+            throw new IllegalStateException(e.getCause());
+        } finally {
+            executor.shutdown();
+        }
+        assertEquals(0, waitlistRepository.countAll());
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
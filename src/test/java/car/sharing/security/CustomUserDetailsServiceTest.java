@@ -0,0 +1,79 @@
+package car.sharing.security;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import car.sharing.model.user.User;
+import car.sharing.repository.UserRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.Duration;
+import java.util.Optional;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
+
+@ExtendWith(MockitoExtension.class)
+public class CustomUserDetailsServiceTest {
+    private static final String EMAIL = "bob@example.com";
+
+    @Mock
+    private UserRepository userRepository;
+
+    private SimpleMeterRegistry meterRegistry;
+    private CustomUserDetailsService userDetailsService;
+    private User user;
+
+    @BeforeEach
+    public void setup() {
+        meterRegistry = new SimpleMeterRegistry();
+        userDetailsService = new CustomUserDetailsService(
+                userRepository, meterRegistry, 100, Duration.ofMinutes(10));
+        user = new User();
+        user.setId(1L);
+        user.setEmail(EMAIL);
+    }
+
+    @Test
+    @DisplayName("Load the same user twice queries the database once")
+    public void loadUserByUsername_RepeatedEmail_UsesCache() {
+        when(userRepository.findByEmail(EMAIL)).thenReturn(Optional.of(user));
+
+        UserDetails first = userDetailsService.loadUserByUsername(EMAIL);
+        UserDetails second = userDetailsService.loadUserByUsername(EMAIL);
+
+        assertSame(first, second);
+        verify(userRepository, times(1)).findByEmail(EMAIL);
+        assertEquals(1.0, meterRegistry.get("cache.gets")
+                .tag("cache", "userDetails").tag("result", "hit").functionCounter().count());
+    }
+
+    @Test
+    @DisplayName("User changed event evicts the cached user")
+    public void onUserChanged_CachedUser_LoadsAgain() {
+        when(userRepository.findByEmail(EMAIL)).thenReturn(Optional.of(user));
+
+        userDetailsService.loadUserByUsername(EMAIL);
+        userDetailsService.onUserChanged(new UserChangedEvent(EMAIL));
+        userDetailsService.loadUserByUsername(EMAIL);
+
+        verify(userRepository, times(2)).findByEmail(EMAIL);
+    }
+
+    @Test
+    @DisplayName("Load unknown user throws exception")
+    public void loadUserByUsername_UnknownEmail_ThrowsException() {
+        when(userRepository.findByEmail(EMAIL)).thenReturn(Optional.empty());
+
+        assertThrows(UsernameNotFoundException.class,
+                () -> userDetailsService.loadUserByUsername(EMAIL));
+    }
+}
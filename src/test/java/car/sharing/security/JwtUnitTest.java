@@ -0,0 +1,114 @@
+package car.sharing.security;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import car.sharing.model.user.RoleName;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtException;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.security.Keys;
+import java.nio.charset.StandardCharsets;
+import java.util.Date;
+import java.util.List;
+import java.util.Set;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.authentication.BadCredentialsException;
+import org.springframework.test.util.ReflectionTestUtils;
+
+public class JwtUnitTest {
+    private static final String SECRET = "mySecretiveness349bv890nnPasswordKey";
+    private static final UserPrincipal PRINCIPAL =
+            new UserPrincipal(1L, "bob@example.com", List.of(RoleName.CUSTOMER), 0L);
+
+    private JwtUnit jwtUnit;
+
+    @BeforeEach
+    public void setup() {
+        jwtUnit = new JwtUnit(SECRET, 100);
+        ReflectionTestUtils.setField(jwtUnit, "expiration", 300_000L);
+    }
+
+    @Test
+    @DisplayName("Verify valid token returns its claims")
+    public void verify_ValidToken_ReturnsClaims() {
+        String token = jwtUnit.generateToken(PRINCIPAL);
+
+        Claims claims = jwtUnit.verify(token);
+
+        assertEquals("bob@example.com", claims.getSubject());
+    }
+
+    @Test
+    @DisplayName("Restore principal from token claims")
+    public void getPrincipal_GeneratedToken_ReturnsSamePrincipal() {
+        String token = jwtUnit.generateToken(PRINCIPAL);
+
+        UserPrincipal principal = jwtUnit.getPrincipal(jwtUnit.verify(token));
+
+        assertEquals(1L, principal.getId());
+        assertEquals("bob@example.com", principal.getUsername());
+        assertEquals(Set.of(RoleName.CUSTOMER), principal.getRoles());
+        assertEquals(0L, principal.getTokenVersion());
+    }
+
+    @Test
+    @DisplayName("Token issued without a user id is rejected")
+    public void getPrincipal_NoUserIdClaim_ThrowsBadCredentials() {
+        String token = Jwts.builder()
+                .setSubject("bob@example.com")
+                .setExpiration(new Date(System.currentTimeMillis() + 300_000L))
+                .signWith(Keys.hmacShaKeyFor(SECRET.getBytes(StandardCharsets.UTF_8)))
+                .compact();
+        Claims claims = jwtUnit.verify(token);
+
+        assertThrows(BadCredentialsException.class, () -> jwtUnit.getPrincipal(claims));
+    }
+
+    @Test
+    @DisplayName("Token with a role that doesn't exist is rejected")
+    public void getPrincipal_UnknownRole_ThrowsBadCredentials() {
+        String token = Jwts.builder()
+                .setSubject("bob@example.com")
+                .claim("uid", 1L)
+                .claim("roles", List.of("SUPERVISOR"))
+                .setExpiration(new Date(System.currentTimeMillis() + 300_000L))
+                .signWith(Keys.hmacShaKeyFor(SECRET.getBytes(StandardCharsets.UTF_8)))
+                .compact();
+        Claims claims = jwtUnit.verify(token);
+
+        assertThrows(BadCredentialsException.class, () -> jwtUnit.getPrincipal(claims));
+    }
+
+    @Test
+    @DisplayName("Verify the same token twice reuses cached claims")
+    public void verify_RepeatedToken_ReturnsCachedClaims() {
+        String token = jwtUnit.generateToken(PRINCIPAL);
+
+        Claims first = jwtUnit.verify(token);
+        Claims second = jwtUnit.verify(token);
+
+        assertSame(first, second);
+    }
+
+    @Test
+    @DisplayName("Verify tampered token throws exception")
+    public void verify_TamperedToken_ThrowsException() {
+        String token = jwtUnit.generateToken(PRINCIPAL);
+        String tampered = token.substring(0, token.length() - 2) + "xx";
+
+        assertThrows(JwtException.class, () -> jwtUnit.verify(tampered));
+    }
+
+    @Test
+    @DisplayName("Verify expired token throws exception")
+    public void verify_ExpiredToken_ThrowsException() {
+        ReflectionTestUtils.setField(jwtUnit, "expiration", -1_000L);
+        String token = jwtUnit.generateToken(PRINCIPAL);
+
+        assertThrows(JwtException.class, () -> jwtUnit.verify(token));
+    }
+}
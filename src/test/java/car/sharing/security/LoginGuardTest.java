@@ -0,0 +1,78 @@
+package car.sharing.security;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import car.sharing.exception.LoginThrottledException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.Duration;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.authentication.BadCredentialsException;
+
+public class LoginGuardTest {
+    private static final String EMAIL = "bob@example.com";
+    private static final String IP = "10.0.0.1";
+
+    private SimpleMeterRegistry meterRegistry;
+    private LoginGuard loginGuard;
+
+    @BeforeEach
+    public void setup() {
+        meterRegistry = new SimpleMeterRegistry();
+        loginGuard = new LoginGuard(meterRegistry, 1000, 3, 3, 100, 100,
+                Duration.ofMinutes(1), Duration.ofMinutes(5), 10);
+    }
+
+    @AfterEach
+    public void teardown() {
+        loginGuard.shutdown();
+    }
+
+    @Test
+    @DisplayName("Attempts over the account limit are rejected without authentication")
+    public void login_TooManyAttempts_ThrowsBeforeHashing() {
+        AtomicInteger hashed = new AtomicInteger();
+        for (int i = 0; i < 3; i++) {
+            loginGuard.login(EMAIL, IP, hashed::incrementAndGet).join();
+        }
+
+        LoginThrottledException thrown = assertThrows(LoginThrottledException.class,
+                () -> loginGuard.login(EMAIL, IP, hashed::incrementAndGet));
+
+        assertEquals(3, hashed.get());
+        assertTrue(thrown.getRetryAfterSeconds() > 0);
+        assertEquals(1.0, meterRegistry.get("login.rejections")
+                .tag("reason", "email").counter().count());
+    }
+
+    @Test
+    @DisplayName("Failed login blocks the account for the backoff period")
+    public void login_AfterBadCredentials_BacksOff() {
+        CompletionException failure = assertThrows(CompletionException.class,
+                () -> loginGuard.login(EMAIL, IP, () -> {
+                    throw new BadCredentialsException("Bad credentials");
+                }).join());
+        assertTrue(failure.getCause() instanceof BadCredentialsException);
+
+        LoginThrottledException thrown = assertThrows(LoginThrottledException.class,
+                () -> loginGuard.login(EMAIL, IP, () -> "token"));
+
+        assertTrue(thrown.getRetryAfterSeconds() >= 59);
+    }
+
+    @Test
+    @DisplayName("Other accounts are not affected by a throttled one")
+    public void login_DifferentEmail_IsAllowed() {
+        for (int i = 0; i < 3; i++) {
+            loginGuard.login(EMAIL, IP, () -> "token").join();
+        }
+
+        assertEquals("token", loginGuard.login("alice@example.com", IP, () -> "token").join());
+    }
+}
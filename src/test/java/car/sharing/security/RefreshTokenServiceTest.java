@@ -0,0 +1,114 @@
+package car.sharing.security;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import car.sharing.model.user.RefreshToken;
+import car.sharing.model.user.User;
+import car.sharing.repository.RefreshTokenRepository;
+import car.sharing.repository.UserRepository;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Optional;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.security.authentication.BadCredentialsException;
+import org.springframework.test.util.ReflectionTestUtils;
+
+@ExtendWith(MockitoExtension.class)
+public class RefreshTokenServiceTest {
+    private static final String TOKEN = "refresh-token";
+
+    @Mock
+    private RefreshTokenRepository refreshTokenRepository;
+    @Mock
+    private UserRepository userRepository;
+    @InjectMocks
+    private RefreshTokenService refreshTokenService;
+
+    private User user;
+    private RefreshToken refreshToken;
+
+    @BeforeEach
+    public void setup() {
+        ReflectionTestUtils.setField(refreshTokenService, "expiration", Duration.ofDays(14));
+        user = new User();
+        user.setId(1L);
+        user.setEmail("bob@example.com");
+
+        refreshToken = new RefreshToken();
+        refreshToken.setTokenHash(TokenHasher.sha256(TOKEN));
+        refreshToken.setUser(user);
+        refreshToken.setExpiresAt(LocalDateTime.now().plusDays(1));
+    }
+
+    @Test
+    @DisplayName("Issue stores only the token hash")
+    public void issue_ValidUser_StoresHash() {
+        when(userRepository.getReferenceById(user.getId())).thenReturn(user);
+
+        String token = refreshTokenService.issue(user);
+
+        ArgumentCaptor<RefreshToken> captor = ArgumentCaptor.forClass(RefreshToken.class);
+        verify(refreshTokenRepository).save(captor.capture());
+        assertNotEquals(token, captor.getValue().getTokenHash());
+        assertEquals(TokenHasher.sha256(token), captor.getValue().getTokenHash());
+    }
+
+    @Test
+    @DisplayName("Consume valid token revokes it and returns the user")
+    public void consume_ValidToken_RevokesToken() {
+        when(refreshTokenRepository.revokeIfActive(eq(TokenHasher.sha256(TOKEN)), any()))
+                .thenReturn(1);
+        when(refreshTokenRepository.findByTokenHash(TokenHasher.sha256(TOKEN)))
+                .thenReturn(Optional.of(refreshToken));
+
+        User result = refreshTokenService.consume(TOKEN);
+
+        assertSame(user, result);
+        verify(refreshTokenRepository, never()).revokeAllByUserId(any());
+    }
+
+    @Test
+    @DisplayName("Consume revoked token revokes all tokens of the user")
+    public void consume_RevokedToken_RevokesAllUserTokens() {
+        refreshToken.setRevoked(true);
+        when(refreshTokenRepository.findByTokenHash(TokenHasher.sha256(TOKEN)))
+                .thenReturn(Optional.of(refreshToken));
+
+        assertThrows(BadCredentialsException.class, () -> refreshTokenService.consume(TOKEN));
+        verify(refreshTokenRepository).revokeAllByUserId(user.getId());
+    }
+
+    @Test
+    @DisplayName("Consume expired token throws exception")
+    public void consume_ExpiredToken_ThrowsException() {
+        refreshToken.setExpiresAt(LocalDateTime.now().minusMinutes(1));
+        when(refreshTokenRepository.findByTokenHash(TokenHasher.sha256(TOKEN)))
+                .thenReturn(Optional.of(refreshToken));
+
+        assertThrows(BadCredentialsException.class, () -> refreshTokenService.consume(TOKEN));
+    }
+
+    @Test
+    @DisplayName("Consume unknown token throws exception")
+    public void consume_UnknownToken_ThrowsException() {
+        when(refreshTokenRepository.findByTokenHash(TokenHasher.sha256(TOKEN)))
+                .thenReturn(Optional.empty());
+
+        assertThrows(BadCredentialsException.class, () -> refreshTokenService.consume(TOKEN));
+    }
+}
@@ -0,0 +1,104 @@
+package car.sharing.security;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import car.sharing.model.user.RoleName;
+import java.util.List;
+import org.aopalliance.intercept.MethodInvocation;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.security.authentication.TestingAuthenticationToken;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.util.SimpleMethodInvocation;
+
+public class RoleMaskAuthorizationManagerTest {
+    private final RoleMaskAuthorizationManager authorizationManager =
+            new RoleMaskAuthorizationManager();
+
+    @Test
+    @DisplayName("Principal with the required role is granted")
+    public void check_PrincipalWithRole_Granted() throws Exception {
+        Authentication authentication = authenticationOf(RoleName.MANAGER);
+
+        assertTrue(authorizationManager.check(() -> authentication,
+                invocation("managerOnly")).isGranted());
+    }
+
+    @Test
+    @DisplayName("Principal without the required role is denied")
+    public void check_PrincipalWithoutRole_Denied() throws Exception {
+        Authentication authentication = authenticationOf(RoleName.CUSTOMER);
+
+        assertFalse(authorizationManager.check(() -> authentication,
+                invocation("managerOnly")).isGranted());
+    }
+
+    @Test
+    @DisplayName("Any of the listed roles is granted")
+    public void check_AnyRole_Granted() throws Exception {
+        Authentication authentication = authenticationOf(RoleName.CUSTOMER);
+
+        assertTrue(authorizationManager.check(() -> authentication,
+                invocation("anyRole")).isGranted());
+    }
+
+    @Test
+    @DisplayName("Non-JWT authentication is checked by its authorities")
+    public void check_MockAuthentication_UsesAuthorities() throws Exception {
+        Authentication authentication =
+                new TestingAuthenticationToken("manager", null, "ROLE_MANAGER");
+
+        assertTrue(authorizationManager.check(() -> authentication,
+                invocation("managerOnly")).isGranted());
+    }
+
+    @Test
+    @DisplayName("Other expressions fall back to SpEL")
+    public void check_OtherExpression_EvaluatesSpel() throws Exception {
+        Authentication authentication = authenticationOf(RoleName.CUSTOMER);
+
+        assertTrue(authorizationManager.check(() -> authentication,
+                invocation("authenticatedOnly")).isGranted());
+    }
+
+    @Test
+    @DisplayName("Method without annotation is not decided")
+    public void check_NoAnnotation_Abstains() throws Exception {
+        Authentication authentication = authenticationOf(RoleName.CUSTOMER);
+
+        assertNull(authorizationManager.check(() -> authentication, invocation("open")));
+    }
+
+    private Authentication authenticationOf(RoleName roleName) {
+        UserPrincipal principal =
+                new UserPrincipal(1L, "bob@example.com", List.of(roleName), 0L);
+        return new UsernamePasswordAuthenticationToken(
+                principal, null, principal.getAuthorities());
+    }
+
+    private MethodInvocation invocation(String methodName) throws NoSuchMethodException {
+        return new SimpleMethodInvocation(new SecuredTarget(),
+                SecuredTarget.class.getMethod(methodName));
+    }
+
+    public static class SecuredTarget {
+        @PreAuthorize("hasRole('MANAGER')")
+        public void managerOnly() {
+        }
+
+        @PreAuthorize("hasAnyRole('MANAGER', 'CUSTOMER')")
+        public void anyRole() {
+        }
+
+        @PreAuthorize("isAuthenticated()")
+        public void authenticatedOnly() {
+        }
+
+        public void open() {
+        }
+    }
+}
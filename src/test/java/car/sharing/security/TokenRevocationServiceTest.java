@@ -0,0 +1,68 @@
+package car.sharing.security;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import car.sharing.model.user.RevokedToken;
+import car.sharing.repository.RevokedTokenRepository;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Date;
+import java.util.List;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+@ExtendWith(MockitoExtension.class)
+public class TokenRevocationServiceTest {
+    @Mock
+    private RevokedTokenRepository revokedTokenRepository;
+    @InjectMocks
+    private TokenRevocationService revocationService;
+
+    @Test
+    @DisplayName("Revoked token is denied and persisted")
+    public void revoke_ValidToken_IsRevoked() {
+        Date expiresAt = new Date(System.currentTimeMillis() + 300_000);
+
+        revocationService.revoke("jti-1", expiresAt);
+
+        assertTrue(revocationService.isRevoked("jti-1", expiresAt));
+        assertFalse(revocationService.isRevoked("jti-2", expiresAt));
+        verify(revokedTokenRepository).save(any(RevokedToken.class));
+    }
+
+    @Test
+    @DisplayName("Refresh restores revocations from the database")
+    public void refresh_PersistedTokens_AreRevoked() {
+        LocalDateTime expiresAt = LocalDateTime.now().plusMinutes(5);
+        RevokedToken revokedToken = new RevokedToken();
+        revokedToken.setId(1L);
+        revokedToken.setTokenId("jti-1");
+        revokedToken.setExpiresAt(expiresAt);
+        when(revokedTokenRepository.findAllByIdGreaterThanAndExpiresAtAfterOrderById(
+                anyLong(), any(LocalDateTime.class))).thenReturn(List.of(revokedToken));
+
+        revocationService.refresh();
+
+        Date expiresAtDate = Date.from(expiresAt.atZone(ZoneId.systemDefault()).toInstant());
+        assertTrue(revocationService.isRevoked("jti-1", expiresAtDate));
+    }
+
+    @Test
+    @DisplayName("Already expired token is not kept in memory")
+    public void revoke_ExpiredToken_IsNotKept() {
+        Date expiresAt = new Date(System.currentTimeMillis() - 300_000);
+
+        revocationService.revoke("jti-1", expiresAt);
+
+        assertFalse(revocationService.isRevoked("jti-1", expiresAt));
+    }
+}
@@ -0,0 +1,56 @@
+package car.sharing.security;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import car.sharing.model.user.TokenVersion;
+import car.sharing.repository.UserRepository;
+import java.util.List;
+import java.util.Optional;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+@ExtendWith(MockitoExtension.class)
+public class TokenVersionStoreTest {
+    @Mock
+    private UserRepository userRepository;
+    private TokenVersionStore tokenVersionStore;
+
+    @BeforeEach
+    public void setup() {
+        tokenVersionStore = new TokenVersionStore(userRepository, 300_000L);
+    }
+
+    @Test
+    @DisplayName("Bumping the version persists it and makes older tokens stale")
+    public void bump_RoleChanged_OlderTokensAreStale() {
+        when(userRepository.findTokenVersionById(1L)).thenReturn(Optional.of(5_000L));
+
+        tokenVersionStore.bump(1L);
+
+        verify(userRepository).bumpTokenVersion(1L);
+        assertFalse(tokenVersionStore.isCurrent(1L, 4_999L));
+        assertTrue(tokenVersionStore.isCurrent(1L, 5_000L));
+        assertTrue(tokenVersionStore.isCurrent(2L, 0L));
+    }
+
+    @Test
+    @DisplayName("Refresh picks up versions bumped on other nodes")
+    public void refresh_BumpedOnOtherNode_OlderTokensAreStale() {
+        long version = System.currentTimeMillis();
+        when(userRepository.findTokenVersionsAfter(anyLong()))
+                .thenReturn(List.of(new TokenVersion(1L, version)));
+
+        tokenVersionStore.refresh();
+
+        assertFalse(tokenVersionStore.isCurrent(1L, version - 1));
+        assertTrue(tokenVersionStore.isCurrent(1L, version));
+    }
+}
@@ -0,0 +1,172 @@
+package car.sharing.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.CALLS_REAL_METHODS;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.withSettings;
+
+import car.sharing.dto.bulk.BulkImportResultDto;
+import car.sharing.dto.bulk.RowErrorDto;
+import car.sharing.model.car.Car;
+import car.sharing.model.car.CarType;
+import car.sharing.repository.CarBulkRepository;
+import car.sharing.service.bulk.BulkRowReader;
+import car.sharing.service.car.CarAvailabilityIndex;
+import car.sharing.service.car.CarCatalogChangedEvent;
+import car.sharing.service.impl.CarImportServiceImpl;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.validation.Validation;
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+
+@ExtendWith(MockitoExtension.class)
+class CarImportServiceTest {
+    @Mock
+    private CarBulkRepository carBulkRepository;
+    @Mock
+    private CarAvailabilityIndex availabilityIndex;
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+    @Mock
+    private TransactionTemplate transactionTemplate;
+    private BulkRowReader rowReader;
+
+    @BeforeEach
+    public void setup() {
+        rowReader = new BulkRowReader(new ObjectMapper(),
+                Validation.buildDefaultValidatorFactory().getValidator());
+    }
+
+    @Test
+    @DisplayName("Import CSV inserts valid rows in batches and reports invalid ones")
+    public void importCars_CsvWithInvalidRow_ReportsRowError() {
+        String csv = """
+                model,brand,type,inventory,dailyFee
+                Model 3,Tesla,SEDAN,5,10.50
+                "Golf, GTI",Volkswagen,HATCHBACK,2,7
+                X5,BMW,SUV,-1,20
+                Corolla,Toyota,SEDAN,3,8.25
+                """;
+
+        BulkImportResultDto result = service(2).importCars(stream(csv), BulkRowReader.TEXT_CSV);
+
+        assertEquals(4, result.totalRows());
+        assertEquals(3, result.importedRows());
+        assertEquals(List.of(new RowErrorDto(4, "inventory must be greater than or equal to 0")),
+                result.errors());
+        ArgumentCaptor<List<Car>> captor = ArgumentCaptor.captor();
+        verify(carBulkRepository, times(2)).insertAll(captor.capture());
+        Car golf = captor.getAllValues().get(0).get(1);
+        assertEquals("Golf, GTI", golf.getModel());
+        assertEquals(CarType.HATCHBACK, golf.getType());
+        assertEquals(new BigDecimal("7"), golf.getDailyFee());
+        verify(availabilityIndex, times(3)).carSaved(any());
+        verify(eventPublisher, times(2)).publishEvent(new CarCatalogChangedEvent(null));
+    }
+
+    @Test
+    @DisplayName("Import reports every row of a batch the database rejects")
+    public void importCars_RejectedBatch_ReportsAllRowsOfBatch() {
+        doThrow(new DataIntegrityViolationException("Data too long"))
+                .when(carBulkRepository).insertAll(anyList());
+        String ndjson = """
+                {"model":"Model 3","brand":"Tesla","type":"SEDAN","inventory":5,"dailyFee":10}
+                {"model":"Model Y","brand":"Tesla","type":"SUV","inventory":2,"dailyFee":12}
+                """;
+
+        BulkImportResultDto result = service(10).importCars(
+                stream(ndjson), BulkRowReader.APPLICATION_NDJSON);
+
+        assertEquals(0, result.importedRows());
+        assertEquals(List.of(new RowErrorDto(1, "Can`t save car: Data too long"),
+                new RowErrorDto(2, "Can`t save car: Data too long")), result.errors());
+        verify(availabilityIndex, times(0)).carSaved(any());
+    }
+
+    @Test
+    @DisplayName("Import streams a million rows holding one batch at a time")
+    public void importCars_MillionRows_HoldsOneBatchAtATime() {
+        int rows = 1_000_000;
+        int batchSize = 1000;
+        AtomicInteger largestBatch = new AtomicInteger();
+        CarBulkRepository repository = new CarBulkRepository(null) {
+            @Override
+            public void insertAll(List<Car> cars) {
+                largestBatch.accumulateAndGet(cars.size(), Math::max);
+            }
+        };
+        TransactionTemplate transactions = mock(TransactionTemplate.class,
+                withSettings().stubOnly().defaultAnswer(CALLS_REAL_METHODS));
+        doAnswer(invocation -> invocation.<TransactionCallback<?>>getArgument(0)
+                .doInTransaction(null)).when(transactions).execute(any());
+        CarImportServiceImpl service = new CarImportServiceImpl(rowReader, repository,
+                mock(CarAvailabilityIndex.class, withSettings().stubOnly()),
+                mock(ApplicationEventPublisher.class, withSettings().stubOnly()),
+                transactions, batchSize);
+
+        BulkImportResultDto result = service.importCars(generatedCsv(rows), BulkRowReader.TEXT_CSV);
+
+        assertEquals(rows, result.importedRows());
+        assertEquals(batchSize, largestBatch.get());
+        assertTrue(result.errors().isEmpty());
+    }
+
+    private CarImportServiceImpl service(int batchSize) {
+        doAnswer(invocation -> {
+            invocation.<Consumer<TransactionStatus>>getArgument(0).accept(null);
+            return null;
+        }).when(transactionTemplate).executeWithoutResult(any());
+        return new CarImportServiceImpl(rowReader, carBulkRepository, availabilityIndex,
+                eventPublisher, transactionTemplate, batchSize);
+    }
+
+    private static InputStream generatedCsv(int rows) {
+        Enumeration<InputStream> lines = new Enumeration<>() {
+            private int line = -1;
+
+            @Override
+            public boolean hasMoreElements() {
+                return line < rows;
+            }
+
+            @Override
+            public InputStream nextElement() {
+                String content = line++ < 0
+                        ? "model,brand,type,inventory,dailyFee\n"
+                        : "Model " + line + ",Brand,SUV,3,10.00\n";
+                return stream(content);
+            }
+        };
+        return new SequenceInputStream(lines);
+    }
+
+    private static InputStream stream(String content) {
+        return new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8));
+    }
+}
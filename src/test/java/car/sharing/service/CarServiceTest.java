@@ -1,35 +1,70 @@
 package car.sharing.service;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import car.sharing.dto.car.CarDto;
 import car.sharing.dto.car.CarRequestDto;
+import car.sharing.dto.car.CarSearchParametersDto;
+import car.sharing.dto.car.VehicleUnitRequestDto;
+import car.sharing.dto.page.CursorPageDto;
+import car.sharing.exception.DuplicateVehicleUnitException;
 import car.sharing.exception.EntityNotFoundException;
 import car.sharing.mapper.CarMapper;
+import car.sharing.mapper.VehicleUnitMapper;
 import car.sharing.model.car.Car;
 import car.sharing.model.car.CarType;
+import car.sharing.model.car.VehicleUnit;
+import car.sharing.repository.CarBulkRepository;
 import car.sharing.repository.CarRepository;
+import car.sharing.repository.VehicleUnitRepository;
+import car.sharing.service.car.AvailabilityChangeFeed;
+import car.sharing.service.car.AvailabilityChangedEvent;
+import car.sharing.service.car.AvailabilityStream;
+import car.sharing.service.car.CarAvailabilityIndex;
+import car.sharing.service.car.CarCatalogCache;
+import car.sharing.service.car.CarCatalogChangedEvent;
+import car.sharing.service.car.CatalogEntry;
 import car.sharing.service.impl.CarServiceImpl;
+import car.sharing.service.page.CursorCodec;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
-import org.mockito.InjectMocks;
+import org.mockito.ArgumentMatchers;
+import org.mockito.InOrder;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
-import org.springframework.data.domain.Page;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.ScrollPosition;
 import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Window;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
 
 @ExtendWith(MockitoExtension.class)
 public class CarServiceTest {
@@ -37,8 +72,24 @@ public class CarServiceTest {
     private CarRepository carRepository;
     @Mock
     private CarMapper carMapper;
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+    @Mock
+    private CarAvailabilityIndex availabilityIndex;
+    @Mock
+    private VehicleUnitRepository vehicleUnitRepository;
+    @Mock
+    private VehicleUnitMapper vehicleUnitMapper;
+    @Mock
+    private TransactionTemplate transactionTemplate;
+    @Mock
+    private AvailabilityStream availabilityStream;
+    @Mock
+    private AvailabilityChangeFeed changeFeed;
+    @Mock
+    private CarBulkRepository carBulkRepository;
 
-    @InjectMocks
+    private CarCatalogCache catalogCache;
     private CarServiceImpl carService;
 
     private Car car;
@@ -47,6 +98,12 @@ public class CarServiceTest {
 
     @BeforeEach
     public void setup() {
+        catalogCache = new CarCatalogCache(new ObjectMapper(), changeFeed,
+                new SimpleMeterRegistry(), 100, 100, Duration.ofMinutes(10));
+        carService = new CarServiceImpl(carRepository, carMapper, catalogCache, eventPublisher,
+                new CursorCodec(new ObjectMapper()), availabilityIndex, vehicleUnitRepository,
+                vehicleUnitMapper, transactionTemplate, availabilityStream, carBulkRepository);
+
         car = new Car();
         car.setId(1L);
         car.setModel("Model 1");
@@ -74,7 +131,9 @@ public class CarServiceTest {
                 .setInventory(car.getInventory())
                 .setDailyFee(car.getDailyFee());
 
+        runTransactionsInline();
         when(carRepository.save(car)).thenReturn(car);
+        when(vehicleUnitRepository.countFreeUnits(car.getId())).thenReturn(0L);
         when(carMapper.toDto(car)).thenReturn(carDto);
         when(carMapper.toModel(requestDto)).thenReturn(car);
 
@@ -82,19 +141,114 @@ public class CarServiceTest {
 
         assertNotNull(actual);
         assertEquals(car.getId(), actual.getId());
+        verify(carBulkRepository).insertUnits(car.getId(), 5);
     }
 
     @Test
     @DisplayName("Find all cars with pagination")
     void findAll_WithValidPageable_ReturnCarList() {
         Pageable pageable = PageRequest.of(0, 10, Sort.by("brand"));
+        Sort keysetSort = Sort.by("brand").and(Sort.by("id"));
+        Window<Car> window = Window.from(List.of(car),
+                index -> ScrollPosition.forward(Map.of("brand", "Brand 1", "id", 1L)), true);
+
+        when(carRepository.findAllBy(any(ScrollPosition.class), any(Limit.class), eq(keysetSort)))
+                .thenReturn(window);
+        when(carMapper.toDto(car)).thenReturn(carDto);
+        CursorPageDto<CarDto> carPage = carService.findAll(null, pageable);
+
+        assertEquals(1, carPage.content().size());
+        assertNotNull(carPage.nextCursor());
+    }
+
+    @Test
+    @DisplayName("Search cars with filters")
+    void search_WithParameters_ReturnCarList() {
+        Pageable pageable = PageRequest.of(0, 10);
+        CarSearchParametersDto parameters = new CarSearchParametersDto()
+                .setBrand("Brand 1")
+                .setAvailable(true);
+        when(carRepository.findAll(ArgumentMatchers.<Specification<Car>>any(), eq(pageable)))
+                .thenReturn(new PageImpl<>(List.of(car), pageable, 1));
+        when(carMapper.toDto(car)).thenReturn(carDto);
+
+        List<CarDto> actual = carService.search(parameters, pageable);
+
+        assertEquals(List.of(carDto), actual);
+    }
+
+    @Test
+    @DisplayName("Find the same page twice loads it from the database once")
+    void findAllSerialized_RepeatedPage_ReturnsCachedJson() {
+        Pageable pageable = PageRequest.of(0, 10);
+        when(carRepository.findAllBy(any(ScrollPosition.class), any(Limit.class), any(Sort.class)))
+                .thenReturn(Window.from(List.of(car), ScrollPosition::offset));
+        when(carMapper.toDto(car)).thenReturn(carDto);
+
+        CatalogEntry<CursorPageDto<CarDto>> first =
+                carService.findAllSerialized(null, pageable);
+        CatalogEntry<CursorPageDto<CarDto>> second =
+                carService.findAllSerialized(null, pageable);
+
+        assertSame(first, second);
+        assertTrue(new String(first.json(), StandardCharsets.UTF_8)
+                .startsWith("[{\"id\":1,"));
+        verify(carRepository, times(1))
+                .findAllBy(any(ScrollPosition.class), any(Limit.class), any(Sort.class));
+    }
+
+    @Test
+    @DisplayName("Inventory change of another car keeps the cached page")
+    void findAllSerialized_OtherCarBooked_ReturnsCachedPage() {
+        Pageable pageable = PageRequest.of(0, 10);
+        when(carRepository.findAllBy(any(ScrollPosition.class), any(Limit.class), any(Sort.class)))
+                .thenReturn(Window.from(List.of(car), ScrollPosition::offset));
+        when(carMapper.toDto(car)).thenReturn(carDto);
+
+        carService.findAllSerialized(null, pageable);
+        catalogCache.onAvailabilityChanged(new AvailabilityChangedEvent(1L, 2L, false, true));
+        carService.findAllSerialized(null, pageable);
+        catalogCache.onAvailabilityChanged(
+                new AvailabilityChangedEvent(2L, car.getId(), false, true));
+        CatalogEntry<CursorPageDto<CarDto>> reloaded = carService.findAllSerialized(null, pageable);
+
+        assertEquals(2L, reloaded.version());
+        verify(carRepository, times(2))
+                .findAllBy(any(ScrollPosition.class), any(Limit.class), any(Sort.class));
+    }
+
+    @Test
+    @DisplayName("Catalog edit of another car makes cached pages load again")
+    void findAllSerialized_AfterCatalogEdit_ReloadsPage() {
+        Pageable pageable = PageRequest.of(0, 10);
+        when(carRepository.findAllBy(any(ScrollPosition.class), any(Limit.class), any(Sort.class)))
+                .thenReturn(Window.from(List.of(car), ScrollPosition::offset));
+        when(carMapper.toDto(car)).thenReturn(carDto);
+
+        carService.findAllSerialized(null, pageable);
+        catalogCache.onAvailabilityChanged(new AvailabilityChangedEvent(1L, 2L, true, false));
+        CatalogEntry<CursorPageDto<CarDto>> reloaded = carService.findAllSerialized(null, pageable);
+
+        assertEquals(1L, reloaded.version());
+        verify(carRepository, times(2))
+                .findAllBy(any(ScrollPosition.class), any(Limit.class), any(Sort.class));
+    }
 
-        Page<Car> carPage = new PageImpl<>(List.of(car), pageable, 1);
+    @Test
+    @DisplayName("Change of the car on another replica makes the cached car load again")
+    void getSerializedById_ChangedElsewhere_ReloadsCar() {
+        when(carRepository.findById(car.getId())).thenReturn(Optional.of(car));
+        when(carMapper.toDto(car)).thenReturn(carDto);
 
-        when(carRepository.findAll(pageable)).thenReturn((carPage));
-        List<CarDto> carList = carService.findAll(pageable);
+        CatalogEntry<CarDto> before = carService.getSerializedById(car.getId());
+        catalogCache.onAvailabilityChanged(
+                new AvailabilityChangedEvent(2L, car.getId(), false, false));
+        CatalogEntry<CarDto> after = carService.getSerializedById(car.getId());
 
-        assertEquals(1, carList.size());
+        assertEquals(2L, carService.getCarVersion(car.getId()));
+        assertNotEquals(CarCatalogCache.carETag(car.getId(), before.version()),
+                CarCatalogCache.carETag(car.getId(), after.version()));
+        verify(carRepository, times(2)).findById(car.getId());
     }
 
     @Test
@@ -136,9 +290,11 @@ public class CarServiceTest {
                 .setInventory(car.getInventory())
                 .setDailyFee(car.getDailyFee());
 
-        when(carRepository.findById(car.getId())).thenReturn(Optional.of(car));
+        runTransactionsInline();
+        when(carRepository.existsById(car.getId())).thenReturn(true);
         when(carMapper.toModel(requestDto)).thenReturn(car);
         when(carRepository.save(car)).thenReturn(car);
+        when(vehicleUnitRepository.countFreeUnits(car.getId())).thenReturn(8L);
         when(carMapper.toDto(car)).thenReturn(carDto);
 
         CarDto actual = carService.updateById(car.getId(), requestDto);
@@ -146,6 +302,10 @@ public class CarServiceTest {
         assertNotNull(actual);
         assertEquals(car.getId(), actual.getId());
         verify(carRepository, times(1)).save(car);
+        verify(carRepository, never()).findById(car.getId());
+        InOrder inOrder = inOrder(carRepository, vehicleUnitRepository);
+        inOrder.verify(carRepository).lockById(car.getId());
+        inOrder.verify(vehicleUnitRepository).retireFreeUnits(car.getId(), 3);
     }
 
     @Test
@@ -159,7 +319,7 @@ public class CarServiceTest {
                 .setInventory(car.getInventory())
                 .setDailyFee(car.getDailyFee());
 
-        when(carRepository.findById(invalidCarId)).thenReturn(Optional.empty());
+        when(carRepository.existsById(invalidCarId)).thenReturn(false);
 
         Exception exception = assertThrows(
                 EntityNotFoundException.class,
@@ -178,5 +338,23 @@ public class CarServiceTest {
         carService.deleteById(car.getId());
 
         verify(carRepository, times(1)).deleteById(car.getId());
+        verify(eventPublisher).publishEvent(new CarCatalogChangedEvent(car.getId()));
+    }
+
+    @Test
+    @DisplayName("Registering a unit with a known plate throws exception")
+    void addUnit_DuplicatePlate_ThrowsException() {
+        VehicleUnitRequestDto unitRequest = new VehicleUnitRequestDto().setPlate("AA1234BB");
+        when(carRepository.findById(car.getId())).thenReturn(Optional.of(car));
+        when(vehicleUnitRepository.existsByPlate("AA1234BB")).thenReturn(true);
+
+        assertThrows(DuplicateVehicleUnitException.class,
+                () -> carService.addUnit(car.getId(), unitRequest));
+        verify(vehicleUnitRepository, times(0)).save(any(VehicleUnit.class));
+    }
+
+    private void runTransactionsInline() {
+        when(transactionTemplate.execute(any())).thenAnswer(invocation ->
+                invocation.<TransactionCallback<?>>getArgument(0).doInTransaction(null));
     }
 }
@@ -2,6 +2,7 @@ package car.sharing.service;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertThrows;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyLong;
@@ -11,6 +12,7 @@ import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
+import car.sharing.dto.page.CursorPageDto;
 import car.sharing.dto.payment.PaymentDto;
 import car.sharing.dto.payment.PaymentRequestDto;
 import car.sharing.exception.EntityNotFoundException;
@@ -29,7 +31,9 @@ import car.sharing.model.user.User;
 import car.sharing.repository.PaymentRepository;
 import car.sharing.repository.RentalRepository;
 import car.sharing.service.impl.PaymentServiceImpl;
-import car.sharing.service.telegram.TelegramNotificationService;
+import car.sharing.service.page.CursorCodec;
+import car.sharing.service.telegram.NotificationOutbox;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import java.math.BigDecimal;
 import java.net.MalformedURLException;
 import java.net.URL;
@@ -43,7 +47,14 @@ import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Window;
 
 @ExtendWith(MockitoExtension.class)
 public class PaymentServiceTest {
@@ -56,7 +67,9 @@ public class PaymentServiceTest {
     @Mock
     private RentalRepository rentalRepository;
     @Mock
-    private TelegramNotificationService notificationService;
+    private NotificationOutbox notificationOutbox;
+    @Spy
+    private CursorCodec cursorCodec = new CursorCodec(new ObjectMapper());
 
     @InjectMocks
     private PaymentServiceImpl paymentService;
@@ -121,27 +134,34 @@ public class PaymentServiceTest {
     @Test
     @DisplayName("Find all payments by user ID")
     void findAllByUserId_WithValidUserId_ReturnPaymentList() {
-        when(paymentRepository.findAllByRentalUserId(1L)).thenReturn(List.of(payment));
+        Pageable pageable = PageRequest.of(0, 10);
+        when(paymentRepository.findAllByRentalUserId(
+                eq(1L), any(ScrollPosition.class), any(Limit.class), eq(Sort.by("id"))))
+                .thenReturn(Window.from(List.of(payment), ScrollPosition::offset));
         when(paymentMapper.toDto(payment)).thenReturn(paymentDto);
 
-        List<PaymentDto> paymentList = paymentService.findAllByUserId(1L);
+        CursorPageDto<PaymentDto> page = paymentService.findAllByUserId(1L, null, pageable);
 
-        assertNotNull(paymentList);
-        assertEquals(1, paymentList.size());
-        verify(paymentRepository, times(1)).findAllByRentalUserId(1L);
+        assertNotNull(page);
+        assertEquals(1, page.content().size());
+        assertNull(page.nextCursor());
     }
 
     @Test
     @DisplayName("Find all payments")
     void findAll_ReturnPaymentList() {
-        when(paymentRepository.findAll()).thenReturn(List.of(payment));
+        Pageable pageable = PageRequest.of(0, 10);
+        when(paymentRepository.findAllBy(
+                any(ScrollPosition.class), any(Limit.class), eq(Sort.by("id"))))
+                .thenReturn(Window.from(List.of(payment), ScrollPosition::offset));
         when(paymentMapper.toDto(payment)).thenReturn(paymentDto);
 
-        List<PaymentDto> paymentList = paymentService.findAll();
+        CursorPageDto<PaymentDto> page = paymentService.findAll(null, pageable);
 
-        assertNotNull(paymentList);
-        assertEquals(1, paymentList.size());
-        verify(paymentRepository, times(1)).findAll();
+        assertNotNull(page);
+        assertEquals(1, page.content().size());
+        verify(paymentRepository, times(1)).findAllBy(
+                any(ScrollPosition.class), any(Limit.class), eq(Sort.by("id")));
     }
 
     @Test
@@ -240,7 +260,7 @@ public class PaymentServiceTest {
         assertNotNull(actual);
         assertEquals(payment.getId(), actual.getId());
         verify(paymentRepository, times(1)).save(payment);
-        verify(notificationService, times(1)).sendMessage(anyString());
+        verify(notificationOutbox, times(1)).enqueue(anyString());
     }
 
     @Test
@@ -264,7 +284,7 @@ public class PaymentServiceTest {
         assertNotNull(actual);
         assertEquals(payment.getId(), actual.getId());
         verify(paymentRepository, times(1)).save(payment);
-        verify(notificationService, times(1)).sendMessage(anyString());
+        verify(notificationOutbox, times(1)).enqueue(anyString());
     }
 
     @Test
@@ -0,0 +1,323 @@
+package car.sharing.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.contains;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import car.sharing.dto.rental.RentalHoldDto;
+import car.sharing.dto.rental.RentalHoldRequestDto;
+import car.sharing.dto.rental.WaitlistEntryDto;
+import car.sharing.exception.CarNotAvailableException;
+import car.sharing.exception.EntityNotFoundException;
+import car.sharing.exception.HoldLimitExceededException;
+import car.sharing.mapper.RentalHoldMapper;
+import car.sharing.model.rental.RentalHold;
+import car.sharing.model.rental.Waiter;
+import car.sharing.repository.CarRepository;
+import car.sharing.repository.RentalHoldRepository;
+import car.sharing.repository.UserRepository;
+import car.sharing.repository.VehicleUnitRepository;
+import car.sharing.service.car.CarAvailabilityIndex;
+import car.sharing.service.impl.RentalHoldServiceImpl;
+import car.sharing.service.rental.CarWaitlist;
+import car.sharing.service.rental.RentalHoldTable;
+import car.sharing.service.telegram.NotificationOutbox;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.Limit;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+
+@ExtendWith(MockitoExtension.class)
+public class RentalHoldServiceTest {
+    @Mock
+    private RentalHoldRepository holdRepository;
+    @Mock
+    private VehicleUnitRepository vehicleUnitRepository;
+    @Mock
+    private CarRepository carRepository;
+    @Mock
+    private UserRepository userRepository;
+    @Mock
+    private RentalHoldMapper holdMapper;
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+    @Mock
+    private TransactionTemplate transactionTemplate;
+    @Mock
+    private NotificationOutbox notificationOutbox;
+    @Mock
+    private CarAvailabilityIndex availabilityIndex;
+    @Mock
+    private CarWaitlist waitlist;
+
+    private RentalHoldTable holdTable;
+    private RentalHoldServiceImpl holdService;
+    private RentalHoldRequestDto requestDto;
+
+    @BeforeEach
+    public void setup() {
+        holdTable = new RentalHoldTable();
+        holdService = new RentalHoldServiceImpl(holdRepository, vehicleUnitRepository,
+                carRepository, userRepository, holdTable, holdMapper, eventPublisher,
+                transactionTemplate, waitlist, notificationOutbox, availabilityIndex,
+                Duration.ofMinutes(10), Duration.ofMinutes(5), 2);
+        requestDto = new RentalHoldRequestDto().setCarId(1L);
+    }
+
+    @Test
+    @DisplayName("Holding the same car again returns the live hold without a query")
+    public void hold_RepeatedRequest_ReturnsSameHold() {
+        runTransactionsInline();
+        when(vehicleUnitRepository.lockFreeUnitId(1L)).thenReturn(Optional.of(7L));
+        when(holdRepository.save(any(RentalHold.class))).thenAnswer(invocation -> {
+            RentalHold hold = invocation.getArgument(0);
+            hold.setId(3L);
+            return hold;
+        });
+        when(holdMapper.toDto(any(RentalHold.class))).thenAnswer(invocation -> {
+            RentalHold hold = invocation.getArgument(0);
+            return new RentalHoldDto().setId(hold.getId())
+                    .setVehicleUnitId(hold.getVehicleUnitId());
+        });
+
+        RentalHoldDto first = holdService.hold(requestDto, 2L);
+        RentalHoldDto second = holdService.hold(requestDto, 2L);
+
+        assertEquals(3L, first.getId());
+        assertEquals(first, second);
+        verify(vehicleUnitRepository, times(1)).setRented(7L, true);
+        verify(holdRepository, times(1)).save(any(RentalHold.class));
+        verify(availabilityIndex, times(1)).holdCreated(any(RentalHold.class));
+    }
+
+    @Test
+    @DisplayName("Holding a sold out car throws exception")
+    public void hold_NoFreeUnit_ThrowsException() {
+        runTransactionsInline();
+        when(vehicleUnitRepository.lockFreeUnitId(1L)).thenReturn(Optional.empty());
+        when(carRepository.existsById(1L)).thenReturn(true);
+
+        assertThrows(CarNotAvailableException.class, () -> holdService.hold(requestDto, 2L));
+    }
+
+    @Test
+    @DisplayName("A hold the user got on another instance is returned, not duplicated")
+    public void hold_DuplicateKey_ReturnsExistingHold() {
+        runTransactionsInline();
+        RentalHold existing = hold(3L, LocalDateTime.now().plusMinutes(5));
+        RentalHoldDto existingDto = new RentalHoldDto().setId(3L);
+        when(vehicleUnitRepository.lockFreeUnitId(1L)).thenReturn(Optional.of(8L));
+        when(holdRepository.save(any(RentalHold.class)))
+                .thenThrow(new DataIntegrityViolationException("uk_rental_holds_user_id_car_id"));
+        when(holdRepository.findByUserIdAndCarId(2L, 1L)).thenReturn(Optional.of(existing));
+        when(holdMapper.toDto(existing)).thenReturn(existingDto);
+
+        assertEquals(existingDto, holdService.hold(requestDto, 2L));
+        assertEquals(existing, holdTable.get(2L, 3L));
+        verify(availabilityIndex, never()).holdCreated(any(RentalHold.class));
+    }
+
+    @Test
+    @DisplayName("A user holding the most cars allowed can't hold another")
+    public void hold_AtHoldLimit_ThrowsException() {
+        runTransactionsInline();
+        when(holdRepository.countByUserIdAndCarIdNotAndExpiresAtAfter(
+                eq(2L), eq(1L), any(LocalDateTime.class))).thenReturn(2);
+
+        assertThrows(HoldLimitExceededException.class, () -> holdService.hold(requestDto, 2L));
+        verify(userRepository).lockById(2L);
+        verify(vehicleUnitRepository, never()).lockFreeUnitId(any());
+    }
+
+    @Test
+    @DisplayName("Consuming a live hold returns its unit and removes it from the table")
+    public void consume_LiveHold_ReturnsHeldUnit() {
+        RentalHold hold = hold(3L, LocalDateTime.now().plusMinutes(5));
+        holdTable.put(hold);
+        when(holdRepository.deleteLiveHold(eq(3L), any(LocalDateTime.class))).thenReturn(1);
+
+        assertEquals(Optional.of(7L), holdService.consume(3L, 2L, 1L));
+        assertNull(holdTable.get(2L, 3L));
+        verify(availabilityIndex).holdFreed(hold);
+    }
+
+    @Test
+    @DisplayName("A hold of another car or user is not consumed")
+    public void consume_OtherCarOrUser_ReturnsEmpty() {
+        holdTable.put(hold(3L, LocalDateTime.now().plusMinutes(5)));
+        when(holdRepository.findById(3L)).thenReturn(Optional.empty());
+
+        assertTrue(holdService.consume(3L, 2L, 9L).isEmpty());
+        assertTrue(holdService.consume(3L, 5L, 1L).isEmpty());
+        verify(holdRepository, times(0)).deleteLiveHold(eq(3L), any(LocalDateTime.class));
+    }
+
+    @Test
+    @DisplayName("Releasing a hold frees its unit")
+    public void release_LiveHold_FreesUnit() {
+        runTransactionsInline();
+        RentalHold hold = hold(3L, LocalDateTime.now().plusMinutes(5));
+        holdTable.put(hold);
+        when(holdRepository.deleteHold(3L)).thenReturn(1);
+
+        holdService.release(3L, 2L);
+
+        verify(vehicleUnitRepository, times(1)).setRented(7L, false);
+        verify(availabilityIndex).holdFreed(hold);
+        assertNull(holdTable.get(2L, 3L));
+    }
+
+    @Test
+    @DisplayName("Joining the waitlist of a sold out car puts the user in line")
+    public void joinWaitlist_SoldOutCar_QueuesUser() {
+        runTransactionsInline();
+        when(vehicleUnitRepository.lockFreeUnitId(1L)).thenReturn(Optional.empty());
+        when(carRepository.existsById(1L)).thenReturn(true);
+        when(waitlist.join(1L, 2L)).thenReturn(1);
+
+        WaitlistEntryDto entry = holdService.joinWaitlist(1L, 2L);
+
+        assertEquals(1, entry.getWaiting());
+        assertNull(entry.getHold());
+        verify(waitlist).join(1L, 2L);
+    }
+
+    @Test
+    @DisplayName("A waiter who was handed a unit sees the offered hold")
+    public void getWaitlistEntry_HoldOffered_ReturnsHold() {
+        RentalHold hold = hold(8L, LocalDateTime.now().plusMinutes(5));
+        RentalHoldDto holdDto = new RentalHoldDto();
+        when(holdRepository.findFirstByUserIdAndCarIdAndExpiresAtAfter(
+                eq(2L), eq(1L), any(LocalDateTime.class))).thenReturn(Optional.of(hold));
+        when(holdMapper.toDto(hold)).thenReturn(holdDto);
+
+        WaitlistEntryDto entry = holdService.getWaitlistEntry(1L, 2L);
+
+        assertEquals(holdDto, entry.getHold());
+        verify(waitlist, never()).position(any(), any());
+    }
+
+    @Test
+    @DisplayName("A waiter without an offer sees their place in line")
+    public void getWaitlistEntry_Waiting_ReturnsPosition() {
+        when(holdRepository.findFirstByUserIdAndCarIdAndExpiresAtAfter(
+                eq(2L), eq(1L), any(LocalDateTime.class))).thenReturn(Optional.empty());
+        when(waitlist.position(1L, 2L)).thenReturn(2);
+        when(waitlist.size(1L)).thenReturn(3);
+
+        WaitlistEntryDto entry = holdService.getWaitlistEntry(1L, 2L);
+
+        assertEquals(2, entry.getPosition());
+        assertEquals(3, entry.getWaiting());
+        assertNull(entry.getHold());
+    }
+
+    @Test
+    @DisplayName("Checking a waitlist the user isn't on fails")
+    public void getWaitlistEntry_NotWaiting_ThrowsException() {
+        when(holdRepository.findFirstByUserIdAndCarIdAndExpiresAtAfter(
+                eq(2L), eq(1L), any(LocalDateTime.class))).thenReturn(Optional.empty());
+
+        assertThrows(EntityNotFoundException.class, () -> holdService.getWaitlistEntry(1L, 2L));
+    }
+
+    @Test
+    @DisplayName("A freed unit is handed to the first waiter as a hold")
+    public void handOff_UsersWaiting_HoldsUnitForFirstWaiter() {
+        Waiter waiter = new Waiter(20L, 4L, Duration.ofMinutes(3));
+        when(waitlist.poll(1L)).thenReturn(waiter);
+        when(holdRepository.save(any(RentalHold.class))).thenAnswer(invocation -> {
+            RentalHold hold = invocation.getArgument(0);
+            hold.setId(8L);
+            return hold;
+        });
+
+        assertTrue(holdService.handOff(1L, 7L));
+
+        RentalHold hold = holdTable.get(4L, 8L);
+        assertEquals(7L, hold.getVehicleUnitId());
+        verify(waitlist).handedOff(eq(waiter), anyLong());
+        verify(availabilityIndex).holdCreated(hold);
+        verify(notificationOutbox).enqueue(contains("Hold ID: 8"));
+    }
+
+    @Test
+    @DisplayName("A waiter who already holds the car is skipped")
+    public void handOff_WaiterHoldsCar_HandsUnitToNextWaiter() {
+        when(waitlist.poll(1L)).thenReturn(new Waiter(20L, 4L, Duration.ofMinutes(3)),
+                new Waiter(21L, 5L, Duration.ofMinutes(2)));
+        when(holdRepository.existsByUserIdAndCarId(4L, 1L)).thenReturn(true);
+        when(holdRepository.save(any(RentalHold.class))).thenAnswer(invocation ->
+                invocation.getArgument(0));
+
+        assertTrue(holdService.handOff(1L, 7L));
+
+        verify(notificationOutbox).enqueue(contains("User ID: 5"));
+    }
+
+    @Test
+    @DisplayName("A released hold goes to the next waiter instead of being freed")
+    public void release_UsersWaiting_HandsUnitOff() {
+        runTransactionsInline();
+        holdTable.put(hold(3L, LocalDateTime.now().plusMinutes(5)));
+        when(waitlist.poll(1L)).thenReturn(new Waiter(20L, 4L, Duration.ofMinutes(3)));
+        when(holdRepository.deleteHold(3L)).thenReturn(1);
+        when(holdRepository.save(any(RentalHold.class))).thenAnswer(invocation ->
+                invocation.getArgument(0));
+
+        holdService.release(3L, 2L);
+
+        verify(vehicleUnitRepository, times(0)).setRented(7L, false);
+        verify(notificationOutbox).enqueue(contains("User ID: 4"));
+    }
+
+    @Test
+    @DisplayName("The sweep frees expired holds this instance doesn't track")
+    public void sweepExpiredHolds_UntrackedExpiredHold_FreesUnit() {
+        runTransactionsInline();
+        RentalHold hold = hold(3L, LocalDateTime.now().minusMinutes(1));
+        when(holdRepository.findByExpiresAtBeforeOrderByExpiresAt(
+                any(LocalDateTime.class), any(Limit.class))).thenReturn(List.of(hold));
+        when(holdRepository.deleteHold(3L)).thenReturn(1);
+
+        holdService.sweepExpiredHolds();
+
+        verify(vehicleUnitRepository, times(1)).setRented(7L, false);
+        verify(availabilityIndex).holdFreed(hold);
+    }
+
+    private static RentalHold hold(Long id, LocalDateTime expiresAt) {
+        RentalHold hold = new RentalHold();
+        hold.setId(id);
+        hold.setCarId(1L);
+        hold.setVehicleUnitId(7L);
+        hold.setUserId(2L);
+        hold.setExpiresAt(expiresAt);
+        return hold;
+    }
+
+    private void runTransactionsInline() {
+        when(transactionTemplate.execute(any())).thenAnswer(invocation ->
+                invocation.<TransactionCallback<?>>getArgument(0).doInTransaction(null));
+    }
+}
@@ -0,0 +1,108 @@
+package car.sharing.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import car.sharing.dto.rental.RentalRequestDto;
+import car.sharing.exception.CarNotAvailableException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.jdbc.Sql;
+
+/**
+ * Books one car from many threads through the whole rental service: unit locking,
+ * the rental insert, the outbox message and the availability updates.
+ */
+@Slf4j
+@SpringBootTest
+@Sql(scripts = {"classpath:database/cars/add-cars.sql", "classpath:database/users/add-users.sql"},
+        executionPhase = Sql.ExecutionPhase.BEFORE_TEST_METHOD)
+class RentalServiceContentionTest {
+    private static final long CAR_ID = 1L;
+    private static final long USER_ID = 2L;
+    private static final int THREADS = 50;
+
+    @Autowired
+    private RentalService rentalService;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @AfterEach
+    void teardown() {
+        jdbcTemplate.update("DELETE FROM notification_outbox");
+        jdbcTemplate.update("DELETE FROM rentals");
+        jdbcTemplate.update("DELETE FROM vehicle_units");
+        jdbcTemplate.update("DELETE FROM cars");
+        jdbcTemplate.update("DELETE FROM users");
+    }
+
+    @Test
+    @DisplayName("Concurrent rentals of one car book every unit once and never oversell")
+    void add_ConcurrentRentals_NeverOversells() throws InterruptedException {
+        final int units = 100;
+        final int bookings = 500;
+        jdbcTemplate.update("DELETE FROM vehicle_units WHERE car_id = ?", CAR_ID);
+        List<Object[]> rows = new ArrayList<>(units);
+        for (int i = 0; i < units; i++) {
+            rows.add(new Object[] {CAR_ID});
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO vehicle_units (car_id, is_rented, is_deleted) "
+                + "VALUES (?, FALSE, FALSE)", rows);
+        RentalRequestDto requestDto = new RentalRequestDto()
+                .setCarId(CAR_ID)
+                .setReturnDate(LocalDate.now().plusDays(3));
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicInteger booked = new AtomicInteger();
+        AtomicInteger rejected = new AtomicInteger();
+        List<Future<?>> futures = new ArrayList<>();
+        for (int i = 0; i < bookings; i++) {
+            futures.add(executor.submit(() -> {
+                start.await();
+                try {
+                    rentalService.add(requestDto, USER_ID);
+                    booked.incrementAndGet();
+                } catch (CarNotAvailableException e) {
+                    rejected.incrementAndGet();
+                }
+                return null;
+            }));
+        }
+        final long startedAt = System.nanoTime();
+        start.countDown();
+        for (Future<?> future : futures) {
+            try {
+                future.get();
+            } catch (ExecutionException e) {
+                throw new IllegalStateException(e.getCause());
+            }
+        }
+        executor.shutdown();
+        log.info("{} rentals of one car on {} threads: {} rentals/s, {} booked, {} rejected",
+                bookings, THREADS,
+                Math.round(bookings / ((System.nanoTime() - startedAt) / 1e9)),
+                booked.get(), rejected.get());
+
+        assertEquals(units, booked.get());
+        assertEquals(bookings - units, rejected.get());
+        assertEquals(units, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM rentals "
+                + "WHERE car_id = ?", Integer.class, CAR_ID));
+        assertEquals(units, jdbcTemplate.queryForObject("SELECT COUNT(DISTINCT "
+                + "vehicle_unit_id) FROM rentals WHERE car_id = ?", Integer.class, CAR_ID));
+        assertEquals(0, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM vehicle_units "
+                + "WHERE car_id = ? AND is_rented = FALSE", Integer.class, CAR_ID));
+    }
+}
@@ -2,11 +2,13 @@ package car.sharing.service;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertThrows;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyLong;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
@@ -15,9 +17,11 @@ import car.sharing.dto.rental.RentalDto;
 import car.sharing.dto.rental.RentalRequestDto;
 import car.sharing.exception.CarNotAvailableException;
 import car.sharing.exception.EntityNotFoundException;
+import car.sharing.exception.RentalAlreadyReturnedException;
 import car.sharing.mapper.RentalMapper;
 import car.sharing.model.car.Car;
 import car.sharing.model.car.CarType;
+import car.sharing.model.car.VehicleUnit;
 import car.sharing.model.rental.Rental;
 import car.sharing.model.user.Role;
 import car.sharing.model.user.RoleName;
@@ -25,8 +29,14 @@ import car.sharing.model.user.User;
 import car.sharing.repository.CarRepository;
 import car.sharing.repository.RentalRepository;
 import car.sharing.repository.UserRepository;
+import car.sharing.repository.VehicleUnitRepository;
+import car.sharing.service.car.CarAvailabilityIndex;
 import car.sharing.service.impl.RentalServiceImpl;
-import car.sharing.service.telegram.TelegramNotificationService;
+import car.sharing.service.job.PartitionedJobRunner;
+import car.sharing.service.page.CursorCodec;
+import car.sharing.service.rental.OverdueRentalJob;
+import car.sharing.service.telegram.NotificationOutbox;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import java.math.BigDecimal;
 import java.time.LocalDate;
 import java.util.List;
@@ -38,9 +48,17 @@ import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Window;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
 
 @ExtendWith(MockitoExtension.class)
 public class RentalServiceTest {
@@ -53,8 +71,24 @@ public class RentalServiceTest {
     @Mock
     private UserRepository userRepository;
     @Mock
-    private TelegramNotificationService notificationService;
+    private NotificationOutbox notificationOutbox;
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+    @Mock
+    private CarAvailabilityIndex availabilityIndex;
+    @Mock
+    private TransactionTemplate transactionTemplate;
+    @Mock
+    private VehicleUnitRepository vehicleUnitRepository;
+    @Mock
+    private RentalHoldService holdService;
+    @Spy
+    private CursorCodec cursorCodec = new CursorCodec(new ObjectMapper());
 
+    @Mock
+    private PartitionedJobRunner jobRunner;
+    @Mock
+    private OverdueRentalJob overdueRentalJob;
     @InjectMocks
     private RentalServiceImpl rentalService;
 
@@ -62,6 +96,7 @@ public class RentalServiceTest {
     private RentalDto rentalDto;
     private RentalRequestDto rentalRequestDto;
     private Car car;
+    private VehicleUnit unit;
     private User user;
     private Role role;
 
@@ -75,6 +110,10 @@ public class RentalServiceTest {
         car.setInventory(5);
         car.setDailyFee(BigDecimal.valueOf(10.00));
 
+        unit = new VehicleUnit();
+        unit.setId(7L);
+        unit.setCar(car);
+
         role = new Role();
         role.setId(1L);
         role.setName(RoleName.CUSTOMER);
@@ -93,7 +132,9 @@ public class RentalServiceTest {
         rental.setReturnDate(LocalDate.of(2024, 8, 12));
         rental.setActualReturnDate(LocalDate.of(2024, 8, 15));
         rental.setCar(car);
+        rental.setVehicleUnit(unit);
         rental.setUser(user);
+        rental.setVersion(3L);
 
         rentalDto = new RentalDto();
         rentalDto.setId(rental.getId());
@@ -109,7 +150,10 @@ public class RentalServiceTest {
         rentalRequestDto.setCarId(car.getId());
         rentalRequestDto.setReturnDate(rental.getReturnDate());
 
-        when(carRepository.findById(rentalRequestDto.getCarId())).thenReturn(Optional.of(car));
+        runTransactionsInline();
+        when(vehicleUnitRepository.lockFreeUnitId(car.getId())).thenReturn(Optional.of(7L));
+        when(carRepository.getReferenceById(car.getId())).thenReturn(car);
+        when(vehicleUnitRepository.getReferenceById(7L)).thenReturn(unit);
         when(userRepository.getReferenceById(1L)).thenReturn(user);
         when(rentalRepository.save(any(Rental.class))).thenReturn(rental);
         when(rentalMapper.toDto(rental)).thenReturn(rentalDto);
@@ -118,35 +162,75 @@ public class RentalServiceTest {
 
         assertNotNull(result);
         assertEquals(rental.getId(), result.getId());
-        verify(carRepository, times(1)).findById(rentalRequestDto.getCarId());
+        verify(vehicleUnitRepository, times(1)).setRented(7L, true);
         verify(rentalRepository, times(1)).save(any(Rental.class));
-        verify(notificationService, times(1)).sendMessage(anyString());
+        verify(notificationOutbox, times(1)).enqueue(anyString());
+    }
+
+    @Test
+    @DisplayName("Add rental with a hold takes the held unit")
+    public void addRental_WithHold_TakesHeldUnit() {
+        rentalRequestDto = new RentalRequestDto();
+        rentalRequestDto.setCarId(car.getId());
+        rentalRequestDto.setReturnDate(rental.getReturnDate());
+        rentalRequestDto.setHoldId(3L);
+
+        runTransactionsInline();
+        when(holdService.consume(3L, 1L, car.getId())).thenReturn(Optional.of(7L));
+        when(carRepository.getReferenceById(car.getId())).thenReturn(car);
+        when(vehicleUnitRepository.getReferenceById(7L)).thenReturn(unit);
+        when(userRepository.getReferenceById(1L)).thenReturn(user);
+        when(rentalRepository.save(any(Rental.class))).thenReturn(rental);
+        when(rentalMapper.toDto(rental)).thenReturn(rentalDto);
+
+        rentalService.add(rentalRequestDto, 1L);
+
+        verify(vehicleUnitRepository, times(0)).lockFreeUnitId(anyLong());
+        verify(vehicleUnitRepository, times(0)).setRented(anyLong(), eq(true));
     }
 
     @Test
     @DisplayName("Add rental with unavailable car")
     public void addRental_CarNotAvailable_ThrowsException() {
-        car.setInventory(0);
-
         rentalRequestDto = new RentalRequestDto();
         rentalRequestDto.setCarId(car.getId());
         rentalRequestDto.setReturnDate(rental.getReturnDate());
 
-        when(carRepository.findById(rentalRequestDto.getCarId())).thenReturn(Optional.of(car));
+        runTransactionsInline();
+        when(vehicleUnitRepository.lockFreeUnitId(car.getId())).thenReturn(Optional.empty());
+        when(carRepository.existsById(car.getId())).thenReturn(true);
 
         assertThrows(CarNotAvailableException.class,
                 () -> rentalService.add(rentalRequestDto, 1L));
+        verify(rentalRepository, times(0)).save(any(Rental.class));
+    }
+
+    @Test
+    @DisplayName("Add rental for a car that doesn't exist")
+    public void addRental_UnknownCar_ThrowsException() {
+        rentalRequestDto = new RentalRequestDto();
+        rentalRequestDto.setCarId(99L);
+        rentalRequestDto.setReturnDate(rental.getReturnDate());
+
+        runTransactionsInline();
+        when(vehicleUnitRepository.lockFreeUnitId(99L)).thenReturn(Optional.empty());
+        when(carRepository.existsById(99L)).thenReturn(false);
+
+        assertThrows(EntityNotFoundException.class,
+                () -> rentalService.add(rentalRequestDto, 1L));
     }
 
     @Test
     @DisplayName("Find all active rentals for a user")
     public void findAllActiveRentals_ValidUserId_ReturnsRentalList() {
         Pageable pageable = PageRequest.of(0, 10);
-        when(rentalRepository.getAllByUserIdAndActualReturnDateIsNull(anyLong(), eq(pageable)))
-                .thenReturn(List.of(rental));
+        when(rentalRepository.getAllByUserIdAndActualReturnDateIsNull(
+                anyLong(), any(ScrollPosition.class), any(Limit.class), eq(Sort.by("id"))))
+                .thenReturn(Window.from(List.of(rental), ScrollPosition::offset));
         when(rentalMapper.toDto(any(Rental.class))).thenReturn(rentalDto);
 
-        List<RentalDto> rentals = rentalService.findAllActiveRentals(1L, pageable);
+        List<RentalDto> rentals =
+                rentalService.findAllActiveRentals(1L, null, pageable).content();
 
         assertNotNull(rentals);
         assertEquals(1, rentals.size());
@@ -157,11 +241,13 @@ public class RentalServiceTest {
     @DisplayName("Find all inactive rentals for a user")
     public void findAllNotActiveRentals_ValidUserId_ReturnsRentalList() {
         Pageable pageable = PageRequest.of(0, 10);
-        when(rentalRepository.getAllByUserIdAndActualReturnDateIsNotNull(anyLong(), eq(pageable)))
-                .thenReturn(List.of(rental));
+        when(rentalRepository.getAllByUserIdAndActualReturnDateIsNotNull(
+                anyLong(), any(ScrollPosition.class), any(Limit.class), eq(Sort.by("id"))))
+                .thenReturn(Window.from(List.of(rental), ScrollPosition::offset));
         when(rentalMapper.toDto(any(Rental.class))).thenReturn(rentalDto);
 
-        List<RentalDto> rentals = rentalService.findAllNotActiveRentals(1L, pageable);
+        List<RentalDto> rentals =
+                rentalService.findAllNotActiveRentals(1L, null, pageable).content();
 
         assertNotNull(rentals);
         assertEquals(1, rentals.size());
@@ -180,6 +266,23 @@ public class RentalServiceTest {
         assertEquals(rental.getId(), result.getId());
     }
 
+    @Test
+    @DisplayName("Rental ETag is built from its persisted version")
+    public void getETag_ExistingRental_ReturnsVersionTag() {
+        when(rentalRepository.findVersionById(rental.getId())).thenReturn(Optional.of(3L));
+
+        assertEquals("\"1-3\"", rentalService.getETag(rental.getId()));
+        verify(rentalRepository, never()).findById(rental.getId());
+    }
+
+    @Test
+    @DisplayName("Unknown rental has no ETag")
+    public void getETag_UnknownRental_ReturnsNull() {
+        when(rentalRepository.findVersionById(99L)).thenReturn(Optional.empty());
+
+        assertNull(rentalService.getETag(99L));
+    }
+
     @Test
     @DisplayName("Get rental by ID with non-existing ID")
     public void getById_InvalidId_ThrowsException() {
@@ -192,14 +295,10 @@ public class RentalServiceTest {
     @Test
     @DisplayName("Set actual return date by ID")
     public void setActualReturnDateById_ValidId_ReturnsUpdatedRentalDto() {
-        LocalDate fixedDate = LocalDate.of(2024, 8, 15);
-        when(rentalRepository.findById(rental.getId())).thenReturn(Optional.of(rental));
-        when(carRepository.findById(car.getId())).thenReturn(Optional.of(car));
-        when(rentalRepository.save(any(Rental.class))).thenAnswer(invocation -> {
-            Rental savedRental = invocation.getArgument(0);
-            savedRental.setActualReturnDate(fixedDate);
-            return savedRental;
-        });
+        runTransactionsInline();
+        when(rentalRepository.markReturned(eq(rental.getId()), any(LocalDate.class)))
+                .thenReturn(1);
+        when(rentalRepository.findByIdWithCar(rental.getId())).thenReturn(Optional.of(rental));
         when(rentalMapper.toDto(any(Rental.class))).thenAnswer(invocation -> {
             Rental argRental = invocation.getArgument(0);
             RentalDto dto = new RentalDto();
@@ -212,24 +311,47 @@ public class RentalServiceTest {
 
         assertNotNull(result);
         assertEquals(rental.getId(), result.getId());
-        assertEquals(fixedDate, result.getActualReturnDate());
-        verify(carRepository, times(1)).findById(car.getId());
-        verify(rentalRepository, times(1)).save(any(Rental.class));
+        assertEquals(LocalDate.of(2024, 8, 15), result.getActualReturnDate());
+        verify(vehicleUnitRepository, times(1)).setRented(7L, false);
     }
 
     @Test
-    @DisplayName("Check overdue rentals")
-    public void checkOverdueRentals_WithOverdueRentals_SendsNotification() {
-        List<Rental> overdueRentals = List.of(rental);
-        LocalDate today = LocalDate.now();
-        LocalDate tomorrow = today.plusDays(1);
+    @DisplayName("Returned unit is handed to the waitlist instead of being freed")
+    public void setActualReturnDateById_UsersWaiting_HandsUnitOff() {
+        runTransactionsInline();
+        when(rentalRepository.markReturned(eq(rental.getId()), any(LocalDate.class)))
+                .thenReturn(1);
+        when(rentalRepository.findByIdWithCar(rental.getId())).thenReturn(Optional.of(rental));
+        when(holdService.handOff(car.getId(), 7L)).thenReturn(true);
+
+        rentalService.setActualReturnDateById(rental.getId());
+
+        verify(vehicleUnitRepository, times(0)).setRented(anyLong(), eq(false));
+    }
 
-        when(rentalRepository
-                .getAllByReturnDateBeforeAndActualReturnDateIsNull(tomorrow))
-                .thenReturn(overdueRentals);
+    @Test
+    @DisplayName("Return a rental that was already returned")
+    public void setActualReturnDateById_AlreadyReturned_ThrowsException() {
+        runTransactionsInline();
+        when(rentalRepository.markReturned(eq(rental.getId()), any(LocalDate.class)))
+                .thenReturn(0);
+        when(rentalRepository.existsById(rental.getId())).thenReturn(true);
+
+        assertThrows(RentalAlreadyReturnedException.class,
+                () -> rentalService.setActualReturnDateById(rental.getId()));
+        verify(vehicleUnitRepository, times(0)).setRented(anyLong(), eq(false));
+    }
 
+    @Test
+    @DisplayName("Check overdue rentals starts today's run of the overdue job")
+    public void checkOverdueRentals_Scheduled_StartsTodaysRun() {
         rentalService.checkOverdueRentals();
 
-        verify(notificationService, times(1)).sendMessage(anyString());
+        verify(jobRunner).start(overdueRentalJob, LocalDate.now().toString());
+    }
+
+    private void runTransactionsInline() {
+        when(transactionTemplate.execute(any())).thenAnswer(invocation ->
+                invocation.<TransactionCallback<?>>getArgument(0).doInTransaction(null));
     }
 }
@@ -0,0 +1,160 @@
+package car.sharing.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import car.sharing.dto.bulk.BulkImportResultDto;
+import car.sharing.dto.bulk.RowErrorDto;
+import car.sharing.model.user.Role;
+import car.sharing.model.user.RoleName;
+import car.sharing.model.user.User;
+import car.sharing.repository.RoleRepository;
+import car.sharing.repository.UserBulkRepository;
+import car.sharing.service.bulk.BulkRowReader;
+import car.sharing.service.impl.UserImportServiceImpl;
+import car.sharing.service.user.RegisteredEmailFilter;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.validation.Validation;
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+
+@ExtendWith(MockitoExtension.class)
+class UserImportServiceTest {
+    @Mock
+    private PasswordEncoder passwordEncoder;
+    @Mock
+    private RoleRepository roleRepository;
+    @Mock
+    private UserBulkRepository userBulkRepository;
+    @Mock
+    private RegisteredEmailFilter registeredEmailFilter;
+    @Mock
+    private TransactionTemplate transactionTemplate;
+    private UserImportServiceImpl userImportService;
+
+    @BeforeEach
+    public void setup() {
+        BulkRowReader rowReader = new BulkRowReader(new ObjectMapper(),
+                Validation.buildDefaultValidatorFactory().getValidator());
+        userImportService = new UserImportServiceImpl(rowReader, passwordEncoder,
+                roleRepository, userBulkRepository, registeredEmailFilter, transactionTemplate, 2);
+
+        Role role = new Role();
+        role.setId(1L);
+        role.setName(RoleName.CUSTOMER);
+        when(roleRepository.findByName(RoleName.CUSTOMER)).thenReturn(Optional.of(role));
+        when(passwordEncoder.encode(anyString()))
+                .thenAnswer(invocation -> "encoded-" + invocation.getArgument(0));
+        when(transactionTemplate.execute(any())).thenAnswer(invocation ->
+                invocation.<TransactionCallback<?>>getArgument(0).doInTransaction(null));
+    }
+
+    @AfterEach
+    public void tearDown() {
+        userImportService.shutdown();
+    }
+
+    @Test
+    @DisplayName("Import CSV inserts valid rows in batches and reports invalid ones")
+    public void importCustomers_CsvWithInvalidRow_ReportsRowError() {
+        when(userBulkRepository.insertAll(anyList(), eq(1L)))
+                .thenAnswer(invocation -> allInserted(invocation.getArgument(0)));
+        String csv = """
+                email,password,firstName,lastName
+                bob@example.com,password1,Bob,Smith
+                "alice@example.com","pass,word2",Alice,"O""Brien"
+                not-an-email,password3,Tom,Lee
+                tom@example.com,password4,Tom,Lee
+                """;
+
+        BulkImportResultDto result = userImportService.importCustomers(
+                stream(csv), BulkRowReader.TEXT_CSV);
+
+        assertEquals(4, result.totalRows());
+        assertEquals(3, result.importedRows());
+        assertEquals(List.of(new RowErrorDto(4, "email must be a well-formed email address")),
+                result.errors());
+        ArgumentCaptor<List<User>> captor = ArgumentCaptor.captor();
+        verify(userBulkRepository, times(2)).insertAll(captor.capture(), eq(1L));
+        User alice = captor.getAllValues().get(0).get(1);
+        assertEquals("encoded-pass,word2", alice.getPassword());
+        assertEquals("O\"Brien", alice.getLastName());
+    }
+
+    @Test
+    @DisplayName("Import NDJSON reports rows rejected by the unique email constraint")
+    public void importCustomers_DuplicateEmail_ReportsRowError() {
+        when(userBulkRepository.insertAll(anyList(), eq(1L)))
+                .thenReturn(new boolean[] {true, false});
+        String ndjson = """
+                {"email":"bob@example.com","password":"password1","firstName":"Bob","lastName":"S"}
+
+                {"email":"bob@example.com","password":"password2","firstName":"Bob","lastName":"S"}
+                """;
+
+        BulkImportResultDto result = userImportService.importCustomers(
+                stream(ndjson), BulkRowReader.APPLICATION_NDJSON);
+
+        assertEquals(2, result.totalRows());
+        assertEquals(1, result.importedRows());
+        assertEquals(List.of(new RowErrorDto(3, "Can`t register user by email: bob@example.com")),
+                result.errors());
+    }
+
+    @Test
+    @DisplayName("Import reports a batch the database rejects and goes on with the next one")
+    public void importCustomers_BatchRejected_ReportsBatchRows() {
+        when(userBulkRepository.insertAll(anyList(), eq(1L)))
+                .thenThrow(new DataIntegrityViolationException("Data too long"))
+                .thenAnswer(invocation -> allInserted(invocation.getArgument(0)));
+        String csv = """
+                email,password,firstName,lastName
+                bob@example.com,password1,Bob,Smith
+                alice@example.com,password2,Alice,Brown
+                tom@example.com,password3,Tom,Lee
+                """;
+
+        BulkImportResultDto result = userImportService.importCustomers(
+                stream(csv), BulkRowReader.TEXT_CSV);
+
+        assertEquals(3, result.totalRows());
+        assertEquals(1, result.importedRows());
+        assertEquals(List.of(new RowErrorDto(2, "Can`t save user: Data too long"),
+                new RowErrorDto(3, "Can`t save user: Data too long")), result.errors());
+        verify(registeredEmailFilter).add("tom@example.com");
+        verify(registeredEmailFilter, never()).add("bob@example.com");
+    }
+
+    private static boolean[] allInserted(List<User> users) {
+        boolean[] inserted = new boolean[users.size()];
+        Arrays.fill(inserted, true);
+        return inserted;
+    }
+
+    private static InputStream stream(String content) {
+        return new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8));
+    }
+}
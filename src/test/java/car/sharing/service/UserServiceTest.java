@@ -4,6 +4,8 @@ import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertThrows;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import car.sharing.dto.user.UserDto;
@@ -17,7 +19,10 @@ import car.sharing.model.user.RoleName;
 import car.sharing.model.user.User;
 import car.sharing.repository.RoleRepository;
 import car.sharing.repository.UserRepository;
+import car.sharing.security.TokenVersionStore;
+import car.sharing.security.UserChangedEvent;
 import car.sharing.service.impl.UserServiceImpl;
+import car.sharing.service.user.RegisteredEmailFilter;
 import java.util.Optional;
 import java.util.Set;
 import org.junit.jupiter.api.BeforeEach;
@@ -27,6 +32,8 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.security.crypto.password.PasswordEncoder;
 
 @ExtendWith(MockitoExtension.class)
@@ -39,6 +46,12 @@ class UserServiceTest {
     private PasswordEncoder passwordEncoder;
     @Mock
     private RoleRepository roleRepository;
+    @Mock
+    private TokenVersionStore tokenVersionStore;
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+    @Mock
+    private RegisteredEmailFilter registeredEmailFilter;
     @InjectMocks
     private UserServiceImpl userService;
     private User user;
@@ -80,6 +93,7 @@ class UserServiceTest {
         registrationRequestDto.setLastName("Smith");
 
         //when
+        when(registeredEmailFilter.mightContain(user.getEmail())).thenReturn(true);
         when(userRepository.existsByEmail(user.getEmail())).thenReturn(false);
         when(passwordEncoder.encode(registrationRequestDto.getPassword()))
                 .thenReturn("encodedPassword");
@@ -108,6 +122,7 @@ class UserServiceTest {
         registrationRequestDto.setLastName("Smith");
 
         //when
+        when(registeredEmailFilter.mightContain(user.getEmail())).thenReturn(true);
         when(userRepository.existsByEmail(user.getEmail())).thenReturn(true);
 
         RegistrationException thrown = assertThrows(
@@ -119,6 +134,56 @@ class UserServiceTest {
         assertEquals("Can`t register user by email: bob@example.com", thrown.getMessage());
     }
 
+    @Test
+    @DisplayName("Verify registration of an email missing from the filter skips the lookup")
+    public void register_EmailNotInFilter_SkipsExistsQuery() throws RegistrationException {
+        registrationRequestDto = new UserRegistrationRequestDto();
+        registrationRequestDto.setEmail("bob@example.com");
+        registrationRequestDto.setPassword("123456789");
+        registrationRequestDto.setRepeatPassword("123456789");
+        registrationRequestDto.setFirstName("Bob");
+        registrationRequestDto.setLastName("Smith");
+
+        when(registeredEmailFilter.mightContain(user.getEmail())).thenReturn(false);
+        when(passwordEncoder.encode(registrationRequestDto.getPassword()))
+                .thenReturn("encodedPassword");
+        when(roleRepository.findByName(RoleName.CUSTOMER)).thenReturn(Optional.of(role));
+        when(userRepository.save(any(User.class))).thenReturn(user);
+        when(userMapper.toDto(user)).thenReturn(userDto);
+
+        UserDto actual = userService.register(registrationRequestDto);
+
+        assertEquals(userDto, actual);
+        verify(userRepository, never()).existsByEmail(any());
+        verify(registeredEmailFilter).add("bob@example.com");
+    }
+
+    @Test
+    @DisplayName("Verify duplicate email rejected by the unique constraint throws exception")
+    public void register_UniqueConstraintViolation_ThrowsRegistrationException() {
+        registrationRequestDto = new UserRegistrationRequestDto();
+        registrationRequestDto.setEmail("bob@example.com");
+        registrationRequestDto.setPassword("123456789");
+        registrationRequestDto.setRepeatPassword("123456789");
+        registrationRequestDto.setFirstName("Bob");
+        registrationRequestDto.setLastName("Smith");
+
+        when(registeredEmailFilter.mightContain(user.getEmail())).thenReturn(false);
+        when(passwordEncoder.encode(registrationRequestDto.getPassword()))
+                .thenReturn("encodedPassword");
+        when(roleRepository.findByName(RoleName.CUSTOMER)).thenReturn(Optional.of(role));
+        when(userRepository.save(any(User.class)))
+                .thenThrow(new DataIntegrityViolationException("Duplicate entry"));
+
+        RegistrationException thrown = assertThrows(
+                RegistrationException.class,
+                () -> userService.register(registrationRequestDto)
+        );
+
+        assertEquals("Can`t register user by email: bob@example.com", thrown.getMessage());
+        verify(registeredEmailFilter, never()).add(any());
+    }
+
     @Test
     @DisplayName("Verify update user`s role by id, given incorrect id")
     void updateRoleById_WhenUserDoesNotExist_ShouldThrowException() {
@@ -134,6 +199,30 @@ class UserServiceTest {
                 () -> userService.updateRoleById(user.getId(), updateRequestDto));
     }
 
+    @Test
+    @DisplayName("Verify update user`s role by id invalidates issued tokens")
+    void updateRoleById_WhenUserExists_ShouldBumpTokenVersion() {
+        //given
+        updateRequestDto = new UserUpdateRequestDto();
+        updateRequestDto.setRoleName("MANAGER");
+        Role managerRole = new Role();
+        managerRole.setId(2L);
+        managerRole.setName(RoleName.MANAGER);
+
+        //when
+        when(userRepository.findById(user.getId())).thenReturn(Optional.of(user));
+        when(roleRepository.findByName(RoleName.MANAGER)).thenReturn(Optional.of(managerRole));
+        when(userRepository.save(user)).thenReturn(user);
+        when(userMapper.toDto(user)).thenReturn(userDto);
+
+        UserDto result = userService.updateRoleById(user.getId(), updateRequestDto);
+
+        //then
+        assertNotNull(result);
+        verify(tokenVersionStore).bump(user.getId());
+        verify(eventPublisher).publishEvent(new UserChangedEvent(user.getEmail()));
+    }
+
     @Test
     @DisplayName("Verify user`s info, given correct value")
     void getInfo_WhenUserExists_ShouldReturnUserDto() {
@@ -141,7 +230,7 @@ class UserServiceTest {
         when(userRepository.findByEmail(user.getEmail())).thenReturn(Optional.of(user));
         when(userMapper.toDto(user)).thenReturn(userDto);
 
-        UserDto result = userService.getInfo(user);
+        UserDto result = userService.getInfo(user.getEmail());
 
         //then
         assertNotNull(result);
@@ -156,7 +245,7 @@ class UserServiceTest {
 
         EntityNotFoundException thrown = assertThrows(
                 EntityNotFoundException.class,
-                () -> userService.getInfo(user)
+                () -> userService.getInfo(user.getEmail())
         );
 
         //then
@@ -175,10 +264,11 @@ class UserServiceTest {
         registrationRequestDto.setLastName("Smith");
 
         //when
+        when(userRepository.findByEmail(user.getEmail())).thenReturn(Optional.of(user));
         when(userRepository.save(user)).thenReturn(user);
         when(userMapper.toDto(user)).thenReturn(userDto);
 
-        UserDto result = userService.updateInfo(user, registrationRequestDto);
+        UserDto result = userService.updateInfo(user.getEmail(), registrationRequestDto);
 
         //then
         assertNotNull(result);
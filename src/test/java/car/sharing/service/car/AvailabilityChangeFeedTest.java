@@ -0,0 +1,85 @@
+package car.sharing.service.car;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Map;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.PreparedStatementCreator;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.support.KeyHolder;
+import org.springframework.transaction.PlatformTransactionManager;
+
+class AvailabilityChangeFeedTest {
+    private JdbcTemplate jdbcTemplate;
+    private ApplicationEventPublisher eventPublisher;
+    private AvailabilityChangeFeed changeFeed;
+
+    @BeforeEach
+    void setup() {
+        jdbcTemplate = mock(JdbcTemplate.class);
+        eventPublisher = mock(ApplicationEventPublisher.class);
+        changeFeed = new AvailabilityChangeFeed(jdbcTemplate, eventPublisher,
+                mock(PlatformTransactionManager.class));
+        when(jdbcTemplate.queryForObject(anyString(), eq(Long.class))).thenReturn(4L);
+        changeFeed.afterSingletonsInstantiated();
+    }
+
+    @Test
+    @DisplayName("A local change is published once, when it is recorded")
+    void onCatalogChanged_LocalChange_PublishedOnlyWhenRecorded() throws Exception {
+        doAnswer(invocation -> {
+            invocation.getArgument(1, KeyHolder.class).getKeyList()
+                    .add(Map.of("GENERATED_KEY", 5L));
+            return 1;
+        }).when(jdbcTemplate).update(any(PreparedStatementCreator.class), any(KeyHolder.class));
+        polls(change(5L, 1L, false));
+
+        changeFeed.onInventoryChanged(new CarInventoryChangedEvent(1L));
+        changeFeed.pollChanges();
+
+        verify(eventPublisher).publishEvent(new AvailabilityChangedEvent(5L, 1L, false, true));
+        verify(eventPublisher, never())
+                .publishEvent(new AvailabilityChangedEvent(5L, 1L, false, false));
+    }
+
+    @Test
+    @DisplayName("Catalog edits recorded by other instances are published by the poll")
+    void pollChanges_EditFromOtherInstance_PublishesEdit() throws Exception {
+        polls(change(5L, 1L, true));
+
+        changeFeed.pollChanges();
+
+        verify(eventPublisher).publishEvent(new AvailabilityChangedEvent(5L, 1L, true, false));
+    }
+
+    private void polls(ResultSet change) {
+        doAnswer(invocation -> {
+            invocation.getArgument(1, RowCallbackHandler.class).processRow(change);
+            return null;
+        }).when(jdbcTemplate).query(anyString(), any(RowCallbackHandler.class), eq(4L),
+                anyLong(), eq(1000));
+    }
+
+    private static ResultSet change(long changeId, long carId, boolean catalogEdit)
+            throws SQLException {
+        ResultSet change = mock(ResultSet.class);
+        when(change.getLong(1)).thenReturn(changeId);
+        when(change.getLong(2)).thenReturn(carId);
+        when(change.getBoolean(3)).thenReturn(catalogEdit);
+        return change;
+    }
+}
@@ -0,0 +1,236 @@
+package car.sharing.service.car;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import car.sharing.dto.car.CarAvailabilityDeltaDto;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+class AvailabilityStreamTest {
+    private final List<Runnable> tasks = new ArrayList<>();
+    private JdbcTemplate jdbcTemplate;
+    private MeterRegistry meterRegistry;
+
+    @BeforeEach
+    public void setup() {
+        jdbcTemplate = mock(JdbcTemplate.class);
+        meterRegistry = new SimpleMeterRegistry();
+    }
+
+    @Test
+    @DisplayName("New subscribers get a snapshot and then the changes")
+    public void subscribe_NewSubscriber_SendsSnapshotThenDeltas() {
+        AvailabilityStream stream = stream(16, Runnable::run);
+        inventories(1L, 3, 2);
+        stream.onAvailabilityChanged(change(1L));
+        RecordingEmitter emitter = new RecordingEmitter();
+
+        stream.subscribe(emitter, null);
+        stream.onAvailabilityChanged(change(1L));
+
+        assertEquals(List.of(
+                new Event("e1-0", "snapshot", List.of(new CarAvailabilityDeltaDto(1L, 3))),
+                new Event("e1-1", "availability", new CarAvailabilityDeltaDto(1L, 2))
+        ), emitter.events);
+    }
+
+    @Test
+    @DisplayName("Reconnecting with Last-Event-ID resends only the missed changes")
+    public void subscribe_BufferedLastEventId_SendsMissedDeltas() {
+        AvailabilityStream stream = stream(16, Runnable::run);
+        inventories(1L, 3, 2, 1);
+        for (int i = 0; i < 3; i++) {
+            stream.onAvailabilityChanged(change(1L));
+        }
+        RecordingEmitter emitter = new RecordingEmitter();
+
+        stream.subscribe(emitter, "e1-0");
+
+        assertEquals(List.of(
+                new Event("e1-1", "availability", new CarAvailabilityDeltaDto(1L, 2)),
+                new Event("e1-2", "availability", new CarAvailabilityDeltaDto(1L, 1))
+        ), emitter.events);
+    }
+
+    @Test
+    @DisplayName("A Last-Event-ID from another instance or epoch gets a snapshot")
+    public void subscribe_OtherEpochLastEventId_SendsSnapshot() {
+        AvailabilityStream stream = stream(16, Runnable::run);
+        inventories(1L, 3, 2, 1);
+        for (int i = 0; i < 3; i++) {
+            stream.onAvailabilityChanged(change(1L));
+        }
+        RecordingEmitter emitter = new RecordingEmitter();
+
+        stream.subscribe(emitter, "e2-0");
+
+        assertEquals(List.of(
+                new Event("e1-2", "snapshot", List.of(new CarAvailabilityDeltaDto(1L, 1)))
+        ), emitter.events);
+    }
+
+    @Test
+    @DisplayName("Unchanged inventory sends nothing")
+    public void onAvailabilityChanged_SameInventory_SendsNothing() {
+        AvailabilityStream stream = stream(16, Runnable::run);
+        inventories(1L, 3, 3);
+        stream.onAvailabilityChanged(change(1L));
+        RecordingEmitter emitter = new RecordingEmitter();
+        stream.subscribe(emitter, null);
+
+        stream.onAvailabilityChanged(change(1L));
+
+        assertEquals(1, emitter.events.size());
+    }
+
+    @Test
+    @DisplayName("Subscribers that fall behind the buffer are resynced with a snapshot")
+    public void onAvailabilityChanged_SubscriberBehindBuffer_SendsSnapshot() {
+        AvailabilityStream stream = stream(2, tasks::add);
+        RecordingEmitter emitter = new RecordingEmitter();
+        stream.subscribe(emitter, null);
+        runTasks();
+        inventories(1L, 3, 2, 1);
+
+        for (int i = 0; i < 3; i++) {
+            stream.onAvailabilityChanged(change(1L));
+        }
+        runTasks();
+
+        assertEquals(List.of(
+                new Event("e1--1", "snapshot", List.of()),
+                new Event("e1-2", "snapshot", List.of(new CarAvailabilityDeltaDto(1L, 1)))
+        ), emitter.events);
+        assertEquals(1, meterRegistry.counter("cars.stream.resyncs").count());
+    }
+
+    @Test
+    @DisplayName("Subscribers whose connection fails are dropped")
+    public void onAvailabilityChanged_FailingSubscriber_RemovesSubscriber() {
+        AvailabilityStream stream = stream(16, Runnable::run);
+        RecordingEmitter emitter = new RecordingEmitter();
+        emitter.failing = true;
+
+        stream.subscribe(emitter, null);
+
+        assertEquals(0, meterRegistry.get("cars.stream.subscribers").gauge().value());
+    }
+
+    @Test
+    @DisplayName("A subscriber whose send blocks past the timeout is dropped")
+    public void dropStalledSubscribers_BlockedSend_CompletesEmitter() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(1);
+        AvailabilityStream stream = new AvailabilityStream(jdbcTemplate, meterRegistry, 16,
+                executor, Duration.ofMinutes(1), Duration.ZERO, "e1");
+        BlockingEmitter slow = new BlockingEmitter();
+        stream.subscribe(slow, null);
+        assertTrue(slow.sending.await(5, TimeUnit.SECONDS));
+
+        stream.dropStalledSubscribers();
+        RecordingEmitter fast = new RecordingEmitter();
+        stream.subscribe(fast, null);
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(5, TimeUnit.SECONDS));
+
+        assertInstanceOf(IOException.class, slow.failure);
+        assertEquals(1, fast.events.size());
+        assertEquals(1, meterRegistry.counter("cars.stream.stalls").count());
+        assertEquals(1, meterRegistry.get("cars.stream.subscribers").gauge().value());
+    }
+
+    private AvailabilityStream stream(int bufferSize, Executor executor) {
+        return new AvailabilityStream(jdbcTemplate, meterRegistry, bufferSize, executor,
+                Duration.ofMinutes(1), Duration.ofSeconds(10), "e1");
+    }
+
+    private static AvailabilityChangedEvent change(Long carId) {
+        return new AvailabilityChangedEvent(1L, carId, false, true);
+    }
+
+    private void inventories(Long carId, Integer first, Integer... next) {
+        when(jdbcTemplate.queryForObject(anyString(), eq(Integer.class), eq(carId)))
+                .thenReturn(first, next);
+    }
+
+    private void runTasks() {
+        while (!tasks.isEmpty()) {
+            tasks.remove(0).run();
+        }
+    }
+
+    private record Event(String id, String name, Object data) {
+    }
+
+    private static class BlockingEmitter extends SseEmitter {
+        private final CountDownLatch sending = new CountDownLatch(1);
+        private volatile Throwable failure;
+
+        @Override
+        public void send(SseEventBuilder builder) throws IOException {
+            sending.countDown();
+            try {
+                new CountDownLatch(1).await();
+            } catch (InterruptedException e) {
+                throw new IOException("Write interrupted", e);
+            }
+        }
+
+        @Override
+        public void completeWithError(Throwable ex) {
+            failure = ex;
+            super.completeWithError(ex);
+        }
+    }
+
+    private static class RecordingEmitter extends SseEmitter {
+        private final List<Event> events = new ArrayList<>();
+        private boolean failing;
+
+        @Override
+        public void send(SseEventBuilder builder) throws IOException {
+            if (failing) {
+                throw new IOException("Broken pipe");
+            }
+            String header = "";
+            Object data = null;
+            for (ResponseBodyEmitter.DataWithMediaType part : builder.build()) {
+                if (part.getData() instanceof String text) {
+                    header += text;
+                } else {
+                    data = part.getData();
+                }
+            }
+            events.add(new Event(field(header, "id:"), field(header, "event:"), data));
+        }
+
+        private static String field(String header, String name) {
+            for (String line : header.split("\n")) {
+                if (line.startsWith(name)) {
+                    return line.substring(name.length());
+                }
+            }
+            return null;
+        }
+    }
+}
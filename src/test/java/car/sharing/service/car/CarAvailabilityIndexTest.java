@@ -0,0 +1,278 @@
+package car.sharing.service.car;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import car.sharing.dto.car.CarAvailabilityDto;
+import car.sharing.exception.InvalidDateRangeException;
+import car.sharing.model.car.Car;
+import car.sharing.model.rental.Rental;
+import car.sharing.model.rental.RentalHold;
+import java.sql.Date;
+import java.sql.ResultSet;
+import java.time.Clock;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Random;
+import java.util.stream.LongStream;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+
+class CarAvailabilityIndexTest {
+    private static final LocalDate TODAY = LocalDate.of(2024, 8, 10);
+
+    private final Map<Long, Integer> units = new HashMap<>();
+    private JdbcTemplate jdbcTemplate;
+    private CarAvailabilityIndex index;
+    private Car car;
+
+    @BeforeEach
+    public void setup() {
+        Clock clock = Clock.fixed(TODAY.atStartOfDay().toInstant(ZoneOffset.UTC), ZoneOffset.UTC);
+        jdbcTemplate = mock(JdbcTemplate.class);
+        when(jdbcTemplate.queryForList(anyString(), eq(Integer.class), anyLong()))
+                .thenAnswer(invocation -> Optional.ofNullable(units.get(invocation.getArgument(2)))
+                        .map(List::of)
+                        .orElse(List.of()));
+        index = new CarAvailabilityIndex(jdbcTemplate, clock, 400);
+        car = car(1L);
+        saveCar(1L, 2);
+    }
+
+    @Test
+    @DisplayName("Started rentals take a unit until their return date")
+    public void getAvailability_StartedRental_CountsUnitAsBooked() {
+        index.rentalStarted(rental(10L, TODAY, TODAY.plusDays(3)));
+
+        assertEquals(1, free(TODAY, TODAY.plusDays(1)));
+        assertEquals(1, free(TODAY.plusDays(2), TODAY.plusDays(5)));
+        assertEquals(2, free(TODAY.plusDays(3), TODAY.plusDays(5)));
+    }
+
+    @Test
+    @DisplayName("Returned rentals free their unit from the return day")
+    public void getAvailability_ReturnedRental_FreesUnit() {
+        Rental rental = rental(10L, TODAY, TODAY.plusDays(5));
+        index.rentalStarted(rental);
+        index.rentalStarted(rental(11L, TODAY, TODAY.plusDays(2)));
+
+        rental.setActualReturnDate(TODAY.plusDays(1));
+        index.rentalReturned(rental);
+
+        assertEquals(0, free(TODAY, TODAY.plusDays(1)));
+        assertEquals(1, free(TODAY.plusDays(1), TODAY.plusDays(2)));
+        assertEquals(2, free(TODAY.plusDays(2), TODAY.plusDays(9)));
+    }
+
+    @Test
+    @DisplayName("Saving a car counts its units that are rented out")
+    public void carSaved_CarWithOpenRental_CountsRentedUnits() {
+        index.rentalStarted(rental(10L, TODAY, TODAY.plusDays(3)));
+
+        saveCar(1L, 4);
+
+        assertEquals(3, free(TODAY, TODAY.plusDays(3)));
+        assertEquals(4, free(TODAY.plusDays(3), TODAY.plusDays(4)));
+    }
+
+    @Test
+    @DisplayName("A held unit counts towards the car's units until the hold is freed")
+    public void holdCreated_HoldBecomesRental_KeepsUnitCount() {
+        RentalHold hold = new RentalHold();
+        hold.setId(5L);
+        hold.setCarId(1L);
+        index.holdCreated(hold);
+        saveCar(1L, 2);
+
+        assertEquals(1, free(TODAY, TODAY.plusDays(1)));
+        assertEquals(2, free(TODAY.plusDays(1), TODAY.plusDays(2)));
+
+        index.holdFreed(hold);
+        index.rentalStarted(rental(10L, TODAY, TODAY.plusDays(3)));
+
+        assertEquals(1, free(TODAY, TODAY.plusDays(3)));
+        assertEquals(2, free(TODAY.plusDays(3), TODAY.plusDays(4)));
+    }
+
+    @Test
+    @DisplayName("Overdue rentals stay booked after their return date")
+    public void extendOpenBookings_OverdueRental_KeepsUnitBooked() {
+        index.rentalStarted(rental(10L, TODAY.minusDays(3), TODAY.minusDays(1)));
+        CarCalendar calendar = new CarCalendar();
+        calendar.open(10L, 0, 5);
+        calendar.setUnits(2);
+
+        calendar.extendOpenBookings(8);
+
+        assertEquals(1, free(TODAY, TODAY.plusDays(1)));
+        assertEquals(1, calendar.freeUnits(5, 8));
+        assertEquals(2, calendar.freeUnits(8, 9));
+    }
+
+    @Test
+    @DisplayName("Find available cars skips fully booked ones")
+    public void findAvailable_FullyBookedCar_IsSkipped() {
+        saveCar(2L, 1);
+        saveCar(3L, 1);
+        index.rentalStarted(rental(20L, car(2L), TODAY, TODAY.plusDays(4)));
+
+        List<CarAvailabilityDto> available = index.findAvailable(
+                TODAY.plusDays(1), TODAY.plusDays(2), PageRequest.of(0, 10));
+
+        assertEquals(List.of(new CarAvailabilityDto(1L, 2), new CarAvailabilityDto(3L, 1)),
+                available);
+    }
+
+    @Test
+    @DisplayName("Find available cars matches checking every car for random rentals")
+    public void findAvailable_RandomRentals_MatchesPerCarCheck() {
+        Random random = new Random(7);
+        long rentalId = 100;
+        for (long carId = 2; carId <= 60; carId++) {
+            Car fleetCar = car(carId);
+            saveCar(carId, 1 + random.nextInt(3));
+            for (int i = 0; i < 8; i++) {
+                LocalDate from = TODAY.plusDays(random.nextInt(30));
+                Rental rental = rental(++rentalId, fleetCar, from,
+                        from.plusDays(1 + random.nextInt(10)));
+                index.rentalStarted(rental);
+                if (random.nextBoolean()) {
+                    rental.setActualReturnDate(from.plusDays(random.nextInt(5)));
+                    index.rentalReturned(rental);
+                }
+            }
+            if (random.nextInt(10) == 0) {
+                saveCar(carId, random.nextInt(3));
+            }
+        }
+        for (int i = 0; i < 100; i++) {
+            LocalDate from = TODAY.plusDays(random.nextInt(40));
+            LocalDate to = from.plusDays(1 + random.nextInt(10));
+            List<CarAvailabilityDto> expected = LongStream.rangeClosed(1, 60)
+                    .mapToObj(carId -> index.getAvailability(carId, from, to))
+                    .filter(availability -> availability.freeUnits() > 0)
+                    .toList();
+
+            assertEquals(expected, index.findAvailable(from, to, PageRequest.of(0, 100)));
+        }
+    }
+
+    @Test
+    @DisplayName("Later pages of free cars skip the free cars of earlier pages")
+    public void findAvailable_LaterPage_SkipsEarlierFreeCars() {
+        for (long carId = 2; carId <= 40; carId++) {
+            saveCar(carId, 1);
+        }
+        for (long carId = 2; carId <= 40; carId += 3) {
+            index.rentalStarted(rental(carId, car(carId), TODAY, TODAY.plusDays(5)));
+        }
+        List<CarAvailabilityDto> free = LongStream.rangeClosed(1, 40)
+                .mapToObj(carId -> index.getAvailability(carId, TODAY, TODAY.plusDays(2)))
+                .filter(availability -> availability.freeUnits() > 0)
+                .toList();
+
+        assertEquals(free.subList(10, 20),
+                index.findAvailable(TODAY, TODAY.plusDays(2), PageRequest.of(1, 10)));
+        assertEquals(List.of(), index.findAvailable(TODAY, TODAY.plusDays(2),
+                PageRequest.of(3, 10)));
+    }
+
+    @Test
+    @DisplayName("A car changed on another instance is reloaded from the database")
+    public void onAvailabilityChanged_RemoteChange_ReloadsCar() throws Exception {
+        ResultSet rental = mock(ResultSet.class);
+        when(rental.getLong(1)).thenReturn(30L);
+        when(rental.getDate(3)).thenReturn(Date.valueOf(TODAY));
+        when(rental.getDate(4)).thenReturn(Date.valueOf(TODAY.plusDays(2)));
+        doAnswer(invocation -> {
+            invocation.getArgument(1, RowCallbackHandler.class).processRow(rental);
+            return null;
+        }).when(jdbcTemplate).query(anyString(), any(RowCallbackHandler.class),
+                any(Date.class), eq(1L));
+        units.put(1L, 3);
+
+        index.onAvailabilityChanged(new AvailabilityChangedEvent(7L, 1L, false, true));
+        assertEquals(2, free(TODAY, TODAY.plusDays(1)));
+
+        index.onAvailabilityChanged(new AvailabilityChangedEvent(8L, 1L, false, false));
+        assertEquals(2, free(TODAY, TODAY.plusDays(2)));
+        assertEquals(3, free(TODAY.plusDays(2), TODAY.plusDays(3)));
+    }
+
+    @Test
+    @DisplayName("Ranges that are empty or start in the past are rejected")
+    public void getAvailability_InvalidRange_ThrowsException() {
+        assertThrows(InvalidDateRangeException.class, () -> free(TODAY, TODAY));
+        assertThrows(InvalidDateRangeException.class,
+                () -> free(TODAY.minusDays(1), TODAY.plusDays(1)));
+    }
+
+    @Test
+    @DisplayName("Calendar matches a day by day count for random bookings")
+    public void freeUnits_RandomBookings_MatchesDailyCount() {
+        Random random = new Random(42);
+        CarCalendar calendar = new CarCalendar();
+        calendar.setUnits(50);
+        int[] booked = new int[400];
+        for (int i = 0; i < 300; i++) {
+            int from = random.nextInt(380);
+            int to = from + 1 + random.nextInt(20);
+            calendar.book(from, to);
+            for (int day = from; day < to; day++) {
+                booked[day]++;
+            }
+        }
+        for (int i = 0; i < 1000; i++) {
+            int from = random.nextInt(399);
+            int to = from + 1 + random.nextInt(399 - from);
+            int peak = 0;
+            for (int day = from; day < to; day++) {
+                peak = Math.max(peak, booked[day]);
+            }
+            assertEquals(Math.max(50 - peak, 0), calendar.freeUnits(from, to));
+        }
+    }
+
+    private int free(LocalDate from, LocalDate to) {
+        return index.getAvailability(1L, from, to).freeUnits();
+    }
+
+    private void saveCar(Long id, int count) {
+        units.put(id, count);
+        index.carSaved(id);
+    }
+
+    private static Car car(Long id) {
+        Car car = new Car();
+        car.setId(id);
+        return car;
+    }
+
+    private Rental rental(Long id, LocalDate from, LocalDate to) {
+        return rental(id, car, from, to);
+    }
+
+    private static Rental rental(Long id, Car car, LocalDate from, LocalDate to) {
+        Rental rental = new Rental();
+        rental.setId(id);
+        rental.setCar(car);
+        rental.setRentalDate(from);
+        rental.setReturnDate(to);
+        return rental;
+    }
+}
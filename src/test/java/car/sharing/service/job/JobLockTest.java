@@ -0,0 +1,129 @@
+package car.sharing.service.job;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import car.sharing.CarSharingApp;
+import car.sharing.config.CustomMySqlContainer;
+import java.time.Duration;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+/**
+ * Starts two application contexts, as two replicas would, against one MySQL container.
+ */
+class JobLockTest {
+    private static final Duration LOCK_AT_MOST_FOR = Duration.ofSeconds(1);
+
+    private static ConfigurableApplicationContext firstContext;
+    private static ConfigurableApplicationContext secondContext;
+    private static JobLock first;
+    private static JobLock second;
+
+    @BeforeAll
+    public static void startContexts() {
+        CustomMySqlContainer mySqlContainer = CustomMySqlContainer.getInstance();
+        mySqlContainer.start();
+        firstContext = startContext(mySqlContainer);
+        secondContext = startContext(mySqlContainer);
+        first = firstContext.getBean(JobLock.class);
+        second = secondContext.getBean(JobLock.class);
+    }
+
+    @AfterAll
+    public static void stopContexts() {
+        secondContext.close();
+        firstContext.close();
+    }
+
+    @Test
+    @DisplayName("Only one replica runs a job that both start at once")
+    public void runLocked_TwoReplicas_RunsJobOnce() {
+        String job = job();
+        AtomicInteger runs = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        Runnable task = () -> {
+            runs.incrementAndGet();
+            sleep(Duration.ofMillis(300));
+        };
+
+        CompletableFuture<Boolean> firstRun = CompletableFuture.supplyAsync(() -> {
+            await(start);
+            return first.runLocked(job, LOCK_AT_MOST_FOR, Duration.ZERO, task);
+        });
+        CompletableFuture<Boolean> secondRun = CompletableFuture.supplyAsync(() -> {
+            await(start);
+            return second.runLocked(job, LOCK_AT_MOST_FOR, Duration.ZERO, task);
+        });
+        start.countDown();
+
+        assertTrue(firstRun.join() ^ secondRun.join(), "Exactly one replica should run");
+        assertEquals(1, runs.get());
+    }
+
+    @Test
+    @DisplayName("Another replica takes over once the lease of a dead holder runs out")
+    public void tryLock_HolderDied_OtherReplicaTakesOverAfterLease() {
+        String job = job();
+
+        assertTrue(first.tryLock(job, LOCK_AT_MOST_FOR));
+        assertFalse(second.tryLock(job, LOCK_AT_MOST_FOR));
+
+        sleep(LOCK_AT_MOST_FOR.plusMillis(200));
+        assertTrue(second.tryLock(job, LOCK_AT_MOST_FOR));
+    }
+
+    @Test
+    @DisplayName("A replica firing late skips an occurrence that already ran")
+    public void runLocked_FinishedWithinLockAtLeastFor_SkipsLateReplica() {
+        String job = job();
+        AtomicInteger runs = new AtomicInteger();
+
+        assertTrue(first.runLocked(job, LOCK_AT_MOST_FOR, Duration.ofSeconds(5),
+                runs::incrementAndGet));
+        assertFalse(second.runLocked(job, LOCK_AT_MOST_FOR, Duration.ofSeconds(5),
+                runs::incrementAndGet));
+
+        assertEquals(1, runs.get());
+    }
+
+    private static ConfigurableApplicationContext startContext(
+            CustomMySqlContainer mySqlContainer) {
+        return new SpringApplicationBuilder(CarSharingApp.class).run(
+                "--server.port=0",
+                "--spring.datasource.url=" + mySqlContainer.getJdbcUrl(),
+                "--spring.datasource.username=" + mySqlContainer.getUsername(),
+                "--spring.datasource.password=" + mySqlContainer.getPassword());
+    }
+
+    private static String job() {
+        return "test-" + UUID.randomUUID();
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static void sleep(Duration duration) {
+        try {
+            Thread.sleep(duration.toMillis());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,179 @@
+package car.sharing.service.job;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import car.sharing.model.job.JobPartition;
+import car.sharing.model.job.JobRunResult;
+import car.sharing.repository.JobPartitionRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+
+@ExtendWith(MockitoExtension.class)
+class PartitionedJobRunnerTest {
+    private static final String JOB_NAME = "test-job";
+    private static final String RUN_KEY = "2024-08-10";
+    private static final Duration LEASE = Duration.ofMinutes(2);
+    private static final int MAX_ATTEMPTS = 3;
+
+    @Mock
+    private JobPartitionRepository partitionRepository;
+    @Mock
+    private TransactionTemplate transactionTemplate;
+    @Mock
+    private PartitionedJob job;
+
+    private MeterRegistry meterRegistry;
+    private PartitionedJobRunner runner;
+
+    @BeforeEach
+    public void setup() {
+        when(job.name()).thenReturn(JOB_NAME);
+        meterRegistry = new SimpleMeterRegistry();
+        runner = new PartitionedJobRunner(partitionRepository, transactionTemplate,
+                List.of(job), meterRegistry, Runnable::run, 2, 4, LEASE, MAX_ATTEMPTS);
+    }
+
+    @Test
+    @DisplayName("The key range is split into partitions of equal width")
+    public void split_HundredKeys_ReturnsFourRanges() {
+        List<long[]> ranges = runner.split(new PartitionedJob.KeyRange(1, 100));
+
+        assertEquals(4, ranges.size());
+        assertArrayEquals(new long[] {1, 25}, ranges.get(0));
+        assertArrayEquals(new long[] {76, 100}, ranges.get(3));
+    }
+
+    @Test
+    @DisplayName("A run planned by another node is not planned again")
+    public void start_RunAlreadyExists_ReturnsFalse() {
+        runTransactionsInline();
+        when(partitionRepository.createRun(JOB_NAME, RUN_KEY)).thenReturn(Optional.empty());
+
+        assertFalse(runner.start(job, RUN_KEY));
+        verify(partitionRepository, never()).insertPartitions(any(), any());
+    }
+
+    @Test
+    @DisplayName("A claimed partition is processed from its checkpoint and finishes the run")
+    public void claimPartitions_LastPartition_FinishesRun() {
+        runTransactionsInline();
+        JobPartition partition = new JobPartition(7L, 3L, JOB_NAME, RUN_KEY, 1L, 100L, 10L, 1);
+        when(partitionRepository.claim(any(), anyString(), eq(2), eq(LEASE)))
+                .thenReturn(List.of(partition));
+        when(job.processChunk(RUN_KEY, 10L, 100L))
+                .thenReturn(new PartitionedJob.JobChunk(5, 40L));
+        when(job.processChunk(RUN_KEY, 40L, 100L)).thenReturn(PartitionedJob.JobChunk.empty());
+        when(partitionRepository.checkpoint(eq(7L), anyString(), eq(40L), eq(5L), eq(LEASE)))
+                .thenReturn(true);
+        when(partitionRepository.complete(eq(7L), anyString())).thenReturn(true);
+        when(partitionRepository.finishRun(3L)).thenReturn(true);
+        when(partitionRepository.getResult(3L))
+                .thenReturn(new JobRunResult(Duration.ofSeconds(3), 5, 0));
+
+        runner.claimPartitions();
+
+        verify(job).onRunFinished(RUN_KEY, 5);
+        assertEquals(1, meterRegistry.get("jobs.run").tag("job", JOB_NAME).timer().count());
+        assertEquals(1, meterRegistry.get("jobs.partition.throughput")
+                .tag("job", JOB_NAME).summary().count());
+    }
+
+    @Test
+    @DisplayName("Processing stops without completing once the lease is lost")
+    public void claimPartitions_LeaseLost_DoesNotComplete() {
+        runTransactionsInline();
+        JobPartition partition = new JobPartition(7L, 3L, JOB_NAME, RUN_KEY, 1L, 100L, 0L, 1);
+        when(partitionRepository.claim(any(), anyString(), anyInt(), eq(LEASE)))
+                .thenReturn(List.of(partition));
+        when(job.processChunk(RUN_KEY, 0L, 100L))
+                .thenReturn(new PartitionedJob.JobChunk(5, 40L));
+        when(partitionRepository.checkpoint(eq(7L), anyString(), anyLong(), anyLong(), eq(LEASE)))
+                .thenReturn(false);
+
+        runner.claimPartitions();
+
+        verify(partitionRepository, never()).complete(any(), anyString());
+        verify(job, never()).onRunFinished(anyString(), anyLong());
+    }
+
+    @Test
+    @DisplayName("A partition failing on its last attempt is failed and finishes the run")
+    public void claimPartitions_LastAttemptFails_FailsPartition() {
+        runTransactionsInline();
+        JobPartition partition = new JobPartition(7L, 3L, JOB_NAME, RUN_KEY, 1L, 100L, 0L,
+                MAX_ATTEMPTS);
+        when(partitionRepository.claim(any(), anyString(), anyInt(), eq(LEASE)))
+                .thenReturn(List.of(partition));
+        when(job.processChunk(RUN_KEY, 0L, 100L)).thenThrow(new IllegalStateException("bad"));
+        when(partitionRepository.fail(eq(7L), anyString())).thenReturn(true);
+        when(partitionRepository.finishRun(3L)).thenReturn(true);
+        when(partitionRepository.getResult(3L))
+                .thenReturn(new JobRunResult(Duration.ofSeconds(3), 0, 1));
+
+        runner.claimPartitions();
+
+        verify(partitionRepository, never()).complete(any(), anyString());
+        verify(job, never()).onRunFinished(anyString(), anyLong());
+        assertEquals(1, meterRegistry.get("jobs.run").tag("outcome", "failed").timer().count());
+    }
+
+    @Test
+    @DisplayName("A partition failing before its last attempt is left for a retry")
+    public void claimPartitions_EarlierAttemptFails_KeepsPartition() {
+        runTransactionsInline();
+        JobPartition partition = new JobPartition(7L, 3L, JOB_NAME, RUN_KEY, 1L, 100L, 0L, 1);
+        when(partitionRepository.claim(any(), anyString(), anyInt(), eq(LEASE)))
+                .thenReturn(List.of(partition));
+        when(job.processChunk(RUN_KEY, 0L, 100L)).thenThrow(new IllegalStateException("bad"));
+
+        runner.claimPartitions();
+
+        verify(partitionRepository, never()).fail(any(), anyString());
+    }
+
+    @Test
+    @DisplayName("A partition claimed after its attempts are used up is failed unprocessed")
+    public void claimPartitions_AttemptsUsedUp_FailsWithoutProcessing() {
+        runTransactionsInline();
+        JobPartition partition = new JobPartition(7L, 3L, JOB_NAME, RUN_KEY, 1L, 100L, 0L,
+                MAX_ATTEMPTS + 1);
+        when(partitionRepository.claim(any(), anyString(), anyInt(), eq(LEASE)))
+                .thenReturn(List.of(partition));
+        when(partitionRepository.fail(eq(7L), anyString())).thenReturn(true);
+
+        runner.claimPartitions();
+
+        verify(job, never()).processChunk(anyString(), anyLong(), anyLong());
+        verify(partitionRepository).finishRun(3L);
+    }
+
+    @SuppressWarnings("unchecked")
+    private void runTransactionsInline() {
+        lenient().when(transactionTemplate.execute(any())).thenAnswer(invocation ->
+                ((TransactionCallback<Object>) invocation.getArgument(0))
+                        .doInTransaction(new SimpleTransactionStatus()));
+    }
+}
@@ -0,0 +1,81 @@
+package car.sharing.service.page;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import car.sharing.dto.page.CursorPageDto;
+import car.sharing.exception.InvalidCursorException;
+import car.sharing.model.rental.Rental;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.KeysetScrollPosition;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Window;
+
+class CursorCodecTest {
+    private final CursorCodec cursorCodec = new CursorCodec(new ObjectMapper()
+            .registerModule(new JavaTimeModule())
+            .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS));
+
+    @Test
+    @DisplayName("Sort always ends with the id so every position is unique")
+    void keysetSort_SortWithoutId_AppendsId() {
+        assertEquals(Sort.by("rentalDate").and(Sort.by("id")),
+                cursorCodec.keysetSort(Sort.by("rentalDate")));
+        assertEquals(Sort.by(Sort.Direction.DESC, "id"),
+                cursorCodec.keysetSort(Sort.by(Sort.Direction.DESC, "id")));
+    }
+
+    @Test
+    @DisplayName("Next cursor decodes to the keys of the last row with their property types")
+    void decode_CursorOfPage_ReturnsTypedKeysetPosition() {
+        Sort sort = cursorCodec.keysetSort(Sort.by("rentalDate"));
+        Window<Rental> window = Window.from(List.of(new Rental()),
+                index -> ScrollPosition.forward(
+                        Map.of("rentalDate", LocalDate.of(2024, 3, 1), "id", 42L)), true);
+
+        CursorPageDto<Object> page = cursorCodec.toPage(window, sort, rental -> rental);
+        ScrollPosition position = cursorCodec.decode(page.nextCursor(), Rental.class, sort);
+
+        Map<String, Object> keys = ((KeysetScrollPosition) position).getKeys();
+        assertEquals(LocalDate.of(2024, 3, 1), keys.get("rentalDate"));
+        assertEquals(42L, keys.get("id"));
+    }
+
+    @Test
+    @DisplayName("Last page has no next cursor")
+    void toPage_LastPage_ReturnsNullCursor() {
+        Window<Rental> window = Window.from(List.of(new Rental()), ScrollPosition::offset);
+
+        assertNull(cursorCodec.toPage(window, Sort.by("id"), rental -> rental).nextCursor());
+    }
+
+    @Test
+    @DisplayName("Missing cursor starts from the first row")
+    void decode_NoCursor_ReturnsInitialPosition() {
+        assertTrue(cursorCodec.decode(null, Rental.class, Sort.by("id")).isInitial());
+    }
+
+    @Test
+    @DisplayName("Cursor used with another sort or tampered with is rejected")
+    void decode_ForeignOrBrokenCursor_ThrowsException() {
+        Window<Rental> window = Window.from(List.of(new Rental()),
+                index -> ScrollPosition.forward(Map.of("id", 42L)), true);
+        String cursor = cursorCodec.toPage(window, Sort.by("id"), rental -> rental).nextCursor();
+
+        assertThrows(InvalidCursorException.class,
+                () -> cursorCodec.decode(cursor, Rental.class,
+                        Sort.by("rentalDate").and(Sort.by("id"))));
+        assertThrows(InvalidCursorException.class,
+                () -> cursorCodec.decode("not a cursor", Rental.class, Sort.by("id")));
+    }
+}
@@ -0,0 +1,73 @@
+package car.sharing.service.rental;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import car.sharing.model.rental.Waiter;
+import car.sharing.repository.WaitlistRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+@ExtendWith(MockitoExtension.class)
+class CarWaitlistTest {
+    @Mock
+    private WaitlistRepository waitlistRepository;
+
+    private SimpleMeterRegistry meterRegistry;
+    private CarWaitlist waitlist;
+
+    @BeforeEach
+    public void setup() {
+        meterRegistry = new SimpleMeterRegistry();
+        waitlist = new CarWaitlist(waitlistRepository, meterRegistry);
+    }
+
+    @Test
+    @DisplayName("Joining again keeps one place in line and returns the queue length")
+    public void join_AlreadyWaiting_ReturnsQueueLength() {
+        when(waitlistRepository.insert(1L, 10L)).thenReturn(false);
+        when(waitlistRepository.countByCarId(1L)).thenReturn(2);
+
+        assertEquals(2, waitlist.join(1L, 10L));
+    }
+
+    @Test
+    @DisplayName("Polling an empty queue returns null")
+    public void poll_EmptyQueue_ReturnsNull() {
+        when(waitlistRepository.pollFirst(1L)).thenReturn(Optional.empty());
+
+        assertNull(waitlist.poll(1L));
+    }
+
+    @Test
+    @DisplayName("A handoff records how long the waiter waited")
+    public void handedOff_PolledWaiter_RecordsWait() {
+        Waiter waiter = new Waiter(5L, 10L, Duration.ofMinutes(3));
+        when(waitlistRepository.pollFirst(1L)).thenReturn(Optional.of(waiter));
+
+        waitlist.handedOff(waitlist.poll(1L), System.nanoTime());
+
+        assertEquals(3.0, meterRegistry.get("rentals.waitlist.wait").timer()
+                .totalTime(TimeUnit.MINUTES));
+        assertEquals(1, meterRegistry.get("rentals.waitlist.handoff").timer().count());
+    }
+
+    @Test
+    @DisplayName("The depth gauge reads the shared waitlist")
+    public void depth_SharedWaitlist_ReadsTable() {
+        when(waitlistRepository.countAll()).thenReturn(7L);
+
+        assertEquals(7.0, meterRegistry.get("rentals.waitlist.depth").gauge().value());
+        verify(waitlistRepository).countAll();
+    }
+}
@@ -0,0 +1,76 @@
+package car.sharing.service.rental;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.contains;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import car.sharing.model.rental.OverdueRental;
+import car.sharing.repository.RentalRepository;
+import car.sharing.service.job.PartitionedJob;
+import car.sharing.service.telegram.NotificationOutbox;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Optional;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Limit;
+
+@ExtendWith(MockitoExtension.class)
+class OverdueRentalJobTest {
+    private static final LocalDate TODAY = LocalDate.of(2024, 8, 10);
+
+    @Mock
+    private RentalRepository rentalRepository;
+    @Mock
+    private NotificationOutbox notificationOutbox;
+
+    private OverdueRentalJob job;
+
+    @BeforeEach
+    public void setup() {
+        job = new OverdueRentalJob(rentalRepository, notificationOutbox, 2);
+    }
+
+    @Test
+    @DisplayName("The key range spans the ids of the open rentals")
+    public void keyRange_OpenRentals_ReturnsIdRange() {
+        when(rentalRepository.findMinOpenRentalId()).thenReturn(3L);
+        when(rentalRepository.findMaxOpenRentalId()).thenReturn(90L);
+
+        assertEquals(Optional.of(new PartitionedJob.KeyRange(3L, 90L)),
+                job.keyRange(TODAY.toString()));
+    }
+
+    @Test
+    @DisplayName("Each chunk of overdue rentals is sent as one digest")
+    public void processChunk_OverdueRentals_EnqueuesDigest() {
+        when(rentalRepository.findOverdueBetween(TODAY.plusDays(1), 0L, 50L, Limit.of(2)))
+                .thenReturn(List.of(
+                        new OverdueRental(1L, 2L, 3L, TODAY.minusDays(2)),
+                        new OverdueRental(4L, 5L, 6L, TODAY.minusDays(1))));
+
+        PartitionedJob.JobChunk chunk = job.processChunk(TODAY.toString(), 0L, 50L);
+
+        assertEquals(new PartitionedJob.JobChunk(2, 4L), chunk);
+        verify(notificationOutbox).enqueue(contains("Rental 4: user 5, car 6"));
+        verify(notificationOutbox, times(1)).enqueue(anyString());
+    }
+
+    @Test
+    @DisplayName("A run without overdue rentals reports that nothing is overdue")
+    public void onRunFinished_NothingProcessed_EnqueuesNothingOverdue() {
+        job.onRunFinished(TODAY.toString(), 0);
+        job.onRunFinished(TODAY.plusDays(1).toString(), 3);
+
+        verify(notificationOutbox).enqueue("No rentals overdue today!");
+        verify(notificationOutbox, never()).enqueue(contains("Overdue"));
+    }
+}
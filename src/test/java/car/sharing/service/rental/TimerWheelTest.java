@@ -0,0 +1,58 @@
+package car.sharing.service.rental;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+class TimerWheelTest {
+    private static final long START = 1_000_000;
+
+    private final TimerWheel<String> wheel = new TimerWheel<>(8, 1000, START);
+    private final List<String> expired = new ArrayList<>();
+
+    @Test
+    @DisplayName("Items expire on the first tick at or after their deadline")
+    public void advance_PastDeadline_ExpiresItem() {
+        wheel.schedule("a", START + 2_500);
+
+        wheel.advance(START + 2_000, expired::add);
+        assertEquals(List.of(), expired);
+
+        wheel.advance(START + 3_000, expired::add);
+        assertEquals(List.of("a"), expired);
+
+        wheel.advance(START + 20_000, expired::add);
+        assertEquals(List.of("a"), expired);
+    }
+
+    @Test
+    @DisplayName("Items due in a later turn of the wheel are kept until then")
+    public void advance_DeadlineBeyondOneTurn_WaitsForLaterTurn() {
+        wheel.schedule("later", START + 11_000);
+        wheel.schedule("soon", START + 3_000);
+
+        wheel.advance(START + 8_000, expired::add);
+        assertEquals(List.of("soon"), expired);
+
+        wheel.advance(START + 11_000, expired::add);
+        assertEquals(List.of("soon", "later"), expired);
+    }
+
+    @Test
+    @DisplayName("A late advance expires everything that became due meanwhile")
+    public void advance_AfterLongPause_ExpiresAllDueItems() {
+        wheel.schedule("a", START + 1_000);
+        wheel.schedule("b", START + 7_000);
+        wheel.schedule("c", START + 30_000);
+        wheel.schedule("overdue", START - 5_000);
+
+        wheel.advance(START + 25_000, expired::add);
+
+        assertEquals(3, expired.size());
+        assertEquals(Set.of("overdue", "a", "b"), Set.copyOf(expired));
+    }
+}
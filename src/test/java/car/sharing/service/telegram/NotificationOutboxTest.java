@@ -0,0 +1,53 @@
+package car.sharing.service.telegram;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+import car.sharing.model.notification.OutboxMessage;
+import car.sharing.repository.OutboxMessageRepository;
+import java.util.List;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+@ExtendWith(MockitoExtension.class)
+class NotificationOutboxTest {
+    @Mock
+    private OutboxMessageRepository outboxRepository;
+    @InjectMocks
+    private NotificationOutbox notificationOutbox;
+
+    @Test
+    @DisplayName("A message longer than Telegram allows is saved in parts")
+    public void enqueue_LongMessage_SavesParts() {
+        notificationOutbox.enqueue("a".repeat(5000));
+
+        verify(outboxRepository, times(2)).save(any(OutboxMessage.class));
+    }
+
+    @Test
+    @DisplayName("Long messages are split after the last line break that fits")
+    public void split_LongMessage_SplitsAtLineBreak() {
+        String firstLine = "a".repeat(3000) + "\n";
+        String secondLine = "b".repeat(2000) + "\n";
+
+        List<String> parts = NotificationOutbox.split(firstLine + secondLine);
+
+        assertEquals(List.of(firstLine, secondLine), parts);
+    }
+
+    @Test
+    @DisplayName("A line longer than Telegram allows is split at the length limit")
+    public void split_LongLine_SplitsAtMessageLength() {
+        List<String> parts = NotificationOutbox.split("c".repeat(9000));
+
+        assertEquals(3, parts.size());
+        assertEquals(TelegramNotificationService.MAX_MESSAGE_LENGTH, parts.get(0).length());
+        assertEquals(808, parts.get(2).length());
+    }
+}
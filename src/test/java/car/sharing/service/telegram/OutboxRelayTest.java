@@ -0,0 +1,158 @@
+package car.sharing.service.telegram;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import car.sharing.exception.TelegramNotificationException;
+import car.sharing.exception.TelegramRateLimitException;
+import car.sharing.model.notification.OutboxMessage;
+import car.sharing.repository.OutboxMessageRepository;
+import car.sharing.service.job.JobLock;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.function.Consumer;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+
+@ExtendWith(MockitoExtension.class)
+class OutboxRelayTest {
+    @Mock
+    private OutboxMessageRepository outboxRepository;
+    @Mock
+    private TelegramNotificationService notificationService;
+    @Mock
+    private TransactionTemplate transactionTemplate;
+    @Mock
+    private JobLock jobLock;
+
+    private OutboxRelay relay;
+
+    @BeforeEach
+    public void setup() {
+        relay = new OutboxRelay(outboxRepository, notificationService, transactionTemplate, jobLock,
+                2, 5, Duration.ofMinutes(2), Duration.ofSeconds(5), Duration.ofSeconds(30),
+                Duration.ofDays(7));
+    }
+
+    @Test
+    @DisplayName("Due messages are sent in order and marked sent")
+    public void relay_DueMessages_SendsAndMarksSent() {
+        runTransactionsInline();
+        when(outboxRepository.lockDueIds(any(), eq(5), eq(2))).thenReturn(List.of(1L));
+        when(outboxRepository.findAllById(List.of(1L))).thenReturn(List.of(message(1L, 0)));
+
+        relay.relay();
+
+        verify(outboxRepository).lease(eq(List.of(1L)), any());
+        verify(notificationService).sendMessage("Message 1");
+        verify(outboxRepository).markSent(eq(List.of(1L)), any());
+    }
+
+    @Test
+    @DisplayName("Failed messages are retried later with a growing delay")
+    public void relay_SendFails_SchedulesRetryWithBackoff() {
+        runTransactionsInline();
+        when(outboxRepository.lockDueIds(any(), eq(5), eq(2))).thenReturn(List.of(1L));
+        when(outboxRepository.findAllById(List.of(1L))).thenReturn(List.of(message(1L, 2)));
+        doThrow(new TelegramNotificationException("Can`t send message"))
+                .when(notificationService).sendMessage("Message 1");
+        final LocalDateTime before = LocalDateTime.now();
+
+        relay.relay();
+
+        ArgumentCaptor<LocalDateTime> nextAttempt = ArgumentCaptor.forClass(LocalDateTime.class);
+        verify(outboxRepository).markFailed(eq(List.of(1L)), nextAttempt.capture());
+        verify(outboxRepository, never()).markSent(any(), any());
+        Duration delay = Duration.between(before, nextAttempt.getValue());
+        assertEquals(20, delay.toSeconds());
+    }
+
+    @Test
+    @DisplayName("A full batch is sent as one message and followed by the next batch")
+    public void relay_FullBatch_CoalescesAndClaimsNextBatch() {
+        runTransactionsInline();
+        when(outboxRepository.lockDueIds(any(), anyInt(), anyInt()))
+                .thenReturn(List.of(2L, 1L), List.of());
+        when(outboxRepository.findAllById(List.of(2L, 1L)))
+                .thenReturn(List.of(message(2L, 0), message(1L, 0)));
+
+        relay.relay();
+
+        verify(outboxRepository, times(2)).lockDueIds(any(), anyInt(), anyInt());
+        verify(notificationService).sendMessage("Message 1\n\nMessage 2");
+        verify(outboxRepository).markSent(eq(List.of(1L, 2L)), any());
+    }
+
+    @Test
+    @DisplayName("Rate limited messages stay pending without counting an attempt")
+    public void relay_RateLimited_LeavesRestOfBatchPending() {
+        runTransactionsInline();
+        when(outboxRepository.lockDueIds(any(), eq(5), eq(2))).thenReturn(List.of(1L, 2L));
+        OutboxMessage first = message(1L, 0);
+        first.setMessage("a".repeat(4090));
+        when(outboxRepository.findAllById(List.of(1L, 2L)))
+                .thenReturn(List.of(first, message(2L, 0)));
+        lenient().doThrow(new TelegramRateLimitException("Rate limited", Duration.ofSeconds(3)))
+                .when(notificationService).sendMessage("Message 2");
+        final LocalDateTime before = LocalDateTime.now();
+
+        relay.relay();
+
+        ArgumentCaptor<LocalDateTime> nextAttempt = ArgumentCaptor.forClass(LocalDateTime.class);
+        verify(outboxRepository).markSent(eq(List.of(1L)), any());
+        verify(outboxRepository).lease(eq(List.of(2L)), nextAttempt.capture());
+        verify(outboxRepository, never()).markFailed(any(), any());
+        verify(outboxRepository).lockDueIds(any(), anyInt(), anyInt());
+        assertEquals(3, Duration.between(before, nextAttempt.getValue()).toSeconds());
+    }
+
+    @Test
+    @DisplayName("Messages are grouped in order up to the Telegram message length")
+    public void coalesce_LongMessages_SplitsAtMessageLength() {
+        OutboxMessage first = message(1L, 0);
+        first.setMessage("a".repeat(3000));
+        OutboxMessage second = message(2L, 0);
+        second.setMessage("b".repeat(1095));
+        OutboxMessage third = message(3L, 0);
+        third.setMessage("c".repeat(1000));
+
+        List<List<OutboxMessage>> groups = OutboxRelay.coalesce(List.of(first, second, third));
+
+        assertEquals(List.of(List.of(first), List.of(second, third)), groups);
+    }
+
+    private void runTransactionsInline() {
+        when(transactionTemplate.execute(any())).thenAnswer(invocation ->
+                invocation.<TransactionCallback<?>>getArgument(0).doInTransaction(null));
+        doAnswer(invocation -> {
+            invocation.<Consumer<TransactionStatus>>getArgument(0).accept(null);
+            return null;
+        }).when(transactionTemplate).executeWithoutResult(any());
+    }
+
+    private static OutboxMessage message(Long id, int attempts) {
+        OutboxMessage message = new OutboxMessage();
+        message.setId(id);
+        message.setMessage("Message " + id);
+        message.setAttempts(attempts);
+        return message;
+    }
+}
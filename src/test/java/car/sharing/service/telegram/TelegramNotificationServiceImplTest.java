@@ -0,0 +1,111 @@
+package car.sharing.service.telegram;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import car.sharing.exception.TelegramRateLimitException;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.telegram.telegrambots.bots.DefaultBotOptions;
+
+/**
+ * Runs the bot against a local fake of the Telegram Bot API.
+ */
+@ExtendWith(MockitoExtension.class)
+class TelegramNotificationServiceImplTest {
+    private static final String SENT = "{\"ok\":true,\"result\":{\"message_id\":1,\"date\":0,"
+            + "\"chat\":{\"id\":42,\"type\":\"private\"},\"text\":\"sent\"}}";
+    private static final String TOO_MANY_REQUESTS = "{\"ok\":false,\"error_code\":429,"
+            + "\"description\":\"Too Many Requests: retry after 1\","
+            + "\"parameters\":{\"retry_after\":1}}";
+
+    @Mock
+    private TelegramRateLimiter rateLimiter;
+    private final AtomicInteger requests = new AtomicInteger();
+    private final AtomicInteger rejectedRequests = new AtomicInteger();
+    private HttpServer server;
+
+    @BeforeEach
+    public void setup() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/", this::handle);
+        server.start();
+    }
+
+    @AfterEach
+    public void tearDown() {
+        server.stop(0);
+    }
+
+    @Test
+    @DisplayName("A message the rate limiter allows is sent right away")
+    public void sendMessage_Allowed_SendsMessage() {
+        when(rateLimiter.tryAcquire(42L)).thenReturn(Duration.ZERO);
+
+        bot().sendMessage("Message");
+
+        assertEquals(1, requests.get());
+    }
+
+    @Test
+    @DisplayName("A rate limited message is not sent and reports when to try again")
+    public void sendMessage_RateLimited_ThrowsWithoutSending() {
+        when(rateLimiter.tryAcquire(42L)).thenReturn(Duration.ofSeconds(2));
+        TelegramNotificationServiceImpl bot = bot();
+
+        TelegramRateLimitException exception = assertThrows(TelegramRateLimitException.class,
+                () -> bot.sendMessage("Message"));
+
+        assertEquals(Duration.ofSeconds(2), exception.getRetryAfter());
+        assertEquals(0, requests.get());
+    }
+
+    @Test
+    @DisplayName("A 429 answer pauses the chat for retry_after instead of waiting")
+    public void sendMessage_TooManyRequests_PausesChat() {
+        rejectedRequests.set(1);
+        when(rateLimiter.tryAcquire(42L)).thenReturn(Duration.ZERO);
+        TelegramNotificationServiceImpl bot = bot();
+
+        TelegramRateLimitException exception = assertThrows(TelegramRateLimitException.class,
+                () -> bot.sendMessage("Message"));
+
+        assertEquals(Duration.ofSeconds(1), exception.getRetryAfter());
+        assertEquals(1, requests.get());
+        verify(rateLimiter).pause(42L, Duration.ofSeconds(1));
+    }
+
+    private TelegramNotificationServiceImpl bot() {
+        DefaultBotOptions options = new DefaultBotOptions();
+        options.setBaseUrl("http://localhost:" + server.getAddress().getPort() + "/bot");
+        return new TelegramNotificationServiceImpl(options, "car_sharing_bot", "token", 42L,
+                rateLimiter);
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        exchange.getRequestBody().readAllBytes();
+        requests.incrementAndGet();
+        boolean rejected = rejectedRequests.getAndUpdate(left -> Math.max(left - 1, 0)) > 0;
+        byte[] body = (rejected ? TOO_MANY_REQUESTS : SENT).getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().add("Content-Type", "application/json");
+        exchange.sendResponseHeaders(rejected ? 429 : 200, body.length);
+        try (OutputStream outputStream = exchange.getResponseBody()) {
+            outputStream.write(body);
+        }
+    }
+}
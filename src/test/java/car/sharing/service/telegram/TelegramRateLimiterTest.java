@@ -0,0 +1,60 @@
+package car.sharing.service.telegram;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class TelegramRateLimiterTest {
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @AfterEach
+    public void tearDown() {
+        jdbcTemplate.update("DELETE FROM telegram_rate_limits");
+    }
+
+    @Test
+    @DisplayName("A chat gets its burst, then waits, whichever instance sends")
+    public void tryAcquire_BurstUsedOnOtherInstance_Waits() {
+        TelegramRateLimiter first = limiter();
+        TelegramRateLimiter second = limiter();
+
+        assertEquals(Duration.ZERO, first.tryAcquire(42L));
+        assertEquals(Duration.ZERO, second.tryAcquire(42L));
+        Duration wait = first.tryAcquire(42L);
+
+        // 20 messages a minute, so the next one is due 3 seconds after the first
+        assertTrue(wait.compareTo(Duration.ofMillis(2500)) > 0, "Waits " + wait);
+        assertEquals(Duration.ZERO, second.tryAcquire(43L));
+    }
+
+    @Test
+    @DisplayName("A paused chat waits for the pause on every instance")
+    public void pause_OtherInstance_Waits() {
+        limiter().pause(42L, Duration.ofSeconds(10));
+
+        Duration wait = limiter().tryAcquire(42L);
+
+        assertTrue(wait.compareTo(Duration.ofSeconds(9)) > 0, "Waits " + wait);
+    }
+
+    private TelegramRateLimiter limiter() {
+        return new TelegramRateLimiter(jdbcTemplate, transactionManager, 30, 20, 2);
+    }
+}
@@ -0,0 +1,64 @@
+package car.sharing.service.user;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+class RegisteredEmailFilterTest {
+    private MeterRegistry meterRegistry;
+    private RegisteredEmailFilter filter;
+
+    @BeforeEach
+    public void setup() {
+        meterRegistry = new SimpleMeterRegistry();
+        filter = new RegisteredEmailFilter(new JdbcTemplate(), meterRegistry, 10_000, 0.01);
+        ReflectionTestUtils.setField(filter, "loaded", true);
+    }
+
+    @Test
+    @DisplayName("Added emails are always reported as possible hits, ignoring case")
+    public void mightContain_AddedEmail_ReturnsTrue() {
+        filter.add("bob@example.com");
+
+        assertTrue(filter.mightContain("bob@example.com"));
+        assertTrue(filter.mightContain("Bob@Example.com"));
+    }
+
+    @Test
+    @DisplayName("False positive rate stays near the configured one at expected capacity")
+    public void mightContain_FilterAtCapacity_KeepsFalsePositiveRateLow() {
+        for (int i = 0; i < 10_000; i++) {
+            filter.add("user" + i + "@example.com");
+        }
+        int falsePositives = 0;
+        for (int i = 0; i < 10_000; i++) {
+            if (filter.mightContain("other" + i + "@example.com")) {
+                falsePositives++;
+            }
+        }
+
+        assertTrue(falsePositives < 200, "false positives: " + falsePositives);
+        assertTrue(filter.expectedFalsePositiveRate() < 0.02);
+        assertEquals(10_000 - falsePositives,
+                meterRegistry.get("users.email.filter.checks").tag("result", "miss")
+                        .counter().count());
+    }
+
+    @Test
+    @DisplayName("Every email is a possible hit until the table is loaded")
+    public void mightContain_NotLoaded_ReturnsTrue() {
+        ReflectionTestUtils.setField(filter, "loaded", false);
+
+        assertTrue(filter.mightContain("bob@example.com"));
+        ReflectionTestUtils.setField(filter, "loaded", true);
+        assertFalse(filter.mightContain("bob@example.com"));
+    }
+}
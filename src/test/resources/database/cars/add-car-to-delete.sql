@@ -1,2 +1,6 @@
-INSERT INTO cars (id, model, brand, car_type, inventory, daily_fee, is_deleted)
-VALUES (3, 'Model 3', 'Tesla', 'SEDAN', 10, 25.00, FALSE);
\ No newline at end of file
+INSERT INTO cars (id, model, brand, car_type, daily_fee, is_deleted)
+VALUES (3, 'Model 3', 'Tesla', 'SEDAN', 25.00, FALSE);
+INSERT INTO vehicle_units (car_id, is_rented, is_deleted)
+VALUES (3, FALSE, FALSE), (3, FALSE, FALSE), (3, FALSE, FALSE), (3, FALSE, FALSE),
+(3, FALSE, FALSE), (3, FALSE, FALSE), (3, FALSE, FALSE), (3, FALSE, FALSE),
+(3, FALSE, FALSE), (3, FALSE, FALSE);
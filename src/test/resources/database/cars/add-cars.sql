@@ -1,4 +1,11 @@
-INSERT INTO cars (id, model, brand, car_type, inventory, daily_fee, is_deleted)
-VALUES (1, 'Model 3', 'Tesla', 'SUV', 5, 10.00, FALSE);
-INSERT INTO cars (id, model, brand, car_type, inventory, daily_fee, is_deleted)
-VALUES (2, 'Model S', 'Tesla', 'SEDAN', 10, 20.00, FALSE);
+INSERT INTO cars (id, model, brand, car_type, daily_fee, is_deleted)
+VALUES (1, 'Model 3', 'Tesla', 'SUV', 10.00, FALSE);
+INSERT INTO cars (id, model, brand, car_type, daily_fee, is_deleted)
+VALUES (2, 'Model S', 'Tesla', 'SEDAN', 20.00, FALSE);
+INSERT INTO vehicle_units (car_id, is_rented, is_deleted)
+VALUES (1, FALSE, FALSE), (1, FALSE, FALSE), (1, FALSE, FALSE), (1, FALSE, FALSE),
+(1, FALSE, FALSE);
+INSERT INTO vehicle_units (car_id, is_rented, is_deleted)
+VALUES (2, FALSE, FALSE), (2, FALSE, FALSE), (2, FALSE, FALSE), (2, FALSE, FALSE),
+(2, FALSE, FALSE), (2, FALSE, FALSE), (2, FALSE, FALSE), (2, FALSE, FALSE),
+(2, FALSE, FALSE), (2, FALSE, FALSE);
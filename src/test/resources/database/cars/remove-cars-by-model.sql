@@ -1 +1,2 @@
+DELETE FROM vehicle_units WHERE car_id IN (SELECT id FROM cars WHERE model = "Model 1");
 DELETE FROM cars WHERE model = "Model 1";
\ No newline at end of file
@@ -1 +1,2 @@
-DELETE FROM cars;
+DELETE FROM vehicle_units;
+DELETE FROM cars;
\ No newline at end of file